@@ -0,0 +1,287 @@
+package mini_project_dbms;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Loads ad platform exports (CSV or JSON, same formats as BusinessImporter) into Ads and Products_Ads.
+// One thread parses the file into batches and hands them to N writer threads, each with its own
+// connection and a small bounded queue, so a slow database blocks the parser instead of filling the
+// heap. Rows are routed by (AdsID, Platform), so a key is always written by the same writer, in file
+// order, and writers never contend for the same rows. Writes are batched upserts
+// (INSERT ... ON DUPLICATE KEY UPDATE), so re-running a file is harmless.
+//
+// Columns: AdsID, Platform, AgeGroup, Impressions, Conversions, Revenue, Cost and optionally
+// ProductID (one id, or several separated by ';') for the Products_Ads links.
+public class AdsLoader {
+    public static final int DEFAULT_WRITERS = Integer.getInteger("vulcynyx.adsLoader.writers",
+        Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("vulcynyx.adsLoader.batchSize", 500);
+    private static final int QUEUED_BATCHES = Integer.getInteger("vulcynyx.adsLoader.queuedBatches", 4);
+    private static final int LOGGED_REJECTS = 20;
+
+    private static final String UPSERT_AD =
+        "INSERT INTO Ads (AdsID, Platform, AgeGroup, Impressions, Conversions, Revenue, Cost) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE AgeGroup = VALUES(AgeGroup), " +
+        "Impressions = VALUES(Impressions), Conversions = VALUES(Conversions), " +
+        "Revenue = VALUES(Revenue), Cost = VALUES(Cost)";
+    private static final String UPSERT_LINK =
+        "INSERT INTO Products_Ads (ProductID, AdsID, Platform) VALUES (?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE ProductID = VALUES(ProductID)";
+
+    // Marks the end of a writer's queue
+    private static final List<AdRecord> END = new ArrayList<>();
+
+    private static final class AdRecord {
+        int adsId;
+        String platform;
+        String ageGroup;
+        int impressions;
+        int conversions;
+        BigDecimal revenue;
+        BigDecimal cost;
+        int[] productIds;
+    }
+
+    // Outcome of one load
+    public static final class Report {
+        final AtomicLong ads = new AtomicLong();
+        final AtomicLong links = new AtomicLong();
+        long read;
+        long rejected;
+        long elapsedNanos;
+        final Map<String, Long> rejectReasons = new TreeMap<>();
+
+        public long getAds() {
+            return ads.get();
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder sb = new StringBuilder(String.format(
+                "Read %,d rows: upserted %,d ads and %,d product links, rejected %,d in %.2f s (%,.0f rows/s)",
+                read, ads.get(), links.get(), rejected, seconds, seconds > 0 ? read / seconds : 0));
+            rejectReasons.forEach((reason, count) -> sb.append(String.format("%n  %,d x %s", count, reason)));
+            return sb.toString();
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int writers;
+    private final int batchSize;
+
+    public AdsLoader(String url, String user, String password, int writers, int batchSize) {
+        if (writers < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("writers and batchSize must be >= 1");
+        }
+        this.url = BusinessImporter.withBatchRewrite(url);
+        this.user = user;
+        this.password = password;
+        this.writers = writers;
+        this.batchSize = batchSize;
+    }
+
+    public AdsLoader(String url, String user, String password) {
+        this(url, user, password, DEFAULT_WRITERS, DEFAULT_BATCH_SIZE);
+    }
+
+    public Report load(Path file) throws IOException, SQLException {
+        String name = file.getFileName().toString().toLowerCase();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return load(new BusinessImporter.JsonRows(reader));
+            }
+            return load(new BusinessImporter.CsvRows(reader));
+        }
+    }
+
+    Report load(BusinessImporter.RowSource rows) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Report report = new Report();
+        List<BlockingQueue<List<AdRecord>>> queues = new ArrayList<>();
+        List<Future<?>> writing = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(writers, r -> {
+            Thread t = new Thread(r, "ads-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        boolean complete = false;
+        try {
+            for (int i = 0; i < writers; i++) {
+                BlockingQueue<List<AdRecord>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+                queues.add(queue);
+                writing.add(pool.submit(() -> {
+                    write(queue, report);
+                    return null;
+                }));
+            }
+            parse(rows, queues, writing, report);
+            for (Future<?> writer : writing) {
+                writer.get();
+            }
+            complete = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ads load interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        } finally {
+            pool.shutdownNow();
+            // When one writer fails, batches the others committed (or are still committing) stay in the tables
+            if (!complete || report.ads.get() > 0) {
+                ResultCache.shared().invalidateTable("Ads");
+                ResultCache.shared().invalidateTable("Products_Ads");
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // Parser stage: build per-writer batches and hand them over, blocking while a writer is behind
+    private void parse(BusinessImporter.RowSource rows, List<BlockingQueue<List<AdRecord>>> queues,
+                       List<Future<?>> writing, Report report)
+            throws IOException, InterruptedException, ExecutionException {
+        List<List<AdRecord>> batches = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            batches.add(new ArrayList<>(batchSize));
+        }
+        Map<String, String> row;
+        while ((row = rows.next()) != null) {
+            report.read++;
+            AdRecord record = new AdRecord();
+            String reject = parse(row, record);
+            if (reject != null) {
+                report.rejected++;
+                report.rejectReasons.merge(reject, 1L, Long::sum);
+                if (report.rejected <= LOGGED_REJECTS) {
+                    System.err.println("Rejected " + rows.position() + ": " + reject);
+                }
+                continue;
+            }
+            int writer = Math.floorMod(Objects.hash(record.adsId, record.platform), writers);
+            List<AdRecord> batch = batches.get(writer);
+            batch.add(record);
+            if (batch.size() == batchSize) {
+                handOver(queues.get(writer), writing.get(writer), batch);
+                batches.set(writer, new ArrayList<>(batchSize));
+            }
+        }
+        for (int i = 0; i < writers; i++) {
+            if (!batches.get(i).isEmpty()) {
+                handOver(queues.get(i), writing.get(i), batches.get(i));
+            }
+            handOver(queues.get(i), writing.get(i), END);
+        }
+    }
+
+    // Blocks until the writer has room; gives up (surfacing its error) if the writer died
+    private static void handOver(BlockingQueue<List<AdRecord>> queue, Future<?> writer, List<AdRecord> batch)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                writer.get();
+                throw new ExecutionException(new SQLException("Ads writer stopped unexpectedly"));
+            }
+        }
+    }
+
+    private static String parse(Map<String, String> row, AdRecord record) {
+        String platform = row.get("platform");
+        String ageGroup = row.get("agegroup");
+        if (isBlank(row.get("adsid")) || isBlank(platform) || isBlank(ageGroup)) {
+            return "missing field";
+        }
+        try {
+            record.adsId = Integer.parseInt(row.get("adsid").trim());
+            record.impressions = parseInt(row.get("impressions"));
+            record.conversions = parseInt(row.get("conversions"));
+            record.revenue = parseMoney(row.get("revenue"));
+            record.cost = parseMoney(row.get("cost"));
+            String products = row.get("productid");
+            if (isBlank(products)) {
+                record.productIds = new int[0];
+            } else {
+                String[] ids = products.split(";");
+                record.productIds = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    record.productIds[i] = Integer.parseInt(ids[i].trim());
+                }
+            }
+        } catch (NumberFormatException e) {
+            return "not a number";
+        }
+        if (record.impressions < 0 || record.conversions < 0 || record.conversions > record.impressions) {
+            return "inconsistent Impressions/Conversions";
+        }
+        record.platform = platform.trim();
+        record.ageGroup = ageGroup.trim();
+        return null;
+    }
+
+    private static int parseInt(String value) {
+        return isBlank(value) ? 0 : Integer.parseInt(value.trim());
+    }
+
+    // Revenue and Cost are DECIMAL, so they are bound as BigDecimal: a double would carry
+    // binary rounding error into the stored cents
+    private static BigDecimal parseMoney(String value) {
+        return isBlank(value) ? BigDecimal.ZERO : new BigDecimal(value.trim());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    // Writer stage: one connection, one transaction per batch
+    private void write(BlockingQueue<List<AdRecord>> queue, Report report) throws SQLException, InterruptedException {
+        try (Connection conn = DriverManager.getConnection(url, user, password);
+             PreparedStatement ads = conn.prepareStatement(UPSERT_AD);
+             PreparedStatement links = conn.prepareStatement(UPSERT_LINK)) {
+            conn.setAutoCommit(false);
+            List<AdRecord> batch;
+            while ((batch = queue.take()) != END) {
+                int linked = 0;
+                for (AdRecord record : batch) {
+                    ads.setInt(1, record.adsId);
+                    ads.setString(2, record.platform);
+                    ads.setString(3, record.ageGroup);
+                    ads.setInt(4, record.impressions);
+                    ads.setInt(5, record.conversions);
+                    ads.setBigDecimal(6, record.revenue);
+                    ads.setBigDecimal(7, record.cost);
+                    ads.addBatch();
+                    for (int productId : record.productIds) {
+                        links.setInt(1, productId);
+                        links.setInt(2, record.adsId);
+                        links.setString(3, record.platform);
+                        links.addBatch();
+                        linked++;
+                    }
+                }
+                try {
+                    ads.executeBatch();
+                    if (linked > 0) {
+                        links.executeBatch();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                report.ads.addAndGet(batch.size());
+                report.links.addAndGet(linked);
+            }
+        }
+    }
+}
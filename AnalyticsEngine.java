@@ -0,0 +1,706 @@
+package mini_project_dbms;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional in-process evaluation of the aggregate reports (enable with vulcynyx.analytics.enabled).
+// A ColumnarSnapshot of Business, Product, Category, Customer, Ads, Products_Ads and Regional_info
+// is loaded in the background and reloaded every vulcynyx.analytics.refreshMs; once loaded,
+// evaluate() answers the reports below with parallel group-by passes (ParallelGroupBy) over the
+// primitive columns, without touching the database:
+//   Q01 top searched product per age group   Q13 top 5 products per region
+//   Q02 most purchased in a price range      Q14 revenue by category
+//   Q03 revenue by platform                  Q17 in stock but not sold last month
+//   Q10 top 5 customers by spending          Q19 high bounce-rate products
+//   Q11 quantity sold per product            Q21 ads running at a loss (ROI ranking)
+//   Q12 average price per category           Q22 ads with high conversion
+//                                            Q24 restock priority list
+// The last-month reports (Q17, Q19, Q24) only read the recent sales, through a date-range scan of
+// the off-heap BusinessStore, and take the current date from the JVM's clock rather than the
+// server's CURRENT_DATE. Results have the same columns as the SQL and MySQL's DECIMAL rounding, and
+// NULLs are left out of sums, averages and comparisons the way SQL leaves them out.
+// Reads committed after the snapshot started are not seen until the next reload; getStaleness()
+// says how old it is.
+//
+// Each report is only evaluated while its SQL is the one mirrored here: the caller passes the SQL it
+// would run, and a report whose fingerprint differs from MIRRORED (edited in reports.properties or
+// Database) runs in the database instead. Q21 and Q22 read Ad_Performance_View, whose definition lives
+// in the database; they are only evaluated once a query has shown the view returns exactly the Ads
+// columns and ratios derived here.
+//
+// Each loaded snapshot is saved to vulcynyx.analytics.snapshotDir (SnapshotStore). On startup the
+// saved one is mapped back in first, so reports are answered at once (with its age as staleness),
+// and the first reload then only fetches the rows changed since its watermark. Changes reported by
+// the ChangeFeed bring the next reload forward (to no sooner than vulcynyx.analytics.minRefreshMs
+// after the last one); only the periodic reloads are saved.
+public class AnalyticsEngine {
+    private static final boolean ENABLED = Boolean.getBoolean("vulcynyx.analytics.enabled");
+    private static final long REFRESH_MS = Long.getLong("vulcynyx.analytics.refreshMs", 300_000L);
+    // Feed-triggered reloads come at most this often
+    private static final long MIN_REFRESH_MS = Long.getLong("vulcynyx.analytics.minRefreshMs", 30_000L);
+    private static final String SNAPSHOT_DIR = System.getProperty("vulcynyx.analytics.snapshotDir", "vulcynyx-snapshot");
+
+    private static final Map<ConnectionPool, AnalyticsEngine> shared = new IdentityHashMap<>();
+
+    // fingerprint() of the SQL each report below reproduces
+    private static final Map<String, String> MIRRORED = Map.ofEntries(
+        Map.entry("Q01", "d4f2df26e636fd892b79bcdd9c177764737f8d8cc2b03e719b9251dd369bb23a"),
+        Map.entry("Q02", "078c803c57749ed9e96f723ad580e0c4f99774233a4b1778502649510f25cdae"),
+        Map.entry("Q03", "7477474e2f0c372153d4693d46e379e8b4233a7ca310126f9171c5433b4554e5"),
+        Map.entry("Q10", "ff7eb34f3f38379b0e428dc801e0ee2e6c9ecb7a71247eda49bca1a2ef939958"),
+        Map.entry("Q11", "02373a4d436ea742ce8bcb8c75e3e75cf4caa6d0e0194317326a403fb6d99457"),
+        Map.entry("Q12", "540f6971c2823ca85c09bc86f8dec2980f8050f281485566f334c234f5ff6757"),
+        Map.entry("Q13", "0d16cbb9fc0d879f180a5fa3ad39e49ea6fc2dc3c540b652800466437f596b0d"),
+        Map.entry("Q14", "fdfb13a8c4a1be2fe5103923298a8abae08e958606e7a5da0d53cc8ceb67213b"),
+        Map.entry("Q17", "772257b1137d146194ed221bdacc2535e48b3a5d85f6c05e6c7d1e40cdf9f597"),
+        Map.entry("Q19", "d29389d1de65815e7fca0724c3e7a5252650c0dbbaa75683cf1d3931711ee215"),
+        Map.entry("Q21", "7f62b04f6dbff27fd64468d999b10e7c4ca20483b01b12377ce058dbc02a0c09"),
+        Map.entry("Q22", "1526c90008554f0f8864e038a2498eda8c5b1b7917514d1a3aabe2eb7863faf1"),
+        Map.entry("Q24", "318e5f4bd2f0eae0dea4fe7a2ec8c54c6f4e1d17f53b3b4f60559890a70b97e8"));
+
+    // Ads rows missing from Ad_Performance_View, and view rows whose columns differ from the ones
+    // adsRunningAtLoss and adsWithHighConversion derive from Ads; both 0 if the view is the mirrored one
+    private static final String AD_VIEW_CHECK = "SELECT " +
+        "(SELECT COUNT(*) FROM Ads) - (SELECT COUNT(*) FROM Ad_Performance_View), " +
+        "(SELECT COUNT(*) FROM Ad_Performance_View v " +
+        "LEFT JOIN Ads a ON a.AdsID = v.AdID AND a.Platform = v.Platform " +
+        "WHERE a.AdsID IS NULL OR NOT (" +
+        same("v.Revenue", "a.Revenue") + " AND " +
+        same("v.AdCost", "a.Cost") + " AND " +
+        same("v.ROI", "ROUND((a.Revenue - a.Cost) / NULLIF(a.Cost, 0) * 100, 2)") + " AND " +
+        same("v.ConversionRate", "ROUND(a.Conversions / NULLIF(a.Impressions, 0) * 100, 2)") + " AND " +
+        same("v.Impressions", "a.Impressions") + " AND " +
+        same("v.Conversions", "a.Conversions") + "))";
+
+    private static final QueryResult.ColumnType INT = QueryResult.ColumnType.INT;
+    private static final QueryResult.ColumnType LONG = QueryResult.ColumnType.LONG;
+    private static final QueryResult.ColumnType DECIMAL = QueryResult.ColumnType.DECIMAL;
+    private static final QueryResult.ColumnType STRING = QueryResult.ColumnType.STRING;
+
+    private final ConnectionPool pool;
+    private final ScheduledExecutorService loader;
+    private final SnapshotStore store = new SnapshotStore(Paths.get(SNAPSHOT_DIR));
+    private volatile ColumnarSnapshot snapshot;
+    private boolean started;
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong evaluationNanos = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong deltaLoads = new AtomicLong();
+    private volatile long openMillis = -1;
+    private volatile long saveMillis = -1;
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+    // SQL last seen to match MIRRORED, by report id, and the ids already reported as differing
+    private final Map<String, String> mirroredSql = new ConcurrentHashMap<>();
+    private final Set<String> edited = ConcurrentHashMap.newKeySet();
+    // Whether Ad_Performance_View was seen to be the mirrored one; null until checked
+    private volatile Boolean adViewMirrored;
+
+    public AnalyticsEngine(ConnectionPool pool) {
+        this.pool = pool;
+        this.loader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "analytics-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Engine shared by every front end in this JVM that uses the same pool
+    public static synchronized AnalyticsEngine shared(ConnectionPool pool) {
+        return shared.computeIfAbsent(pool, AnalyticsEngine::new);
+    }
+
+    // Open the saved snapshot and then keep it up to date in the background; no-op unless enabled
+    public synchronized void start() {
+        if (!ENABLED || started) {
+            return;
+        }
+        started = true;
+        loader.execute(this::openSaved);
+        loader.scheduleWithFixedDelay(() -> reloadQuietly(true), 0, REFRESH_MS, TimeUnit.MILLISECONDS);
+        ChangeFeed feed = ChangeFeed.shared(pool);
+        feed.subscribe(this::reloadSoon);
+        feed.start();
+    }
+
+    // Product, Business or Ads changed: reload early, once per burst of changes
+    private void reloadSoon(List<ChangeFeed.Change> changes) {
+        ColumnarSnapshot s = snapshot;
+        if (s == null || !reloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = Math.max(0, s.loadedAt + MIN_REFRESH_MS - System.currentTimeMillis());
+        loader.schedule(() -> {
+            reloadQueued.set(false);
+            reloadQuietly(false);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void openSaved() {
+        try {
+            ColumnarSnapshot saved = store.open();
+            if (saved != null && snapshot == null) {
+                snapshot = saved;
+                openMillis = saved.loadMillis;
+                System.out.println("Analytics snapshot opened from " + store.getDirectory() + " in " +
+                    saved.loadMillis + " ms, " + getStaleness().getSeconds() + " s old");
+            }
+        } catch (IOException e) {
+            System.err.println("Analytics snapshot not opened: " + e.getMessage());
+        }
+    }
+
+    // Bring the snapshot up to date (from the rows changed since the current one where possible)
+    // and save it for the next start
+    public void reload() throws SQLException {
+        reload(true);
+    }
+
+    void reload(boolean save) throws SQLException {
+        ColumnarSnapshot next;
+        try (Connection conn = pool.getConnection()) {
+            next = ColumnarSnapshot.refresh(conn, snapshot);
+            if (adViewMirrored == null) {
+                adViewMirrored = checkAdView(conn);
+            }
+        }
+        snapshot = next;
+        loads.incrementAndGet();
+        if (!next.deltaTables.isEmpty()) {
+            deltaLoads.incrementAndGet();
+        }
+        if (!save) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            store.save(next);
+            saveMillis = (System.nanoTime() - start) / 1_000_000;
+        } catch (IOException e) {
+            System.err.println("Analytics snapshot not saved: " + e.getMessage());
+        }
+    }
+
+    private void reloadQuietly(boolean save) {
+        try {
+            reload(save);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Analytics snapshot load failed" + (snapshot == null ? "" : ", keeping the previous one") +
+                ": " + e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    // Age of the snapshot the reports are answered from, or null before the first load
+    public Duration getStaleness() {
+        ColumnarSnapshot s = snapshot;
+        return s == null ? null : Duration.ofMillis(System.currentTimeMillis() - s.loadedAt);
+    }
+
+    // The report computed from the snapshot, or null if it is not loaded or the report is not one
+    // this engine evaluates as sql. params are the report's bound parameters.
+    public QueryResult evaluate(String reportId, String sql, Object... params) {
+        ColumnarSnapshot s = snapshot;
+        if (s == null || !mirrors(reportId, sql)) {
+            return null;
+        }
+        if ((reportId.equals("Q21") || reportId.equals("Q22")) && !Boolean.TRUE.equals(adViewMirrored)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        QueryResult result;
+        switch (reportId) {
+            case "Q01": result = topSearchedPerAgeGroup(s); break;
+            case "Q02": result = mostPurchasedInPriceRange(s, (BigDecimal) params[0], (BigDecimal) params[1]); break;
+            case "Q03": result = revenueByPlatform(s); break;
+            case "Q10": result = topCustomersBySpending(s); break;
+            case "Q11": result = quantitySoldPerProduct(s); break;
+            case "Q12": result = averagePricePerCategory(s); break;
+            case "Q13": result = topSellingPerRegion(s); break;
+            case "Q14": result = revenueByCategory(s); break;
+            case "Q17": result = productsNotSoldLastMonth(s); break;
+            case "Q19": result = highBounceRateProducts(s); break;
+            case "Q21": result = adsRunningAtLoss(s); break;
+            case "Q22": result = adsWithHighConversion(s); break;
+            case "Q24": result = restockPriorityList(s); break;
+            default: return null;
+        }
+        long elapsed = System.nanoTime() - start;
+        evaluations.incrementAndGet();
+        evaluationNanos.addAndGet(elapsed);
+        long[] phases = new long[QueryMetrics.Phase.values().length];
+        phases[QueryMetrics.Phase.EXECUTE.ordinal()] = elapsed;
+        QueryMetrics.shared().record(reportId + ".local", phases, result.getRowCount(), result.estimatedBytes(), false);
+        return result;
+    }
+
+    // Whether sql is the query the report below reproduces
+    private boolean mirrors(String reportId, String sql) {
+        String expected = MIRRORED.get(reportId);
+        if (expected == null) {
+            return false;
+        }
+        if (sql.equals(mirroredSql.get(reportId))) {
+            return true;
+        }
+        if (!expected.equals(fingerprint(sql))) {
+            if (edited.add(reportId)) {
+                System.out.println("Analytics: the SQL of " + reportId + " is not the one evaluated locally; " +
+                    "running it in the database");
+            }
+            return false;
+        }
+        mirroredSql.put(reportId, sql);
+        return true;
+    }
+
+    private static boolean checkAdView(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(AD_VIEW_CHECK)) {
+            rs.next();
+            if (rs.getLong(1) == 0 && rs.getLong(2) == 0) {
+                return true;
+            }
+            System.out.println("Analytics: Ad_Performance_View differs from Ads; Q21 and Q22 run in the database");
+        } catch (SQLException e) {
+            System.out.println("Analytics: Ad_Performance_View not checked (" + e.getMessage() +
+                "); Q21 and Q22 run in the database");
+        }
+        return false;
+    }
+
+    // SHA-256 of sql with every run of whitespace outside quotes taken as one space, so reformatting
+    // a definition does not count as editing it
+    static String fingerprint(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+            normalized.append(c);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // a = b, with NULL equal to NULL
+    private static String same(String a, String b) {
+        return "COALESCE(" + a + " = " + b + ", " + a + " IS NULL AND " + b + " IS NULL)";
+    }
+
+    // ==================== REPORTS ====================
+
+    // Q01: per age group, the product(s) with the most impressions across their ads
+    private static QueryResult topSearchedPerAgeGroup(ColumnarSnapshot s) {
+        ParallelGroupBy.Groups impressions = ParallelGroupBy.sum(s.productAdsCount, i -> {
+            int product = s.productAdsProduct[i];
+            int ad = s.productAdsAd[i];
+            return product < 0 || ad < 0 ? ParallelGroupBy.SKIP : ParallelGroupBy.key(s.adsAgeGroup[ad], product);
+        }, i -> value(s.adsImpressions[s.productAdsAd[i]]));
+        Map<Long, int[]> top = ParallelGroupBy.topNPerGroup(impressions, key -> ParallelGroupBy.high(key), 1, true);
+        QueryResult.Builder out = new QueryResult.Builder(
+            new String[] { "AgeGroup", "ProductID", "ProductName", "Total_Impressions", "rnk" },
+            new QueryResult.ColumnType[] { STRING, INT, STRING, LONG, LONG }, top.size());
+        for (int group : sortedCodes(s.ageGroups)) {
+            for (int i : top.getOrDefault((long) group, new int[0])) {
+                int p = ParallelGroupBy.low(impressions.getKey(i));
+                out.addRow(s.ageGroups.decode(group), s.productId[p], s.productNames.decode(s.productName[p]),
+                    total(impressions.getSum(i)), 1L);
+            }
+        }
+        return out.build();
+    }
+
+    // Q02: the 3 best-selling product names among products priced within [min, max]
+    private static QueryResult mostPurchasedInPriceRange(ColumnarSnapshot s, BigDecimal min, BigDecimal max) {
+        long lo = min == null ? Long.MAX_VALUE : ColumnarSnapshot.cents(min.setScale(2, RoundingMode.CEILING));
+        long hi = max == null ? Long.MIN_VALUE : ColumnarSnapshot.cents(max.setScale(2, RoundingMode.FLOOR));
+        ParallelGroupBy.DenseGroups sold = ParallelGroupBy.sumDense(s.business.size(), s.productNames.size(), i -> {
+            int p = s.saleProduct(i);
+            long price = p < 0 ? ColumnarSnapshot.NULL_CENTS : s.productPriceCents[p];
+            return price != ColumnarSnapshot.NULL_CENTS && price >= lo && price <= hi ? s.productName[p] : -1;
+        }, i -> value(s.business.qty(i)));
+        int[] top = ParallelGroupBy.topN(sold, 3);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "ProductName", "TotalSold" },
+            new QueryResult.ColumnType[] { STRING, LONG }, top.length);
+        for (int name : top) {
+            out.addRow(s.productNames.decode(name), total(sold.getSum(name)));
+        }
+        return out.build();
+    }
+
+    // Q03: ad revenue per platform, highest first (NULL_CENTS sums as NULL)
+    private static QueryResult revenueByPlatform(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups revenue = ParallelGroupBy.sumDense(s.adsCount, s.platforms.size(),
+            i -> s.adsPlatform[i], i -> s.adsRevenueCents[i]);
+        int[] order = ParallelGroupBy.topN(revenue, Integer.MAX_VALUE);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "Platform", "Total_Revenue" },
+            new QueryResult.ColumnType[] { STRING, DECIMAL }, order.length);
+        for (int platform : order) {
+            out.addRow(s.platforms.decode(platform), money(revenue.getSum(platform)));
+        }
+        return out.build();
+    }
+
+    // Q10: the 5 customers who spent the most (quantity x current price)
+    private static QueryResult topCustomersBySpending(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups spent = ParallelGroupBy.sumDense(s.business.size(), s.customerCount,
+            i -> s.saleProduct(i) < 0 ? -1 : s.saleCustomer(i),
+            i -> times(s.business.qty(i), s.productPriceCents[s.saleProduct(i)]));
+        int[] top = ParallelGroupBy.topN(spent, 5);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "CustomerID", "CustomerName", "TotalSpent" },
+            new QueryResult.ColumnType[] { INT, STRING, DECIMAL }, top.length);
+        for (int c : top) {
+            out.addRow(s.customerId[c], s.customerName[c], money(spent.getSum(c)));
+        }
+        return out.build();
+    }
+
+    // Q11: units sold per product, most first
+    private static QueryResult quantitySoldPerProduct(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups sold = ParallelGroupBy.sumDense(s.business.size(), s.productCount,
+            s::saleProduct, i -> value(s.business.qty(i)));
+        int[] order = ParallelGroupBy.topN(sold, Integer.MAX_VALUE);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "ProductID", "ProductName", "TotalSold" },
+            new QueryResult.ColumnType[] { INT, STRING, LONG }, order.length);
+        for (int p : order) {
+            out.addRow(s.productId[p], s.productNames.decode(s.productName[p]), total(sold.getSum(p)));
+        }
+        return out.build();
+    }
+
+    // Q12: average product price per category, highest first
+    private static QueryResult averagePricePerCategory(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups prices = ParallelGroupBy.sumDense(s.productCount, s.categories.size(),
+            p -> s.productCategory[p], p -> s.productPriceCents[p]);
+        // AVG(DECIMAL(_, 2)) has scale 6 in MySQL; ROUND(_, 2) rounds that half away from zero. AVG
+        // skips NULL prices, and is NULL (last) for a category that only has those.
+        BigDecimal[] average = new BigDecimal[prices.size()];
+        long[] averageCents = new long[prices.size()];
+        for (int c = 0; c < prices.size(); c++) {
+            averageCents[c] = ParallelGroupBy.NULL;
+            if (prices.getValueCount(c) > 0) {
+                average[c] = BigDecimal.valueOf(prices.getSum(c), 2)
+                    .divide(BigDecimal.valueOf(prices.getValueCount(c)), 6, RoundingMode.HALF_UP)
+                    .setScale(2, RoundingMode.HALF_UP);
+                averageCents[c] = average[c].unscaledValue().longValue();
+            }
+        }
+        int[] order = ParallelGroupBy.topN(prices.size(), prices::isPresent, c -> averageCents[c], Integer.MAX_VALUE);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "Category", "AvgPrice" },
+            new QueryResult.ColumnType[] { STRING, DECIMAL }, order.length);
+        for (int c : order) {
+            out.addRow(s.categories.decode(c), average[c]);
+        }
+        return out.build();
+    }
+
+    // Q13: per region (through the buyer's city), product names ranked 1-5 by units sold, ties included
+    private static QueryResult topSellingPerRegion(ColumnarSnapshot s) {
+        ParallelGroupBy.Groups sold = ParallelGroupBy.sum(s.business.size(), i -> {
+            int c = s.saleCustomer(i);
+            int p = s.saleProduct(i);
+            if (c < 0 || p < 0) {
+                return ParallelGroupBy.SKIP;
+            }
+            int region = s.cityRegion[s.customerCity[c]];
+            // 0: no Regional_info row for the city (or a NULL region)
+            return region == 0 ? ParallelGroupBy.SKIP : ParallelGroupBy.key(region, s.productName[p]);
+        }, i -> value(s.business.qty(i)));
+        Map<Long, int[]> top = ParallelGroupBy.topNPerGroup(sold, key -> ParallelGroupBy.high(key), 5, true);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "RegionName", "ProductName", "TotalSold" },
+            new QueryResult.ColumnType[] { STRING, STRING, LONG }, 5 * top.size());
+        for (int region : sortedCodes(s.regions)) {
+            for (int i : top.getOrDefault((long) region, new int[0])) {
+                out.addRow(s.regions.decode(region), s.productNames.decode(ParallelGroupBy.low(sold.getKey(i))),
+                    total(sold.getSum(i)));
+            }
+        }
+        return out.build();
+    }
+
+    // Q14: revenue (quantity x current price) per category, highest first
+    private static QueryResult revenueByCategory(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups revenue = ParallelGroupBy.sumDense(s.business.size(), s.categories.size(),
+            i -> s.saleProduct(i) < 0 ? -1 : s.productCategory[s.saleProduct(i)],
+            i -> times(s.business.qty(i), s.productPriceCents[s.saleProduct(i)]));
+        int[] order = ParallelGroupBy.topN(revenue, Integer.MAX_VALUE);
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "Category", "TotalRevenue" },
+            new QueryResult.ColumnType[] { STRING, DECIMAL }, order.length);
+        for (int c : order) {
+            out.addRow(s.categories.decode(c), money(revenue.getSum(c)));
+        }
+        return out.build();
+    }
+
+    // Q17: products in stock with no sale in the last month, most stock first (a NULL stock is not > 0)
+    private static QueryResult productsNotSoldLastMonth(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups recent = soldSince(s, lastMonth());
+        int[] order = ParallelGroupBy.topN(s.productCount, p -> s.productStock[p] > 0 && !recent.isPresent(p),
+            p -> s.productStock[p], Integer.MAX_VALUE);
+        QueryResult.Builder out = new QueryResult.Builder(
+            new String[] { "ProductID", "Name", "Category", "Stock", "Price" },
+            new QueryResult.ColumnType[] { INT, STRING, STRING, INT, DECIMAL }, order.length);
+        for (int p : order) {
+            out.addRow(s.productId[p], s.productNames.decode(s.productName[p]), s.categories.decode(s.productCategory[p]),
+                s.productStock[p], money(s.productPriceCents[p]));
+        }
+        return out.build();
+    }
+
+    // Q19: per product and ad impressions, last month's units sold (once per such ad) as a share of
+    // the impressions, where that rounds below 5%, lowest first
+    private static QueryResult highBounceRateProducts(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups recent = soldSince(s, lastMonth());
+        ParallelGroupBy.Groups ads = ParallelGroupBy.sum(s.adsCount, i -> {
+            int id = s.adsProductId[i];
+            int p = id == ColumnarSnapshot.NULL ? -1 : s.productIndex.get(id);
+            return p < 0 ? ParallelGroupBy.SKIP : ParallelGroupBy.key(p, s.adsImpressions[i]);
+        }, i -> 1);
+        List<Integer> groups = new ArrayList<>();
+        List<BigDecimal> rates = new ArrayList<>();
+        for (int g = 0; g < ads.size(); g++) {
+            int impressions = ParallelGroupBy.low(ads.getKey(g));
+            // Dividing by 0 or NULL impressions gives NULL, which no rate compares below 5
+            if (impressions == 0 || impressions == ColumnarSnapshot.NULL) {
+                continue;
+            }
+            long total = ads.getCount(g) * ifNull(recent.getSum(ParallelGroupBy.high(ads.getKey(g))));
+            BigDecimal rate = percent(total, impressions, 4);
+            if (rate.compareTo(BigDecimal.valueOf(5)) < 0) {
+                groups.add(g);
+                rates.add(rate);
+            }
+        }
+        Integer[] order = sortedIndexes(rates.size(), Comparator.comparing(rates::get));
+        QueryResult.Builder out = new QueryResult.Builder(
+            new String[] { "ProductID", "Name", "Impressions", "TotalSales", "ConversionRate" },
+            new QueryResult.ColumnType[] { INT, STRING, INT, LONG, DECIMAL }, order.length);
+        for (int k : order) {
+            long key = ads.getKey(groups.get(k));
+            int p = ParallelGroupBy.high(key);
+            out.addRow(s.productId[p], s.productNames.decode(s.productName[p]), ParallelGroupBy.low(key),
+                ads.getCount(groups.get(k)) * ifNull(recent.getSum(p)), rates.get(k));
+        }
+        return out.build();
+    }
+
+    // Q24: products that sold more than 50 units last month and have fewer than 20 left, by the
+    // share of supply that was sold, highest first
+    private static QueryResult restockPriorityList(ColumnarSnapshot s) {
+        ParallelGroupBy.DenseGroups recent = soldSince(s, lastMonth());
+        List<Integer> products = new ArrayList<>();
+        List<BigDecimal> demand = new ArrayList<>();
+        for (int p = 0; p < s.productCount; p++) {
+            // A NULL stock or SUM(Qty) fails the HAVING; ParallelGroupBy.NULL is below 50 already
+            if (!recent.isPresent(p) || s.productStock[p] == ColumnarSnapshot.NULL || s.productStock[p] >= 20 ||
+                    recent.getSum(p) <= 50 || category(s, p) < 0) {
+                continue;
+            }
+            long supply = s.productStock[p] + recent.getSum(p);
+            products.add(p);
+            demand.add(supply == 0 ? null : percent(recent.getSum(p), supply, 4));
+        }
+        Integer[] order = sortedIndexes(demand.size(),
+            Comparator.comparing(demand::get, Comparator.nullsLast(Comparator.reverseOrder())));
+        QueryResult.Builder out = new QueryResult.Builder(
+            new String[] { "ProductID", "ProductName", "Total_Sold_LastMonth", "Current_Stock", "Demand_Percentage",
+                "CategoryName" },
+            new QueryResult.ColumnType[] { INT, STRING, LONG, INT, DECIMAL, STRING }, order.length);
+        for (int k : order) {
+            int p = products.get(k);
+            out.addRow(s.productId[p], s.productNames.decode(s.productName[p]), recent.getSum(p), s.productStock[p],
+                demand.get(k), s.categories.decode(s.categoryName[category(s, p)]));
+        }
+        return out.build();
+    }
+
+    // Q21: ads whose ROI rounds below zero, worst first
+    private static QueryResult adsRunningAtLoss(ColumnarSnapshot s) {
+        List<Integer> ads = new ArrayList<>();
+        List<BigDecimal> rois = new ArrayList<>();
+        for (int i = 0; i < s.adsCount; i++) {
+            long cost = s.adsCostCents[i];
+            // A NULL Revenue or Cost makes the ROI NULL, and NULLIF makes cost 0 NULL
+            if (cost == 0 || cost == ColumnarSnapshot.NULL_CENTS || s.adsRevenueCents[i] == ColumnarSnapshot.NULL_CENTS) {
+                continue;
+            }
+            long margin = s.adsRevenueCents[i] - cost;
+            // Only a margin and cost of opposite signs can give a negative ROI
+            if (Long.signum(margin) * Long.signum(cost) >= 0) {
+                continue;
+            }
+            BigDecimal roi = percent(margin, cost, 6);
+            if (roi.signum() < 0) {
+                ads.add(i);
+                rois.add(roi);
+            }
+        }
+        Integer[] order = sortedIndexes(rois.size(), Comparator.comparing(rois::get));
+        QueryResult.Builder out = new QueryResult.Builder(new String[] { "AdID", "Platform", "Revenue", "AdCost", "ROI" },
+            new QueryResult.ColumnType[] { INT, STRING, DECIMAL, DECIMAL, DECIMAL }, order.length);
+        for (int k : order) {
+            int ad = ads.get(k);
+            out.addRow(s.adsId[ad], s.platforms.decode(s.adsPlatform[ad]), money(s.adsRevenueCents[ad]),
+                money(s.adsCostCents[ad]), rois.get(k));
+        }
+        return out.build();
+    }
+
+    // Q22: ads converting more than 10% of impressions, best first
+    private static QueryResult adsWithHighConversion(ColumnarSnapshot s) {
+        List<Integer> ads = new ArrayList<>();
+        List<BigDecimal> rates = new ArrayList<>();
+        for (int i = 0; i < s.adsCount; i++) {
+            int impressions = s.adsImpressions[i];
+            // NULL or 0 impressions, or NULL conversions, make the rate NULL
+            if (impressions == 0 || impressions == ColumnarSnapshot.NULL || s.adsConversions[i] == ColumnarSnapshot.NULL) {
+                continue;
+            }
+            // Cheap bound first: a positive rate over 10 needs conversions * 10 > impressions
+            if (impressions > 0 && s.adsConversions[i] * 10L <= impressions) {
+                continue;
+            }
+            BigDecimal rate = percent(s.adsConversions[i], impressions, 4);
+            if (rate.compareTo(BigDecimal.TEN) > 0) {
+                ads.add(i);
+                rates.add(rate);
+            }
+        }
+        Integer[] order = sortedIndexes(rates.size(), Comparator.comparing(rates::get, Comparator.reverseOrder()));
+        QueryResult.Builder out = new QueryResult.Builder(
+            new String[] { "AdID", "Platform", "ConversionRate", "Impressions", "Conversions" },
+            new QueryResult.ColumnType[] { INT, STRING, DECIMAL, INT, INT }, order.length);
+        for (int k : order) {
+            int ad = ads.get(k);
+            out.addRow(s.adsId[ad], s.platforms.decode(s.adsPlatform[ad]), rates.get(k),
+                s.adsImpressions[ad], s.adsConversions[ad]);
+        }
+        return out.build();
+    }
+
+    // ==================== HELPERS ====================
+
+    // ROUND(numerator / denominator * 100, 2) the way MySQL evaluates it: the quotient is rounded to
+    // quotientScale digits (operand scale + div_precision_increment) before scaling and rounding
+    static BigDecimal percent(long numerator, long denominator, int quotientScale) {
+        return BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(denominator), quotientScale, RoundingMode.HALF_UP)
+            .movePointRight(2).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // DATE_SUB(CURRENT_DATE, INTERVAL 1 MONTH) as an epoch day (month ends clamp the same way)
+    private static int lastMonth() {
+        return (int) LocalDate.now().minusMonths(1).toEpochDay();
+    }
+
+    // Units sold per product row from fromDay on, reading only those sales from the off-heap store; a
+    // product with only NULL quantities is present with a NULL sum
+    private static ParallelGroupBy.DenseGroups soldSince(ColumnarSnapshot s, int fromDay) {
+        ParallelGroupBy.DenseGroups sold = new ParallelGroupBy.DenseGroups(s.productCount);
+        BusinessStore.Cursor sales = s.business.scan(fromDay, Integer.MAX_VALUE);
+        while (sales.next()) {
+            int p = s.saleProduct(sales.row());
+            if (p >= 0) {
+                sold.add(p, value(sales.qty()));
+            }
+        }
+        return sold;
+    }
+
+    // Row in Category of the product's CategoryID, -1 if NULL or absent
+    private static int category(ColumnarSnapshot s, int product) {
+        int id = s.productCategoryId[product];
+        return id == ColumnarSnapshot.NULL ? -1 : s.categoryIndex.get(id);
+    }
+
+    static BigDecimal money(long cents) {
+        return cents == ColumnarSnapshot.NULL_CENTS ? null : BigDecimal.valueOf(cents, 2);
+    }
+
+    // An int column's value for ParallelGroupBy, NULL kept
+    private static long value(int column) {
+        return column == ColumnarSnapshot.NULL ? ParallelGroupBy.NULL : column;
+    }
+
+    // qty * price in cents, NULL if either is
+    private static long times(int qty, long cents) {
+        return qty == ColumnarSnapshot.NULL || cents == ColumnarSnapshot.NULL_CENTS ? ParallelGroupBy.NULL : qty * cents;
+    }
+
+    // A SUM for a result cell
+    private static Long total(long sum) {
+        return sum == ParallelGroupBy.NULL ? null : sum;
+    }
+
+    // IFNULL(sum, 0)
+    private static long ifNull(long sum) {
+        return sum == ParallelGroupBy.NULL ? 0 : sum;
+    }
+
+    private static Integer[] sortedIndexes(int size, Comparator<Integer> order) {
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, order);
+        return indexes;
+    }
+
+    // Dictionary codes (NULL included) in order of their text, NULL first like MySQL
+    private static int[] sortedCodes(ColumnarSnapshot.Dictionary dictionary) {
+        Integer[] codes = sortedIndexes(dictionary.size(), Comparator.comparing(dictionary::decode,
+            Comparator.nullsFirst(Comparator.naturalOrder())));
+        return Arrays.stream(codes).mapToInt(Integer::intValue).toArray();
+    }
+
+    public String getStats() {
+        ColumnarSnapshot s = snapshot;
+        long count = evaluations.get();
+        return String.format("AnalyticsEngine[enabled=%b, loads=%d, deltaLoads=%d, openMs=%d, saveMs=%d%s] " +
+            "evaluations=%d avgMs=%.3f",
+            ENABLED, loads.get(), deltaLoads.get(), openMillis, saveMillis, s == null ? "" : ", " + s.getStats() + ", " +
+                s.business.getStats() + ", ageS=" + getStaleness().getSeconds(),
+            count, count == 0 ? 0 : evaluationNanos.get() / 1e6 / count);
+    }
+
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,406 @@
+package mini_project_dbms;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.sql.Date;
+import java.util.*;
+
+// Bulk import of Business transactions from a CSV file (header row naming ProductID, CustomerID,
+// PDate and Qty, in any order) or a JSON file (an array of objects, or one object per line).
+// The file is streamed; each row is checked against in-memory sets of the existing Product and
+// Customer ids, and valid rows are written with addBatch/executeBatch, one transaction per chunk.
+// Rejected rows are counted by reason instead of failing the import.
+public class BusinessImporter {
+    public static final int DEFAULT_CHUNK_SIZE = Integer.getInteger("vulcynyx.import.chunkSize", 1000);
+    private static final int LOGGED_REJECTS = 20;
+
+    private static final String INSERT = "INSERT INTO Business (ProductID, CustomerID, PDate, Qty) VALUES (?, ?, ?, ?)";
+
+    // Outcome of one import
+    public static final class Report {
+        long read;
+        long imported;
+        long rejected;
+        long elapsedNanos;
+        final Map<String, Long> rejectReasons = new TreeMap<>();
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder sb = new StringBuilder(String.format(
+                "Read %,d rows: imported %,d, rejected %,d in %.2f s (%,.0f rows/s)",
+                read, imported, rejected, seconds, seconds > 0 ? read / seconds : 0));
+            rejectReasons.forEach((reason, count) -> sb.append(String.format("%n  %,d x %s", count, reason)));
+            return sb.toString();
+        }
+    }
+
+    private final Connection conn;
+    private final int chunkSize;
+    private BitSet productIds;
+    private BitSet customerIds;
+
+    // conn should be a dedicated connection; on MySQL open it with withBatchRewrite(url)
+    public BusinessImporter(Connection conn, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be >= 1");
+        }
+        this.conn = conn;
+        this.chunkSize = chunkSize;
+    }
+
+    public BusinessImporter(Connection conn) {
+        this(conn, DEFAULT_CHUNK_SIZE);
+    }
+
+    // Lets MySQL Connector/J send each executeBatch as multi-row INSERTs instead of one round trip per row
+    public static String withBatchRewrite(String url) {
+        if (!url.startsWith("jdbc:mysql:") || url.contains("rewriteBatchedStatements")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+    }
+
+    public Report importFile(Path file) throws IOException, SQLException {
+        String name = file.getFileName().toString().toLowerCase();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return importRows(new JsonRows(reader));
+            }
+            return importRows(new CsvRows(reader));
+        }
+    }
+
+    // Source of rows as field name -> raw value; null at end of input
+    interface RowSource {
+        Map<String, String> next() throws IOException;
+
+        // Position of the last row, for reject messages
+        String position();
+    }
+
+    Report importRows(RowSource rows) throws IOException, SQLException {
+        long start = System.nanoTime();
+        loadIds();
+        Report report = new Report();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(INSERT)) {
+            int batched = 0;
+            Map<String, String> row;
+            while ((row = rows.next()) != null) {
+                report.read++;
+                String reject = bind(ps, row);
+                if (reject != null) {
+                    reject(report, rows.position(), reject);
+                    continue;
+                }
+                ps.addBatch();
+                if (++batched == chunkSize) {
+                    writeChunk(ps, report, batched);
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                writeChunk(ps, report, batched);
+            }
+        } catch (IOException e) {
+            throw new IOException(stoppedAfter(report) + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new SQLException(stoppedAfter(report) + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+        } finally {
+            // Chunks already committed stay in Business even when a later one fails
+            if (report.imported > 0) {
+                ResultCache.shared().invalidateTable("Business");
+            }
+            conn.setAutoCommit(autoCommit);
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // Prefix for an error that stops the import, saying how much of the file is already in Business
+    private static String stoppedAfter(Report report) {
+        return String.format("Import stopped after reading %,d rows, %,d of them imported: ",
+            report.read, report.imported);
+    }
+
+    private void writeChunk(PreparedStatement ps, Report report, int rows) throws SQLException {
+        try {
+            ps.executeBatch();
+            conn.commit();
+            report.imported += rows;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    // Bind one row, or return why it is rejected
+    private String bind(PreparedStatement ps, Map<String, String> row) throws SQLException {
+        String product = row.get("productid");
+        String customer = row.get("customerid");
+        String date = row.get("pdate");
+        String qty = row.containsKey("qty") ? row.get("qty") : row.get("quantity");
+        if (isBlank(product) || isBlank(customer) || isBlank(date) || isBlank(qty)) {
+            return "missing field";
+        }
+        int productId;
+        int customerId;
+        int quantity;
+        Date purchaseDate;
+        try {
+            productId = Integer.parseInt(product.trim());
+            customerId = Integer.parseInt(customer.trim());
+            quantity = Integer.parseInt(qty.trim());
+        } catch (NumberFormatException e) {
+            return "not a number";
+        }
+        try {
+            purchaseDate = Date.valueOf(date.trim());
+        } catch (IllegalArgumentException e) {
+            return "bad date (expected YYYY-MM-DD)";
+        }
+        if (quantity <= 0) {
+            return "non-positive Qty";
+        }
+        if (productId < 0 || !productIds.get(productId)) {
+            return "unknown ProductID";
+        }
+        if (customerId < 0 || !customerIds.get(customerId)) {
+            return "unknown CustomerID";
+        }
+        ps.setInt(1, productId);
+        ps.setInt(2, customerId);
+        ps.setDate(3, purchaseDate);
+        ps.setInt(4, quantity);
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static void reject(Report report, String position, String reason) {
+        report.rejected++;
+        report.rejectReasons.merge(reason, 1L, Long::sum);
+        if (report.rejected <= LOGGED_REJECTS) {
+            System.err.println("Rejected " + position + ": " + reason);
+        }
+    }
+
+    private void loadIds() throws SQLException {
+        productIds = loadIds("SELECT ProductID FROM Product");
+        customerIds = loadIds("SELECT CustomerID FROM Customer");
+    }
+
+    private BitSet loadIds(String query) throws SQLException {
+        BitSet ids = new BitSet();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                if (id >= 0) {
+                    ids.set(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Comma-separated rows keyed by the (case-insensitive) header; double quotes may wrap a field
+    static final class CsvRows implements RowSource {
+        private final BufferedReader reader;
+        private String[] header;
+        private long line;
+
+        CsvRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                String first = readLine();
+                if (first == null) {
+                    return null;
+                }
+                header = split(first);
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = header[i].trim().toLowerCase();
+                }
+            }
+            String text = readLine();
+            if (text == null) {
+                return null;
+            }
+            String[] fields = split(text);
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.length && i < fields.length; i++) {
+                row.put(header[i], fields[i]);
+            }
+            return row;
+        }
+
+        // Next non-empty line
+        private String readLine() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.trim().isEmpty());
+            return text;
+        }
+
+        private static String[] split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    if (quoted && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (c == ',' && !quoted) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields.toArray(new String[0]);
+        }
+
+        @Override
+        public String position() {
+            return "line " + line;
+        }
+    }
+
+    // Flat JSON objects, either inside a top-level array or one per line; keys are lower-cased
+    static final class JsonRows implements RowSource {
+        private final Reader reader;
+        private int peeked = -2;
+        private long objects;
+
+        JsonRows(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            int c = skip("[,]");
+            if (c == -1) {
+                return null;
+            }
+            if (c != '{') {
+                throw new IOException("Expected '{' in JSON input, found '" + (char) c + "'");
+            }
+            objects++;
+            Map<String, String> row = new HashMap<>();
+            c = skip("");
+            while (c != '}') {
+                if (c != '"') {
+                    throw new IOException("Expected a field name in JSON object " + objects);
+                }
+                String key = readString().toLowerCase();
+                if (skip("") != ':') {
+                    throw new IOException("Expected ':' in JSON object " + objects);
+                }
+                row.put(key, readValue());
+                c = skip(",");
+                if (c == -1) {
+                    throw new IOException("Unterminated JSON object " + objects);
+                }
+            }
+            return row;
+        }
+
+        // Next character that is neither whitespace nor one of the given separators
+        private int skip(String separators) throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != -1 && (Character.isWhitespace(c) || separators.indexOf(c) >= 0));
+            return c;
+        }
+
+        private String readValue() throws IOException {
+            int c = skip("");
+            if (c == '"') {
+                return readString();
+            }
+            StringBuilder literal = new StringBuilder();
+            while (c != -1 && c != ',' && c != '}' && !Character.isWhitespace(c)) {
+                literal.append((char) c);
+                c = read();
+            }
+            peeked = c;
+            String value = literal.toString();
+            return value.equals("null") ? null : value;
+        }
+
+        private String readString() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = read()) != '"') {
+                if (c == -1) {
+                    throw new IOException("Unterminated string in JSON object " + objects);
+                }
+                if (c == '\\') {
+                    c = read();
+                    switch (c) {
+                        case 'n': sb.append('\n'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u':
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) {
+                                hex[i] = (char) read();
+                            }
+                            sb.append((char) Integer.parseInt(new String(hex), 16));
+                            break;
+                        default: sb.append((char) c);
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            }
+            return sb.toString();
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        @Override
+        public String position() {
+            return "object " + objects;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package mini_project_dbms;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Business rows off the Java heap: fixed-width 16-byte records (ProductID, CustomerID, PDate as an
+// epoch day, Qty; NULLs stored as ColumnarSnapshot.NULL) in one direct ByteBuffer, so
+// tens of millions of sales cost the garbage collector one object instead of arrays it has to copy.
+//
+// Records are kept in two segments, each sorted by day: the rows stamped at or before the snapshot's
+// watermark (the first baseRows records) and the rows stamped after it. scan(from, to) binary
+// searches both segments and walks only the records in the date range through a reusable Cursor,
+// so the "last month" reports read a month of sales without allocating per row. The records can
+// also be read by row number (productId(row), ...) for full scans split across threads.
+public final class BusinessStore {
+    static final int RECORD_BYTES = 16;
+    private static final int PRODUCT = 0;
+    private static final int CUSTOMER = 4;
+    private static final int DAY = 8;
+    private static final int QTY = 12;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final ByteBuffer records;
+    private final int rows;
+    private final int baseRows;
+
+    // records holds rows records, the first baseRows and the rest each sorted by day
+    BusinessStore(ByteBuffer records, int rows, int baseRows) {
+        this.records = records.order(ORDER);
+        this.rows = rows;
+        this.baseRows = baseRows;
+    }
+
+    // Store of the given columns; rows [0, baseRows) and [baseRows, rows) become the two segments
+    static BusinessStore of(int[] productIds, int[] customerIds, int[] days, int[] quantities, int rows, int baseRows) {
+        ByteBuffer records = allocate(rows);
+        for (int row : sortedByDay(days, 0, baseRows)) {
+            put(records, productIds[row], customerIds[row], days[row], quantities[row]);
+        }
+        for (int row : sortedByDay(days, baseRows, rows)) {
+            put(records, productIds[row], customerIds[row], days[row], quantities[row]);
+        }
+        return new BusinessStore(records, rows, baseRows);
+    }
+
+    // Store of base's first segment plus the given rows: rows [0, addedBase) are merged into that
+    // segment by day and rows [addedBase, added) become the second. Only the added rows are sorted on
+    // the heap; base's records are copied buffer to buffer in runs between them, which is a single
+    // copy when the new sales are dated after the old ones.
+    static BusinessStore extend(BusinessStore base, int[] productIds, int[] customerIds, int[] days, int[] quantities,
+                                int added, int addedBase) {
+        int seeded = base.baseRows;
+        ByteBuffer records = allocate(seeded + added);
+        int copied = 0;
+        for (int row : sortedByDay(days, 0, addedBase)) {
+            // Base records of the same day stay ahead of the new one, as a stable sort would keep them
+            int until = base.lowerBound(copied, seeded, days[row] + 1);
+            records.put(base.records.slice(copied * RECORD_BYTES, (until - copied) * RECORD_BYTES));
+            copied = until;
+            put(records, productIds[row], customerIds[row], days[row], quantities[row]);
+        }
+        records.put(base.records.slice(copied * RECORD_BYTES, (seeded - copied) * RECORD_BYTES));
+        for (int row : sortedByDay(days, addedBase, added)) {
+            put(records, productIds[row], customerIds[row], days[row], quantities[row]);
+        }
+        return new BusinessStore(records, seeded + added, seeded + addedBase);
+    }
+
+    private static ByteBuffer allocate(int rows) {
+        if ((long) rows * RECORD_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Business has " + rows + " rows, more than one off-heap buffer holds");
+        }
+        return ByteBuffer.allocateDirect(rows * RECORD_BYTES).order(ORDER);
+    }
+
+    // Append one record at the buffer's position
+    private static void put(ByteBuffer records, int productId, int customerId, int day, int qty) {
+        records.putInt(productId).putInt(customerId).putInt(day).putInt(qty);
+    }
+
+    // Rows from..to-1 ordered by day (stable), via one sort of (day, row) packed into longs
+    private static int[] sortedByDay(int[] days, int from, int to) {
+        long[] keys = new long[to - from];
+        for (int row = from; row < to; row++) {
+            // Signed day in the high half (NULL, Integer.MIN_VALUE, sorts first), row in the low half
+            keys[row - from] = (long) days[row] << 32 | (row - from);
+        }
+        Arrays.sort(keys);
+        int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = from + (int) keys[i];
+        }
+        return rows;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    // Records stamped at or before the watermark (they come first)
+    public int getBaseRows() {
+        return baseRows;
+    }
+
+    public int productId(int row) {
+        return records.getInt(row * RECORD_BYTES + PRODUCT);
+    }
+
+    public int customerId(int row) {
+        return records.getInt(row * RECORD_BYTES + CUSTOMER);
+    }
+
+    public int day(int row) {
+        return records.getInt(row * RECORD_BYTES + DAY);
+    }
+
+    public int qty(int row) {
+        return records.getInt(row * RECORD_BYTES + QTY);
+    }
+
+    // The records as stored (read-only, positioned at 0), e.g. for writing them to a file
+    ByteBuffer records() {
+        return records.asReadOnlyBuffer().order(ORDER).position(0).limit(rows * RECORD_BYTES);
+    }
+
+    // First row in [from, to) with a day >= day (rows in that range are sorted by day)
+    private int lowerBound(int from, int to, int day) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (day(mid) < day) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // Sales dated fromDay..toDay inclusive (epoch days); NULL dates never match
+    public Cursor scan(int fromDay, int toDay) {
+        int from = Math.max(fromDay, ColumnarSnapshot.NULL + 1);
+        long to = toDay + 1L;
+        int[] bounds = {
+            lowerBound(0, baseRows, from), to > Integer.MAX_VALUE ? baseRows : lowerBound(0, baseRows, (int) to),
+            lowerBound(baseRows, rows, from), to > Integer.MAX_VALUE ? rows : lowerBound(baseRows, rows, (int) to)
+        };
+        return new Cursor(bounds);
+    }
+
+    // Every sale, in storage order
+    public Cursor scan() {
+        return new Cursor(new int[] { 0, rows, rows, rows });
+    }
+
+    // Forward-only position over the matching records of both segments; one object per scan
+    public final class Cursor {
+        private final int[] bounds;
+        private int segment;
+        private int row;
+
+        Cursor(int[] bounds) {
+            this.bounds = bounds;
+            this.row = bounds[0] - 1;
+        }
+
+        // Move to the next matching record; false when there are no more
+        public boolean next() {
+            row++;
+            while (row >= bounds[2 * segment + 1]) {
+                if (++segment == 2) {
+                    return false;
+                }
+                row = bounds[2 * segment];
+            }
+            return true;
+        }
+
+        public int row() {
+            return row;
+        }
+
+        public int productId() {
+            return BusinessStore.this.productId(row);
+        }
+
+        public int customerId() {
+            return BusinessStore.this.customerId(row);
+        }
+
+        public int day() {
+            return BusinessStore.this.day(row);
+        }
+
+        public int qty() {
+            return BusinessStore.this.qty(row);
+        }
+    }
+
+    public String getStats() {
+        return String.format("BusinessStore[rows=%d, base=%d, offHeapMB=%.1f]", rows, baseRows,
+            (long) rows * RECORD_BYTES / 1048576.0);
+    }
+}
@@ -0,0 +1,535 @@
+package mini_project_dbms;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Feed of the rows changed in Product, Business and Ads, by whichever process wrote them, so the
+// in-memory caches can follow the database without full reloads. Every vulcynyx.feed.pollMs the feed
+// reads the rows whose UpdatedAt stamp (added by change_tracking.sql) lies after the previous
+// watermark, through the UpdatedAt indexes, so a poll costs in proportion to what changed rather
+// than to the table size. Each poll's changes go to the subscribers as one batch of typed events,
+// after ResultCache has dropped the reports over the changed tables.
+//
+// A row is stamped when its statement runs but only becomes visible when its transaction commits,
+// so each poll reads again the last COMMIT_LAG_MS before the watermark and skips the rows it has
+// already published (by key and stamp, or for Business, which has no key, by the whole row).
+//
+// Stamps show inserts and updates, not deletes, and an update to a Business row looks like a new
+// sale. Every vulcynyx.feed.verifyMs the feed checks row counts against what it has published and
+// sends a Resync for a table that no longer adds up (including a Business row committed later than
+// the lag allows); subscribers reload it.
+public class ChangeFeed {
+    private static final boolean ENABLED = !Boolean.getBoolean("vulcynyx.feed.disabled");
+    private static final long POLL_MS = Long.getLong("vulcynyx.feed.pollMs", 5_000L);
+    private static final long VERIFY_MS = Long.getLong("vulcynyx.feed.verifyMs", 600_000L);
+    // Changes committed up to this long after they were stamped are still picked up; also read by
+    // ColumnarSnapshot and MaterializedViews
+    static final long COMMIT_LAG_MS = Long.getLong("vulcynyx.feed.commitLagMs", 30_000L);
+
+    private static final Map<ConnectionPool, ChangeFeed> shared = new IdentityHashMap<>();
+
+    // One changed row (or, for Resync, a whole table)
+    public abstract static class Change {
+        private final String table;
+        private final Timestamp stamp;
+
+        Change(String table, Timestamp stamp) {
+            this.table = table;
+            this.stamp = stamp;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        // The row's UpdatedAt
+        public Timestamp getStamp() {
+            return stamp;
+        }
+    }
+
+    // A Product row as it is now; inserted if the feed had not seen the id before
+    public static final class ProductChange extends Change {
+        private final int productId;
+        private final String name;
+        private final String category;
+        private final String material;
+        private final BigDecimal price;
+        private final Integer stock;
+        private final boolean inserted;
+
+        ProductChange(Timestamp stamp, int productId, String name, String category, String material,
+                      BigDecimal price, Integer stock, boolean inserted) {
+            super("Product", stamp);
+            this.productId = productId;
+            this.name = name;
+            this.category = category;
+            this.material = material;
+            this.price = price;
+            this.stock = stock;
+            this.inserted = inserted;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        // null if the table has no Material column or the value is NULL
+        public String getMaterial() {
+            return material;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        // null if Stock is NULL
+        public Integer getStock() {
+            return stock;
+        }
+
+        public boolean isInserted() {
+            return inserted;
+        }
+    }
+
+    // A new Business row
+    public static final class SaleChange extends Change {
+        private final Integer productId;
+        private final Integer customerId;
+        private final LocalDate date;
+        private final int qty;
+
+        SaleChange(Timestamp stamp, Integer productId, Integer customerId, LocalDate date, int qty) {
+            super("Business", stamp);
+            this.productId = productId;
+            this.customerId = customerId;
+            this.date = date;
+            this.qty = qty;
+        }
+
+        public Integer getProductId() {
+            return productId;
+        }
+
+        public Integer getCustomerId() {
+            return customerId;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+    }
+
+    // An Ads row as it is now; inserted if the feed had not seen the (AdsID, Platform) before
+    public static final class AdChange extends Change {
+        private final int adsId;
+        private final String platform;
+        private final String ageGroup;
+        private final int impressions;
+        private final int conversions;
+        private final BigDecimal revenue;
+        private final BigDecimal cost;
+        private final boolean inserted;
+
+        AdChange(Timestamp stamp, int adsId, String platform, String ageGroup, int impressions, int conversions,
+                 BigDecimal revenue, BigDecimal cost, boolean inserted) {
+            super("Ads", stamp);
+            this.adsId = adsId;
+            this.platform = platform;
+            this.ageGroup = ageGroup;
+            this.impressions = impressions;
+            this.conversions = conversions;
+            this.revenue = revenue;
+            this.cost = cost;
+            this.inserted = inserted;
+        }
+
+        public int getAdsId() {
+            return adsId;
+        }
+
+        public String getPlatform() {
+            return platform;
+        }
+
+        public String getAgeGroup() {
+            return ageGroup;
+        }
+
+        public int getImpressions() {
+            return impressions;
+        }
+
+        public int getConversions() {
+            return conversions;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        public BigDecimal getCost() {
+            return cost;
+        }
+
+        public boolean isInserted() {
+            return inserted;
+        }
+    }
+
+    // The table changed in a way the stamps do not show (deletes, updated Business rows): reload it
+    public static final class Resync extends Change {
+        private final String reason;
+
+        Resync(String table, Timestamp stamp, String reason) {
+            super(table, stamp);
+            this.reason = reason;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final ScheduledExecutorService poller;
+    private final List<Consumer<List<Change>>> subscribers = new CopyOnWriteArrayList<>();
+    private boolean started;
+
+    // Poller state, only touched on the poller thread
+    private volatile Timestamp watermark;
+    private long verifiedAt;
+    private long businessRows;
+    private final Set<Integer> productIds = new HashSet<>();
+    private final Set<String> adKeys = new HashSet<>();
+    // Rows read with a stamp inside the next poll's overlap, with how many times each was read
+    private Map<String, Integer> recent = new HashMap<>();
+
+    private long polls;
+    private long published;
+    private long resyncs;
+    private long pollNanos;
+
+    public ChangeFeed(ConnectionPool pool) {
+        this.pool = pool;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Feed over the database behind this pool, shared by every cache in this JVM
+    public static synchronized ChangeFeed shared(ConnectionPool pool) {
+        return shared.computeIfAbsent(pool, ChangeFeed::new);
+    }
+
+    // Called on the feed thread with each poll's changes, oldest first per table
+    public void subscribe(Consumer<List<Change>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<List<Change>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    // Start polling in the background; no-op if disabled or already started
+    public synchronized void start() {
+        if (!ENABLED || started) {
+            return;
+        }
+        started = true;
+        poller.scheduleWithFixedDelay(this::pollQuietly, POLL_MS, POLL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Change feed poll failed: " + e.getMessage());
+        }
+    }
+
+    // Read and publish the changes since the last poll; the first poll only sets the watermark
+    public void poll() throws SQLException {
+        long start = System.nanoTime();
+        List<Change> changes = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            if (watermark == null) {
+                // Until the stamps exist there is nothing to follow
+                if (!MaterializedViews.hasColumn(conn, "Product", "UpdatedAt") ||
+                    !MaterializedViews.hasColumn(conn, "Business", "UpdatedAt") ||
+                    !MaterializedViews.hasColumn(conn, "Ads", "UpdatedAt")) {
+                    return;
+                }
+                watermark = now(conn);
+                baseline(conn);
+                for (String table : new String[] { "Product", "Business", "Ads" }) {
+                    markRead(conn, table);
+                }
+                return;
+            }
+            Timestamp until = now(conn);
+            if (!until.after(watermark)) {
+                return;
+            }
+            Map<String, Integer> seen = recent;
+            recent = new HashMap<>();
+            readProducts(conn, until, seen, changes);
+            readSales(conn, until, seen, changes);
+            readAds(conn, until, seen, changes);
+            watermark = until;
+            if (System.currentTimeMillis() - verifiedAt >= VERIFY_MS) {
+                verify(conn, changes);
+            }
+        }
+        synchronized (this) {
+            polls++;
+            published += changes.size();
+            pollNanos += System.nanoTime() - start;
+        }
+        if (!changes.isEmpty()) {
+            publish(changes);
+        }
+    }
+
+    private static Timestamp now(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP(3)")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    private void publish(List<Change> changes) {
+        Set<String> tables = new HashSet<>();
+        for (Change change : changes) {
+            tables.add(change.getTable());
+        }
+        for (String table : tables) {
+            ResultCache.shared().invalidateTable(table);
+        }
+        List<Change> batch = Collections.unmodifiableList(changes);
+        for (Consumer<List<Change>> subscriber : subscribers) {
+            try {
+                subscriber.accept(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Change feed subscriber failed: " + e);
+            }
+        }
+    }
+
+    // Counts and keys that later changes are checked against
+    private void baseline(Connection conn) throws SQLException {
+        baseline(conn, "Business");
+        baseline(conn, "Product");
+        baseline(conn, "Ads");
+        verifiedAt = System.currentTimeMillis();
+    }
+
+    private void baseline(Connection conn, String table) throws SQLException {
+        switch (table) {
+            case "Business":
+                businessRows = count(conn, "SELECT COUNT(*) FROM Business WHERE UpdatedAt <= ?", watermark);
+                break;
+            case "Product":
+                productIds.clear();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT ProductID FROM Product")) {
+                    while (rs.next()) {
+                        productIds.add(rs.getInt(1));
+                    }
+                }
+                break;
+            default:
+                adKeys.clear();
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT AdsID, Platform FROM Ads")) {
+                    while (rs.next()) {
+                        adKeys.add(rs.getInt(1) + "/" + rs.getString(2));
+                    }
+                }
+                break;
+        }
+    }
+
+    // Tables whose counts no longer match the published changes get a Resync, and are taken as
+    // they are now: their rows in the overlap count as read, since subscribers reload them anyway
+    private void verify(Connection conn, List<Change> changes) throws SQLException {
+        String business = count(conn, "SELECT COUNT(*) FROM Business WHERE UpdatedAt <= ?", watermark) != businessRows
+            ? "Business rows were updated, deleted or committed late" : null;
+        String product = count(conn, "SELECT COUNT(*) FROM Product") != productIds.size()
+            ? "Product rows were deleted" : null;
+        String ads = count(conn, "SELECT COUNT(*) FROM Ads") != adKeys.size() ? "Ads rows were deleted" : null;
+        for (String[] table : new String[][] { { "Business", business }, { "Product", product }, { "Ads", ads } }) {
+            if (table[1] != null) {
+                baseline(conn, table[0]);
+                markRead(conn, table[0]);
+                changes.add(new Resync(table[0], watermark, table[1]));
+                synchronized (this) {
+                    resyncs++;
+                }
+            }
+        }
+        verifiedAt = System.currentTimeMillis();
+    }
+
+    // Note the table's rows in the overlap before the watermark as read, without publishing them
+    private void markRead(Connection conn, String table) throws SQLException {
+        recent.keySet().removeIf(key -> key.startsWith(table + "/"));
+        try (PreparedStatement ps = changed(conn, table, watermark);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                recent.merge(rowKey(table, rs), 1, Integer::sum);
+            }
+        }
+    }
+
+    // What identifies a row version: the key and stamp, or for Business every column
+    private static String rowKey(String table, ResultSet rs) throws SQLException {
+        switch (table) {
+            case "Product":
+                return "Product/" + rs.getInt("ProductID") + "/" + rs.getTimestamp("UpdatedAt");
+            case "Ads":
+                return "Ads/" + rs.getInt("AdsID") + "/" + rs.getString("Platform") + "/" + rs.getTimestamp("UpdatedAt");
+            default:
+                return "Business/" + rs.getObject("ProductID") + "/" + rs.getObject("CustomerID") + "/" +
+                    rs.getDate("PDate") + "/" + rs.getInt("Qty") + "/" + rs.getTimestamp("UpdatedAt");
+        }
+    }
+
+    // True if the row was read by an earlier poll (using up one of its reads); either way it is
+    // remembered for the next poll if its stamp is still inside the overlap
+    private boolean readBefore(String table, ResultSet rs, Timestamp until, Map<String, Integer> seen)
+            throws SQLException {
+        String key = rowKey(table, rs);
+        if (rs.getTimestamp("UpdatedAt").getTime() > until.getTime() - COMMIT_LAG_MS) {
+            recent.merge(key, 1, Integer::sum);
+        }
+        Integer times = seen.get(key);
+        if (times == null) {
+            return false;
+        }
+        if (times == 1) {
+            seen.remove(key);
+        } else {
+            seen.put(key, times - 1);
+        }
+        return true;
+    }
+
+    private static long count(Connection conn, String sql, Timestamp... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setTimestamp(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // Rows stamped after the overlap before the watermark and up to until
+    private PreparedStatement changed(Connection conn, String table, Timestamp until) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement("SELECT * FROM " + table +
+            " WHERE UpdatedAt > ? AND UpdatedAt <= ? ORDER BY UpdatedAt");
+        ps.setTimestamp(1, new Timestamp(watermark.getTime() - COMMIT_LAG_MS));
+        ps.setTimestamp(2, until);
+        return ps;
+    }
+
+    private void readProducts(Connection conn, Timestamp until, Map<String, Integer> seen, List<Change> changes)
+            throws SQLException {
+        try (PreparedStatement ps = changed(conn, "Product", until);
+             ResultSet rs = ps.executeQuery()) {
+            boolean material = hasColumn(rs, "Material");
+            while (rs.next()) {
+                if (readBefore("Product", rs, until, seen)) {
+                    continue;
+                }
+                int id = rs.getInt("ProductID");
+                int stock = rs.getInt("Stock");
+                Integer stockOrNull = rs.wasNull() ? null : stock;
+                changes.add(new ProductChange(rs.getTimestamp("UpdatedAt"), id, rs.getString("Name"),
+                    rs.getString("Category"), material ? rs.getString("Material") : null, rs.getBigDecimal("Price"),
+                    stockOrNull, productIds.add(id)));
+            }
+        }
+    }
+
+    private void readSales(Connection conn, Timestamp until, Map<String, Integer> seen, List<Change> changes)
+            throws SQLException {
+        try (PreparedStatement ps = changed(conn, "Business", until);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (readBefore("Business", rs, until, seen)) {
+                    continue;
+                }
+                Date date = rs.getDate("PDate");
+                changes.add(new SaleChange(rs.getTimestamp("UpdatedAt"), (Integer) rs.getObject("ProductID"),
+                    (Integer) rs.getObject("CustomerID"), date == null ? null : date.toLocalDate(), rs.getInt("Qty")));
+                businessRows++;
+            }
+        }
+    }
+
+    private void readAds(Connection conn, Timestamp until, Map<String, Integer> seen, List<Change> changes)
+            throws SQLException {
+        try (PreparedStatement ps = changed(conn, "Ads", until);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (readBefore("Ads", rs, until, seen)) {
+                    continue;
+                }
+                int id = rs.getInt("AdsID");
+                String platform = rs.getString("Platform");
+                changes.add(new AdChange(rs.getTimestamp("UpdatedAt"), id, platform, rs.getString("AgeGroup"),
+                    rs.getInt("Impressions"), rs.getInt("Conversions"), rs.getBigDecimal("Revenue"),
+                    rs.getBigDecimal("Cost"), adKeys.add(id + "/" + platform)));
+            }
+        }
+    }
+
+    private static boolean hasColumn(ResultSet rs, String column) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            if (md.getColumnLabel(i).equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized String getStats() {
+        return String.format("ChangeFeed[enabled=%b, subscribers=%d, watermark=%s] polls=%d changes=%d resyncs=%d " +
+                             "avgPollMs=%.2f",
+            ENABLED, subscribers.size(), watermark, polls, published, resyncs,
+            polls == 0 ? 0 : pollNanos / 1e6 / polls);
+    }
+
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+}
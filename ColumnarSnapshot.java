@@ -0,0 +1,644 @@
+package mini_project_dbms;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.*;
+
+// Immutable in-memory copy of the tables the analytics reports read, stored column by column in
+// primitive arrays: ids and quantities as int[], money as long[] cents, dates as int[] epoch days,
+// and low-cardinality text (Category, Platform, AgeGroup, City, Region, product names) as int codes
+// into a Dictionary. A NULL is kept as NULL (ints) or NULL_CENTS (money) rather than read as 0, so the
+// reports can leave it out the way SQL does. Foreign keys are resolved to row numbers once at load (productAdsAd, ...) so
+// the report loops index arrays instead of hashing. Business, by far the largest table, is kept off
+// the heap in a BusinessStore; saleProduct(row) and saleCustomer(row) resolve its ids through the
+// key indexes.
+//
+// When Product, Business and Ads carry the UpdatedAt change timestamp (change_tracking.sql adds it),
+// the snapshot records a watermark and refresh() builds the next snapshot from the previous one plus
+// the rows stamped after it: changed Product and Ads rows are replaced by key, and Business rows
+// are appended once a count shows none of the old ones changed or went away. Rows are stamped when
+// their statement runs, not when it commits, so Product and Ads are read again from
+// ChangeFeed.COMMIT_LAG_MS before the watermark, and the watermark itself trails the load by that
+// much so late Business rows land in the re-read tail rather than failing the count. Anything the
+// timestamps cannot account for falls back to reading that table in full. Category, Customer,
+// Regional_info and Products_Ads have no timestamps and are small, so they are always re-read.
+public final class ColumnarSnapshot {
+    // Stored for a NULL int or date
+    static final int NULL = Integer.MIN_VALUE;
+    // Stored for NULL money; it is ParallelGroupBy.NULL, so a money column can be summed as it is
+    static final long NULL_CENTS = ParallelGroupBy.NULL;
+
+    // Distinct strings of one column; code 0 is NULL
+    public static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+        private int size = 1;
+
+        Dictionary() {
+        }
+
+        // Dictionary holding values[1..] under the same codes (values[0] is NULL)
+        Dictionary(String[] values) {
+            this.values = Arrays.copyOf(values, Math.max(16, values.length));
+            this.size = Math.max(1, values.length);
+            for (int code = 1; code < size; code++) {
+                codes.put(values[code], code);
+            }
+        }
+
+        int encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                code = size;
+                values[size++] = value;
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        // Code of value, or -1 if it does not occur
+        int find(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        String decode(int code) {
+            return values[code];
+        }
+
+        // Number of codes, NULL included
+        int size() {
+            return size;
+        }
+
+        // Every value by code, NULL first
+        String[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    // Row number by key: a plain array when the keys are dense enough, open addressing otherwise
+    static final class KeyIndex {
+        private final long min;
+        private final int[] dense;
+        private final long[] keys;
+        private final int[] rows;
+        private final int mask;
+
+        KeyIndex(long[] keyOfRow, int count) {
+            long lo = Long.MAX_VALUE;
+            long hi = Long.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                lo = Math.min(lo, keyOfRow[i]);
+                hi = Math.max(hi, keyOfRow[i]);
+            }
+            if (count > 0 && hi - lo < 4L * count + 1024) {
+                min = lo;
+                dense = new int[(int) (hi - lo + 1)];
+                Arrays.fill(dense, -1);
+                for (int i = 0; i < count; i++) {
+                    dense[(int) (keyOfRow[i] - lo)] = i;
+                }
+                keys = null;
+                rows = null;
+                mask = 0;
+            } else {
+                min = 0;
+                dense = null;
+                int capacity = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+                keys = new long[capacity];
+                rows = new int[capacity];
+                Arrays.fill(rows, -1);
+                mask = capacity - 1;
+                for (int i = 0; i < count; i++) {
+                    int slot = slot(keyOfRow[i]);
+                    keys[slot] = keyOfRow[i];
+                    rows[slot] = i;
+                }
+            }
+        }
+
+        private int slot(long key) {
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (rows[slot] >= 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // Row with the key, or -1
+        int get(long key) {
+            if (dense != null) {
+                long offset = key - min;
+                return offset < 0 || offset >= dense.length ? -1 : dense[(int) offset];
+            }
+            return rows[slot(key)];
+        }
+    }
+
+    // Growable int column used while reading rows, optionally starting from a previous snapshot's
+    static final class IntColumn {
+        int[] values;
+        int size;
+
+        IntColumn() {
+            values = new int[1024];
+        }
+
+        IntColumn(int[] seed, int count) {
+            values = Arrays.copyOf(seed, Math.max(1024, count + count / 8));
+            size = count;
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        // Replace the value of row, or append it if row == size
+        void put(int row, int value) {
+            if (row == size) {
+                add(value);
+            } else {
+                values[row] = value;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    static final class LongColumn {
+        long[] values;
+        int size;
+
+        LongColumn() {
+            values = new long[1024];
+        }
+
+        LongColumn(long[] seed, int count) {
+            values = Arrays.copyOf(seed, Math.max(1024, count + count / 8));
+            size = count;
+        }
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void put(int row, long value) {
+            if (row == size) {
+                add(value);
+            } else {
+                values[row] = value;
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    Dictionary productNames = new Dictionary();
+    Dictionary categories = new Dictionary();
+    Dictionary cities = new Dictionary();
+    Dictionary regions = new Dictionary();
+    Dictionary platforms = new Dictionary();
+    Dictionary ageGroups = new Dictionary();
+
+    // Product
+    int productCount;
+    int[] productId;
+    int[] productName;
+    int[] productCategory;
+    int[] productCategoryId;
+    long[] productPriceCents;
+    int[] productStock;
+    KeyIndex productIndex;
+
+    // Customer
+    int customerCount;
+    int[] customerId;
+    String[] customerName;
+    int[] customerCity;
+    KeyIndex customerIndex;
+
+    // Regional_info as (city, region) code pairs, and the region code of each city code (0 if none)
+    int regionalCount;
+    int[] regionalCity;
+    int[] regionalRegion;
+    int[] cityRegion;
+
+    // Category, names coded in categories
+    int categoryCount;
+    int[] categoryId;
+    int[] categoryName;
+    KeyIndex categoryIndex;
+
+    // Business, off-heap; its first getBaseRows() records were stamped at or before the watermark
+    BusinessStore business;
+
+    // Ads, keyed by (AdsID, Platform)
+    int adsCount;
+    int[] adsId;
+    int[] adsPlatform;
+    int[] adsAgeGroup;
+    int[] adsProductId;
+    int[] adsImpressions;
+    int[] adsConversions;
+    long[] adsRevenueCents;
+    long[] adsCostCents;
+    KeyIndex adsIndex;
+
+    // Products_Ads as read, and resolved to rows in Product and Ads (-1 if absent)
+    int productAdsCount;
+    int[] productAdsProductId;
+    int[] productAdsAdsId;
+    int[] productAdsPlatform;
+    int[] productAdsProduct;
+    int[] productAdsAd;
+
+    // When the load started; the snapshot reflects the tables no earlier than this
+    long loadedAt;
+    long loadMillis;
+    // Server time (epoch ms) every change stamped at or before is included; -1 without UpdatedAt
+    long watermark = -1;
+    // Tables read from scratch and tables brought up to date from the previous snapshot
+    final List<String> fullTables = new ArrayList<>();
+    final List<String> deltaTables = new ArrayList<>();
+
+    ColumnarSnapshot() {
+    }
+
+    // Read every table the reports need through conn
+    public static ColumnarSnapshot load(Connection conn) throws SQLException {
+        return refresh(conn, null);
+    }
+
+    // The tables as of now, reusing base (which is left unchanged) where the change timestamps allow
+    public static ColumnarSnapshot refresh(Connection conn, ColumnarSnapshot base) throws SQLException {
+        ColumnarSnapshot s = new ColumnarSnapshot();
+        s.loadedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        boolean tracked = MaterializedViews.hasColumn(conn, "Product", "UpdatedAt") &&
+            MaterializedViews.hasColumn(conn, "Business", "UpdatedAt") &&
+            MaterializedViews.hasColumn(conn, "Ads", "UpdatedAt");
+        Timestamp since = null;
+        Timestamp until = null;
+        if (tracked) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP(3)")) {
+                rs.next();
+                until = new Timestamp(rs.getTimestamp(1).getTime() - ChangeFeed.COMMIT_LAG_MS);
+            }
+            s.watermark = until.getTime();
+            if (base != null && base.watermark >= 0) {
+                since = new Timestamp(base.watermark);
+                // Codes stay the same, so unchanged rows can be copied over as they are
+                s.productNames = new Dictionary(base.productNames.toArray());
+                s.categories = new Dictionary(base.categories.toArray());
+                s.cities = new Dictionary(base.cities.toArray());
+                s.regions = new Dictionary(base.regions.toArray());
+                s.platforms = new Dictionary(base.platforms.toArray());
+                s.ageGroups = new Dictionary(base.ageGroups.toArray());
+            }
+        }
+        boolean mysql = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        ColumnarSnapshot previous = since == null ? null : base;
+        // Replacing by key makes reading a row again harmless
+        Timestamp overlap = since == null ? null : new Timestamp(since.getTime() - ChangeFeed.COMMIT_LAG_MS);
+        s.loadProducts(conn, mysql, previous, overlap);
+        s.loadCategories(conn, mysql);
+        s.loadCustomers(conn, mysql);
+        s.loadRegions(conn, mysql);
+        s.loadBusiness(conn, mysql, previous, since, until);
+        s.loadAds(conn, mysql, previous, overlap);
+        s.loadProductAds(conn, mysql);
+        s.link();
+        s.loadMillis = (System.nanoTime() - start) / 1_000_000;
+        return s;
+    }
+
+    // Statement streaming the rows of sql, with every ? bound to the timestamps given
+    private static PreparedStatement stream(Connection conn, boolean mysql, String sql, Timestamp... params)
+            throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL only streams a result set with this fetch size; others take it as a batch size
+        ps.setFetchSize(mysql ? Integer.MIN_VALUE : 10_000);
+        for (int i = 0; i < params.length; i++) {
+            ps.setTimestamp(i + 1, params[i]);
+        }
+        return ps;
+    }
+
+    private static long count(Connection conn, String sql, Timestamp... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setTimestamp(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // Every product, or with base: base's products with those changed since replaced or added
+    private void loadProducts(Connection conn, boolean mysql, ColumnarSnapshot base, Timestamp since)
+            throws SQLException {
+        boolean delta = base != null;
+        int seeded = delta ? base.productCount : 0;
+        IntColumn ids = delta ? new IntColumn(base.productId, seeded) : new IntColumn();
+        IntColumn names = delta ? new IntColumn(base.productName, seeded) : new IntColumn();
+        IntColumn categoryCodes = delta ? new IntColumn(base.productCategory, seeded) : new IntColumn();
+        IntColumn categoryIds = delta ? new IntColumn(base.productCategoryId, seeded) : new IntColumn();
+        LongColumn prices = delta ? new LongColumn(base.productPriceCents, seeded) : new LongColumn();
+        IntColumn stocks = delta ? new IntColumn(base.productStock, seeded) : new IntColumn();
+        String sql = "SELECT ProductID, Name, Category, CategoryID, Price, Stock FROM Product" +
+            (delta ? " WHERE UpdatedAt > ?" : "");
+        try (PreparedStatement ps = delta ? stream(conn, mysql, sql, since) : stream(conn, mysql, sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                int row = delta ? base.productIndex.get(id) : -1;
+                if (row < 0) {
+                    row = ids.size;
+                }
+                ids.put(row, id);
+                names.put(row, productNames.encode(rs.getString(2)));
+                categoryCodes.put(row, categories.encode(rs.getString(3)));
+                int categoryId = rs.getInt(4);
+                categoryIds.put(row, rs.wasNull() ? NULL : categoryId);
+                prices.put(row, cents(rs.getBigDecimal(5)));
+                int stock = rs.getInt(6);
+                stocks.put(row, rs.wasNull() ? NULL : stock);
+            }
+        }
+        if (delta && count(conn, "SELECT COUNT(*) FROM Product") != ids.size) {
+            // Rows were deleted, which leaves no timestamp behind
+            loadProducts(conn, mysql, null, null);
+            return;
+        }
+        (delta ? deltaTables : fullTables).add("Product");
+        productCount = ids.size;
+        productId = ids.toArray();
+        productName = names.toArray();
+        productCategory = categoryCodes.toArray();
+        productCategoryId = categoryIds.toArray();
+        productPriceCents = prices.toArray();
+        productStock = stocks.toArray();
+    }
+
+    private void loadCategories(Connection conn, boolean mysql) throws SQLException {
+        IntColumn ids = new IntColumn();
+        IntColumn names = new IntColumn();
+        try (PreparedStatement ps = stream(conn, mysql, "SELECT CategoryID, Name FROM Category");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                names.add(categories.encode(rs.getString(2)));
+            }
+        }
+        fullTables.add("Category");
+        categoryCount = ids.size;
+        categoryId = ids.toArray();
+        categoryName = names.toArray();
+    }
+
+    private void loadCustomers(Connection conn, boolean mysql) throws SQLException {
+        IntColumn ids = new IntColumn();
+        List<String> names = new ArrayList<>();
+        IntColumn cityCodes = new IntColumn();
+        try (PreparedStatement ps = stream(conn, mysql, "SELECT CustomerID, Name, City FROM Customer");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                names.add(rs.getString(2));
+                cityCodes.add(cities.encode(rs.getString(3)));
+            }
+        }
+        fullTables.add("Customer");
+        customerCount = ids.size;
+        customerId = ids.toArray();
+        customerName = names.toArray(new String[0]);
+        customerCity = cityCodes.toArray();
+    }
+
+    private void loadRegions(Connection conn, boolean mysql) throws SQLException {
+        IntColumn cityCodes = new IntColumn();
+        IntColumn regionCodes = new IntColumn();
+        try (PreparedStatement ps = stream(conn, mysql, "SELECT City, Region FROM Regional_info");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String city = rs.getString(1);
+                if (city != null) {
+                    cityCodes.add(cities.encode(city));
+                    regionCodes.add(regions.encode(rs.getString(2)));
+                }
+            }
+        }
+        fullTables.add("Regional_info");
+        regionalCount = cityCodes.size;
+        regionalCity = cityCodes.toArray();
+        regionalRegion = regionCodes.toArray();
+    }
+
+    // Every sale, or with base: base's sales up to its watermark plus the ones stamped since. Rows
+    // stamped up to `until` form the new base part, later ones the tail. The columns are only on the
+    // heap while reading, and only for the rows read; base's records are copied off-heap as they are.
+    private void loadBusiness(Connection conn, boolean mysql, ColumnarSnapshot base, Timestamp since,
+                              Timestamp until) throws SQLException {
+        // An update or delete moves a row past the old watermark or removes it, so the count of rows
+        // still at or before it tells whether base's copy of them is intact
+        boolean delta = base != null &&
+            count(conn, "SELECT COUNT(*) FROM Business WHERE UpdatedAt <= ?", since) == base.business.getBaseRows();
+        IntColumn products = new IntColumn();
+        IntColumn customers = new IntColumn();
+        IntColumn days = new IntColumn();
+        IntColumn quantities = new IntColumn();
+        String select = "SELECT ProductID, CustomerID, PDate, Qty FROM Business";
+        int baseRows;
+        if (until == null) {
+            readBusiness(conn, mysql, select, products, customers, days, quantities);
+            baseRows = products.size;
+        } else {
+            if (delta) {
+                readBusiness(conn, mysql, select + " WHERE UpdatedAt > ? AND UpdatedAt <= ?",
+                    products, customers, days, quantities, since, until);
+            } else {
+                readBusiness(conn, mysql, select + " WHERE UpdatedAt <= ?", products, customers, days, quantities, until);
+            }
+            baseRows = products.size;
+            readBusiness(conn, mysql, select + " WHERE UpdatedAt > ?", products, customers, days, quantities, until);
+        }
+        (delta ? deltaTables : fullTables).add("Business");
+        business = delta
+            ? BusinessStore.extend(base.business, products.values, customers.values, days.values, quantities.values,
+                products.size, baseRows)
+            : BusinessStore.of(products.values, customers.values, days.values, quantities.values, products.size, baseRows);
+    }
+
+    private static void readBusiness(Connection conn, boolean mysql, String sql, IntColumn products,
+                                     IntColumn customers, IntColumn days, IntColumn quantities,
+                                     Timestamp... params) throws SQLException {
+        try (PreparedStatement ps = stream(conn, mysql, sql, params);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int product = rs.getInt(1);
+                products.add(rs.wasNull() ? NULL : product);
+                int customer = rs.getInt(2);
+                customers.add(rs.wasNull() ? NULL : customer);
+                java.sql.Date date = rs.getDate(3);
+                days.add(date == null ? NULL : (int) date.toLocalDate().toEpochDay());
+                int qty = rs.getInt(4);
+                quantities.add(rs.wasNull() ? NULL : qty);
+            }
+        }
+    }
+
+    // Every ad, or with base: base's ads with those changed since replaced or added
+    private void loadAds(Connection conn, boolean mysql, ColumnarSnapshot base, Timestamp since) throws SQLException {
+        boolean delta = base != null;
+        int seeded = delta ? base.adsCount : 0;
+        IntColumn ids = delta ? new IntColumn(base.adsId, seeded) : new IntColumn();
+        IntColumn platformCodes = delta ? new IntColumn(base.adsPlatform, seeded) : new IntColumn();
+        IntColumn ageGroupCodes = delta ? new IntColumn(base.adsAgeGroup, seeded) : new IntColumn();
+        IntColumn productIds = delta ? new IntColumn(base.adsProductId, seeded) : new IntColumn();
+        IntColumn impressions = delta ? new IntColumn(base.adsImpressions, seeded) : new IntColumn();
+        IntColumn conversions = delta ? new IntColumn(base.adsConversions, seeded) : new IntColumn();
+        LongColumn revenue = delta ? new LongColumn(base.adsRevenueCents, seeded) : new LongColumn();
+        LongColumn cost = delta ? new LongColumn(base.adsCostCents, seeded) : new LongColumn();
+        String sql = "SELECT AdsID, Platform, AgeGroup, ProductID, Impressions, Conversions, Revenue, Cost FROM Ads" +
+            (delta ? " WHERE UpdatedAt > ?" : "");
+        try (PreparedStatement ps = delta ? stream(conn, mysql, sql, since) : stream(conn, mysql, sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                int platform = platforms.encode(rs.getString(2));
+                int row = delta ? base.adsIndex.get(adKey(id, platform)) : -1;
+                if (row < 0) {
+                    row = ids.size;
+                }
+                ids.put(row, id);
+                platformCodes.put(row, platform);
+                ageGroupCodes.put(row, ageGroups.encode(rs.getString(3)));
+                int productId = rs.getInt(4);
+                productIds.put(row, rs.wasNull() ? NULL : productId);
+                int impressionCount = rs.getInt(5);
+                impressions.put(row, rs.wasNull() ? NULL : impressionCount);
+                int conversionCount = rs.getInt(6);
+                conversions.put(row, rs.wasNull() ? NULL : conversionCount);
+                revenue.put(row, cents(rs.getBigDecimal(7)));
+                cost.put(row, cents(rs.getBigDecimal(8)));
+            }
+        }
+        if (delta && count(conn, "SELECT COUNT(*) FROM Ads") != ids.size) {
+            loadAds(conn, mysql, null, null);
+            return;
+        }
+        (delta ? deltaTables : fullTables).add("Ads");
+        adsCount = ids.size;
+        adsId = ids.toArray();
+        adsPlatform = platformCodes.toArray();
+        adsAgeGroup = ageGroupCodes.toArray();
+        adsProductId = productIds.toArray();
+        adsImpressions = impressions.toArray();
+        adsConversions = conversions.toArray();
+        adsRevenueCents = revenue.toArray();
+        adsCostCents = cost.toArray();
+    }
+
+    private void loadProductAds(Connection conn, boolean mysql) throws SQLException {
+        IntColumn products = new IntColumn();
+        IntColumn ads = new IntColumn();
+        IntColumn platformCodes = new IntColumn();
+        try (PreparedStatement ps = stream(conn, mysql, "SELECT ProductID, AdsID, Platform FROM Products_Ads");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                products.add(rs.getInt(1));
+                ads.add(rs.getInt(2));
+                platformCodes.add(platforms.encode(rs.getString(3)));
+            }
+        }
+        fullTables.add("Products_Ads");
+        productAdsCount = products.size;
+        productAdsProductId = products.toArray();
+        productAdsAdsId = ads.toArray();
+        productAdsPlatform = platformCodes.toArray();
+    }
+
+    // Build the key indexes and resolve the foreign keys to row numbers
+    void link() {
+        productIndex = new KeyIndex(widen(productId), productCount);
+        customerIndex = new KeyIndex(widen(customerId), customerCount);
+        categoryIndex = new KeyIndex(widen(categoryId), categoryCount);
+        cityRegion = new int[cities.size()];
+        for (int i = 0; i < regionalCount; i++) {
+            cityRegion[regionalCity[i]] = regionalRegion[i];
+        }
+        long[] keys = new long[adsCount];
+        for (int i = 0; i < adsCount; i++) {
+            keys[i] = adKey(adsId[i], adsPlatform[i]);
+        }
+        adsIndex = new KeyIndex(keys, adsCount);
+        productAdsProduct = new int[productAdsCount];
+        productAdsAd = new int[productAdsCount];
+        for (int i = 0; i < productAdsCount; i++) {
+            productAdsProduct[i] = productIndex.get(productAdsProductId[i]);
+            productAdsAd[i] = adsIndex.get(adKey(productAdsAdsId[i], productAdsPlatform[i]));
+        }
+    }
+
+    // Row in Product of the sale's product, -1 if NULL or absent
+    int saleProduct(int row) {
+        int id = business.productId(row);
+        return id == NULL ? -1 : productIndex.get(id);
+    }
+
+    // Row in Customer of the sale's customer, -1 if NULL or absent
+    int saleCustomer(int row) {
+        int id = business.customerId(row);
+        return id == NULL ? -1 : customerIndex.get(id);
+    }
+
+    static long adKey(int adsId, int platformCode) {
+        return ((long) adsId << 20) | platformCode;
+    }
+
+    // DECIMAL(_, 2) money as whole cents, NULL_CENTS for NULL
+    static long cents(BigDecimal value) {
+        return value == null ? NULL_CENTS : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long[] widen(int[] values) {
+        long[] wide = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            wide[i] = values[i];
+        }
+        return wide;
+    }
+
+    public int getBusinessRows() {
+        return business.size();
+    }
+
+    public String getStats() {
+        return String.format("products=%d customers=%d business=%d ads=%d productAds=%d loadMs=%d full=%s delta=%s",
+            productCount, customerCount, business.size(), adsCount, productAdsCount, loadMillis, fullTables, deltaTables);
+    }
+}
@@ -0,0 +1,492 @@
+package mini_project_dbms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded JDBC connection pool shared by VulcynyxApp (through Database), JewelryManagementUI and proj.
+// Connections handed out are proxies: calling close() closes any statements (and so result sets)
+// the borrower left open and returns the physical connection to the pool. Statements created on
+// them are proxies too (see MeteredJdbc), metered for QueryMetrics, and their getConnection() and
+// their result sets' getStatement() lead back to the proxies, never to the physical connection.
+public class ConnectionPool {
+    // Defaults, overridable with -Dvulcynyx.pool.<name>=<value>
+    private static final int MIN_SIZE = Integer.getInteger("vulcynyx.pool.minSize", 2);
+    private static final int MAX_SIZE = Integer.getInteger("vulcynyx.pool.maxSize", 10);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("vulcynyx.pool.idleTimeoutMs", 300_000L);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("vulcynyx.pool.acquireTimeoutMs", 10_000L);
+    private static final long VALIDATION_BYPASS_MS = Long.getLong("vulcynyx.pool.validationBypassMs", 500L);
+    private static final int VALIDATION_TIMEOUT_SEC = 2;
+
+    // Upper bounds (microseconds) of the borrow latency histogram buckets; last bucket is open-ended
+    private static final long[] LATENCY_BOUNDS_MICROS = { 100, 1_000, 10_000, 100_000, 1_000_000 };
+    private static final String[] LATENCY_LABELS = { "<100us", "<1ms", "<10ms", "<100ms", "<1s", ">=1s" };
+
+    private static final Map<List<String>, ConnectionPool> SHARED = new ConcurrentHashMap<>();
+
+    private final String url;
+    private final String user;
+    private final String pass;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long acquireTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int totalCount;
+    private int activeCount;
+    private int waiterCount;
+    private boolean shutdown;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong leakedStatements = new AtomicLong();
+    private final AtomicLongArray borrowLatency = new AtomicLongArray(LATENCY_LABELS.length);
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String user, String pass) {
+        this(url, user, pass, MIN_SIZE, MAX_SIZE, IDLE_TIMEOUT_MS, ACQUIRE_TIMEOUT_MS);
+    }
+
+    public ConnectionPool(String url, String user, String pass, int minSize, int maxSize,
+                          long idleTimeoutMs, long acquireTimeoutMs) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.pass = pass;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000L, idleTimeoutMs / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // One pool per (url, user, password) for the whole JVM, so all front ends share the same
+    // connections and a caller with other credentials never borrows a session opened with these
+    public static ConnectionPool shared(String url, String user, String pass) {
+        return SHARED.computeIfAbsent(Arrays.asList(url, user, pass), k -> new ConnectionPool(url, user, pass));
+    }
+
+    // Close every shared pool (used on application exit)
+    public static void shutdownAll() {
+        for (ConnectionPool pool : SHARED.values()) {
+            pool.shutdown();
+        }
+        SHARED.clear();
+    }
+
+    // Borrow a connection, waiting up to the acquire timeout if the pool is exhausted
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean reserved = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (shutdown) {
+                        throw new SQLException("Connection pool has been shut down");
+                    }
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+                    if (totalCount < maxSize) {
+                        totalCount++;
+                        reserved = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLTransientConnectionException(
+                            "Timed out after " + acquireTimeoutMs + "ms waiting for a pooled connection (" +
+                            activeCount + " active, max " + maxSize + ")");
+                    }
+                    waiterCount++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a pooled connection", e);
+                    } finally {
+                        waiterCount--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (reserved) {
+                try {
+                    candidate = new PooledConnection(DriverManager.getConnection(url, user, pass));
+                    createdCount.incrementAndGet();
+                } catch (SQLException e) {
+                    discardSlot();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                closeQuietly(candidate.physical);
+                discardSlot();
+                continue;
+            }
+
+            lock.lock();
+            try {
+                activeCount++;
+            } finally {
+                lock.unlock();
+            }
+            recordBorrow(System.nanoTime() - start);
+            return candidate.newHandle();
+        }
+    }
+
+    // Validation-on-borrow, skipped for connections returned within the bypass window
+    private boolean isUsable(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastReturned < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(VALIDATION_TIMEOUT_SEC);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        boolean healthy;
+        try {
+            healthy = !pc.physical.isClosed();
+            if (healthy && !pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (healthy) {
+                pc.physical.clearWarnings();
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+
+        lock.lock();
+        try {
+            activeCount--;
+            if (healthy && !shutdown) {
+                pc.lastReturned = System.currentTimeMillis();
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(pc.physical);
+        discardSlot();
+    }
+
+    private void discardSlot() {
+        lock.lock();
+        try {
+            totalCount--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Evict connections idle past the timeout (down to minSize), then top the pool back up to minSize
+    private void housekeep() {
+        List<PooledConnection> expired = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            if (shutdown) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && totalCount - expired.size() > minSize) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturned > idleTimeoutMs) {
+                    it.remove();
+                    expired.add(pc);
+                }
+            }
+            totalCount -= expired.size();
+            missing = minSize - totalCount;
+            if (missing > 0) {
+                totalCount += missing;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pc : expired) {
+            closeQuietly(pc.physical);
+            evictedCount.incrementAndGet();
+        }
+        for (int i = 0; i < missing; i++) {
+            try {
+                PooledConnection pc = new PooledConnection(DriverManager.getConnection(url, user, pass));
+                createdCount.incrementAndGet();
+                lock.lock();
+                try {
+                    idle.addLast(pc);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                discardSlot();
+            }
+        }
+    }
+
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            shutdown = true;
+            toClose = new ArrayList<>(idle);
+            totalCount -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pc : toClose) {
+            closeQuietly(pc.physical);
+        }
+    }
+
+    private void recordBorrow(long nanos) {
+        borrowCount.incrementAndGet();
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 0;
+        while (bucket < LATENCY_BOUNDS_MICROS.length && micros >= LATENCY_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        borrowLatency.incrementAndGet(bucket);
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // connection is being discarded anyway
+        }
+    }
+
+    // ==================== METRICS ====================
+    public int getActiveCount() {
+        lock.lock();
+        try {
+            return activeCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return totalCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiterCount() {
+        lock.lock();
+        try {
+            return waiterCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    // Borrow latency counts per bucket, in the order of LATENCY_LABELS
+    public long[] getBorrowLatencyHistogram() {
+        long[] counts = new long[borrowLatency.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = borrowLatency.get(i);
+        }
+        return counts;
+    }
+
+    public String getStats() {
+        StringBuilder sb = new StringBuilder();
+        lock.lock();
+        try {
+            sb.append("Pool[active=").append(activeCount)
+              .append(", idle=").append(idle.size())
+              .append(", total=").append(totalCount)
+              .append("/").append(maxSize)
+              .append(", waiters=").append(waiterCount).append("]");
+        } finally {
+            lock.unlock();
+        }
+        sb.append(" borrows=").append(borrowCount.get())
+          .append(" created=").append(createdCount.get())
+          .append(" evicted=").append(evictedCount.get())
+          .append(" timeouts=").append(timeoutCount.get())
+          .append(" leakedStatements=").append(leakedStatements.get())
+          .append(" latency{");
+        long[] counts = getBorrowLatencyHistogram();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(LATENCY_LABELS[i]).append("=").append(counts[i]);
+        }
+        return sb.append("}").toString();
+    }
+
+    // Physical connection plus pool bookkeeping
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long lastReturned;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.lastReturned = System.currentTimeMillis();
+        }
+
+        // Each borrow gets its own proxy so a stale handle cannot touch the next borrower's session
+        Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private final AtomicBoolean closed = new AtomicBoolean();
+                // Statements created through this handle and not yet closed by the borrower
+                private final Set<Statement> children = ConcurrentHashMap.newKeySet();
+
+                @Override
+                public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                closeChildren();
+                                release(PooledConnection.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed.get() || physical.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled" + physical;
+                        default:
+                            if (closed.get()) {
+                                throw new SQLException("Connection has already been returned to the pool");
+                            }
+                            long start = System.nanoTime();
+                            Object result;
+                            try {
+                                result = method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            if (result instanceof Statement) {
+                                // prepareStatement/prepareCall/createStatement: time what runs on it
+                                String sql = args != null && args.length > 0 && args[0] instanceof String
+                                    ? (String) args[0] : null;
+                                long prepareNanos = sql == null ? 0 : System.nanoTime() - start;
+                                Statement statement = MeteredJdbc.statement(ConnectionPool.this, (Connection) proxy,
+                                    (Statement) result, sql, prepareNanos, children::remove);
+                                children.add(statement);
+                                return statement;
+                            }
+                            if (result instanceof DatabaseMetaData) {
+                                return metaData((DatabaseMetaData) result, (Connection) proxy);
+                            }
+                            return result;
+                    }
+                }
+
+                // Closing a statement closes its result sets, so nothing opened through this
+                // handle survives onto the next borrower's session
+                private void closeChildren() {
+                    for (Statement statement : children) {
+                        try {
+                            if (!statement.isClosed()) {
+                                leakedStatements.incrementAndGet();
+                                statement.close();
+                            }
+                        } catch (SQLException e) {
+                            // the connection is checked again in release()
+                        }
+                    }
+                    children.clear();
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+        }
+    }
+
+    // DatabaseMetaData whose getConnection() returns the handle rather than the physical connection
+    private static DatabaseMetaData metaData(DatabaseMetaData target, Connection handle) {
+        return (DatabaseMetaData) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+            new Class<?>[] { DatabaseMetaData.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getConnection":
+                        return handle;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            });
+    }
+}
@@ -0,0 +1,315 @@
+package mini_project_dbms;
+
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// In-memory dashboard aggregates (counts and total revenue), loaded once from the database and then
+// kept current by the write paths, so showing the dashboard never rescans Business.
+// Until the first load the write hooks are no-ops; a periodic reconcile re-reads everything to
+// correct drift from writes made elsewhere (other processes, cascaded deletes, races with the load).
+// A ChangeFeed Resync (rows deleted or rewritten) brings that reconcile forward. The feed's row
+// changes are not applied here: this JVM's writes already went through the hooks and would count twice.
+// Revenue is kept in whole paise so the hooks' additions do not accumulate rounding error.
+//
+// The reconcile query runs outside the lock, so a hook can fire while it is in flight and the
+// fresh values may or may not include that write. Every hook bumps a write sequence number; a
+// reconcile whose window saw a write is discarded (and retried shortly) rather than overwriting
+// the counters with values that could miss or double count it.
+public class DashboardCounters {
+    public static final int LOW_STOCK_THRESHOLD = 10;
+    private static final long RECONCILE_MS = Long.getLong("vulcynyx.dashboard.reconcileMs", 600_000L);
+    // Retries of a reconcile discarded because of concurrent writes, before waiting for the next period
+    private static final int RECONCILE_RETRIES = 3;
+    private static final long RECONCILE_RETRY_MS = 1_000L;
+
+    // Stat order used by snapshot(), load() and the dashboard cards
+    public static final int PRODUCTS = 0;
+    public static final int CUSTOMERS = 1;
+    public static final int REVENUE = 2;
+    public static final int LOW_STOCK = 3;
+    public static final int CAMPAIGNS = 4;
+    public static final int TRANSACTIONS = 5;
+
+    public static final String[] QUERIES = {
+        "SELECT COUNT(*) FROM Product",
+        "SELECT COUNT(*) FROM Customer",
+        "SELECT SUM(b.Qty * p.Price) FROM Business b JOIN Product p ON b.ProductID = p.ProductID",
+        "SELECT COUNT(*) FROM Product WHERE Stock <= " + LOW_STOCK_THRESHOLD,
+        "SELECT COUNT(*) FROM Campaign",
+        "SELECT COUNT(*) FROM Business"
+    };
+
+    private static DashboardCounters shared;
+
+    // Price, stock and units sold of one product, read before and after a change to it
+    public static final class ProductState {
+        final double price;
+        final int stock;
+        final long unitsSold;
+
+        ProductState(double price, int stock, long unitsSold) {
+            this.price = price;
+            this.stock = stock;
+            this.unitsSold = unitsSold;
+        }
+    }
+
+    private final ConnectionPool pool;
+    // Counts, with REVENUE in paise
+    private final long[] values = new long[QUERIES.length];
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService reconciler;
+    private boolean loaded;
+    // Bumped by every change the hooks apply
+    private long writeSequence;
+    private long reconciles;
+    private long discardedReconciles;
+
+    public DashboardCounters(ConnectionPool pool) {
+        this.pool = pool;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Counters shared by every front end in this JVM
+    public static synchronized DashboardCounters shared(ConnectionPool pool) {
+        if (shared == null) {
+            shared = new DashboardCounters(pool);
+        }
+        return shared;
+    }
+
+    // One round trip for every stat, as scalar subqueries
+    public static double[] queryAll(Connection conn) throws SQLException {
+        StringBuilder query = new StringBuilder("SELECT ");
+        for (int i = 0; i < QUERIES.length; i++) {
+            query.append(i == 0 ? "" : ", ").append('(').append(QUERIES[i]).append(')');
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query.toString())) {
+            rs.next();
+            double[] stats = new double[QUERIES.length];
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = rs.getDouble(i + 1);
+            }
+            return stats;
+        }
+    }
+
+    // Seed the counters with freshly queried values (revenue in rupees, as queryAll returns it) and
+    // start periodic reconciliation. The ChangeFeed itself is started with the shared services.
+    public void load(double[] stats) {
+        boolean first;
+        synchronized (this) {
+            set(stats);
+            first = !loaded;
+            loaded = true;
+        }
+        if (first) {
+            reconciler.scheduleWithFixedDelay(this::reconcile, RECONCILE_MS, RECONCILE_MS, TimeUnit.MILLISECONDS);
+            ChangeFeed.shared(pool).subscribe(changes -> {
+                if (changes.stream().anyMatch(change -> change instanceof ChangeFeed.Resync)) {
+                    reconcileSoon();
+                }
+            });
+        }
+        fireChanged();
+    }
+
+    // Guarded by this
+    private void set(double[] stats) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i == REVENUE ? toPaise(stats[i]) : Math.round(stats[i]);
+        }
+    }
+
+    static long toPaise(double rupees) {
+        return Math.round(rupees * 100);
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // Current values, revenue in rupees
+    public synchronized double[] snapshot() {
+        double[] stats = new double[values.length];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = i == REVENUE ? values[i] / 100.0 : values[i];
+        }
+        return stats;
+    }
+
+    // Called (on the writing thread) after every change
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public ProductState readProduct(Connection conn, int productId) throws SQLException {
+        if (!isLoaded()) {
+            return null;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT p.Price, p.Stock, (SELECT COALESCE(SUM(b.Qty), 0) FROM Business b " +
+                "WHERE b.ProductID = p.ProductID) FROM Product p WHERE p.ProductID = ?")) {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new ProductState(rs.getDouble(1), rs.getInt(2), rs.getLong(3)) : null;
+            }
+        }
+    }
+
+    public void productAdded(double price, int stock) {
+        productChanged(null, new ProductState(price, stock, 0));
+    }
+
+    // Either state may be null (product did not exist before / no longer exists)
+    public void productChanged(ProductState before, ProductState after) {
+        synchronized (this) {
+            if (!loaded) {
+                return;
+            }
+            if (before != null) {
+                values[PRODUCTS]--;
+                values[LOW_STOCK] -= before.stock <= LOW_STOCK_THRESHOLD ? 1 : 0;
+                values[REVENUE] -= toPaise(before.price) * before.unitsSold;
+            }
+            if (after != null) {
+                values[PRODUCTS]++;
+                values[LOW_STOCK] += after.stock <= LOW_STOCK_THRESHOLD ? 1 : 0;
+                values[REVENUE] += toPaise(after.price) * after.unitsSold;
+            }
+            writeSequence++;
+        }
+        fireChanged();
+    }
+
+    public void productDeleted(ProductState before) {
+        productChanged(before, null);
+        reconcileSoon(); // the delete may have cascaded to Business
+    }
+
+    public void transactionAdded(Connection conn, int productId, int qty) throws SQLException {
+        if (!isLoaded()) {
+            return;
+        }
+        double price;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT Price FROM Product WHERE ProductID = ?")) {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                price = rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+        synchronized (this) {
+            if (!loaded) {
+                return;
+            }
+            values[TRANSACTIONS]++;
+            values[REVENUE] += toPaise(price) * qty;
+            writeSequence++;
+        }
+        fireChanged();
+    }
+
+    public void customerAdded() {
+        adjust(CUSTOMERS, 1);
+    }
+
+    public void customerDeleted() {
+        adjust(CUSTOMERS, -1);
+        reconcileSoon(); // the delete may have cascaded to Business
+    }
+
+    public void campaignAdded() {
+        adjust(CAMPAIGNS, 1);
+    }
+
+    public void campaignDeleted() {
+        adjust(CAMPAIGNS, -1);
+    }
+
+    private void adjust(int stat, long delta) {
+        synchronized (this) {
+            if (!loaded) {
+                return;
+            }
+            values[stat] += delta;
+            writeSequence++;
+        }
+        fireChanged();
+    }
+
+    // Reconcile in the background, e.g. after a bulk load the hooks above do not see
+    public void reconcileSoon() {
+        if (isLoaded()) {
+            reconciler.execute(this::reconcile);
+        }
+    }
+
+    // Re-read every stat and replace the incrementally maintained values
+    public void reconcile() {
+        reconcile(0);
+    }
+
+    private void reconcile(int attempt) {
+        long sequence;
+        synchronized (this) {
+            sequence = writeSequence;
+        }
+        double[] fresh;
+        try (Connection conn = pool.getConnection()) {
+            fresh = queryAll(conn);
+        } catch (SQLException e) {
+            System.err.println("Dashboard reconcile failed: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            if (writeSequence != sequence) {
+                // A hook fired while the query ran; its write may or may not be in fresh
+                discardedReconciles++;
+                if (attempt < RECONCILE_RETRIES) {
+                    reconciler.schedule(() -> reconcile(attempt + 1), RECONCILE_RETRY_MS, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            long[] before = values.clone();
+            set(fresh);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != before[i]) {
+                    System.err.println("Dashboard counter drift on '" + QUERIES[i] + "': "
+                        + format(i, before[i]) + " -> " + format(i, values[i]));
+                }
+            }
+            reconciles++;
+        }
+        fireChanged();
+    }
+
+    private static String format(int stat, long value) {
+        return stat == REVENUE ? String.format("%.2f", value / 100.0) : String.valueOf(value);
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    public synchronized String getStats() {
+        return String.format("DashboardCounters[loaded=%b, reconciles=%d, discarded=%d] products=%d " +
+                             "customers=%d revenue=%.2f lowStock=%d campaigns=%d transactions=%d",
+            loaded, reconciles, discardedReconciles, values[PRODUCTS], values[CUSTOMERS], values[REVENUE] / 100.0,
+            values[LOW_STOCK], values[CAMPAIGNS], values[TRANSACTIONS]);
+    }
+
+    public void shutdown() {
+        reconciler.shutdownNow();
+    }
+}
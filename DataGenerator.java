@@ -0,0 +1,432 @@
+package mini_project_dbms;
+
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Synthetic jewelry dataset for load tests: Category, Regional_info, Product, Customer, Campaign, Ads,
+// Products_Ads, Ads_Campaign and Business, with the columns proj's insert methods write plus the ones
+// the analytics queries read. Rows are streamed (nothing is held in memory) through multi-row
+// INSERT ... VALUES (...), (...) statements, and Business is split across several connections.
+// Popularity is Zipf-distributed: a few products, customers, cities and Platform/AgeGroup pairs get
+// most of the sales and impressions, as in production. skew = 0 gives uniform data.
+//
+//   java -cp h2.jar:. -Dvulcynyx.gen.url=jdbc:h2:file:./vulcynyx;MODE=MySQL -Dvulcynyx.gen.schema=true \
+//        -Dvulcynyx.gen.transactions=10000000 mini_project_dbms.DataGenerator
+public class DataGenerator {
+    private static final String[] CITIES = { "Mumbai", "Delhi", "Bengaluru", "Hyderabad", "Chennai",
+        "Kolkata", "Pune", "Ahmedabad", "Jaipur", "Lucknow", "Surat", "Indore", "Nagpur", "Kochi" };
+    private static final String[] REGIONS = { "West", "North", "South", "South", "South",
+        "East", "West", "West", "North", "North", "West", "Central", "Central", "South" };
+    private static final String[] CATEGORIES = { "Ring", "Necklace", "Earring", "Bracelet", "Pendant", "Bangle" };
+    private static final String[] MATERIALS = { "Gold", "Silver", "Platinum", "Diamond", "Rose Gold" };
+    private static final String[] PLATFORMS = { "Instagram", "Facebook", "Google", "YouTube" };
+    private static final String[] AGE_GROUPS = { "Adult", "Teen", "Senior" };
+    private static final String[] GENDERS = { "F", "M", "O" };
+    private static final String[] CAMPAIGN_TYPES = { "Seasonal", "Promotional", "Clearance", "Loyalty" };
+
+    // Schema read by the front ends' queries
+    public static final String[] SCHEMA = {
+        "CREATE TABLE Category (CategoryID INT PRIMARY KEY, Name VARCHAR(50))",
+        "CREATE TABLE Product (ProductID INT PRIMARY KEY, Name VARCHAR(100), Category VARCHAR(50), " +
+            "CategoryID INT, Material VARCHAR(50), Price DECIMAL(10,2), Stock INT)",
+        "CREATE TABLE Regional_info (City VARCHAR(50) PRIMARY KEY, Region VARCHAR(50))",
+        "CREATE TABLE Customer (CustomerID INT PRIMARY KEY, Name VARCHAR(100), Gender CHAR(1), " +
+            "AgeGroup VARCHAR(10), City VARCHAR(50))",
+        "CREATE TABLE Business (ProductID INT, CustomerID INT, PDate DATE, Qty INT)",
+        "CREATE TABLE Campaign (CampaignID INT PRIMARY KEY, Name VARCHAR(100), Type VARCHAR(20), " +
+            "Discount DECIMAL(5,2), StartDate DATE, EndDate DATE)",
+        "CREATE TABLE Ads (AdsID INT, Platform VARCHAR(20), AgeGroup VARCHAR(10), ProductID INT, " +
+            "Impressions INT, Conversions INT, Revenue DECIMAL(12,2), Cost DECIMAL(12,2), " +
+            "PRIMARY KEY (AdsID, Platform))",
+        "CREATE TABLE Products_Ads (ProductID INT, AdsID INT, Platform VARCHAR(20), " +
+            "PRIMARY KEY (ProductID, AdsID, Platform))",
+        "CREATE TABLE Ads_Campaign (AdsID INT, Platform VARCHAR(20), CampaignID INT, " +
+            "PRIMARY KEY (AdsID, Platform, CampaignID))",
+        "CREATE INDEX idx_business_product ON Business (ProductID)",
+        "CREATE INDEX idx_business_customer ON Business (CustomerID)",
+        "CREATE VIEW Campaign_ROI AS SELECT c.CampaignID, c.Name AS CampaignName, " +
+            "SUM(a.Revenue) AS Revenue, SUM(a.Cost) AS Cost, " +
+            "ROUND((SUM(a.Revenue) - SUM(a.Cost)) / NULLIF(SUM(a.Cost), 0) * 100, 2) AS ROI " +
+            "FROM Campaign c JOIN Ads_Campaign ac ON c.CampaignID = ac.CampaignID " +
+            "JOIN Ads a ON a.AdsID = ac.AdsID AND a.Platform = ac.Platform GROUP BY c.CampaignID, c.Name",
+        "CREATE VIEW TrendingProducts AS SELECT p.ProductID, p.Name, SUM(b.Qty) AS TotalRecentSales, " +
+            "CASE WHEN SUM(b.Qty) >= 10 THEN 'Trending' ELSE 'Normal' END AS TrendStatus " +
+            "FROM Product p JOIN Business b ON p.ProductID = b.ProductID " +
+            "WHERE b.PDate >= CURRENT_DATE - INTERVAL '1' MONTH GROUP BY p.ProductID, p.Name",
+        "CREATE VIEW CampaignReportsPerRegion AS SELECT DISTINCT r.Region, cr.CampaignName, cr.ROI " +
+            "FROM Campaign_ROI cr JOIN Ads_Campaign ac ON ac.CampaignID = cr.CampaignID " +
+            "JOIN Ads a ON a.AdsID = ac.AdsID AND a.Platform = ac.Platform " +
+            "JOIN Customer cu ON cu.AgeGroup = a.AgeGroup JOIN Regional_info r ON r.City = cu.City",
+        "CREATE VIEW Ad_Performance_View AS SELECT a.AdsID AS AdID, a.Platform, a.Revenue, a.Cost AS AdCost, " +
+            "ROUND((a.Revenue - a.Cost) / NULLIF(a.Cost, 0) * 100, 2) AS ROI, " +
+            "ROUND(a.Conversions / NULLIF(a.Impressions, 0) * 100, 2) AS ConversionRate, " +
+            "a.Impressions, a.Conversions FROM Ads a",
+        "CREATE VIEW LowStockAlerts AS SELECT ProductID, Name, Stock AS RemainingStock " +
+            "FROM Product WHERE Stock <= 10"
+    };
+
+    private final int products;
+    private final int customers;
+    private final long transactions;
+    private final int ads;
+    private final int campaigns;
+    private final double skew;
+    private final int rowsPerInsert;
+    private final int threads;
+    private final long seed;
+    private final LocalDate today = LocalDate.now();
+
+    public DataGenerator(int products, int customers, long transactions, int ads, int campaigns,
+                         double skew, int rowsPerInsert, int threads, long seed) {
+        if (products < 1 || customers < 1 || ads < 1 || campaigns < 1 || rowsPerInsert < 1 || threads < 1) {
+            throw new IllegalArgumentException("table sizes, rowsPerInsert and threads must be >= 1");
+        }
+        this.products = products;
+        this.customers = customers;
+        this.transactions = transactions;
+        this.ads = ads;
+        this.campaigns = campaigns;
+        this.skew = skew;
+        this.rowsPerInsert = rowsPerInsert;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("vulcynyx.gen.url",
+            "jdbc:h2:file:./vulcynyx;MODE=MySQL;DATABASE_TO_UPPER=FALSE");
+        String user = System.getProperty("vulcynyx.gen.user", "sa");
+        String password = System.getProperty("vulcynyx.gen.password", "");
+        Class.forName(System.getProperty("vulcynyx.gen.driver",
+            url.startsWith("jdbc:h2:") ? "org.h2.Driver" : "com.mysql.cj.jdbc.Driver"));
+
+        DataGenerator generator = new DataGenerator(
+            Integer.getInteger("vulcynyx.gen.products", 100_000),
+            Integer.getInteger("vulcynyx.gen.customers", 1_000_000),
+            Long.getLong("vulcynyx.gen.transactions", 10_000_000L),
+            Integer.getInteger("vulcynyx.gen.ads", 50_000),
+            Integer.getInteger("vulcynyx.gen.campaigns", 500),
+            Double.parseDouble(System.getProperty("vulcynyx.gen.skew", "1.0")),
+            Integer.getInteger("vulcynyx.gen.rowsPerInsert", 500),
+            Integer.getInteger("vulcynyx.gen.threads", Runtime.getRuntime().availableProcessors()),
+            Long.getLong("vulcynyx.gen.seed", 42L));
+        if (Boolean.getBoolean("vulcynyx.gen.schema")) {
+            try (Connection conn = DriverManager.getConnection(url, user, password)) {
+                createSchema(conn);
+            }
+        }
+        generator.generate(url, user, password);
+    }
+
+    public static void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String ddl : SCHEMA) {
+                stmt.execute(ddl);
+            }
+        }
+    }
+
+    // Populate every table; Business is written by several connections in parallel
+    public void generate(String url, String user, String password) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection(url, user, password)) {
+            conn.setAutoCommit(false);
+            Random random = new Random(seed);
+            timed("Category", CATEGORIES.length, () -> writeCategories(conn));
+            timed("Regional_info", CITIES.length, () -> writeRegions(conn));
+            timed("Product", products, () -> writeProducts(conn, random));
+            timed("Customer", customers, () -> writeCustomers(conn, random));
+            timed("Campaign", campaigns, () -> writeCampaigns(conn, random));
+            timed("Ads", ads * 3L, () -> writeAds(conn, random));
+            conn.setAutoCommit(true);
+        }
+        timed("Business", transactions, () -> writeBusiness(url, user, password));
+        System.out.printf("Dataset generated in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws SQLException;
+    }
+
+    private static void timed(String table, long rows, Step step) throws SQLException {
+        long start = System.nanoTime();
+        step.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-14s %,12d rows %8.1f s %,12.0f rows/s%n", table, rows, seconds, rows / seconds);
+    }
+
+    private void writeCategories(Connection conn) throws SQLException {
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "Category", rowsPerInsert, "CategoryID", "Name")) {
+            for (int i = 0; i < CATEGORIES.length; i++) {
+                insert.add(i + 1, CATEGORIES[i]);
+            }
+        }
+    }
+
+    private void writeRegions(Connection conn) throws SQLException {
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "Regional_info", rowsPerInsert, "City", "Region")) {
+            for (int i = 0; i < CITIES.length; i++) {
+                insert.add(CITIES[i], REGIONS[i]);
+            }
+        }
+    }
+
+    // Names look like "Gold Ring 1", so lookups by name in the benchmarks have a known target
+    private void writeProducts(Connection conn, Random random) throws SQLException {
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "Product", rowsPerInsert,
+                "ProductID", "Name", "Category", "CategoryID", "Material", "Price", "Stock")) {
+            for (int i = 0; i < products; i++) {
+                int category = i % CATEGORIES.length;
+                String material = MATERIALS[i % MATERIALS.length];
+                insert.add(i + 1, material + " " + CATEGORIES[category] + " " + (i + 1), CATEGORIES[category],
+                    category + 1, material, 500 + random.nextInt(200_000) / 4.0, random.nextInt(100));
+            }
+        }
+    }
+
+    private void writeCustomers(Connection conn, Random random) throws SQLException {
+        ZipfSampler city = new ZipfSampler(CITIES.length, skew, random);
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "Customer", rowsPerInsert,
+                "CustomerID", "Name", "Gender", "AgeGroup", "City")) {
+            for (int i = 0; i < customers; i++) {
+                insert.add(i + 1, "Customer " + (i + 1), GENDERS[random.nextInt(10) < 6 ? 0 : random.nextInt(3)],
+                    AGE_GROUPS[random.nextInt(AGE_GROUPS.length)], CITIES[city.sample() - 1]);
+            }
+        }
+    }
+
+    private void writeCampaigns(Connection conn, Random random) throws SQLException {
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "Campaign", rowsPerInsert,
+                "CampaignID", "Name", "Type", "Discount", "StartDate", "EndDate")) {
+            for (int i = 0; i < campaigns; i++) {
+                LocalDate startDate = today.minusDays(random.nextInt(3 * 365));
+                insert.add(i + 1, "Campaign " + (i + 1), CAMPAIGN_TYPES[i % CAMPAIGN_TYPES.length],
+                    5 + random.nextInt(30), Date.valueOf(startDate),
+                    Date.valueOf(startDate.plusDays(7 + random.nextInt(60))));
+            }
+        }
+    }
+
+    // Ads, plus the Products_Ads and Ads_Campaign links for each ad. Impressions are skewed twice:
+    // by the Platform/AgeGroup pair the ad targets and by the popularity of the advertised product.
+    private void writeAds(Connection conn, Random random) throws SQLException {
+        int pairs = PLATFORMS.length * AGE_GROUPS.length;
+        ZipfSampler target = new ZipfSampler(pairs, skew, random);
+        ZipfSampler product = new ZipfSampler(products, skew, random);
+        try (MultiRowInsert adsInsert = new MultiRowInsert(conn, "Ads", rowsPerInsert, "AdsID", "Platform",
+                "AgeGroup", "ProductID", "Impressions", "Conversions", "Revenue", "Cost");
+             MultiRowInsert productLinks = new MultiRowInsert(conn, "Products_Ads", rowsPerInsert,
+                "ProductID", "AdsID", "Platform");
+             MultiRowInsert campaignLinks = new MultiRowInsert(conn, "Ads_Campaign", rowsPerInsert,
+                "AdsID", "Platform", "CampaignID")) {
+            for (int i = 0; i < ads; i++) {
+                int rank = target.sample();
+                String platform = PLATFORMS[(rank - 1) % PLATFORMS.length];
+                String ageGroup = AGE_GROUPS[(rank - 1) / PLATFORMS.length];
+                int productRank = product.sample();
+                int productId = permute(productRank, products);
+                double weight = Math.pow(rank, -skew) * (1 + 4 * Math.pow(productRank, -skew));
+                int impressions = 100 + (int) (random.nextInt(200_000) * weight);
+                int conversions = random.nextInt(Math.max(1, impressions / 8));
+                double cost = 1_000 + random.nextInt(100_000);
+                double revenue = Math.round(cost * (0.3 + 2.5 * random.nextDouble() * weight) * 100) / 100.0;
+
+                adsInsert.add(i + 1, platform, ageGroup, productId, impressions, conversions, revenue, cost);
+                productLinks.add(productId, i + 1, platform);
+                campaignLinks.add(i + 1, platform, 1 + random.nextInt(campaigns));
+            }
+        }
+    }
+
+    // Split Business across connections; each part has its own Random so runs are reproducible
+    private void writeBusiness(String url, String user, String password) throws SQLException {
+        ExecutorService writers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> parts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long rows = transactions / threads + (t < transactions % threads ? 1 : 0);
+                Random random = new Random(seed * 31 + t);
+                parts.add(writers.submit(() -> {
+                    try (Connection conn = DriverManager.getConnection(url, user, password)) {
+                        conn.setAutoCommit(false);
+                        writeBusinessPart(conn, rows, random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> part : parts) {
+                part.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Business generation interrupted", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private void writeBusinessPart(Connection conn, long rows, Random random) throws SQLException {
+        ZipfSampler product = new ZipfSampler(products, skew, random);
+        ZipfSampler customer = new ZipfSampler(customers, skew, random);
+        int days = 3 * 365;
+        Date[] dates = new Date[days];
+        for (int d = 0; d < days; d++) {
+            dates[d] = Date.valueOf(today.minusDays(d));
+        }
+        try (MultiRowInsert insert = new MultiRowInsert(conn, "Business", rowsPerInsert,
+                "ProductID", "CustomerID", "PDate", "Qty")) {
+            for (long i = 0; i < rows; i++) {
+                insert.add(permute(product.sample(), products), permute(customer.sample(), customers),
+                    dates[random.nextInt(days)], 1 + random.nextInt(5));
+            }
+        }
+    }
+
+    // Scatter popularity ranks over the id space so the hottest rows are not simply ids 1, 2, 3...
+    static int permute(int rank, int n) {
+        long step = 1_000_003L;
+        while (n % step == 0) {
+            step += 2;
+        }
+        return (int) (((rank - 1) * step) % n) + 1;
+    }
+
+    // Streams rows into INSERT ... VALUES (...), (...) statements of rowsPerStatement rows each,
+    // committing every few statements when the connection is not in auto-commit mode
+    static final class MultiRowInsert implements AutoCloseable {
+        private static final int STATEMENTS_PER_COMMIT = 20;
+
+        private final Connection conn;
+        private final String table;
+        private final String[] columns;
+        private final int rowsPerStatement;
+        private final PreparedStatement full;
+        private final Object[][] pending;
+        private int pendingRows;
+        private int uncommitted;
+
+        MultiRowInsert(Connection conn, String table, int rowsPerStatement, String... columns) throws SQLException {
+            this.conn = conn;
+            this.table = table;
+            this.columns = columns;
+            this.rowsPerStatement = rowsPerStatement;
+            this.full = conn.prepareStatement(sql(rowsPerStatement));
+            this.pending = new Object[rowsPerStatement][];
+        }
+
+        private String sql(int rows) {
+            StringBuilder row = new StringBuilder("(");
+            for (int i = 0; i < columns.length; i++) {
+                row.append(i == 0 ? "?" : ", ?");
+            }
+            row.append(')');
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+            for (int i = 0; i < rows; i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+            }
+            return sql.toString();
+        }
+
+        void add(Object... values) throws SQLException {
+            pending[pendingRows++] = values;
+            if (pendingRows == rowsPerStatement) {
+                flush(full);
+            }
+        }
+
+        private void flush(PreparedStatement ps) throws SQLException {
+            int index = 1;
+            for (int r = 0; r < pendingRows; r++) {
+                for (Object value : pending[r]) {
+                    ps.setObject(index++, value);
+                }
+            }
+            ps.executeUpdate();
+            pendingRows = 0;
+            if (!conn.getAutoCommit() && ++uncommitted >= STATEMENTS_PER_COMMIT) {
+                conn.commit();
+                uncommitted = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (pendingRows > 0) {
+                    try (PreparedStatement tail = conn.prepareStatement(sql(pendingRows))) {
+                        flush(tail);
+                    }
+                }
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            } finally {
+                full.close();
+            }
+        }
+    }
+
+    // Zipf(n, s) over ranks 1..n in O(1) memory, by rejection-inversion (Hormann and Derflinger)
+    static final class ZipfSampler {
+        private final int n;
+        private final double s;
+        private final Random random;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double threshold;
+
+        ZipfSampler(int n, double s, Random random) {
+            this.n = n;
+            this.s = s;
+            this.random = random;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample() {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-s * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - s) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - s));
+            return Math.exp(helper1(t) * x);
+        }
+
+        // log1p(x) / x, accurate near 0
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        // expm1(x) / x, accurate near 0
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
@@ -2,354 +2,725 @@ package mini_project_dbms;
 
 import java.util.*;
 import java.sql.*;
+import java.time.Duration;
 
 
-public class Database {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/Vulcynyx?useSSL=false&allowPublicKeyRetrieval=true";
+public class Database implements AutoCloseable {
+    // useCursorFetch lets statements with a fetch size stream rows through a server-side cursor;
+    // useServerPrepStmts prepares statements on the server, and cachePrepStmts keeps them prepared
+    // per physical connection after close(), so sessions and paged cursors skip re-parsing too
+    // (prepStmtCacheSqlLimit is raised so the long report queries fit)
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/Vulcynyx?useSSL=false&allowPublicKeyRetrieval=true" +
+                                         "&useCursorFetch=true&useServerPrepStmts=true" +
+                                         "&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=4096";
     private static final String USER = "root";
     private static final String PASS = "password";
     
+    private final ConnectionPool pool;
+    // Borrowed on first use (see getConnection) and returned by closeConnection()
     private Connection connection;
+    private StatementCache statementCache;
+    // Page size of the cursors a session's SQL results stream through; 0 materializes them
+    private final int pageSize;
+    // Model built by the last query method run in paged mode, picked up by openPaged()
+    private PagedResultTableModel pagedModel;
+    
+    // Statement executing on this Database and whether cancel() was called, guarded by cancelLock
+    private final Object cancelLock = new Object();
+    private Statement runningStatement;
+    private boolean cancelled;
+    
+    // One of the query methods, run on the given Database, e.g. Database::sortProductsByPrice
+    @FunctionalInterface
+    public interface QueryCall {
+        QueryResult execute(Database db) throws SQLException;
+    }
+    
+    @FunctionalInterface
+    private interface SqlAction<T> {
+        T run() throws SQLException;
+    }
     
-    // Constructor - Establish connection
+    // The SQL to run for a report, decided on a cache miss
+    @FunctionalInterface
+    private interface SqlChoice {
+        String choose() throws SQLException;
+    }
+    
+    // Result cache policies: how long each report stays fresh and which tables invalidate it
+    // (reports from the registry carry their own, in reports.properties)
+    private static final ResultCache.Policy CATALOG =
+        new ResultCache.Policy(Duration.ofMinutes(10), "Product", "Category");
+    private static final ResultCache.Policy CUSTOMERS =
+        new ResultCache.Policy(Duration.ofMinutes(10), "Customer");
+    private static final ResultCache.Policy SALES =
+        new ResultCache.Policy(Duration.ofMinutes(5), "Business", "Product");
+    private static final ResultCache.Policy CUSTOMER_SALES =
+        new ResultCache.Policy(Duration.ofMinutes(5), "Business", "Product", "Customer");
+    // Reports relative to CURRENT_DATE also need to roll over with the clock
+    private static final ResultCache.Policy RECENT_SALES =
+        new ResultCache.Policy(Duration.ofMinutes(2), "Business", "Product", "Category");
+    private static final ResultCache.Policy RECENT_AD_SALES =
+        new ResultCache.Policy(Duration.ofMinutes(2), "Business", "Product", "Ads");
+    private static final ResultCache.Policy ADS =
+        new ResultCache.Policy(Duration.ofMinutes(5), "Ads");
+    private static final ResultCache.Policy CAMPAIGNS =
+        new ResultCache.Policy(Duration.ofMinutes(5), "Campaign", "Ads", "Ads_Campaign", "Regional_info");
+    
+    // Materialized copies of the reporting views; refreshes invalidate these by mv table name
+    private static final ResultCache.Policy MV_CAMPAIGNS =
+        new ResultCache.Policy(Duration.ofMinutes(5), "mv_campaign_roi", "mv_campaign_reports_per_region");
+    private static final ResultCache.Policy MV_TRENDING =
+        new ResultCache.Policy(Duration.ofMinutes(5), "mv_trending_products");
+    private static final ResultCache.Policy MV_ADS =
+        new ResultCache.Policy(Duration.ofMinutes(5), "mv_ad_performance");
+    private static final ResultCache.Policy MV_LOW_STOCK =
+        new ResultCache.Policy(Duration.ofMinutes(5), "mv_low_stock_alerts");
+    
+    private final ResultCache resultCache = ResultCache.shared();
+    // Reports defined in reports.properties and shared with the other front ends
+    private final ReportRegistry reports;
+    private final ProductCatalog catalog;
+    private final MaterializedViews views;
+    // In-process snapshot that answers the aggregate reports when vulcynyx.analytics.enabled is set
+    private final AnalyticsEngine analytics;
+    // Staleness of the materialized view or snapshot the last report was read from and which of
+    // the two it was; null if it read live data
+    private volatile Duration lastStaleness;
+    private volatile String lastSource;
+    
+    // Constructor - Connect through the shared pool; a connection is only borrowed once SQL runs here
     public Database() throws SQLException, ClassNotFoundException {
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        connection = DriverManager.getConnection(DB_URL, USER, PASS);
+        this(DB_URL, USER, PASS, "com.mysql.cj.jdbc.Driver");
+    }
+    
+    // Constructor for another database with the same schema (e.g. an embedded one for benchmarks)
+    public Database(String url, String user, String password, String driverClass)
+            throws SQLException, ClassNotFoundException {
+        Class.forName(driverClass);
+        pool = ConnectionPool.shared(url, user, password);
+        // Fail here rather than on the first query if the server cannot be reached
+        pool.getConnection().close();
+        pageSize = 0;
+        reports = ReportRegistry.shared(pool);
+        catalog = ProductCatalog.shared(pool);
+        catalog.loadInBackground();
+        views = MaterializedViews.shared(pool);
+        views.start();
+        analytics = AnalyticsEngine.shared(pool);
+        analytics.start();
+        ChangeFeed.shared(pool).start();
         System.out.println("Connected to database successfully!");
     }
     
+    // Session over the same pool and shared services
+    private Database(Database parent, int pageSize) {
+        pool = parent.pool;
+        this.pageSize = pageSize;
+        reports = parent.reports;
+        catalog = parent.catalog;
+        views = parent.views;
+        analytics = parent.analytics;
+    }
+    
+    // A Database for one task: it runs its SQL on a pooled connection of its own (borrowed on first
+    // use, returned by close()), so cancel() can only ever stop that task's statement. With
+    // pageSize > 0 the query methods stream SQL results through paged cursors; see openPaged().
+    public Database openSession(int pageSize) {
+        return new Database(this, pageSize);
+    }
+    
     // Get connection
-    public Connection getConnection() {
+    public Connection getConnection() throws SQLException {
+        if (connection == null) {
+            connection = pool.getConnection();
+            statementCache = new StatementCache(connection, StatementCache.DEFAULT_SIZE);
+        }
         return connection;
     }
     
-    // Close connection
+    // Get the pool backing this Database (for metrics)
+    public ConnectionPool getPool() {
+        return pool;
+    }
+    
+    // Cancel the statement executing on this Database, if any, and fail the ones it would run next.
+    // Safe to call from any thread; the statement cannot finish (and its connection go back to the
+    // pool) while the cancel is in progress.
+    public void cancel() throws SQLException {
+        synchronized (cancelLock) {
+            cancelled = true;
+            if (runningStatement != null) {
+                runningStatement.cancel();
+            }
+        }
+    }
+    
+    // Prepared statements cached on this connection (for metrics); null until SQL has run here
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+    
+    // Close connection - drops cached statements and returns it to the pool
     public void closeConnection() throws SQLException {
+        if (statementCache != null) {
+            statementCache.invalidate();
+        }
         if (connection != null && !connection.isClosed()) {
             connection.close();
-            System.out.println("Connection closed.");
+            if (pageSize == 0) {
+                System.out.println("Connection closed.");
+            }
         }
     }
     
+    @Override
+    public void close() throws SQLException {
+        closeConnection();
+    }
+    
     // Query 1: Top searched products by age group
-    public List<Map<String, Object>> getTopSearchedProductsByAgeGroup() throws SQLException {
-        String query = "SELECT * FROM (" +
-                      "SELECT a.AgeGroup, p.ProductID, p.Name AS ProductName, " +
-                      "SUM(a.Impressions) AS Total_Impressions, " +
-                      "RANK() OVER (PARTITION BY a.AgeGroup ORDER BY SUM(a.Impressions) DESC) AS rnk " +
-                      "FROM Ads a " +
-                      "JOIN Products_Ads pa ON a.AdsID = pa.AdsID AND a.Platform = pa.Platform " +
-                      "JOIN Product p ON pa.ProductID = p.ProductID " +
-                      "GROUP BY a.AgeGroup, p.ProductID, p.Name) ranked " +
-                      "WHERE rnk = 1";
-        
-        return executeQuery(query);
+    public QueryResult getTopSearchedProductsByAgeGroup() throws SQLException {
+        return reportQuery("Q01");
     }
     
     // Query 2: Most purchased products in price range
-    public List<Map<String, Object>> getMostPurchasedInPriceRange(double minPrice, double maxPrice) throws SQLException {
-        String query = "SELECT p.Name AS ProductName, SUM(b.Quantity) AS TotalSold " +
-                      "FROM Business b " +
-                      "JOIN Product p ON b.ProductID = p.ProductID " +
-                      "WHERE p.Price BETWEEN ? AND ? " +
-                      "GROUP BY p.Name " +
-                      "ORDER BY TotalSold DESC LIMIT 3";
-        
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setDouble(1, minPrice);
-        ps.setDouble(2, maxPrice);
-        return executeQuery(ps);
+    public QueryResult getMostPurchasedInPriceRange(double minPrice, double maxPrice) throws SQLException {
+        return reportQuery("Q02", minPrice, maxPrice);
     }
     
     // Query 3: Revenue from different platforms
-    public List<Map<String, Object>> getRevenueByPlatform() throws SQLException {
-        String query = "SELECT a.Platform, SUM(a.Revenue) AS Total_Revenue " +
-                      "FROM Ads a " +
-                      "GROUP BY a.Platform " +
-                      "ORDER BY Total_Revenue DESC";
-        
-        return executeQuery(query);
+    public QueryResult getRevenueByPlatform() throws SQLException {
+        return reportQuery("Q03");
     }
     
     // Query 4: Categories of a product
-    public List<Map<String, Object>> getCategoriesOfProduct(String productName) throws SQLException {
+    public QueryResult getCategoriesOfProduct(String productName) throws SQLException {
         String query = "SELECT DISTINCT Category FROM Product WHERE Name = ?";
         
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setString(1, productName);
-        return executeQuery(ps);
+        return cachedQuery("Q04", CATALOG, query, productName);
     }
     
     // Query 5: Search product by material
-    public List<Map<String, Object>> searchProductByMaterial(String material) throws SQLException {
+    public QueryResult searchProductByMaterial(String material) throws SQLException {
         String query = "SELECT ProductID, Name AS ProductName, Price, Stock " +
                       "FROM Product " +
                       "WHERE Material LIKE ?";
         
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setString(1, "%" + material + "%");
-        return executeQuery(ps);
+        if (catalog.isLoaded() && catalog.hasMaterial()) {
+            return catalogResult("Q05", catalog.searchByMaterial(material), true);
+        }
+        return cachedQuery("Q05", CATALOG, query, "%" + material + "%");
     }
     
     // Query 6: Sort products by price
-    public List<Map<String, Object>> sortProductsByPrice() throws SQLException {
+    public QueryResult sortProductsByPrice() throws SQLException {
         String query = "SELECT ProductID, Name AS ProductName, Price " +
                       "FROM Product " +
                       "ORDER BY Price";
         
-        return executeQuery(query);
+        if (catalog.isLoaded()) {
+            return catalogResult("Q06", catalog.sortedByPrice(), false);
+        }
+        return cachedQuery("Q06", CATALOG, query);
     }
     
     // Query 7: Customers in a city
-    public List<Map<String, Object>> getCustomersInCity(String city) throws SQLException {
+    public QueryResult getCustomersInCity(String city) throws SQLException {
         String query = "SELECT CustomerID, Name AS CustomerName FROM Customer WHERE City = ?";
         
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setString(1, city);
-        return executeQuery(ps);
+        return cachedQuery("Q07", CUSTOMERS, query, city);
     }
     
     // Query 8: Sale of particular product
-    public List<Map<String, Object>> getSaleOfProduct(String productName) throws SQLException {
+    public QueryResult getSaleOfProduct(String productName) throws SQLException {
         String query = "SELECT p.ProductID, p.Name AS ProductName, " +
-                      "SUM(b.Quantity) AS TotalSold, " +
-                      "SUM(b.Quantity * p.Price) AS TotalRevenue " +
+                      "SUM(b.Qty) AS TotalSold, " +
+                      "SUM(b.Qty * p.Price) AS TotalRevenue " +
                       "FROM Product p " +
                       "JOIN Business b ON p.ProductID = b.ProductID " +
                       "WHERE p.Name = ? " +
                       "GROUP BY p.ProductID, p.Name";
         
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setString(1, productName);
-        return executeQuery(ps);
+        return cachedQuery("Q08", SALES, query, productName);
     }
     
     // Query 9: Sale of particular category
-    public List<Map<String, Object>> getSaleOfCategory(String category) throws SQLException {
-        String query = "SELECT p.Category, SUM(b.Quantity) AS TotalSold, " +
-                      "SUM(b.Quantity * p.Price) AS TotalRevenue " +
+    public QueryResult getSaleOfCategory(String category) throws SQLException {
+        String query = "SELECT p.Category, SUM(b.Qty) AS TotalSold, " +
+                      "SUM(b.Qty * p.Price) AS TotalRevenue " +
                       "FROM Product p " +
                       "JOIN Business b ON p.ProductID = b.ProductID " +
                       "WHERE p.Category = ? " +
                       "GROUP BY p.Category";
         
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setString(1, category);
-        return executeQuery(ps);
+        return cachedQuery("Q09", SALES, query, category);
     }
     
     // Query 10: Top 5 customers by spending
-    public List<Map<String, Object>> getTop5CustomersBySpending() throws SQLException {
-        String query = "SELECT c.CustomerID, c.Name AS CustomerName, " +
-                      "SUM(b.Quantity * p.Price) AS TotalSpent " +
-                      "FROM Customer c " +
-                      "JOIN Business b ON c.CustomerID = b.CustomerID " +
-                      "JOIN Product p ON b.ProductID = p.ProductID " +
-                      "GROUP BY c.CustomerID, c.Name " +
-                      "ORDER BY TotalSpent DESC LIMIT 5";
-        
-        return executeQuery(query);
+    public QueryResult getTop5CustomersBySpending() throws SQLException {
+        return reportQuery("Q10");
     }
     
     // Query 11: Total quantity sold per product
-    public List<Map<String, Object>> getTotalQuantitySoldPerProduct() throws SQLException {
-        String query = "SELECT p.ProductID, p.Name AS ProductName, " +
-                      "SUM(b.Quantity) AS TotalSold " +
-                      "FROM Product p " +
-                      "JOIN Business b ON p.ProductID = b.ProductID " +
-                      "GROUP BY p.ProductID, p.Name " +
-                      "ORDER BY TotalSold DESC";
-        
-        return executeQuery(query);
+    public QueryResult getTotalQuantitySoldPerProduct() throws SQLException {
+        return reportQuery("Q11");
     }
     
     // Query 12: Average price per category
-    public List<Map<String, Object>> getAveragePricePerCategory() throws SQLException {
-        String query = "SELECT p.Category, ROUND(AVG(p.Price), 2) AS AvgPrice " +
-                      "FROM Product p " +
-                      "GROUP BY p.Category " +
-                      "ORDER BY AvgPrice DESC";
-        
-        return executeQuery(query);
+    public QueryResult getAveragePricePerCategory() throws SQLException {
+        return reportQuery("Q12");
     }
     
     // Query 13: Top-selling products per region
-    public List<Map<String, Object>> getTopSellingProductsPerRegion() throws SQLException {
-        String query = "SELECT RegionName, ProductName, TotalSold FROM (" +
-                      "SELECT r.Region AS RegionName, p.Name AS ProductName, " +
-                      "SUM(b.Quantity) AS TotalSold, " +
-                      "RANK() OVER (PARTITION BY r.Region ORDER BY SUM(b.Quantity) DESC) AS rank_in_region " +
-                      "FROM Regional_info r " +
-                      "JOIN Customer c ON r.City = c.City " +
-                      "JOIN Business b ON b.CustomerID = c.CustomerID " +
-                      "JOIN Product p ON b.ProductID = p.ProductID " +
-                      "GROUP BY r.Region, p.Name) ranked " +
-                      "WHERE rank_in_region <= 5";
-        
-        return executeQuery(query);
+    public QueryResult getTopSellingProductsPerRegion() throws SQLException {
+        return reportQuery("Q13");
     }
     
     // Query 14: Total revenue per category
-    public List<Map<String, Object>> getTotalRevenuePerCategory() throws SQLException {
-        String query = "SELECT p.Category, SUM(b.Quantity * p.Price) AS TotalRevenue " +
-                      "FROM Product p " +
-                      "JOIN Business b ON p.ProductID = b.ProductID " +
-                      "GROUP BY p.Category " +
-                      "ORDER BY TotalRevenue DESC";
-        
-        return executeQuery(query);
+    public QueryResult getTotalRevenuePerCategory() throws SQLException {
+        return reportQuery("Q14");
     }
     
     // Query 15: Campaigns with highest ROI
-    public List<Map<String, Object>> getCampaignsWithHighestROI(int limit) throws SQLException {
+    public QueryResult getCampaignsWithHighestROI(int limit) throws SQLException {
         String query = "SELECT * FROM Campaign_ROI ORDER BY ROI DESC LIMIT ?";
+        if (views.isReady()) {
+            return materializedQuery("Q15", MaterializedViews.CAMPAIGN_ROI, MV_CAMPAIGNS,
+                query.replace("FROM Campaign_ROI", "FROM mv_campaign_roi"), limit);
+        }
         
-        PreparedStatement ps = connection.prepareStatement(query);
-        ps.setInt(1, limit);
-        return executeQuery(ps);
+        return cachedQuery("Q15", CAMPAIGNS, query, limit);
     }
     
     // Query 16: Top 10 customers by year
-    public List<Map<String, Object>> getTop10CustomersByYear() throws SQLException {
+    public QueryResult getTop10CustomersByYear() throws SQLException {
         String query = "SELECT YEAR(b.PDate) AS Year, b.CustomerID, c.Name, " +
-                      "SUM(b.Quantity) AS TotalProductsBought " +
+                      "SUM(b.Qty) AS TotalProductsBought " +
                       "FROM Business b " +
                       "JOIN Customer c ON b.CustomerID = c.CustomerID " +
                       "GROUP BY YEAR(b.PDate), b.CustomerID, c.Name " +
-                      "HAVING SUM(b.Quantity) = (" +
-                      "SELECT MAX(SUM(b2.Quantity)) " +
+                      "HAVING SUM(b.Qty) = (" +
+                      "SELECT MAX(t.Total) FROM (" +
+                      "SELECT SUM(b2.Qty) AS Total " +
                       "FROM Business b2 " +
                       "WHERE YEAR(b2.PDate) = YEAR(b.PDate) " +
-                      "GROUP BY b2.CustomerID) " +
+                      "GROUP BY b2.CustomerID) t) " +
                       "ORDER BY Year DESC LIMIT 10";
+        // Totals per customer and year computed once and ranked within the year, instead of a
+        // correlated subquery that re-aggregates the year's sales for every group (ranked in an
+        // outer query, since H2 rejects a window partitioned by a grouped expression)
+        String optimized = "SELECT t.Year, t.CustomerID, c.Name, t.TotalProductsBought " +
+                          "FROM (SELECT y.Year, y.CustomerID, y.TotalProductsBought, " +
+                          "RANK() OVER (PARTITION BY y.Year ORDER BY y.TotalProductsBought DESC) AS YearRank " +
+                          "FROM (SELECT YEAR(PDate) AS Year, CustomerID, SUM(Qty) AS TotalProductsBought " +
+                          "FROM Business WHERE PDate IS NOT NULL " +
+                          "GROUP BY YEAR(PDate), CustomerID) y) t " +
+                          "JOIN Customer c ON t.CustomerID = c.CustomerID " +
+                          "WHERE t.YearRank = 1 " +
+                          "ORDER BY t.Year DESC LIMIT 10";
         
-        return executeQuery(query);
+        return plannedQuery("Q16", CUSTOMER_SALES, new QueryPlanner.TopN(10, 0), query, optimized);
     }
     
     // Query 17: Products in stock but not sold in last month
-    public List<Map<String, Object>> getProductsNotSoldLastMonth() throws SQLException {
+    public QueryResult getProductsNotSoldLastMonth() throws SQLException {
         String query = "SELECT p.ProductID, p.Name, p.Category, p.Stock, p.Price " +
                       "FROM Product p " +
                       "WHERE p.Stock > 0 " +
                       "AND p.ProductID NOT IN (" +
                       "SELECT DISTINCT b.ProductID FROM Business b " +
-                      "WHERE b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL 1 MONTH)) " +
+                      "WHERE b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL '1' MONTH)) " +
                       "ORDER BY p.Stock DESC";
+        // Anti-join probing the Business (ProductID, PDate) index per product instead of building the
+        // NOT IN list; differs only if a recent sale has a NULL ProductID (NOT IN then matches nothing)
+        String optimized = "SELECT p.ProductID, p.Name, p.Category, p.Stock, p.Price " +
+                          "FROM Product p " +
+                          "WHERE p.Stock > 0 " +
+                          "AND NOT EXISTS (" +
+                          "SELECT 1 FROM Business b " +
+                          "WHERE b.ProductID = p.ProductID " +
+                          "AND b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL '1' MONTH)) " +
+                          "ORDER BY p.Stock DESC";
+        QueryResult local = localQuery("Q17", query);
+        if (local != null) {
+            return local;
+        }
         
-        return executeQuery(query);
+        return plannedQuery("Q17", RECENT_SALES, null, query, optimized);
     }
     
     // Query 18: Trending products
-    public List<Map<String, Object>> getTrendingProducts() throws SQLException {
+    public QueryResult getTrendingProducts() throws SQLException {
         String query = "SELECT * FROM TrendingProducts " +
                       "WHERE TrendStatus = 'Trending' " +
                       "ORDER BY TotalRecentSales DESC";
+        if (views.isReady()) {
+            return materializedQuery("Q18", MaterializedViews.TRENDING_PRODUCTS, MV_TRENDING,
+                query.replace("FROM TrendingProducts", "FROM mv_trending_products"));
+        }
         
-        return executeQuery(query);
+        return cachedQuery("Q18", RECENT_SALES, query);
     }
     
     // Query 19: High bounce-rate products
-    public List<Map<String, Object>> getHighBounceRateProducts() throws SQLException {
+    public QueryResult getHighBounceRateProducts() throws SQLException {
         String query = "SELECT p.ProductID, p.Name, a.Impressions, " +
-                      "IFNULL(SUM(b.Quantity), 0) AS TotalSales, " +
-                      "ROUND((IFNULL(SUM(b.Quantity), 0) / a.Impressions) * 100, 2) AS ConversionRate " +
+                      "IFNULL(SUM(b.Qty), 0) AS TotalSales, " +
+                      "ROUND((IFNULL(SUM(b.Qty), 0) / a.Impressions) * 100, 2) AS ConversionRate " +
                       "FROM Product p " +
                       "JOIN Ads a ON p.ProductID = a.ProductID " +
                       "LEFT JOIN Business b ON p.ProductID = b.ProductID " +
-                      "AND b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL 1 MONTH) " +
+                      "AND b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL '1' MONTH) " +
                       "GROUP BY p.ProductID, p.Name, a.Impressions " +
                       "HAVING ConversionRate < 5 " +
                       "ORDER BY ConversionRate";
+        // Sales summed per product before the join rather than repeated for every ad of the product.
+        // Ads are counted per (product, impressions) group so TotalSales keeps the original's
+        // per-ad multiplication and the results stay identical.
+        String optimized = "SELECT * FROM (" +
+                          "SELECT p.ProductID, p.Name, a.Impressions, " +
+                          "a.AdCount * IFNULL(s.Qty, 0) AS TotalSales, " +
+                          "ROUND((a.AdCount * IFNULL(s.Qty, 0) / a.Impressions) * 100, 2) AS ConversionRate " +
+                          "FROM Product p " +
+                          "JOIN (SELECT ProductID, Impressions, COUNT(*) AS AdCount " +
+                          "FROM Ads GROUP BY ProductID, Impressions) a ON p.ProductID = a.ProductID " +
+                          "LEFT JOIN (SELECT ProductID, SUM(Qty) AS Qty FROM Business " +
+                          "WHERE PDate >= DATE_SUB(CURRENT_DATE, INTERVAL '1' MONTH) " +
+                          "GROUP BY ProductID) s ON p.ProductID = s.ProductID" +
+                          ") rates " +
+                          "WHERE ConversionRate < 5 " +
+                          "ORDER BY ConversionRate";
+        QueryResult local = localQuery("Q19", query);
+        if (local != null) {
+            return local;
+        }
         
-        return executeQuery(query);
+        return plannedQuery("Q19", RECENT_AD_SALES, null, query, optimized);
     }
     
     // Query 20: Campaign reports per region
-    public List<Map<String, Object>> getCampaignReportsPerRegion() throws SQLException {
+    public QueryResult getCampaignReportsPerRegion() throws SQLException {
         String query = "SELECT Region, COUNT(CampaignName) AS NumCampaigns, " +
                       "ROUND(AVG(ROI), 2) AS AvgROI " +
                       "FROM CampaignReportsPerRegion " +
                       "GROUP BY Region " +
                       "ORDER BY AvgROI DESC";
+        if (views.isReady()) {
+            return materializedQuery("Q20", MaterializedViews.CAMPAIGN_REPORTS_PER_REGION, MV_CAMPAIGNS,
+                query.replace("FROM CampaignReportsPerRegion", "FROM mv_campaign_reports_per_region"));
+        }
         
-        return executeQuery(query);
+        return cachedQuery("Q20", CAMPAIGNS, query);
     }
     
     // Query 21: Ads running at loss
-    public List<Map<String, Object>> getAdsRunningAtLoss() throws SQLException {
+    public QueryResult getAdsRunningAtLoss() throws SQLException {
         String query = "SELECT AdID, Platform, Revenue, AdCost, ROI " +
                       "FROM Ad_Performance_View " +
                       "WHERE ROI < 0 " +
                       "ORDER BY ROI ASC";
+        QueryResult local = localQuery("Q21", query);
+        if (local != null) {
+            return local;
+        }
+        if (views.isReady()) {
+            return materializedQuery("Q21", MaterializedViews.AD_PERFORMANCE, MV_ADS,
+                query.replace("FROM Ad_Performance_View", "FROM mv_ad_performance"));
+        }
         
-        return executeQuery(query);
+        return cachedQuery("Q21", ADS, query);
     }
     
     // Query 22: Ads with high conversion rates
-    public List<Map<String, Object>> getAdsWithHighConversion() throws SQLException {
+    public QueryResult getAdsWithHighConversion() throws SQLException {
         String query = "SELECT AdID, Platform, ConversionRate, Impressions, Conversions " +
                       "FROM Ad_Performance_View " +
                       "WHERE ConversionRate > 10 " +
                       "ORDER BY ConversionRate DESC";
+        QueryResult local = localQuery("Q22", query);
+        if (local != null) {
+            return local;
+        }
+        if (views.isReady()) {
+            return materializedQuery("Q22", MaterializedViews.AD_PERFORMANCE, MV_ADS,
+                query.replace("FROM Ad_Performance_View", "FROM mv_ad_performance"));
+        }
         
-        return executeQuery(query);
+        return cachedQuery("Q22", ADS, query);
     }
     
     // Query 23: Call procedure for discounted orders
     public void callDiscountedOrderProcedure() throws SQLException {
         String query = "{CALL Calc_Discounted_Order()}";
-        CallableStatement cs = connection.prepareCall(query);
-        cs.execute();
-        cs.close();
+        QueryMetrics.Scope label = QueryMetrics.label("Q23");
+        try (CallableStatement cs = getConnection().prepareCall(query)) {
+            cancellable(cs, cs::execute);
+        } finally {
+            label.close();
+        }
+        // The procedure writes order data, so no cached report can be trusted afterwards
+        resultCache.invalidateAll();
     }
     
     // Query 24: Products with high sales but low stock (Restock Priority)
-    public List<Map<String, Object>> getRestockPriorityList() throws SQLException {
+    public QueryResult getRestockPriorityList() throws SQLException {
         String query = "SELECT p.ProductID, p.Name AS ProductName, " +
-                      "SUM(s.Quantity) AS Total_Sold_LastMonth, " +
+                      "SUM(s.Qty) AS Total_Sold_LastMonth, " +
                       "p.Stock AS Current_Stock, " +
-                      "ROUND(SUM(s.Quantity) / NULLIF(p.Stock + SUM(s.Quantity), 0) * 100, 2) AS Demand_Percentage, " +
+                      "ROUND(SUM(s.Qty) / NULLIF(p.Stock + SUM(s.Qty), 0) * 100, 2) AS Demand_Percentage, " +
                       "c.Name AS CategoryName " +
                       "FROM Product p " +
                       "JOIN Business s ON p.ProductID = s.ProductID " +
                       "JOIN Category c ON p.CategoryID = c.CategoryID " +
-                      "WHERE s.PDate >= DATE_SUB(CURDATE(), INTERVAL 1 MONTH) " +
+                      "WHERE s.PDate >= DATE_SUB(CURDATE(), INTERVAL '1' MONTH) " +
                       "GROUP BY p.ProductID, p.Name, p.Stock, c.Name " +
                       "HAVING p.Stock < 20 AND Total_Sold_LastMonth > 50 " +
                       "ORDER BY Demand_Percentage DESC";
+        QueryResult local = localQuery("Q24", query);
+        if (local != null) {
+            return local;
+        }
         
-        return executeQuery(query);
+        return cachedQuery("Q24", RECENT_SALES, query);
     }
     
     // Query 25: Low stock alerts
-    public List<Map<String, Object>> getLowStockAlerts() throws SQLException {
+    public QueryResult getLowStockAlerts() throws SQLException {
         String query = "SELECT * FROM LowStockAlerts ORDER BY RemainingStock ASC";
-        return executeQuery(query);
+        if (views.isReady()) {
+            return materializedQuery("Q25", MaterializedViews.LOW_STOCK_ALERTS, MV_LOW_STOCK,
+                query.replace("FROM LowStockAlerts", "FROM mv_low_stock_alerts"));
+        }
+        return cachedQuery("Q25", CATALOG, query);
+    }
+    
+    // Run one of the query methods above on this session and return its rows as a table model: a
+    // lazily paged cursor over its SQL (on a pooled connection the model holds until it is closed),
+    // or the whole result when it came from the cache, the catalog or a snapshot. For example
+    // db.openSession(500).openPaged(Database::sortProductsByPrice)
+    public PagedResultTableModel openPaged(QueryCall call) throws SQLException {
+        pagedModel = null;
+        QueryResult result = call.execute(this);
+        PagedResultTableModel model = pagedModel;
+        pagedModel = null;
+        return model != null ? model : PagedResultTableModel.of(result);
     }
     
-    // Helper method to execute query and return results as List of Maps
-    private List<Map<String, Object>> executeQuery(String query) throws SQLException {
-        PreparedStatement ps = connection.prepareStatement(query);
-        return executeQuery(ps);
+    // Serve a report from the result cache, or run it and cache the result.
+    // In paged mode only results that fit in the first page are cached.
+    // Executions are recorded in QueryMetrics under the query id.
+    private QueryResult cachedQuery(String queryId, ResultCache.Policy policy, String query,
+                                    Object... params) throws SQLException {
+        return cachedQuery(queryId, policy, () -> query, params);
     }
     
-    private List<Map<String, Object>> executeQuery(PreparedStatement ps) throws SQLException {
-        List<Map<String, Object>> results = new ArrayList<>();
-        ResultSet rs = ps.executeQuery();
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
+    // As above, with the SQL only worked out on a cache miss
+    private QueryResult cachedQuery(String queryId, ResultCache.Policy policy, SqlChoice choice,
+                                    Object... params) throws SQLException {
+        lastStaleness = null;
+        lastSource = null;
+        String key = ResultCache.key(queryId, params);
+        QueryResult cached = resultCache.get(key);
+        if (cached != null) {
+            QueryMetrics.shared().recordCacheHit(queryId);
+            return cached;
+        }
         
-        while (rs.next()) {
-            Map<String, Object> row = new HashMap<>();
-            for (int i = 1; i <= columnCount; i++) {
-                row.put(metaData.getColumnName(i), rs.getObject(i));
+        // Taken before the query runs, so a write that lands meanwhile keeps its result out of the cache
+        long generation = resultCache.generation();
+        String query = choice.choose();
+        QueryResult result;
+        QueryMetrics.Scope label = QueryMetrics.label(queryId);
+        try {
+            result = executeQuery(query, params);
+        } finally {
+            label.close();
+        }
+        if (pagedModel == null) {
+            resultCache.put(key, result, policy, generation);
+        } else if (pagedModel.getCompleteResult() != null) {
+            resultCache.put(key, pagedModel.getCompleteResult(), policy, generation);
+        }
+        return result;
+    }
+    
+    // Run a report from the shared registry on this connection, through the same cache and metrics
+    // path as the other front ends. Paged tables stream it through a cursor via cachedQuery instead,
+    // under the same cache key.
+    private QueryResult reportQuery(String reportId, Object... params) throws SQLException {
+        ReportRegistry.Report report = reports.get(reportId);
+        Object[] bound = report.bind(params);
+        QueryResult local = localQuery(reportId, report.getSql(), bound);
+        if (local != null) {
+            return local;
+        }
+        if (pageSize > 0) {
+            return cachedQuery(reportId, report.getPolicy(), report.getSql(), bound);
+        }
+        lastStaleness = null;
+        lastSource = null;
+        return reports.run(reportId, this::executeQuery, params);
+    }
+    
+    // Run whichever variant of a rewritten report the query planner picks (verifying them first in
+    // VERIFY mode); both variants return the same rows, so they share one cache entry and the
+    // planner is only consulted when that entry misses
+    private QueryResult plannedQuery(String queryId, ResultCache.Policy policy, QueryPlanner.TopN topN,
+                                     String original, String optimized, Object... params) throws SQLException {
+        return cachedQuery(queryId, policy,
+            () -> QueryPlanner.shared().plan(pool, queryId, topN, original, optimized, params), params);
+    }
+    
+    // Answer a report from the in-process analytics snapshot, noting how stale it is; null if the
+    // engine is off, still loading, or does not evaluate this report as query
+    private QueryResult localQuery(String queryId, String query, Object... params) {
+        QueryResult result = analytics.evaluate(queryId, query, params);
+        if (result == null) {
+            return null;
+        }
+        lastStaleness = analytics.getStaleness();
+        lastSource = "the analytics snapshot";
+        return result;
+    }
+    
+    // Read a report from its view's materialized copy, noting how stale that copy is
+    private QueryResult materializedQuery(String queryId, String view, ResultCache.Policy policy, String query,
+                                          Object... params) throws SQLException {
+        QueryResult result = cachedQuery(queryId + ".mv", policy, query, params);
+        lastStaleness = views.getStaleness(view);
+        lastSource = "its materialized view";
+        return result;
+    }
+    
+    // Staleness of the materialized view or snapshot behind the last report, or null if it read the live tables
+    public Duration getLastStaleness() {
+        return lastStaleness;
+    }
+    
+    // What the last report was read from when not the live tables ("its materialized view" or
+    // "the analytics snapshot"), else null
+    public String getLastSource() {
+        return lastSource;
+    }
+    
+    // In-process analytics engine (for metrics)
+    public AnalyticsEngine getAnalytics() {
+        return analytics;
+    }
+    
+    // Materialized reporting views (for metrics)
+    public MaterializedViews getMaterializedViews() {
+        return views;
+    }
+    
+    // Product rows answered from the in-memory catalog, shaped like the SQL result
+    private QueryResult catalogResult(String queryId, List<ProductCatalog.Product> products, boolean withStock) {
+        QueryMetrics.shared().recordCacheHit(queryId);
+        String[] names = withStock ? new String[] { "ProductID", "ProductName", "Price", "Stock" }
+                                   : new String[] { "ProductID", "ProductName", "Price" };
+        QueryResult.ColumnType[] types = withStock
+            ? new QueryResult.ColumnType[] { QueryResult.ColumnType.INT, QueryResult.ColumnType.STRING,
+                                             QueryResult.ColumnType.DECIMAL, QueryResult.ColumnType.INT }
+            : new QueryResult.ColumnType[] { QueryResult.ColumnType.INT, QueryResult.ColumnType.STRING,
+                                             QueryResult.ColumnType.DECIMAL };
+        QueryResult.Builder builder = new QueryResult.Builder(names, types, products.size());
+        for (ProductCatalog.Product product : products) {
+            if (withStock) {
+                builder.addRow(product.getId(), product.getName(), product.getPrice(), product.getStock());
+            } else {
+                builder.addRow(product.getId(), product.getName(), product.getPrice());
+            }
+        }
+        return builder.build();
+    }
+    
+    // Product catalog shared with the other front ends (for metrics)
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+    
+    // Result cache shared with the other front ends (for metrics)
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+    
+    // Helper method to execute query and return results as a columnar QueryResult. In paged mode
+    // the result goes to a paged model instead, on a pooled connection of the model's own.
+    private QueryResult executeQuery(String query, Object... params) throws SQLException {
+        if (pageSize > 0) {
+            // The cursor is re-opened later on the model's loader thread, so carry the label over
+            String label = QueryMetrics.currentLabel();
+            if (pagedModel != null) {
+                pagedModel.close();
+            }
+            pagedModel = new PagedResultTableModel(pool,
+                (conn, fetchSize) -> {
+                    QueryMetrics.Scope scope = QueryMetrics.label(label);
+                    try {
+                        return openCursor(conn, query, params, fetchSize);
+                    } finally {
+                        scope.close();
+                    }
+                }, pageSize,
+                PagedResultTableModel.DEFAULT_CACHED_PAGES);
+            return QueryResult.empty();
+        }
+        getConnection();
+        PreparedStatement ps = statementCache.prepare(query);
+        try {
+            ps.clearParameters();
+            bindParameters(ps, params);
+            return executeQuery(ps);
+        } finally {
+            statementCache.release(query, ps);
+        }
+    }
+    
+    // Forward-only, read-only cursor on conn that fetches fetchSize rows per round trip
+    private ResultSet openCursor(Connection conn, String query, Object[] params, int fetchSize) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(query,
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            ps.setFetchSize(fetchSize);
+            bindParameters(ps, params);
+            return cancellable(ps, ps::executeQuery);
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+    
+    private void bindParameters(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
+        }
+    }
+    
+    // Runs a (cached) statement; the caller owns and closes it
+    private QueryResult executeQuery(PreparedStatement ps) throws SQLException {
+        return cancellable(ps, () -> {
+            try (ResultSet rs = ps.executeQuery()) {
+                return QueryResult.read(rs);
+            }
+        });
+    }
+    
+    // Run action as the statement cancel() stops
+    private <T> T cancellable(Statement statement, SqlAction<T> action) throws SQLException {
+        synchronized (cancelLock) {
+            if (cancelled) {
+                throw new SQLException("Query cancelled", "70100");
+            }
+            runningStatement = statement;
+        }
+        try {
+            return action.run();
+        } finally {
+            synchronized (cancelLock) {
+                runningStatement = null;
             }
-            results.add(row);
         }
-        
-        rs.close();
-        ps.close();
-        return results;
     }
     
     // Method to print results
@@ -0,0 +1,820 @@
+package mini_project_dbms;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Index advisor for the analytics SQL. Pulls the SQL string literals out of the front end sources
+// (Database, proj and JewelryManagementUI by default), works out per table which columns each
+// statement filters by equality (WHERE/JOIN ... ON col = ..., IN, IS NULL), by range (<, >, BETWEEN,
+// LIKE 'prefix%'), groups or sorts by, and proposes one composite index per statement and table:
+// equality columns first, then one range column (or the GROUP BY / ORDER BY columns), extended to a
+// covering index when the statement reads few enough columns of the table. Proposals already served
+// by an existing index (DatabaseMetaData.getIndexInfo, primary keys included) are dropped, and
+// proposals that are a prefix of another one on the same table are folded into it.
+//
+//   java -cp mysql-connector-j.jar:. mini_project_dbms.IndexAdvisor [--apply] [--benchmark] [source ...]
+//
+// --apply creates the proposed indexes; --benchmark (with --apply) runs the query_ benchmarks of
+// jmh/QueryBenchmarks against the same server before and after and prints the latency change per
+// query. The benchmarks live in the test classes, so run it with the test classpath:
+//
+//   mvn -B test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+//       -Dexec.args="-classpath %classpath mini_project_dbms.IndexAdvisor --apply --benchmark"
+public class IndexAdvisor {
+    private static final String URL = System.getProperty("vulcynyx.advisor.url",
+        "jdbc:mysql://localhost:3306/Vulcynyx?useSSL=false&allowPublicKeyRetrieval=true");
+    private static final String USER = System.getProperty("vulcynyx.advisor.user", "root");
+    private static final String PASS = System.getProperty("vulcynyx.advisor.password", "password");
+    private static final String DRIVER = System.getProperty("vulcynyx.advisor.driver",
+        URL.startsWith("jdbc:h2:") ? "org.h2.Driver" : "com.mysql.cj.jdbc.Driver");
+    // Widest index proposed, covering columns included
+    private static final int MAX_COLUMNS = Integer.getInteger("vulcynyx.advisor.maxColumns", 5);
+    private static final String[] DEFAULT_SOURCES = { "DatabaseBackend.java", "finalest", "JewelryManagementUI.java",
+                                                     "reports.properties" };
+
+    // The benchmarks --benchmark runs, as a JMH include pattern
+    private static final String QUERY_BENCHMARKS = "QueryBenchmarks\\.query_";
+
+    private static final Pattern QUERY_COMMENT = Pattern.compile("//\\s*Query\\s+(\\d+)");
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+        "SELECT", "FROM", "WHERE", "JOIN", "INNER", "LEFT", "RIGHT", "OUTER", "CROSS", "ON", "USING", "AS",
+        "GROUP", "ORDER", "BY", "HAVING", "LIMIT", "OFFSET", "UNION", "ALL", "DISTINCT", "AND", "OR", "NOT",
+        "IN", "IS", "NULL", "LIKE", "BETWEEN", "EXISTS", "CASE", "WHEN", "THEN", "ELSE", "END", "ASC", "DESC",
+        "SET", "UPDATE", "DELETE", "INSERT", "INTO", "VALUES", "OVER", "PARTITION", "WITH", "INTERVAL"));
+
+    // One SQL statement found in a source file
+    public static final class SqlSource {
+        final String label;
+        final String sql;
+
+        SqlSource(String label, String sql) {
+            this.label = label;
+            this.sql = sql;
+        }
+    }
+
+    // A base table as seen through DatabaseMetaData
+    private static final class Table {
+        final String name;
+        final Map<String, String> columns = new HashMap<>();
+        final Map<String, List<String>> indexes = new LinkedHashMap<>();
+        final Set<String> uniqueIndexes = new HashSet<>();
+
+        Table(String name) {
+            this.name = name;
+        }
+    }
+
+    // How one statement uses one table
+    private static final class TableAccess {
+        final Table table;
+        final Set<String> equality = new LinkedHashSet<>();
+        final Set<String> range = new LinkedHashSet<>();
+        // GROUP BY or ORDER BY columns an index could deliver in order (only without a range filter)
+        final Set<String> sort = new LinkedHashSet<>();
+        final Set<String> referenced = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        boolean star;
+
+        TableAccess(Table table) {
+            this.table = table;
+        }
+    }
+
+    private static final class ColumnRef {
+        final Table table;
+        final String column;
+
+        ColumnRef(Table table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+    }
+
+    public static final class Proposal {
+        final String table;
+        final List<String> columns;
+        final int keyColumns;
+        final Set<String> queries = new TreeSet<>();
+        final List<String> reasons = new ArrayList<>();
+
+        Proposal(String table, List<String> columns, int keyColumns) {
+            this.table = table;
+            this.columns = columns;
+            this.keyColumns = keyColumns;
+        }
+
+        public String getName() {
+            StringBuilder name = new StringBuilder("idx_").append(table.toLowerCase(Locale.ROOT));
+            for (String column : columns.subList(0, keyColumns)) {
+                name.append('_').append(column.toLowerCase(Locale.ROOT));
+            }
+            return name.length() > 64 ? name.substring(0, 64) : name.toString();
+        }
+
+        public String getDdl() {
+            return "CREATE INDEX " + getName() + " ON " + table + " (" + String.join(", ", columns) + ")";
+        }
+
+        public boolean isCovering() {
+            return columns.size() > keyColumns;
+        }
+    }
+
+    private final Map<String, Table> tables = new HashMap<>();
+    private final List<String> satisfied = new ArrayList<>();
+
+    public IndexAdvisor(Connection conn) throws SQLException {
+        loadSchema(conn.getMetaData(), conn.getCatalog());
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean apply = false;
+        boolean benchmark = false;
+        List<Path> sources = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--apply")) {
+                apply = true;
+            } else if (arg.equals("--benchmark")) {
+                benchmark = true;
+            } else {
+                sources.add(Paths.get(arg));
+            }
+        }
+        if (sources.isEmpty()) {
+            for (String source : DEFAULT_SOURCES) {
+                sources.add(Paths.get(source));
+            }
+        }
+        if (benchmark && !apply) {
+            System.err.println("--benchmark compares latency before and after --apply; add --apply");
+            System.exit(2);
+        }
+
+        List<SqlSource> statements = new ArrayList<>();
+        for (Path source : sources) {
+            statements.addAll(extract(source));
+        }
+        System.out.println("Found " + statements.size() + " SQL statements in " + sources);
+
+        Class.forName(DRIVER);
+        List<Proposal> proposals;
+        try (Connection conn = DriverManager.getConnection(URL, USER, PASS)) {
+            IndexAdvisor advisor = new IndexAdvisor(conn);
+            proposals = advisor.propose(statements);
+            advisor.print(proposals);
+            if (!apply || proposals.isEmpty()) {
+                return;
+            }
+            Map<String, Double> before = Collections.emptyMap();
+            if (benchmark) {
+                System.out.println("\nBenchmark before:");
+                before = benchmark();
+            }
+            apply(conn, proposals);
+            if (benchmark) {
+                System.out.println("\nBenchmark after:");
+                printComparison(before, benchmark());
+            }
+        }
+    }
+
+    // Mean ms per query benchmark, run in forked JVMs against the advisor's database as it is
+    private static Map<String, Double> benchmark() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+            .include(QUERY_BENCHMARKS)
+            // Added to the benchmarks' own @Fork flags rather than replacing them
+            .jvmArgs("-Dvulcynyx.bench.url=" + URL, "-Dvulcynyx.bench.user=" + USER,
+                     "-Dvulcynyx.bench.password=" + PASS, "-Dvulcynyx.bench.driver=" + DRIVER,
+                     "-Dvulcynyx.bench.seed=false")
+            .build()).run();
+        Map<String, Double> means = new TreeMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            means.put(name.substring(name.lastIndexOf('.') + 1), result.getPrimaryResult().getScore());
+        }
+        return means;
+    }
+
+    private static void printComparison(Map<String, Double> before, Map<String, Double> after) {
+        System.out.printf("%n%-48s %12s %12s %9s%n", "query", "before ms", "after ms", "change");
+        for (Map.Entry<String, Double> entry : after.entrySet()) {
+            Double was = before.get(entry.getKey());
+            double now = entry.getValue();
+            if (was == null || was.isNaN() || Double.isNaN(now)) {
+                System.out.printf("%-48s %12s %12s%n", entry.getKey(), was == null ? "-" : String.format("%.3f", was),
+                    Double.isNaN(now) ? "failed" : String.format("%.3f", now));
+            } else {
+                System.out.printf(Locale.ROOT, "%-48s %12.3f %12.3f %+8.1f%%%n", entry.getKey(), was, now,
+                    (now - was) / was * 100);
+            }
+        }
+        for (String query : before.keySet()) {
+            if (!after.containsKey(query)) {
+                System.out.printf("%-48s %12.3f %12s%n", query, before.get(query), "failed");
+            }
+        }
+    }
+
+    // ==================== SCHEMA ====================
+    private void loadSchema(DatabaseMetaData meta, String catalog) throws SQLException {
+        try (ResultSet rs = meta.getTables(catalog, null, "%", new String[] { "TABLE" })) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                tables.put(name.toLowerCase(Locale.ROOT), new Table(name));
+            }
+        }
+        for (Table table : tables.values()) {
+            try (ResultSet rs = meta.getColumns(catalog, null, table.name, "%")) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME");
+                    table.columns.put(column.toLowerCase(Locale.ROOT), column);
+                }
+            }
+            Map<String, TreeMap<Integer, String>> indexes = new LinkedHashMap<>();
+            try (ResultSet rs = meta.getIndexInfo(catalog, null, table.name, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index == null || column == null) {
+                        continue; // table statistics row
+                    }
+                    indexes.computeIfAbsent(index, k -> new TreeMap<>()).put(rs.getInt("ORDINAL_POSITION"), column);
+                    if (!rs.getBoolean("NON_UNIQUE")) {
+                        table.uniqueIndexes.add(index);
+                    }
+                }
+            }
+            indexes.forEach((index, columns) -> table.indexes.put(index, new ArrayList<>(columns.values())));
+        }
+    }
+
+    // ==================== SQL EXTRACTION ====================
+    // SQL statements in a Java source: string literals joined with '+' are concatenated, with each
+    // non-literal operand (a variable) replaced by '?'. Statements after a "// Query N" comment are
+    // labelled QNN, others file:line. Report definition files yield their reports, labelled by id.
+    public static List<SqlSource> extract(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".properties")) {
+            return extractReports(file);
+        }
+        String src = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        String fileName = file.getFileName().toString();
+        List<SqlSource> found = new ArrayList<>();
+        String queryLabel = null;
+        int line = 1;
+        int i = 0;
+        while (i < src.length()) {
+            char c = src.charAt(i);
+            if (c == '\n') {
+                line++;
+                i++;
+            } else if (src.startsWith("//", i)) {
+                int end = src.indexOf('\n', i);
+                end = end < 0 ? src.length() : end;
+                Matcher m = QUERY_COMMENT.matcher(src.substring(i, end));
+                if (m.find()) {
+                    queryLabel = String.format("Q%02d", Integer.parseInt(m.group(1)));
+                }
+                i = end;
+            } else if (src.startsWith("/*", i)) {
+                int end = src.indexOf("*/", i + 2);
+                end = end < 0 ? src.length() : end + 2;
+                line += countLines(src, i, end);
+                i = end;
+            } else if (c == '\'') {
+                i = skipCharLiteral(src, i);
+            } else if (c == '"') {
+                int startLine = line;
+                StringBuilder sql = new StringBuilder();
+                int[] pos = { i };
+                readChain(src, pos, sql);
+                line += countLines(src, i, pos[0]);
+                i = pos[0];
+                String text = sql.toString().trim();
+                String head = text.length() >= 6 ? text.substring(0, 6).toUpperCase(Locale.ROOT) : "";
+                if (head.equals("SELECT") || head.equals("UPDATE") || head.equals("DELETE")
+                        || head.startsWith("WITH ")) {
+                    found.add(new SqlSource(queryLabel != null && fileName.startsWith("Database")
+                        ? queryLabel : fileName + ":" + startLine, text));
+                }
+            } else {
+                i++;
+            }
+        }
+        return found;
+    }
+
+    private static List<SqlSource> extractReports(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        List<SqlSource> found = new ArrayList<>();
+        for (ReportRegistry.Report report : ReportRegistry.parse(properties).values()) {
+            found.add(new SqlSource(report.getId(), report.getSql()));
+        }
+        return found;
+    }
+
+    // literal (+ literal | + expression)*, starting at the opening quote of the first literal
+    private static void readChain(String src, int[] pos, StringBuilder sql) {
+        while (true) {
+            int i = pos[0];
+            if (i < src.length() && src.charAt(i) == '"') {
+                i = readLiteral(src, i, sql);
+            } else {
+                i = skipOperand(src, i);
+                sql.append('?');
+            }
+            int next = skipSpace(src, i);
+            if (next >= src.length() || src.charAt(next) != '+' || src.startsWith("++", next)
+                    || src.startsWith("+=", next)) {
+                pos[0] = i;
+                return;
+            }
+            pos[0] = skipSpace(src, next + 1);
+        }
+    }
+
+    private static int readLiteral(String src, int i, StringBuilder out) {
+        i++;
+        while (i < src.length() && src.charAt(i) != '"') {
+            char c = src.charAt(i);
+            if (c == '\\' && i + 1 < src.length()) {
+                char escaped = src.charAt(++i);
+                out.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+            } else {
+                out.append(c);
+            }
+            i++;
+        }
+        return i + 1;
+    }
+
+    // A simple operand: identifiers, dots and balanced parentheses (e.g. a variable or a call)
+    private static int skipOperand(String src, int i) {
+        int depth = 0;
+        while (i < src.length()) {
+            char c = src.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (c == '"') {
+                i = readLiteral(src, i, new StringBuilder()) - 1;
+            } else if (depth == 0 && !(Character.isJavaIdentifierPart(c) || c == '.')) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipCharLiteral(String src, int i) {
+        i++;
+        while (i < src.length() && src.charAt(i) != '\'') {
+            i += src.charAt(i) == '\\' ? 2 : 1;
+        }
+        return i + 1;
+    }
+
+    private static int skipSpace(String src, int i) {
+        while (i < src.length() && Character.isWhitespace(src.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int countLines(String src, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < Math.min(to, src.length()); i++) {
+            if (src.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    // ==================== ANALYSIS ====================
+    static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                int start = i++;
+                while (i < sql.length() && !(sql.charAt(i) == '\'' && !sql.startsWith("''", i))) {
+                    i += sql.startsWith("''", i) || sql.charAt(i) == '\\' ? 2 : 1;
+                }
+                tokens.add(sql.substring(start, Math.min(i + 1, sql.length())));
+                i++;
+            } else if (Character.isLetter(c) || c == '_' || c == '`') {
+                StringBuilder name = new StringBuilder();
+                while (i < sql.length()) {
+                    char d = sql.charAt(i);
+                    if (d == '`') {
+                        int end = sql.indexOf('`', i + 1);
+                        end = end < 0 ? sql.length() : end;
+                        name.append(sql, i + 1, end);
+                        i = end + 1;
+                    } else if (Character.isLetterOrDigit(d) || d == '_' || d == '$') {
+                        name.append(d);
+                        i++;
+                    } else if (d == '.' && i + 1 < sql.length()
+                            && (Character.isLetter(sql.charAt(i + 1)) || "_`*".indexOf(sql.charAt(i + 1)) >= 0)) {
+                        name.append('.');
+                        i++;
+                        if (sql.charAt(i) == '*') {
+                            name.append('*');
+                            i++;
+                            break;
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(name.toString());
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(sql.substring(start, i));
+            } else if (sql.startsWith("<=", i) || sql.startsWith(">=", i) || sql.startsWith("<>", i)
+                    || sql.startsWith("!=", i)) {
+                tokens.add(sql.substring(i, i + 2));
+                i += 2;
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isIdentifier(String token) {
+        return !token.isEmpty() && (Character.isLetter(token.charAt(0)) || token.charAt(0) == '_')
+            && !KEYWORDS.contains(token.toUpperCase(Locale.ROOT));
+    }
+
+    // Table accesses of one statement, keyed by table; empty if it reads no known base table
+    private Map<Table, TableAccess> analyze(String sql) {
+        List<String> tokens = tokenize(sql);
+        Map<String, Table> aliases = new HashMap<>();
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            String keyword = tokens.get(i).toUpperCase(Locale.ROOT);
+            if (!(keyword.equals("FROM") || keyword.equals("JOIN") || keyword.equals("UPDATE"))) {
+                continue;
+            }
+            int j = i + 1;
+            while (j < tokens.size() && isIdentifier(tokens.get(j))) {
+                Table table = tables.get(tokens.get(j).toLowerCase(Locale.ROOT));
+                j++;
+                if (j < tokens.size() && tokens.get(j).equalsIgnoreCase("AS")) {
+                    j++;
+                }
+                String alias = j < tokens.size() && isIdentifier(tokens.get(j)) ? tokens.get(j++) : null;
+                if (table != null) {
+                    aliases.put(table.name.toLowerCase(Locale.ROOT), table);
+                    if (alias != null) {
+                        aliases.put(alias.toLowerCase(Locale.ROOT), table);
+                    }
+                }
+                if (j < tokens.size() && tokens.get(j).equals(",") && keyword.equals("FROM")) {
+                    j++;
+                } else {
+                    break;
+                }
+            }
+        }
+        Set<Table> used = new LinkedHashSet<>(aliases.values());
+        Map<Table, TableAccess> accesses = new LinkedHashMap<>();
+        for (Table table : used) {
+            accesses.put(table, new TableAccess(table));
+        }
+        if (used.isEmpty()) {
+            return accesses;
+        }
+
+        List<ColumnRef> groupBy = new ArrayList<>();
+        List<ColumnRef> orderBy = new ArrayList<>();
+        Deque<String> clauses = new ArrayDeque<>();
+        String clause = "";
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String upper = token.toUpperCase(Locale.ROOT);
+            if (token.equals("(")) {
+                clauses.push(clause);
+                if (i > 0 && tokens.get(i - 1).equalsIgnoreCase("OVER")) {
+                    clause = "OVER";
+                }
+                continue;
+            }
+            if (token.equals(")")) {
+                clause = clauses.isEmpty() ? "" : clauses.pop();
+                continue;
+            }
+            if (!clause.equals("OVER") && (upper.equals("SELECT") || upper.equals("FROM") || upper.equals("WHERE")
+                    || upper.equals("ON") || upper.equals("GROUP") || upper.equals("ORDER") || upper.equals("HAVING")
+                    || upper.equals("LIMIT") || upper.equals("SET") || upper.equals("JOIN"))) {
+                clause = upper.equals("JOIN") ? "FROM" : upper;
+                continue;
+            }
+            if (token.equals("*") && clause.equals("SELECT")) {
+                used.forEach(t -> accesses.get(t).star = true);
+                continue;
+            }
+            ColumnRef ref = resolve(tokens, i, aliases, used, accesses);
+            if (ref == null) {
+                continue;
+            }
+            TableAccess access = accesses.get(ref.table);
+            access.referenced.add(ref.column);
+            if (clause.equals("WHERE") || clause.equals("ON")) {
+                String prev = i > 0 ? tokens.get(i - 1).toUpperCase(Locale.ROOT) : "";
+                String next = i + 1 < tokens.size() ? tokens.get(i + 1).toUpperCase(Locale.ROOT) : "";
+                String after = i + 2 < tokens.size() ? tokens.get(i + 2) : "";
+                // A comparison with another column of the same table (Revenue < Cost) cannot seek
+                ColumnRef other = isComparison(next) ? resolve(tokens, i + 2, aliases, used, accesses)
+                                : isComparison(prev) && i >= 2 ? resolve(tokens, i - 2, aliases, used, accesses)
+                                : null;
+                if (other != null && other.table == ref.table) {
+                    continue;
+                }
+                if (next.equals("=") || prev.equals("=") || next.equals("IN") || next.equals("IS")) {
+                    access.equality.add(ref.column);
+                } else if (next.equals("<") || next.equals(">") || next.equals("<=") || next.equals(">=")
+                        || next.equals("BETWEEN") || prev.equals("<") || prev.equals(">") || prev.equals("<=")
+                        || prev.equals(">=")) {
+                    access.range.add(ref.column);
+                } else if (next.equals("LIKE") && after.startsWith("'") && !after.startsWith("'%")) {
+                    access.range.add(ref.column);
+                }
+            } else if (clause.equals("GROUP")) {
+                groupBy.add(ref);
+            } else if (clause.equals("ORDER")) {
+                orderBy.add(ref);
+            }
+        }
+
+        // A GROUP BY or ORDER BY can only be served by an index when all its columns are in one table
+        for (TableAccess access : accesses.values()) {
+            access.range.removeAll(access.equality);
+            if (access.range.isEmpty()) {
+                List<ColumnRef> sort = sameTable(groupBy, access.table) ? groupBy
+                                     : groupBy.isEmpty() && sameTable(orderBy, access.table) ? orderBy
+                                     : Collections.emptyList();
+                for (ColumnRef ref : sort) {
+                    if (!access.equality.contains(ref.column)) {
+                        access.sort.add(ref.column);
+                    }
+                }
+            }
+        }
+        return accesses;
+    }
+
+    private static boolean isComparison(String token) {
+        return token.equals("=") || token.equals("<") || token.equals(">") || token.equals("<=") || token.equals(">=");
+    }
+
+    private static boolean sameTable(List<ColumnRef> refs, Table table) {
+        if (refs.isEmpty()) {
+            return false;
+        }
+        for (ColumnRef ref : refs) {
+            if (ref.table != table) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ColumnRef resolve(List<String> tokens, int i, Map<String, Table> aliases, Set<Table> used,
+                                     Map<Table, TableAccess> accesses) {
+        String token = tokens.get(i);
+        if (!isIdentifier(token) || (i + 1 < tokens.size() && tokens.get(i + 1).equals("("))) {
+            return null;
+        }
+        int dot = token.lastIndexOf('.');
+        if (dot >= 0) {
+            Table table = aliases.get(token.substring(0, dot).toLowerCase(Locale.ROOT));
+            if (table == null) {
+                return null;
+            }
+            String column = token.substring(dot + 1);
+            if (column.equals("*")) {
+                accesses.get(table).star = true;
+                return null;
+            }
+            String name = table.columns.get(column.toLowerCase(Locale.ROOT));
+            return name == null ? null : new ColumnRef(table, name);
+        }
+        ColumnRef found = null;
+        for (Table table : used) {
+            String name = table.columns.get(token.toLowerCase(Locale.ROOT));
+            if (name != null) {
+                if (found != null) {
+                    return null; // ambiguous
+                }
+                found = new ColumnRef(table, name);
+            }
+        }
+        return found;
+    }
+
+    // ==================== PROPOSALS ====================
+    public List<Proposal> propose(List<SqlSource> statements) {
+        List<Proposal> candidates = new ArrayList<>();
+        for (SqlSource statement : statements) {
+            for (TableAccess access : analyze(statement.sql).values()) {
+                // Only the first range column can use the index; GROUP/ORDER BY columns all can
+                List<String> key = new ArrayList<>(access.equality);
+                if (!access.range.isEmpty()) {
+                    key.add(access.range.iterator().next());
+                } else {
+                    key.addAll(access.sort);
+                }
+                if (key.isEmpty()) {
+                    continue;
+                }
+                if (key.size() > MAX_COLUMNS) {
+                    key = new ArrayList<>(key.subList(0, MAX_COLUMNS));
+                }
+                String existing = uniqueLookup(access.table, access.equality);
+                if (existing == null) {
+                    existing = existingIndex(access.table, access.equality, key);
+                }
+                if (existing != null) {
+                    satisfied.add(statement.label + ": " + access.table.name + key + " by " + existing);
+                    continue;
+                }
+                List<String> columns = new ArrayList<>(key);
+                Set<String> rest = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                rest.addAll(access.referenced);
+                rest.removeAll(key);
+                if (!access.star && key.size() + rest.size() <= MAX_COLUMNS) {
+                    columns.addAll(rest);
+                }
+                Proposal proposal = new Proposal(access.table.name, columns, key.size());
+                proposal.queries.add(statement.label);
+                proposal.reasons.add(statement.label + ": " + describe(access));
+                candidates.add(proposal);
+            }
+        }
+        return merge(candidates);
+    }
+
+    private static String describe(TableAccess access) {
+        StringJoiner sb = new StringJoiner(", ");
+        if (!access.equality.isEmpty()) {
+            sb.add("equality " + access.equality);
+        }
+        if (!access.range.isEmpty()) {
+            sb.add("range " + access.range);
+        } else if (!access.sort.isEmpty()) {
+            sb.add("grouped/sorted by " + access.sort);
+        }
+        return sb.toString();
+    }
+
+    // Name of a unique index whose columns are all matched by equality (at most one row), or null
+    private static String uniqueLookup(Table table, Set<String> equality) {
+        Set<String> matched = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        matched.addAll(equality);
+        for (String index : table.uniqueIndexes) {
+            if (matched.containsAll(table.indexes.get(index))) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    // Name of an index whose leading columns are the equality columns (any order) followed by the
+    // rest of the key in order, or null
+    private static String existingIndex(Table table, Set<String> equality, List<String> key) {
+        for (Map.Entry<String, List<String>> index : table.indexes.entrySet()) {
+            List<String> columns = index.getValue();
+            if (columns.size() < key.size()) {
+                continue;
+            }
+            Set<String> leading = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            leading.addAll(columns.subList(0, equality.size()));
+            Set<String> wanted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            wanted.addAll(equality);
+            boolean matches = leading.equals(wanted);
+            for (int i = equality.size(); matches && i < key.size(); i++) {
+                matches = columns.get(i).equalsIgnoreCase(key.get(i));
+            }
+            if (matches) {
+                return index.getKey();
+            }
+        }
+        return null;
+    }
+
+    // Fold proposals with the same key into one (covering the union of their columns if that stays
+    // narrow enough), then fold proposals that are a prefix of a wider one on the same table
+    private static List<Proposal> merge(List<Proposal> candidates) {
+        Map<String, Proposal> byKey = new LinkedHashMap<>();
+        for (Proposal candidate : candidates) {
+            String key = (candidate.table + candidate.columns.subList(0, candidate.keyColumns)).toLowerCase(Locale.ROOT);
+            Proposal same = byKey.get(key);
+            if (same == null) {
+                byKey.put(key, candidate);
+                continue;
+            }
+            Set<String> covered = new LinkedHashSet<>(same.columns);
+            Set<String> seen = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            seen.addAll(covered);
+            for (String column : candidate.columns) {
+                if (seen.add(column)) {
+                    covered.add(column);
+                }
+            }
+            List<String> columns = covered.size() <= MAX_COLUMNS ? new ArrayList<>(covered)
+                                 : new ArrayList<>(same.columns.subList(0, same.keyColumns));
+            Proposal union = new Proposal(same.table, columns, same.keyColumns);
+            union.queries.addAll(same.queries);
+            union.queries.addAll(candidate.queries);
+            union.reasons.addAll(same.reasons);
+            union.reasons.addAll(candidate.reasons);
+            byKey.put(key, union);
+        }
+        List<Proposal> sorted = new ArrayList<>(byKey.values());
+        sorted.sort(Comparator.comparingInt((Proposal p) -> p.columns.size()).reversed());
+        List<Proposal> merged = new ArrayList<>();
+        for (Proposal candidate : sorted) {
+            Proposal into = null;
+            for (Proposal accepted : merged) {
+                if (accepted.table.equalsIgnoreCase(candidate.table) && isPrefix(candidate.columns, accepted.columns)) {
+                    into = accepted;
+                    break;
+                }
+            }
+            if (into == null) {
+                merged.add(candidate);
+            } else {
+                into.queries.addAll(candidate.queries);
+                into.reasons.addAll(candidate.reasons);
+            }
+        }
+        merged.sort(Comparator.comparing((Proposal p) -> p.table).thenComparing(Proposal::getName));
+        return merged;
+    }
+
+    private static boolean isPrefix(List<String> prefix, List<String> columns) {
+        if (prefix.size() > columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (!prefix.get(i).equalsIgnoreCase(columns.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void print(List<Proposal> proposals) {
+        System.out.println("\nAlready served by an existing index (" + satisfied.size() + "):");
+        for (String line : satisfied) {
+            System.out.println("  " + line);
+        }
+        System.out.println("\nProposed indexes (" + proposals.size() + "):");
+        for (Proposal proposal : proposals) {
+            System.out.println("  " + proposal.getDdl() + ";" + (proposal.isCovering() ? "  -- covering" : ""));
+            for (String reason : proposal.reasons) {
+                System.out.println("      " + reason);
+            }
+        }
+    }
+
+    public static void apply(Connection conn, List<Proposal> proposals) {
+        for (Proposal proposal : proposals) {
+            try (Statement stmt = conn.createStatement()) {
+                long start = System.nanoTime();
+                stmt.executeUpdate(proposal.getDdl());
+                System.out.printf("Created %s in %.1f s%n", proposal.getName(), (System.nanoTime() - start) / 1e9);
+            } catch (SQLException e) {
+                System.err.println("Failed to create " + proposal.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,9 +1,24 @@
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import mini_project_dbms.BusinessImporter;
+import mini_project_dbms.ConnectionPool;
+import mini_project_dbms.DashboardCounters;
+import mini_project_dbms.KeysetPager;
+import mini_project_dbms.ProductCatalog;
+import mini_project_dbms.QueryResult;
+import mini_project_dbms.QueryRunner;
+import mini_project_dbms.ReportRegistry;
+import mini_project_dbms.ResultCache;
 
 public class JewelryManagementUI extends JFrame {
 
@@ -12,6 +27,9 @@ public class JewelryManagementUI extends JFrame {
     static final String USER = "root";
     static final String PASS = "root";
 
+    // Shared connection pool; connections are returned to it when closed
+    private static final ConnectionPool POOL = ConnectionPool.shared(DB_URL, USER, PASS);
+
     private JPanel mainPanel;
     private CardLayout cardLayout;
 
@@ -23,6 +41,28 @@ public class JewelryManagementUI extends JFrame {
     private static final Color BG_COLOR = new Color(236, 240, 241);
     private static final Color CARD_COLOR = Color.WHITE;
 
+    // Dashboard stat cards, in DashboardCounters stat order
+    private static final String[] DASHBOARD_TITLES = { "Total Products", "Total Customers", "Total Revenue",
+            "Low Stock Items", "Active Campaigns", "Total Transactions" };
+    private static final Color[] DASHBOARD_COLORS = { SECONDARY_COLOR, SUCCESS_COLOR,
+            new Color(155, 89, 182), ACCENT_COLOR, new Color(230, 126, 34), new Color(26, 188, 156) };
+    private static final boolean COMBINED_DASHBOARD = Boolean.getBoolean("vulcynyx.dashboard.combined");
+    private static final QueryRunner DASHBOARD_WORKERS = new QueryRunner(DASHBOARD_TITLES.length,
+            DASHBOARD_TITLES.length * 2);
+    private static final QueryRunner IMPORT_WORKER = new QueryRunner(1, 1);
+    // Table pages: the one being shown plus the one prefetched behind it, for each panel
+    private static final QueryRunner PAGE_WORKERS = new QueryRunner(2, 10);
+    private static final Integer[] PAGE_SIZES = { 100, 500, 1000, 5000 };
+    // Dashboard aggregates, updated by the write paths below
+    private static final DashboardCounters COUNTERS = DashboardCounters.shared(POOL);
+    // Product searches are answered from memory once this has loaded
+    private static final ProductCatalog CATALOG = ProductCatalog.shared(POOL);
+    // Analytics reports, defined once for every front end in reports.properties
+    private static final ReportRegistry REPORTS = ReportRegistry.shared(POOL);
+
+    // Keyset-paged loader behind each table panel, by the panel's model
+    private final Map<DefaultTableModel, PagedTable> pagedTables = new HashMap<>();
+
     public JewelryManagementUI() {
         setTitle("Jewelry Business Management System");
         setSize(1400, 800);
@@ -38,6 +78,7 @@ public class JewelryManagementUI extends JFrame {
             System.exit(1);
         }
 
+        CATALOG.loadInBackground();
         initComponents();
         setVisible(true);
     }
@@ -45,7 +86,7 @@ public class JewelryManagementUI extends JFrame {
     private boolean testConnection() {
         try {
             Class.forName(JDBC_DRIVER);
-            Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            Connection conn = POOL.getConnection();
             conn.close();
             return true;
         } catch (Exception e) {
@@ -158,52 +199,89 @@ public class JewelryManagementUI extends JFrame {
         statsPanel.setBackground(BG_COLOR);
         statsPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
 
-        // Create stat cards
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS)) {
-            // Total Products
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) as cnt FROM Product");
-            rs.next();
-            statsPanel.add(createStatCard("Total Products", String.valueOf(rs.getInt("cnt")), SECONDARY_COLOR));
+        // Create stat cards with placeholders; values fill in as their queries complete
+        JLabel[] values = new JLabel[DASHBOARD_TITLES.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new JLabel("...");
+            statsPanel.add(createStatCard(DASHBOARD_TITLES[i], values[i], DASHBOARD_COLORS[i]));
+        }
+        loadDashboardStats(values);
 
-            // Total Customers
-            rs = stmt.executeQuery("SELECT COUNT(*) as cnt FROM Customer");
-            rs.next();
-            statsPanel.add(createStatCard("Total Customers", String.valueOf(rs.getInt("cnt")), SUCCESS_COLOR));
+        panel.add(statsPanel, BorderLayout.CENTER);
+        return panel;
+    }
 
-            // Total Revenue
-            rs = stmt.executeQuery(
-                    "SELECT SUM(b.Qty * p.Price) as total FROM Business b JOIN Product p ON b.ProductID = p.ProductID");
-            rs.next();
-            statsPanel.add(createStatCard("Total Revenue", "₹" + String.format("%.2f", rs.getDouble("total")),
-                    new Color(155, 89, 182)));
+    // Paint the cards from the in-memory counters, which the write paths keep current. The first
+    // time, the counters are loaded off the EDT: with vulcynyx.dashboard.combined all six stats come
+    // back in one round trip; otherwise (or if the combined query fails) each card runs its own query
+    // concurrently, so the dashboard waits for the slowest query rather than the sum of them.
+    private void loadDashboardStats(JLabel[] values) {
+        COUNTERS.addListener(() -> SwingUtilities.invokeLater(() -> showDashboardStats(values)));
+        if (COUNTERS.isLoaded()) {
+            showDashboardStats(values);
+        } else if (COMBINED_DASHBOARD) {
+            DASHBOARD_WORKERS.submit(this::queryCombinedStats).whenComplete((stats, error) -> {
+                if (error == null) {
+                    COUNTERS.load(stats);
+                } else {
+                    System.err.println("Combined dashboard query failed, loading stats separately: "
+                            + QueryRunner.rootCause(error).getMessage());
+                    loadDashboardStatsConcurrently(values);
+                }
+            });
+        } else {
+            loadDashboardStatsConcurrently(values);
+        }
+    }
 
-            // Low Stock Items
-            rs = stmt.executeQuery("SELECT COUNT(*) as cnt FROM Product WHERE Stock <= 10");
-            rs.next();
-            statsPanel.add(createStatCard("Low Stock Items", String.valueOf(rs.getInt("cnt")), ACCENT_COLOR));
+    private void loadDashboardStatsConcurrently(JLabel[] values) {
+        double[] stats = new double[values.length];
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[values.length];
+        for (int i = 0; i < values.length; i++) {
+            final int stat = i;
+            loads[i] = DASHBOARD_WORKERS.submit(() -> queryStat(DashboardCounters.QUERIES[stat]))
+                    .whenComplete((value, error) -> {
+                        if (error != null) {
+                            QueryRunner.rootCause(error).printStackTrace();
+                        } else {
+                            stats[stat] = value;
+                        }
+                        String text = error == null ? formatStat(stat, value) : "n/a";
+                        SwingUtilities.invokeLater(() -> values[stat].setText(text));
+                    });
+        }
+        // Seed the counters only if every stat loaded
+        CompletableFuture.allOf(loads).thenRun(() -> COUNTERS.load(stats));
+    }
 
-            // Active Campaigns
-            rs = stmt.executeQuery("SELECT COUNT(*) as cnt FROM Campaign");
-            rs.next();
-            statsPanel
-                    .add(createStatCard("Active Campaigns", String.valueOf(rs.getInt("cnt")), new Color(230, 126, 34)));
+    private void showDashboardStats(JLabel[] values) {
+        double[] stats = COUNTERS.snapshot();
+        for (int i = 0; i < values.length; i++) {
+            values[i].setText(formatStat(i, stats[i]));
+        }
+    }
 
-            // Total Transactions
-            rs = stmt.executeQuery("SELECT COUNT(*) as cnt FROM Business");
+    private double queryStat(String query) throws SQLException {
+        try (Connection conn = POOL.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(query)) {
             rs.next();
-            statsPanel.add(
-                    createStatCard("Total Transactions", String.valueOf(rs.getInt("cnt")), new Color(26, 188, 156)));
+            return rs.getDouble(1);
+        }
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    private double[] queryCombinedStats() throws SQLException {
+        try (Connection conn = POOL.getConnection()) {
+            return DashboardCounters.queryAll(conn);
         }
+    }
 
-        panel.add(statsPanel, BorderLayout.CENTER);
-        return panel;
+    private static String formatStat(int stat, double value) {
+        return stat == DashboardCounters.REVENUE ? "₹" + String.format("%.2f", value)
+                : String.valueOf(Math.round(value));
     }
 
-    private JPanel createStatCard(String title, String value, Color color) {
+    private JPanel createStatCard(String title, JLabel valueLabel, Color color) {
         JPanel card = new JPanel();
         card.setLayout(new BoxLayout(card, BoxLayout.Y_AXIS));
         card.setBackground(CARD_COLOR);
@@ -216,7 +294,6 @@ public class JewelryManagementUI extends JFrame {
         titleLabel.setForeground(Color.GRAY);
         titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        JLabel valueLabel = new JLabel(value);
         valueLabel.setFont(new Font("Arial", Font.BOLD, 36));
         valueLabel.setForeground(color);
         valueLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -274,6 +351,7 @@ public class JewelryManagementUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(new PagedTable(model, scrollPane, productPager()).footer, BorderLayout.SOUTH);
 
         // Load data
         loadProductData(model);
@@ -299,6 +377,112 @@ public class JewelryManagementUI extends JFrame {
         return panel;
     }
 
+    // Feeds a table from a KeysetPager: the first page on reload, then the next (already
+    // prefetched) page whenever the view scrolls near the bottom. The footer shows how much of
+    // the estimated total is loaded and lets the user pick the page size.
+    private final class PagedTable {
+        private final DefaultTableModel model;
+        private final KeysetPager pager;
+        private final JLabel status = new JLabel(" ");
+        final JPanel footer = new JPanel(new BorderLayout());
+        private long generation;
+        private boolean paging;
+        private boolean loading;
+        private KeysetPager.RowCount total;
+
+        PagedTable(DefaultTableModel model, JScrollPane scrollPane, KeysetPager pager) {
+            this.model = model;
+            this.pager = pager;
+            pagedTables.put(model, this);
+
+            JComboBox<Integer> pageSize = new JComboBox<>(PAGE_SIZES);
+            pageSize.setSelectedItem(pager.getPageSize());
+            pageSize.addActionListener(e -> {
+                pager.setPageSize((Integer) pageSize.getSelectedItem());
+                reload();
+            });
+            JPanel sizePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            sizePanel.setBackground(BG_COLOR);
+            sizePanel.add(new JLabel("Rows per page:"));
+            sizePanel.add(pageSize);
+
+            status.setFont(new Font("Arial", Font.PLAIN, 13));
+            footer.setBackground(BG_COLOR);
+            footer.setBorder(BorderFactory.createEmptyBorder(0, 20, 10, 20));
+            footer.add(status, BorderLayout.WEST);
+            footer.add(sizePanel, BorderLayout.EAST);
+
+            scrollPane.getVerticalScrollBar().getModel().addChangeListener(e -> {
+                BoundedRangeModel bar = (BoundedRangeModel) e.getSource();
+                if (bar.getValue() + bar.getExtent() >= bar.getMaximum() - bar.getExtent() / 2) {
+                    loadMore();
+                }
+            });
+        }
+
+        void reload() {
+            generation++;
+            paging = true;
+            loading = false;
+            total = null;
+            pager.reset();
+            model.setRowCount(0);
+            loadMore();
+            long requested = generation;
+            pager.estimateTotal().whenComplete((count, error) -> SwingUtilities.invokeLater(() -> {
+                if (requested == generation && count != null) {
+                    total = count;
+                    updateStatus();
+                }
+            }));
+        }
+
+        // The model is about to show something else (e.g. search results)
+        void stop(String description) {
+            generation++;
+            paging = false;
+            loading = false;
+            status.setText(description);
+        }
+
+        private void loadMore() {
+            if (!paging || loading || !pager.hasMore()) {
+                return;
+            }
+            loading = true;
+            updateStatus();
+            long requested = generation;
+            pager.nextPage().whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+                if (requested != generation) {
+                    return;
+                }
+                loading = false;
+                if (error != null) {
+                    showError("Error loading rows: " + QueryRunner.rootCause(error).getMessage());
+                    stop(String.format("Showing %,d rows (loading stopped after an error)", model.getRowCount()));
+                } else {
+                    for (Object[] row : rows) {
+                        model.addRow(row);
+                    }
+                }
+                updateStatus();
+            }));
+        }
+
+        private void updateStatus() {
+            int shown = model.getRowCount();
+            if (!paging) {
+                return;
+            }
+            if (!pager.hasMore()) {
+                status.setText(String.format("Showing all %,d rows", shown));
+            } else {
+                status.setText(String.format("Showing %,d of %s rows%s", shown,
+                        total == null ? "?" : total.toString(), loading ? " (loading...)" : ""));
+            }
+        }
+    }
+
     private JButton createActionButton(String text, Color color) {
         JButton btn = new JButton(text);
         btn.setFont(new Font("Arial", Font.BOLD, 14));
@@ -326,24 +510,20 @@ public class JewelryManagementUI extends JFrame {
         header.setPreferredSize(new Dimension(header.getWidth(), 40));
     }
 
-    private void loadProductData(DefaultTableModel model) {
-        model.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery("SELECT * FROM Product ORDER BY ProductID")) {
-
-            while (rs.next()) {
-                model.addRow(new Object[] {
+    private KeysetPager productPager() {
+        return new KeysetPager(POOL, PAGE_WORKERS, "SELECT * FROM Product", "Product", true,
+                rs -> new Object[] {
                         rs.getInt("ProductID"),
                         rs.getString("Name"),
                         rs.getString("Category"),
                         "₹" + String.format("%.2f", rs.getDouble("Price")),
                         rs.getInt("Stock")
-                });
-            }
-        } catch (SQLException e) {
-            showError("Error loading products: " + e.getMessage());
-        }
+                },
+                KeysetPager.Key.asc("ProductID", "ProductID"));
+    }
+
+    private void loadProductData(DefaultTableModel model) {
+        pagedTables.get(model).reload();
     }
 
     private void showAddProductDialog(DefaultTableModel model) {
@@ -373,7 +553,7 @@ public class JewelryManagementUI extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
 
         saveBtn.addActionListener(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            try (Connection conn = POOL.getConnection();
                     PreparedStatement pstmt = conn.prepareStatement(
                             "INSERT INTO Product (ProductID, Name, Category, Price, Stock) VALUES (?, ?, ?, ?, ?)")) {
 
@@ -384,6 +564,9 @@ public class JewelryManagementUI extends JFrame {
                 pstmt.setInt(5, Integer.parseInt(stockField.getText()));
 
                 pstmt.executeUpdate();
+                ResultCache.shared().invalidateTable("Product");
+                COUNTERS.productAdded(Double.parseDouble(priceField.getText()), Integer.parseInt(stockField.getText()));
+                CATALOG.refresh(conn, Integer.parseInt(idField.getText()));
                 showSuccess("Product added successfully!");
                 loadProductData(model);
                 dialog.dispose();
@@ -423,7 +606,7 @@ public class JewelryManagementUI extends JFrame {
     }
 
     private void updateProduct(int productID, String field, String value, DefaultTableModel model) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+        try (Connection conn = POOL.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(
                         "UPDATE Product SET " + field + " = ? WHERE ProductID = ?")) {
 
@@ -436,7 +619,11 @@ public class JewelryManagementUI extends JFrame {
             }
             pstmt.setInt(2, productID);
 
+            DashboardCounters.ProductState before = COUNTERS.readProduct(conn, productID);
             int rows = pstmt.executeUpdate();
+            ResultCache.shared().invalidateTable("Product");
+            COUNTERS.productChanged(before, COUNTERS.readProduct(conn, productID));
+            CATALOG.refresh(conn, productID);
             if (rows > 0) {
                 showSuccess("Product updated successfully!");
                 loadProductData(model);
@@ -469,8 +656,13 @@ public class JewelryManagementUI extends JFrame {
     }
 
     private void searchByCategory(DefaultTableModel model, String category) {
+        pagedTables.get(model).stop("Search results");
         model.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+        if (CATALOG.isLoaded()) {
+            showProducts(model, CATALOG.searchByCategory(category));
+            return;
+        }
+        try (Connection conn = POOL.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(
                         "SELECT * FROM Product WHERE Category LIKE ? ORDER BY Price")) {
 
@@ -506,8 +698,13 @@ public class JewelryManagementUI extends JFrame {
                 double min = Double.parseDouble(minField.getText());
                 double max = Double.parseDouble(maxField.getText());
 
+                pagedTables.get(model).stop("Search results");
                 model.setRowCount(0);
-                try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+                if (CATALOG.isLoaded()) {
+                    showProducts(model, CATALOG.priceRange(min, max));
+                    return;
+                }
+                try (Connection conn = POOL.getConnection();
                         PreparedStatement pstmt = conn.prepareStatement(
                                 "SELECT * FROM Product WHERE Price BETWEEN ? AND ? ORDER BY Price")) {
 
@@ -538,9 +735,14 @@ public class JewelryManagementUI extends JFrame {
         if (threshold != null) {
             try {
                 int thresh = Integer.parseInt(threshold);
+                pagedTables.get(model).stop("Low stock items");
                 model.setRowCount(0);
+                if (CATALOG.isLoaded()) {
+                    showProducts(model, CATALOG.stockAtMost(thresh));
+                    return;
+                }
 
-                try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+                try (Connection conn = POOL.getConnection();
                         PreparedStatement pstmt = conn.prepareStatement(
                                 "SELECT * FROM Product WHERE Stock <= ? ORDER BY Stock ASC")) {
 
@@ -565,6 +767,18 @@ public class JewelryManagementUI extends JFrame {
         }
     }
 
+    private void showProducts(DefaultTableModel model, java.util.List<ProductCatalog.Product> products) {
+        for (ProductCatalog.Product product : products) {
+            model.addRow(new Object[] {
+                    product.getId(),
+                    product.getName(),
+                    product.getCategory(),
+                    product.getPrice() == null ? "" : "₹" + String.format("%.2f", product.getPrice()),
+                    product.getStock()
+            });
+        }
+    }
+
     private JPanel createCustomerPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBackground(BG_COLOR);
@@ -604,6 +818,7 @@ public class JewelryManagementUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(new PagedTable(model, scrollPane, customerPager()).footer, BorderLayout.SOUTH);
 
         loadCustomerData(model);
 
@@ -618,24 +833,20 @@ public class JewelryManagementUI extends JFrame {
         return panel;
     }
 
-    private void loadCustomerData(DefaultTableModel model) {
-        model.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery("SELECT * FROM Customer ORDER BY CustomerID")) {
-
-            while (rs.next()) {
-                model.addRow(new Object[] {
+    private KeysetPager customerPager() {
+        return new KeysetPager(POOL, PAGE_WORKERS, "SELECT * FROM Customer", "Customer", true,
+                rs -> new Object[] {
                         rs.getInt("CustomerID"),
                         rs.getString("Name"),
                         rs.getString("Gender"),
                         rs.getString("AgeGroup"),
                         rs.getString("City")
-                });
-            }
-        } catch (SQLException e) {
-            showError("Error loading customers: " + e.getMessage());
-        }
+                },
+                KeysetPager.Key.asc("CustomerID", "CustomerID"));
+    }
+
+    private void loadCustomerData(DefaultTableModel model) {
+        pagedTables.get(model).reload();
     }
 
     private void showAddCustomerDialog(DefaultTableModel model) {
@@ -665,7 +876,7 @@ public class JewelryManagementUI extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
 
         saveBtn.addActionListener(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            try (Connection conn = POOL.getConnection();
                     PreparedStatement pstmt = conn.prepareStatement(
                             "INSERT INTO Customer (CustomerID, Name, Gender, AgeGroup, City) VALUES (?, ?, ?, ?, ?)")) {
 
@@ -676,6 +887,8 @@ public class JewelryManagementUI extends JFrame {
                 pstmt.setString(5, cityField.getText());
 
                 pstmt.executeUpdate();
+                ResultCache.shared().invalidateTable("Customer");
+                COUNTERS.customerAdded();
                 showSuccess("Customer added successfully!");
                 loadCustomerData(model);
                 dialog.dispose();
@@ -694,8 +907,9 @@ public class JewelryManagementUI extends JFrame {
     }
 
     private void searchCustomersByCity(DefaultTableModel model, String city) {
+        pagedTables.get(model).stop("Customers in " + city);
         model.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+        try (Connection conn = POOL.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(
                         "SELECT * FROM Customer WHERE City = ?")) {
 
@@ -753,6 +967,7 @@ public class JewelryManagementUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(new PagedTable(model, scrollPane, campaignPager()).footer, BorderLayout.SOUTH);
 
         loadCampaignData(model);
 
@@ -762,25 +977,21 @@ public class JewelryManagementUI extends JFrame {
         return panel;
     }
 
-    private void loadCampaignData(DefaultTableModel model) {
-        model.setRowCount(0);
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery("SELECT * FROM Campaign ORDER BY CampaignID")) {
-
-            while (rs.next()) {
-                model.addRow(new Object[] {
+    private KeysetPager campaignPager() {
+        return new KeysetPager(POOL, PAGE_WORKERS, "SELECT * FROM Campaign", "Campaign", true,
+                rs -> new Object[] {
                         rs.getInt("CampaignID"),
                         rs.getString("Name"),
                         rs.getString("Type"),
                         rs.getDouble("Discount") + "%",
                         rs.getDate("StartDate"),
                         rs.getDate("EndDate")
-                });
-            }
-        } catch (SQLException e) {
-            showError("Error loading campaigns: " + e.getMessage());
-        }
+                },
+                KeysetPager.Key.asc("CampaignID", "CampaignID"));
+    }
+
+    private void loadCampaignData(DefaultTableModel model) {
+        pagedTables.get(model).reload();
     }
 
     private void showAddCampaignDialog(DefaultTableModel model) {
@@ -813,7 +1024,7 @@ public class JewelryManagementUI extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
 
         saveBtn.addActionListener(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            try (Connection conn = POOL.getConnection();
                     PreparedStatement pstmt = conn.prepareStatement(
                             "INSERT INTO Campaign (CampaignID, Name, Type, Discount, StartDate, EndDate) VALUES (?, ?, ?, ?, ?, ?)")) {
 
@@ -825,6 +1036,8 @@ public class JewelryManagementUI extends JFrame {
                 pstmt.setDate(6, Date.valueOf(endField.getText()));
 
                 pstmt.executeUpdate();
+                ResultCache.shared().invalidateTable("Campaign");
+                COUNTERS.campaignAdded();
                 showSuccess("Campaign added successfully!");
                 loadCampaignData(model);
                 dialog.dispose();
@@ -858,9 +1071,11 @@ public class JewelryManagementUI extends JFrame {
         buttonPanel.setBackground(BG_COLOR);
 
         JButton addBtn = createActionButton("Add Transaction", SUCCESS_COLOR);
+        JButton importBtn = createActionButton("Import File", SECONDARY_COLOR);
         JButton refreshBtn = createActionButton("Refresh", PRIMARY_COLOR);
 
         buttonPanel.add(addBtn);
+        buttonPanel.add(importBtn);
         buttonPanel.add(refreshBtn);
 
         headerPanel.add(buttonPanel, BorderLayout.EAST);
@@ -879,30 +1094,61 @@ public class JewelryManagementUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(new PagedTable(model, scrollPane, businessPager()).footer, BorderLayout.SOUTH);
 
         loadBusinessData(model);
 
         addBtn.addActionListener(e -> showAddTransactionDialog(model));
+        importBtn.addActionListener(e -> importTransactions(model, importBtn));
         refreshBtn.addActionListener(e -> loadBusinessData(model));
 
         return panel;
     }
 
-    private void loadBusinessData(DefaultTableModel model) {
-        model.setRowCount(0);
+    // Bulk import a CSV/JSON transaction file in the background on a dedicated connection
+    private void importTransactions(DefaultTableModel model, JButton importBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Transaction files (CSV, JSON)",
+                "csv", "json", "jsonl", "ndjson"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        importBtn.setEnabled(false);
+        IMPORT_WORKER.submit(() -> {
+            try (Connection conn = DriverManager.getConnection(BusinessImporter.withBatchRewrite(DB_URL), USER, PASS)) {
+                return new BusinessImporter(conn).importFile(file);
+            } catch (IOException e) {
+                throw new SQLException("Could not read " + file + ": " + e.getMessage(), e);
+            }
+        }).whenComplete((report, error) -> SwingUtilities.invokeLater(() -> {
+            importBtn.setEnabled(true);
+            if (error != null) {
+                // Chunks committed before the failure are in Business
+                COUNTERS.reconcileSoon();
+                loadBusinessData(model);
+                showError("Error importing transactions: " + QueryRunner.rootCause(error).getMessage());
+                return;
+            }
+            if (report.getImported() > 0) {
+                COUNTERS.reconcileSoon();
+                loadBusinessData(model);
+            }
+            showSuccess(report.toString());
+        }));
+    }
+
+    // Newest first; Business has no key of its own, so rows are ordered (and paged) by
+    // date, product and customer, with ties kept together by the pager
+    private KeysetPager businessPager() {
         String query = "SELECT b.ProductID, p.Name, b.CustomerID, c.Name as CustomerName, " +
                 "b.PDate, b.Qty, b.PAmount " +
                 "FROM Business b " +
                 "JOIN Product p ON b.ProductID = p.ProductID " +
-                "JOIN Customer c ON b.CustomerID = c.CustomerID " +
-                "ORDER BY b.PDate DESC";
+                "JOIN Customer c ON b.CustomerID = c.CustomerID";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-
-            while (rs.next()) {
-                model.addRow(new Object[] {
+        return new KeysetPager(POOL, PAGE_WORKERS, query, "Business", false,
+                rs -> new Object[] {
                         rs.getInt("ProductID"),
                         rs.getString("Name"),
                         rs.getInt("CustomerID"),
@@ -910,11 +1156,14 @@ public class JewelryManagementUI extends JFrame {
                         rs.getDate("PDate"),
                         rs.getInt("Qty"),
                         "₹" + String.format("%.2f", rs.getDouble("PAmount"))
-                });
-            }
-        } catch (SQLException e) {
-            showError("Error loading transactions: " + e.getMessage());
-        }
+                },
+                KeysetPager.Key.desc("b.PDate", "PDate").nullable(),
+                KeysetPager.Key.desc("b.ProductID", "ProductID"),
+                KeysetPager.Key.desc("b.CustomerID", "CustomerID"));
+    }
+
+    private void loadBusinessData(DefaultTableModel model) {
+        pagedTables.get(model).reload();
     }
 
     private void showAddTransactionDialog(DefaultTableModel model) {
@@ -941,7 +1190,7 @@ public class JewelryManagementUI extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
 
         saveBtn.addActionListener(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            try (Connection conn = POOL.getConnection();
                     PreparedStatement pstmt = conn.prepareStatement(
                             "INSERT INTO Business (ProductID, CustomerID, PDate, Qty) VALUES (?, ?, ?, ?)")) {
 
@@ -951,6 +1200,9 @@ public class JewelryManagementUI extends JFrame {
                 pstmt.setInt(4, Integer.parseInt(qtyField.getText()));
 
                 pstmt.executeUpdate();
+                ResultCache.shared().invalidateTable("Business");
+                COUNTERS.transactionAdded(conn, Integer.parseInt(productField.getText()),
+                        Integer.parseInt(qtyField.getText()));
                 showSuccess("Transaction added successfully!");
                 loadBusinessData(model);
                 dialog.dispose();
@@ -1007,14 +1259,14 @@ public class JewelryManagementUI extends JFrame {
         panel.add(menuPanel, BorderLayout.CENTER);
 
         // Button actions
-        topCustomersBtn.addActionListener(e -> showTopCustomers());
-        revenueCategoryBtn.addActionListener(e -> showRevenueByCategory());
-        revenuePlatformBtn.addActionListener(e -> showRevenueByPlatform());
-        topSellingBtn.addActionListener(e -> showTopSellingByRegion());
-        campaignROIBtn.addActionListener(e -> showCampaignROI());
-        avgPriceBtn.addActionListener(e -> showAvgPricePerCategory());
-        qtySoldBtn.addActionListener(e -> showQuantitySold());
-        topSearchedBtn.addActionListener(e -> showTopSearched());
+        topCustomersBtn.addActionListener(e -> showReport("Q10"));
+        revenueCategoryBtn.addActionListener(e -> showReport("Q14"));
+        revenuePlatformBtn.addActionListener(e -> showReport("Q03"));
+        topSellingBtn.addActionListener(e -> showReport("Q13"));
+        campaignROIBtn.addActionListener(e -> showReport("Q26"));
+        avgPriceBtn.addActionListener(e -> showReport("Q12"));
+        qtySoldBtn.addActionListener(e -> showReport("Q11"));
+        topSearchedBtn.addActionListener(e -> showReport("Q01"));
 
         return panel;
     }
@@ -1043,110 +1295,15 @@ public class JewelryManagementUI extends JFrame {
         return btn;
     }
 
-    private void showTopCustomers() {
-        String query = "SELECT c.CustomerID, c.Name AS CustomerName, " +
-                "SUM(b.Qty * p.Price) AS TotalSpent " +
-                "FROM Customer c " +
-                "JOIN Business b ON c.CustomerID = b.CustomerID " +
-                "JOIN Product p ON b.ProductID = p.ProductID " +
-                "GROUP BY c.CustomerID, c.Name " +
-                "ORDER BY TotalSpent DESC LIMIT 5";
-
-        showAnalyticsResult(query, new String[] { "Customer ID", "Name", "Total Spent" },
-                "Top 5 Customers by Spending");
-    }
-
-    private void showRevenueByCategory() {
-        String query = "SELECT p.Category, SUM(b.Qty * p.Price) AS TotalRevenue " +
-                "FROM Product p " +
-                "JOIN Business b ON p.ProductID = b.ProductID " +
-                "GROUP BY p.Category " +
-                "ORDER BY TotalRevenue DESC";
-
-        showAnalyticsResult(query, new String[] { "Category", "Total Revenue" }, "Revenue by Category");
-    }
-
-    private void showRevenueByPlatform() {
-        String query = "SELECT Platform, SUM(Revenue) AS Total_Revenue " +
-                "FROM Ads " +
-                "GROUP BY Platform " +
-                "ORDER BY Total_Revenue DESC";
-
-        showAnalyticsResult(query, new String[] { "Platform", "Total Revenue" }, "Revenue by Platform");
-    }
-
-    private void showTopSellingByRegion() {
-        String query = "SELECT RegionName, ProductName, TotalSold FROM (" +
-                "SELECT r.Region AS RegionName, p.Name AS ProductName, " +
-                "SUM(b.Qty) AS TotalSold, " +
-                "RANK() OVER (PARTITION BY r.Region ORDER BY SUM(b.Qty) DESC) AS rank_in_region " +
-                "FROM Regional_info r " +
-                "JOIN Customer c ON r.City = c.City " +
-                "JOIN Business b ON b.CustomerID = c.CustomerID " +
-                "JOIN Product p ON b.ProductID = p.ProductID " +
-                "GROUP BY r.Region, p.Name) ranked " +
-                "WHERE rank_in_region <= 5";
-
-        showAnalyticsResult(query, new String[] { "Region", "Product", "Total Sold" },
-                "Top Selling Products by Region");
-    }
-
-    private void showCampaignROI() {
-        String query = "SELECT c.CampaignID, c.Name AS CampaignName, " +
-                "SUM(a.Revenue) AS TotalRevenue, SUM(a.Cost) AS TotalCost, " +
-                "ROUND((SUM(a.Revenue) - SUM(a.Cost)) / NULLIF(SUM(a.Cost), 0) * 100, 2) AS ROI " +
-                "FROM Campaign c " +
-                "JOIN Ads_Campaign ac ON c.CampaignID = ac.CampaignID " +
-                "JOIN Ads a ON a.AdsID = ac.AdsID AND a.Platform = ac.Platform " +
-                "GROUP BY c.CampaignID, c.Name " +
-                "ORDER BY ROI DESC LIMIT 5";
-
-        showAnalyticsResult(query, new String[] { "ID", "Campaign", "Revenue", "Cost", "ROI %" },
-                "Campaign ROI Analysis");
-    }
-
-    private void showAvgPricePerCategory() {
-        String query = "SELECT Category, ROUND(AVG(Price), 2) AS AvgPrice " +
-                "FROM Product " +
-                "GROUP BY Category " +
-                "ORDER BY AvgPrice DESC";
-
-        showAnalyticsResult(query, new String[] { "Category", "Average Price" }, "Average Price per Category");
-    }
-
-    private void showQuantitySold() {
-        String query = "SELECT p.ProductID, p.Name AS ProductName, SUM(b.Qty) AS TotalSold " +
-                "FROM Product p " +
-                "JOIN Business b ON p.ProductID = b.ProductID " +
-                "GROUP BY p.ProductID, p.Name " +
-                "ORDER BY TotalSold DESC";
-
-        showAnalyticsResult(query, new String[] { "Product ID", "Product Name", "Total Sold" },
-                "Total Quantity Sold per Product");
-    }
-
-    private void showTopSearched() {
-        String query = "SELECT * FROM (" +
-                "SELECT a.AgeGroup, p.ProductID, p.Name AS ProductName, " +
-                "SUM(a.Impressions) AS Total_Impressions, " +
-                "RANK() OVER (PARTITION BY a.AgeGroup ORDER BY SUM(a.Impressions) DESC) AS rnk " +
-                "FROM Ads a " +
-                "JOIN Products_Ads pa ON a.AdsID = pa.AdsID AND a.Platform = pa.Platform " +
-                "JOIN Product p ON pa.ProductID = p.ProductID " +
-                "GROUP BY a.AgeGroup, p.ProductID, p.Name) ranked " +
-                "WHERE rnk = 1";
-
-        showAnalyticsResult(query, new String[] { "Age Group", "Product ID", "Product Name", "Impressions" },
-                "Top Searched Products by Age Group");
-    }
-
-    private void showAnalyticsResult(String query, String[] columns, String title) {
-        JDialog dialog = new JDialog(this, title, true);
+    // Show a report from the shared registry (reports.properties), formatted per its column definitions
+    private void showReport(String reportId) {
+        ReportRegistry.Report report = REPORTS.get(reportId);
+        JDialog dialog = new JDialog(this, report.getTitle(), true);
         dialog.setSize(800, 500);
         dialog.setLocationRelativeTo(this);
         dialog.setLayout(new BorderLayout());
 
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+        DefaultTableModel model = new DefaultTableModel(report.getColumnLabels(), 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false;
@@ -1157,24 +1314,10 @@ public class JewelryManagementUI extends JFrame {
         styleTable(table);
         JScrollPane scrollPane = new JScrollPane(table);
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-
-            ResultSetMetaData rsmd = rs.getMetaData();
-            int columnCount = rsmd.getColumnCount();
-
-            while (rs.next()) {
-                Object[] row = new Object[columnCount];
-                for (int i = 1; i <= columnCount; i++) {
-                    Object value = rs.getObject(i);
-                    if (value instanceof Double) {
-                        row[i - 1] = "₹" + String.format("%.2f", (Double) value);
-                    } else {
-                        row[i - 1] = value;
-                    }
-                }
-                model.addRow(row);
+        try {
+            QueryResult result = REPORTS.run(reportId);
+            for (int row = 0; row < result.getRowCount(); row++) {
+                model.addRow(report.formatRow(result, row));
             }
         } catch (SQLException e) {
             showError("Error loading analytics: " + e.getMessage());
@@ -1231,6 +1374,7 @@ public class JewelryManagementUI extends JFrame {
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
         panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(new PagedTable(model, scrollPane, adPager()).footer, BorderLayout.SOUTH);
 
         loadAdData(model);
 
@@ -1241,18 +1385,13 @@ public class JewelryManagementUI extends JFrame {
         return panel;
     }
 
-    private void loadAdData(DefaultTableModel model) {
-        model.setRowCount(0);
+    private KeysetPager adPager() {
         String query = "SELECT AdsID, Platform, AgeGroup, Impressions, Conversions, Revenue, Cost, " +
                 "ROUND((Revenue - Cost) / NULLIF(Cost, 0) * 100, 2) AS ROI " +
-                "FROM Ads ORDER BY AdsID";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
+                "FROM Ads";
 
-            while (rs.next()) {
-                model.addRow(new Object[] {
+        return new KeysetPager(POOL, PAGE_WORKERS, query, "Ads", true,
+                rs -> new Object[] {
                         rs.getInt("AdsID"),
                         rs.getString("Platform"),
                         rs.getString("AgeGroup"),
@@ -1261,11 +1400,13 @@ public class JewelryManagementUI extends JFrame {
                         "₹" + String.format("%.2f", rs.getDouble("Revenue")),
                         "₹" + String.format("%.2f", rs.getDouble("Cost")),
                         String.format("%.2f", rs.getDouble("ROI")) + "%"
-                });
-            }
-        } catch (SQLException e) {
-            showError("Error loading ads: " + e.getMessage());
-        }
+                },
+                KeysetPager.Key.asc("AdsID", "AdsID"),
+                KeysetPager.Key.asc("Platform", "Platform").nullable());
+    }
+
+    private void loadAdData(DefaultTableModel model) {
+        pagedTables.get(model).reload();
     }
 
     private void showAddAdDialog(DefaultTableModel model) {
@@ -1301,7 +1442,7 @@ public class JewelryManagementUI extends JFrame {
         JButton cancelBtn = new JButton("Cancel");
 
         saveBtn.addActionListener(e -> {
-            try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+            try (Connection conn = POOL.getConnection();
                     PreparedStatement pstmt = conn.prepareStatement(
                             "INSERT INTO Ads (AdsID, Platform, AgeGroup, Impressions, Conversions, Revenue, Cost) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
 
@@ -1314,6 +1455,7 @@ public class JewelryManagementUI extends JFrame {
                 pstmt.setDouble(7, Double.parseDouble(costField.getText()));
 
                 pstmt.executeUpdate();
+                ResultCache.shared().invalidateTable("Ads");
                 showSuccess("Advertisement added successfully!");
                 loadAdData(model);
                 dialog.dispose();
@@ -1332,6 +1474,7 @@ public class JewelryManagementUI extends JFrame {
     }
 
     private void showAdsAtLoss(DefaultTableModel model) {
+        pagedTables.get(model).stop("Ads at a loss");
         model.setRowCount(0);
         String query = "SELECT AdsID, Platform, AgeGroup, Impressions, Conversions, Revenue, Cost, " +
                 "ROUND((Revenue - Cost) / NULLIF(Cost, 0) * 100, 2) AS ROI " +
@@ -1339,7 +1482,7 @@ public class JewelryManagementUI extends JFrame {
                 "WHERE Revenue < Cost " +
                 "ORDER BY ROI ASC";
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+        try (Connection conn = POOL.getConnection();
                 Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(query)) {
 
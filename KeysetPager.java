@@ -0,0 +1,334 @@
+package mini_project_dbms;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// Reads a query one page at a time by keyset: each page continues after the key of the previous
+// page's last row (WHERE key > ? ORDER BY key LIMIT n), so page k costs the same as page 1 and the
+// database never counts or skips the rows before it. The next page is prefetched in the background
+// as soon as the current one arrives, so scrolling on rarely waits for a round trip.
+//
+// The base query is a SELECT ... FROM ... [JOIN ...] without WHERE/ORDER BY; the keys are columns of
+// it, each ascending or descending. If the keys are not unique, ties with the last row of a page are
+// pulled into that page so no row is skipped or repeated.
+//
+// A key column that can hold NULL must be declared nullable(): NULLs sort as the lowest value (first
+// ascending, last descending, as in MySQL), and since "k > ?" is never true for a NULL k or a NULL
+// bound, the page predicates spell those cases out with IS NULL. A NULL read from a key that was not
+// declared nullable fails the page instead of silently ending the listing there.
+public class KeysetPager {
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("vulcynyx.keyset.pageSize", 500);
+    // Below this many rows (by the estimate) an exact COUNT(*) is cheap enough to run instead
+    private static final long EXACT_COUNT_BELOW = Long.getLong("vulcynyx.keyset.exactCountBelow", 100_000L);
+
+    @FunctionalInterface
+    public interface RowMapper {
+        Object[] map(ResultSet rs) throws SQLException;
+    }
+
+    // One ordering column: the expression used in SQL and the label it is read back by
+    public static final class Key {
+        final String column;
+        final String label;
+        final boolean descending;
+        final boolean nullable;
+
+        private Key(String column, String label, boolean descending, boolean nullable) {
+            this.column = column;
+            this.label = label;
+            this.descending = descending;
+            this.nullable = nullable;
+        }
+
+        public static Key asc(String column, String label) {
+            return new Key(column, label, false, false);
+        }
+
+        public static Key desc(String column, String label) {
+            return new Key(column, label, true, false);
+        }
+
+        // The same key, for a column that may hold NULL
+        public Key nullable() {
+            return new Key(column, label, descending, true);
+        }
+    }
+
+    // Total row count, either exact or the storage engine's estimate
+    public static final class RowCount {
+        final long rows;
+        final boolean exact;
+
+        RowCount(long rows, boolean exact) {
+            this.rows = rows;
+            this.exact = exact;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public String toString() {
+            return (exact ? "" : "~") + String.format("%,d", rows);
+        }
+    }
+
+    private static final class Page {
+        static final Page END = new Page(Collections.emptyList(), null, true);
+
+        final List<Object[]> rows;
+        final Object[] lastKey;
+        final boolean last;
+
+        Page(List<Object[]> rows, Object[] lastKey, boolean last) {
+            this.rows = rows;
+            this.lastKey = lastKey;
+            this.last = last;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final QueryRunner runner;
+    private final String select;
+    private final String countTable;
+    private final Key[] keys;
+    private final boolean uniqueKey;
+    private final RowMapper mapper;
+    private final String orderBy;
+
+    // Guarded by this
+    private int pageSize;
+    private CompletableFuture<Page> next;
+    private boolean exhausted;
+    private int delivered;
+    private long generation;
+
+    public KeysetPager(ConnectionPool pool, QueryRunner runner, String select, String countTable,
+                       boolean uniqueKey, RowMapper mapper, Key... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("at least one key column is required");
+        }
+        this.pool = pool;
+        this.runner = runner;
+        this.select = select;
+        this.countTable = countTable;
+        this.keys = keys;
+        this.uniqueKey = uniqueKey;
+        this.mapper = mapper;
+        this.pageSize = DEFAULT_PAGE_SIZE;
+
+        StringJoiner order = new StringJoiner(", ", " ORDER BY ", "");
+        for (Key key : keys) {
+            order.add(key.column + (key.descending ? " DESC" : ""));
+        }
+        this.orderBy = order.toString();
+    }
+
+    public synchronized int getPageSize() {
+        return pageSize;
+    }
+
+    // Takes effect from the next reset()
+    public synchronized void setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be >= 1");
+        }
+        this.pageSize = pageSize;
+    }
+
+    // Start again from the first page, dropping anything prefetched
+    public synchronized void reset() {
+        next = null;
+        exhausted = false;
+        delivered = 0;
+        generation++;
+    }
+
+    // Rows handed out since the last reset
+    public synchronized int getDelivered() {
+        return delivered;
+    }
+
+    public synchronized boolean hasMore() {
+        return !exhausted;
+    }
+
+    // The next page of mapped rows (empty once exhausted). Completes on a worker thread;
+    // as soon as it does, the page after it starts loading.
+    public synchronized CompletableFuture<List<Object[]>> nextPage() {
+        if (next == null) {
+            next = fetch(null, pageSize);
+        }
+        CompletableFuture<Page> current = next;
+        int size = pageSize;
+        long requested = generation;
+        next = current.thenCompose(page -> page.last
+            ? CompletableFuture.completedFuture(Page.END)
+            : fetch(page.lastKey, size));
+        return current.thenApply(page -> {
+            synchronized (this) {
+                if (generation == requested) {
+                    exhausted |= page.last;
+                    delivered += page.rows.size();
+                }
+            }
+            return page.rows;
+        });
+    }
+
+    // Estimated total: information_schema's row estimate for the table, or an exact COUNT(*) when
+    // the table is small or no estimate is available
+    public CompletableFuture<RowCount> estimateTotal() {
+        return runner.submit(() -> {
+            try (Connection conn = pool.getConnection()) {
+                long estimate = -1;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+                    ps.setString(1, countTable);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next() && rs.getObject(1) != null) {
+                            estimate = rs.getLong(1);
+                        }
+                    }
+                } catch (SQLException e) {
+                    // no information_schema row estimate on this database
+                }
+                if (estimate >= EXACT_COUNT_BELOW) {
+                    return new RowCount(estimate, false);
+                }
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + countTable)) {
+                    rs.next();
+                    return new RowCount(rs.getLong(1), true);
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<Page> fetch(Object[] afterKey, int size) {
+        return runner.submit(() -> {
+            try (Connection conn = pool.getConnection()) {
+                return readPage(conn, afterKey, size);
+            }
+        });
+    }
+
+    // SQL for the page after afterKey (the first page if null); its parameters are added to params
+    String pageSql(Object[] afterKey, int size, List<Object> params) {
+        if (afterKey == null) {
+            return select + orderBy + " LIMIT " + size;
+        }
+        // (k0 > ?) OR (k0 = ? AND k1 > ?) OR ...; expanded rather than a row comparison,
+        // which MySQL does not always resolve with an index range. A term that can never
+        // match (nothing sorts after a NULL descending key) is left out.
+        StringJoiner after = new StringJoiner(" OR ", " WHERE ", "");
+        after.setEmptyValue(" WHERE 1 = 0");
+        for (int i = 0; i < keys.length; i++) {
+            List<Object> termParams = new ArrayList<>();
+            String beyond = beyond(keys[i], afterKey[i], termParams);
+            if (beyond == null) {
+                continue;
+            }
+            StringJoiner term = new StringJoiner(" AND ", "(", ")");
+            List<Object> prefixParams = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                term.add(equal(keys[j], afterKey[j], prefixParams));
+            }
+            term.add(beyond);
+            after.add(term.toString());
+            params.addAll(prefixParams);
+            params.addAll(termParams);
+        }
+        return select + after + orderBy + " LIMIT " + size;
+    }
+
+    // SQL for every row whose key equals key; its parameters are added to params
+    String tieSql(Object[] key, List<Object> params) {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "");
+        for (int i = 0; i < keys.length; i++) {
+            where.add(equal(keys[i], key[i], params));
+        }
+        return select + where + orderBy;
+    }
+
+    // Condition for key sorting strictly after value, or null if nothing does
+    private static String beyond(Key key, Object value, List<Object> params) {
+        if (value == null) {
+            // NULL is the lowest value: everything else follows it ascending, nothing descending
+            return key.descending ? null : key.column + " IS NOT NULL";
+        }
+        params.add(value);
+        if (key.descending) {
+            return key.nullable ? "(" + key.column + " < ? OR " + key.column + " IS NULL)" : key.column + " < ?";
+        }
+        return key.column + " > ?";
+    }
+
+    private static String equal(Key key, Object value, List<Object> params) {
+        if (value == null) {
+            return key.column + " IS NULL";
+        }
+        params.add(value);
+        return key.column + " = ?";
+    }
+
+    private Page readPage(Connection conn, Object[] afterKey, int size) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(size);
+        List<Object[]> rowKeys = new ArrayList<>(size);
+        List<Object> params = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(pageSql(afterKey, size, params))) {
+            bind(ps, params);
+            read(ps, rows, rowKeys);
+        }
+        if (rows.isEmpty()) {
+            return Page.END;
+        }
+        boolean last = rows.size() < size;
+        Object[] lastKey = rowKeys.get(rowKeys.size() - 1);
+        if (!last && !uniqueKey) {
+            // The next page starts strictly after lastKey, so take the whole tie group here
+            int keep = rows.size();
+            while (keep > 0 && Arrays.equals(rowKeys.get(keep - 1), lastKey)) {
+                keep--;
+            }
+            rows.subList(keep, rows.size()).clear();
+            rowKeys.subList(keep, rowKeys.size()).clear();
+            params.clear();
+            try (PreparedStatement ps = conn.prepareStatement(tieSql(lastKey, params))) {
+                bind(ps, params);
+                read(ps, rows, rowKeys);
+            }
+        }
+        return new Page(rows, lastKey, last);
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private void read(PreparedStatement ps, List<Object[]> rows, List<Object[]> rowKeys) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Object[] key = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    key[i] = rs.getObject(keys[i].label);
+                    if (key[i] == null && !keys[i].nullable) {
+                        throw new SQLException("Key column " + keys[i].column +
+                            " returned NULL; declare it with Key.nullable()");
+                    }
+                }
+                rowKeys.add(key);
+                rows.add(mapper.map(rs));
+            }
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package mini_project_dbms;
+
+import java.sql.*;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Summary tables standing in for the reporting views (Campaign_ROI, TrendingProducts,
+// CampaignReportsPerRegion, Ad_Performance_View, LowStockAlerts), which MySQL re-evaluates on every
+// read. Each mv_* table is filled with SELECT * FROM the view itself, so it has the view's columns
+// and rows whatever the view's definition; install() recreates a table whose columns no longer match.
+//
+// Opt-in with -Dvulcynyx.mv.enabled=true, and only used once Product, Business and Ads carry the
+// UpdatedAt change timestamp (change_tracking.sql adds it); install() never alters those tables.
+// Refresh is incremental: each refresh re-reads from the view only the keys whose source rows were
+// stamped since the previous refresh's watermark, then drops rows whose source row is gone. Rows
+// are stamped when their statement runs, not when it commits, so the keys stamped in the last
+// ChangeFeed.COMMIT_LAG_MS before the watermark are re-read too; re-reading a key is harmless. A view
+// without a key column (CampaignReportsPerRegion) is rebuilt instead whenever its sources changed.
+// Changes the timestamps cannot see (campaign links, customer moves, TrendingProducts' one-month
+// window moving on) are picked up by a periodic full rebuild, and TrendingProducts is rebuilt
+// whenever the date changes. Between the periodic refreshes, changes reported by the ChangeFeed
+// trigger one early. Readers should report getStaleness() with what they show.
+public class MaterializedViews {
+    public static final String CAMPAIGN_ROI = "Campaign_ROI";
+    public static final String TRENDING_PRODUCTS = "TrendingProducts";
+    public static final String CAMPAIGN_REPORTS_PER_REGION = "CampaignReportsPerRegion";
+    public static final String AD_PERFORMANCE = "Ad_Performance_View";
+    public static final String LOW_STOCK_ALERTS = "LowStockAlerts";
+
+    private static final boolean ENABLED = Boolean.getBoolean("vulcynyx.mv.enabled");
+    private static final long REFRESH_MS = Long.getLong("vulcynyx.mv.refreshMs", 60_000L);
+    private static final long FULL_REFRESH_MS = Long.getLong("vulcynyx.mv.fullRefreshMs", 3_600_000L);
+    private static final int KEYS_PER_STATEMENT = 500;
+
+    private static final String REFRESH_LOG =
+        "CREATE TABLE mv_refresh_log (ViewName VARCHAR(64) PRIMARY KEY, Watermark TIMESTAMP(3), " +
+        "RefreshedAt TIMESTAMP(3), FullRefreshAt TIMESTAMP(3), WindowDate DATE)";
+
+    private static final String[] CHANGE_TRACKED = { "Product", "Business", "Ads" };
+
+    private static final Map<ConnectionPool, MaterializedViews> shared = new IdentityHashMap<>();
+
+    // How one view is materialized
+    private static final class View {
+        final String name;
+        final String table;
+        // Column lists to index, for the report queries and the keyed deletes
+        final String[][] indexes;
+        // Columns of the view identifying the rows a source row feeds; null when it has none
+        final String[] keyColumns;
+        // Keys whose rows may have changed since a watermark (every ? is the watermark); for a
+        // view without keys, any row means it changed
+        final String changedKeys;
+        // Removes rows whose source row no longer exists
+        final String orphans;
+        // Depends on CURRENT_DATE, so it is rebuilt when the date changes
+        final boolean dated;
+
+        View(String name, String table, String[][] indexes, String[] keyColumns, String changedKeys,
+             String orphans, boolean dated) {
+            this.name = name;
+            this.table = table;
+            this.indexes = indexes;
+            this.keyColumns = keyColumns;
+            this.changedKeys = changedKeys;
+            this.orphans = orphans;
+            this.dated = dated;
+        }
+    }
+
+    // The keys and change queries name the views' source tables as the reporting schema has them:
+    // CampaignID is Campaign's, ProductID Product's, and (AdID, Platform) is Ads' (AdsID, Platform)
+    private static final View[] VIEWS = {
+        new View(CAMPAIGN_ROI, "mv_campaign_roi",
+            new String[][] { { "CampaignID" }, { "ROI" } },
+            new String[] { "CampaignID" },
+            "SELECT DISTINCT ac.CampaignID FROM Ads a JOIN Ads_Campaign ac " +
+                "ON a.AdsID = ac.AdsID AND a.Platform = ac.Platform WHERE a.UpdatedAt > ?",
+            "DELETE FROM mv_campaign_roi WHERE NOT EXISTS " +
+                "(SELECT 1 FROM Campaign c WHERE c.CampaignID = mv_campaign_roi.CampaignID)",
+            false),
+        new View(TRENDING_PRODUCTS, "mv_trending_products",
+            new String[][] { { "ProductID" }, { "TrendStatus", "TotalRecentSales" } },
+            new String[] { "ProductID" },
+            "SELECT DISTINCT ProductID FROM Business WHERE UpdatedAt > ? " +
+                "UNION SELECT ProductID FROM Product WHERE UpdatedAt > ?",
+            "DELETE FROM mv_trending_products WHERE NOT EXISTS " +
+                "(SELECT 1 FROM Product p WHERE p.ProductID = mv_trending_products.ProductID)",
+            true),
+        new View(CAMPAIGN_REPORTS_PER_REGION, "mv_campaign_reports_per_region",
+            new String[][] { { "Region" } },
+            null,
+            "SELECT 1 FROM Ads WHERE UpdatedAt > ? LIMIT 1",
+            null,
+            false),
+        new View(AD_PERFORMANCE, "mv_ad_performance",
+            new String[][] { { "AdID", "Platform" }, { "ROI" }, { "ConversionRate" } },
+            new String[] { "AdID", "Platform" },
+            "SELECT AdsID, Platform FROM Ads WHERE UpdatedAt > ?",
+            "DELETE FROM mv_ad_performance WHERE NOT EXISTS (SELECT 1 FROM Ads a " +
+                "WHERE a.AdsID = mv_ad_performance.AdID AND a.Platform = mv_ad_performance.Platform)",
+            false),
+        new View(LOW_STOCK_ALERTS, "mv_low_stock_alerts",
+            new String[][] { { "ProductID" }, { "RemainingStock" } },
+            new String[] { "ProductID" },
+            "SELECT ProductID FROM Product WHERE UpdatedAt > ?",
+            "DELETE FROM mv_low_stock_alerts WHERE NOT EXISTS " +
+                "(SELECT 1 FROM Product p WHERE p.ProductID = mv_low_stock_alerts.ProductID)",
+            false)
+    };
+
+    // Refresh state of one view, as persisted in mv_refresh_log
+    private static final class State {
+        Timestamp watermark;
+        Instant refreshedAt;
+        Timestamp fullRefreshAt;
+        LocalDate windowDate;
+    }
+
+    private final ConnectionPool pool;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    // Views whose key columns the summary table has, so they can be refreshed by key
+    private final Set<String> keyed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService refresher;
+    private final Object refreshLock = new Object();
+    private volatile boolean ready;
+    private boolean started;
+    // A feed-triggered refresh is queued and has not started yet
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    // Guarded by this
+    private long refreshes;
+    private long rowsRecomputed;
+    private long lastRefreshMillis;
+
+    public MaterializedViews(ConnectionPool pool) {
+        this.pool = pool;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mv-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Materialized views shared by every front end in this JVM that uses the same pool
+    public static synchronized MaterializedViews shared(ConnectionPool pool) {
+        return shared.computeIfAbsent(pool, MaterializedViews::new);
+    }
+
+    // Install (first time only) and bring the tables up to date in the background, then keep
+    // refreshing them; until the first refresh finishes readers should use the views themselves
+    public synchronized void start() {
+        if (!ENABLED || started) {
+            return;
+        }
+        started = true;
+        refresher.execute(() -> {
+            try {
+                install();
+                refresh();
+                ready = true;
+            } catch (SQLException e) {
+                System.err.println("Materialized views unavailable, reading the views directly: " + e.getMessage());
+            }
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            if (ready) {
+                refreshQuietly();
+            }
+        }, REFRESH_MS, REFRESH_MS, TimeUnit.MILLISECONDS);
+        ChangeFeed feed = ChangeFeed.shared(pool);
+        feed.subscribe(changes -> {
+            if (ready && refreshQueued.compareAndSet(false, true)) {
+                refresher.execute(() -> {
+                    refreshQueued.set(false);
+                    refreshQuietly();
+                });
+            }
+        });
+        feed.start();
+    }
+
+    // True once the mv_* tables exist and have been filled
+    public boolean isReady() {
+        return ready;
+    }
+
+    // How far behind its sources a view may be: time since its last refresh started
+    public Duration getStaleness(String view) {
+        State state = states.get(view);
+        if (state == null || state.refreshedAt == null) {
+            return null;
+        }
+        return Duration.between(state.refreshedAt, Instant.now());
+    }
+
+    // Refresh on the refresher thread as soon as possible, e.g. after a bulk load
+    public void refreshSoon() {
+        if (ready) {
+            refresher.execute(this::refreshQuietly);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (SQLException e) {
+            System.err.println("Materialized view refresh failed: " + e.getMessage());
+        }
+    }
+
+    // Create the refresh log and the summary tables if missing, recreating a table whose columns no
+    // longer match its view's; fails, leaving the views in use, when the change timestamps are missing
+    public void install() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String table : CHANGE_TRACKED) {
+                if (!hasColumn(conn, table, "UpdatedAt")) {
+                    throw new SQLException(table + " has no UpdatedAt change timestamp; apply change_tracking.sql");
+                }
+            }
+            if (!hasTable(conn, "mv_refresh_log")) {
+                stmt.executeUpdate(REFRESH_LOG);
+            }
+            Set<String> rebuilt = new HashSet<>();
+            for (View view : VIEWS) {
+                if (hasTable(conn, view.table)) {
+                    if (columns(conn, view.table).equals(columns(conn, view.name))) {
+                        continue;
+                    }
+                    System.out.println("Recreating " + view.table + " to match " + view.name);
+                    stmt.executeUpdate("DROP TABLE " + view.table);
+                    rebuilt.add(view.name);
+                }
+                stmt.executeUpdate("CREATE TABLE " + view.table + " AS SELECT * FROM " + view.name + " WHERE 1 = 0");
+                for (String[] index : view.indexes) {
+                    stmt.executeUpdate("CREATE INDEX idx_" + view.table + "_" +
+                        String.join("_", index).toLowerCase() + " ON " + view.table +
+                        " (" + String.join(", ", index) + ")");
+                }
+            }
+            for (View view : VIEWS) {
+                if (view.keyColumns != null && columns(conn, view.table).containsAll(lower(view.keyColumns))) {
+                    keyed.add(view.name);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT ViewName, Watermark, RefreshedAt, FullRefreshAt, WindowDate FROM mv_refresh_log")) {
+                while (rs.next()) {
+                    if (rebuilt.contains(rs.getString(1))) {
+                        continue;
+                    }
+                    State state = new State();
+                    state.watermark = rs.getTimestamp(2);
+                    Timestamp refreshedAt = rs.getTimestamp(3);
+                    state.refreshedAt = refreshedAt == null ? null : refreshedAt.toInstant();
+                    state.fullRefreshAt = rs.getTimestamp(4);
+                    Date windowDate = rs.getDate(5);
+                    state.windowDate = windowDate == null ? null : windowDate.toLocalDate();
+                    states.put(rs.getString(1), state);
+                }
+            }
+        }
+    }
+
+    // Bring every view up to date: incrementally where possible, fully when never built, when the
+    // full-rebuild interval has passed, or (for dated views) when the date has changed
+    public void refresh() throws SQLException {
+        synchronized (refreshLock) {
+            refreshAll();
+        }
+    }
+
+    private void refreshAll() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            Timestamp now;
+            LocalDate today;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP(3), CURRENT_DATE")) {
+                rs.next();
+                now = rs.getTimestamp(1);
+                today = rs.getDate(2).toLocalDate();
+            }
+            Timestamp watermark = now;
+            Instant refreshedAt = Instant.now();
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (View view : VIEWS) {
+                    State state = states.get(view.name);
+                    boolean full = state == null || state.watermark == null
+                        || state.fullRefreshAt == null
+                        || now.getTime() - state.fullRefreshAt.getTime() >= FULL_REFRESH_MS
+                        || (view.dated && !today.equals(state.windowDate));
+                    long rows = full ? rebuild(conn, view) : update(conn, view,
+                        new Timestamp(state.watermark.getTime() - ChangeFeed.COMMIT_LAG_MS));
+                    State next = new State();
+                    next.watermark = watermark;
+                    next.refreshedAt = refreshedAt;
+                    next.fullRefreshAt = full ? now : state.fullRefreshAt;
+                    next.windowDate = today;
+                    saveState(conn, view.name, next);
+                    conn.commit();
+                    states.put(view.name, next);
+                    if (rows > 0) {
+                        ResultCache.shared().invalidateTable(view.table);
+                    }
+                    synchronized (this) {
+                        rowsRecomputed += rows;
+                    }
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        synchronized (this) {
+            refreshes++;
+            lastRefreshMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    private static long rebuild(Connection conn, View view) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + view.table);
+            return stmt.executeUpdate("INSERT INTO " + view.table + " SELECT * FROM " + view.name);
+        }
+    }
+
+    // Re-read from the view the rows for keys changed since the watermark, then drop orphans; a
+    // view without keys is rebuilt if anything changed
+    private long update(Connection conn, View view, Timestamp since) throws SQLException {
+        boolean byKey = keyed.contains(view.name);
+        List<Object[]> keys = new ArrayList<>();
+        boolean changed = false;
+        try (PreparedStatement ps = conn.prepareStatement(view.changedKeys)) {
+            int params = (int) view.changedKeys.chars().filter(c -> c == '?').count();
+            for (int i = 1; i <= params; i++) {
+                ps.setTimestamp(i, since);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    changed = true;
+                    if (!byKey) {
+                        break;
+                    }
+                    Object[] key = new Object[view.keyColumns.length];
+                    for (int i = 0; i < key.length; i++) {
+                        key[i] = rs.getObject(i + 1);
+                    }
+                    keys.add(key);
+                }
+            }
+        }
+        if (!byKey) {
+            return changed ? rebuild(conn, view) : 0;
+        }
+        long rows = 0;
+        for (int from = 0; from < keys.size(); from += KEYS_PER_STATEMENT) {
+            List<Object[]> chunk = keys.subList(from, Math.min(keys.size(), from + KEYS_PER_STATEMENT));
+            String in = keyIn(view.keyColumns, chunk.size());
+            rows += executeForKeys(conn, "DELETE FROM " + view.table + " WHERE " + in, chunk);
+            rows += executeForKeys(conn, "INSERT INTO " + view.table + " SELECT * FROM " + view.name +
+                " WHERE " + in, chunk);
+        }
+        try (Statement stmt = conn.createStatement()) {
+            rows += stmt.executeUpdate(view.orphans);
+        }
+        return rows;
+    }
+
+    // "k IN (?, ?)" or, for composite keys, "(k1 = ? AND k2 = ?) OR ..." in parentheses
+    private static String keyIn(String[] columns, int count) {
+        StringJoiner in = new StringJoiner(columns.length == 1 ? ", " : " OR ",
+            columns.length == 1 ? columns[0] + " IN (" : "(", ")");
+        for (int i = 0; i < count; i++) {
+            if (columns.length == 1) {
+                in.add("?");
+            } else {
+                StringJoiner match = new StringJoiner(" AND ", "(", ")");
+                for (String column : columns) {
+                    match.add(column + " = ?");
+                }
+                in.add(match.toString());
+            }
+        }
+        return in.toString();
+    }
+
+    private static int executeForKeys(Connection conn, String sql, List<Object[]> keys) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int param = 1;
+            for (Object[] key : keys) {
+                for (Object value : key) {
+                    ps.setObject(param++, value);
+                }
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void saveState(Connection conn, String view, State state) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(
+                "UPDATE mv_refresh_log SET Watermark = ?, RefreshedAt = ?, FullRefreshAt = ?, WindowDate = ? " +
+                "WHERE ViewName = ?")) {
+            update.setTimestamp(1, state.watermark);
+            update.setTimestamp(2, Timestamp.from(state.refreshedAt));
+            update.setTimestamp(3, state.fullRefreshAt);
+            update.setDate(4, Date.valueOf(state.windowDate));
+            update.setString(5, view);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO mv_refresh_log (ViewName, Watermark, RefreshedAt, FullRefreshAt, WindowDate) " +
+                "VALUES (?, ?, ?, ?, ?)")) {
+            insert.setString(1, view);
+            insert.setTimestamp(2, state.watermark);
+            insert.setTimestamp(3, Timestamp.from(state.refreshedAt));
+            insert.setTimestamp(4, state.fullRefreshAt);
+            insert.setDate(5, Date.valueOf(state.windowDate));
+            insert.executeUpdate();
+        }
+    }
+
+    private static boolean hasTable(Connection conn, String table) throws SQLException {
+        DatabaseMetaData md = conn.getMetaData();
+        for (String name : new String[] { table, table.toUpperCase(), table.toLowerCase() }) {
+            try (ResultSet rs = md.getTables(conn.getCatalog(), null, name, new String[] { "TABLE" })) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData md = rs.getMetaData();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                if (md.getColumnLabel(i).equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Column labels of a table or view, lower-cased, in order
+    private static List<String> columns(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData md = rs.getMetaData();
+            List<String> columns = new ArrayList<>();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                columns.add(md.getColumnLabel(i).toLowerCase());
+            }
+            return columns;
+        }
+    }
+
+    private static List<String> lower(String[] names) {
+        List<String> lower = new ArrayList<>();
+        for (String name : names) {
+            lower.add(name.toLowerCase());
+        }
+        return lower;
+    }
+
+    public synchronized String getStats() {
+        StringBuilder sb = new StringBuilder(String.format(
+            "MaterializedViews[ready=%b, refreshes=%d, rowsRecomputed=%d, lastRefreshMs=%d]",
+            ready, refreshes, rowsRecomputed, lastRefreshMillis));
+        for (View view : VIEWS) {
+            Duration staleness = getStaleness(view.name);
+            sb.append(String.format(" %s=%s", view.name,
+                staleness == null ? "never" : staleness.getSeconds() + "s"));
+        }
+        return sb.toString();
+    }
+
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,343 @@
+package mini_project_dbms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Statement and ResultSet proxies that time each execution for QueryMetrics. ConnectionPool wraps
+// every statement its handles create, so all SQL run through the pool is measured:
+//   PREPARE  prepareStatement/prepareCall, credited to the statement's first execution only
+//   EXECUTE  the execute* call itself
+//   FETCH    time inside ResultSet.next() (and the other cursor moves), i.e. waiting for rows
+//   MAP      time between consecutive next() calls, i.e. the caller reading and converting the row
+// An execution is recorded when its ResultSet or statement is closed, or the statement runs again;
+// if it took longer than the SlowQueryLog threshold it is also logged there with its bound parameters.
+// The proxies also keep the physical objects out of the caller's hands: getConnection() returns the
+// pool handle and getStatement() the statement proxy, even when metrics are disabled.
+final class MeteredJdbc {
+    // Longer pauses between rows are a caller idling on an open cursor (a paged table), not mapping
+    private static final long MAP_GAP_LIMIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private MeteredJdbc() {
+    }
+
+    // Wrap a statement created by the pooled connection handle; sql is null for createStatement().
+    // onClose is called with the proxy when the caller closes it.
+    static Statement statement(ConnectionPool pool, Connection connection, Statement target, String sql,
+                               long prepareNanos, Consumer<Statement> onClose) {
+        Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                      : target instanceof PreparedStatement ? PreparedStatement.class
+                      : Statement.class;
+        StatementHandler handler = new StatementHandler(pool, connection, target, sql, prepareNanos, onClose);
+        Statement proxy = (Statement) Proxy.newProxyInstance(
+            MeteredJdbc.class.getClassLoader(), new Class<?>[] { type }, handler);
+        handler.proxy = proxy;
+        return proxy;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One execution being measured
+    private static final class Execution {
+        final ConnectionPool pool;
+        final String name;
+        final String sql;
+        final Object[] params;
+        final long[] phases = new long[QueryMetrics.Phase.values().length];
+        long rows;
+        long bytes;
+        long lastRowAt;
+        boolean failed;
+        private boolean finished;
+
+        Execution(ConnectionPool pool, String name, String sql, Object[] params) {
+            this.pool = pool;
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+        }
+
+        synchronized void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            QueryMetrics.shared().record(name, phases, rows, bytes, failed);
+            long elapsed = 0;
+            for (long nanos : phases) {
+                elapsed += nanos;
+            }
+            SlowQueryLog slowLog = SlowQueryLog.shared();
+            if (slowLog.isSlow(elapsed)) {
+                slowLog.record(pool, name, sql, params, phases, rows);
+            }
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private static final Object[] NO_PARAMS = new Object[0];
+
+        final ConnectionPool pool;
+        final Connection connection;
+        final Statement target;
+        final String sql;
+        final Consumer<Statement> onClose;
+        Statement proxy;
+        private String fingerprint;
+        private String batchSql;
+        private long pendingPrepare;
+        private Execution open;
+        // Values bound by index, kept for the slow-query log
+        private Object[] binds = NO_PARAMS;
+        private int bindCount;
+
+        StatementHandler(ConnectionPool pool, Connection connection, Statement target, String sql,
+                         long prepareNanos, Consumer<Statement> onClose) {
+            this.pool = pool;
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+            this.pendingPrepare = prepareNanos;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    finishOpen();
+                    onClose.accept(this.proxy);
+                    return MeteredJdbc.invoke(target, method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getConnection":
+                    return connection;
+                case "getResultSet": {
+                    ResultSet rs = (ResultSet) MeteredJdbc.invoke(target, method, args);
+                    return rs == null ? null : resultSet(rs, open);
+                }
+                case "addBatch":
+                    if (args != null && args.length == 1 && batchSql == null) {
+                        batchSql = (String) args[0];
+                    }
+                    return MeteredJdbc.invoke(target, method, args);
+                case "clearParameters":
+                    bindCount = 0;
+                    return MeteredJdbc.invoke(target, method, args);
+                default:
+                    if (name.startsWith("execute")) {
+                        return execute(method, args);
+                    }
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    Object result = MeteredJdbc.invoke(target, method, args);
+                    // e.g. getGeneratedKeys
+                    return result instanceof ResultSet ? resultSet((ResultSet) result, null) : result;
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (!QueryMetrics.ENABLED) {
+                Object result = MeteredJdbc.invoke(target, method, args);
+                return result instanceof ResultSet ? resultSet((ResultSet) result, null) : result;
+            }
+            finishOpen();
+            String text = args != null && args.length > 0 && args[0] instanceof String
+                ? (String) args[0] : sql != null ? sql : batchSql;
+            Object[] params = text == sql ? Arrays.copyOf(binds, bindCount) : NO_PARAMS;
+            Execution execution = new Execution(pool, metricName(text), text, params);
+            execution.phases[QueryMetrics.Phase.PREPARE.ordinal()] = pendingPrepare;
+            pendingPrepare = 0;
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = MeteredJdbc.invoke(target, method, args);
+            } catch (Throwable t) {
+                execution.phases[QueryMetrics.Phase.EXECUTE.ordinal()] = System.nanoTime() - start;
+                execution.failed = true;
+                execution.finish();
+                throw t;
+            }
+            long end = System.nanoTime();
+            execution.phases[QueryMetrics.Phase.EXECUTE.ordinal()] = end - start;
+
+            if (result instanceof ResultSet) {
+                open = execution;
+                execution.lastRowAt = end;
+                return resultSet((ResultSet) result, execution);
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // execute() produced a result set; measured once the caller asks for it
+                open = execution;
+                execution.lastRowAt = end;
+                return result;
+            }
+            execution.rows = updateCount(result);
+            execution.finish();
+            if (method.getName().equals("executeBatch") || method.getName().equals("executeLargeBatch")) {
+                batchSql = null;
+            }
+            return result;
+        }
+
+        private String metricName(String text) {
+            String label = QueryMetrics.currentLabel();
+            if (label != null) {
+                return label;
+            }
+            if (text != null && text.equals(sql)) {
+                if (fingerprint == null) {
+                    fingerprint = QueryMetrics.fingerprint(sql);
+                }
+                return fingerprint;
+            }
+            return QueryMetrics.fingerprint(text);
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > binds.length) {
+                binds = Arrays.copyOf(binds, Math.max(index, binds.length * 2));
+            }
+            binds[index - 1] = value;
+            bindCount = Math.max(bindCount, index);
+        }
+
+        private void finishOpen() {
+            Execution execution = open;
+            open = null;
+            if (execution != null) {
+                execution.finish();
+            }
+        }
+
+        // execution is null for a result set that is not measured
+        private ResultSet resultSet(ResultSet rs, Execution execution) {
+            return (ResultSet) Proxy.newProxyInstance(MeteredJdbc.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, new ResultSetHandler(rs, execution, proxy));
+        }
+
+        private static long updateCount(Object result) {
+            long rows = 0;
+            if (result instanceof Number) {
+                rows = Math.max(0, ((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        final ResultSet target;
+        final Execution execution;
+        final Statement statement;
+
+        ResultSetHandler(ResultSet target, Execution execution, Statement statement) {
+            this.target = target;
+            this.execution = execution;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (execution == null) {
+                switch (name) {
+                    case "getStatement":
+                        return statement;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return MeteredJdbc.invoke(target, method, args);
+                }
+            }
+            switch (name) {
+                case "next":
+                case "previous":
+                case "first":
+                case "last":
+                case "absolute":
+                case "relative":
+                    return move(method, args);
+                case "close":
+                    try {
+                        return MeteredJdbc.invoke(target, method, args);
+                    } finally {
+                        execution.finish();
+                    }
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    Object result = MeteredJdbc.invoke(target, method, args);
+                    if (args != null && name.startsWith("get")) {
+                        execution.bytes += estimateBytes(result);
+                    }
+                    return result;
+            }
+        }
+
+        private Object move(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            long gap = start - execution.lastRowAt;
+            if (gap < MAP_GAP_LIMIT_NANOS) {
+                execution.phases[QueryMetrics.Phase.MAP.ordinal()] += gap;
+            }
+            Object moved = MeteredJdbc.invoke(target, method, args);
+            long end = System.nanoTime();
+            execution.phases[QueryMetrics.Phase.FETCH.ordinal()] += end - start;
+            execution.lastRowAt = end;
+            if (Boolean.TRUE.equals(moved)) {
+                execution.rows++;
+            }
+            return moved;
+        }
+
+        // Rough wire size of a column value
+        private static long estimateBytes(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            if (value instanceof String) {
+                return ((String) value).length();
+            }
+            if (value instanceof byte[]) {
+                return ((byte[]) value).length;
+            }
+            if (value instanceof Boolean || value instanceof Byte) {
+                return 1;
+            }
+            return 8;
+        }
+    }
+}
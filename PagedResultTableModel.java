@@ -0,0 +1,256 @@
+package mini_project_dbms;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Read-only TableModel over a forward-only cursor. Rows are fetched a page at a time as the table
+// asks for them (each page stored columnar as a QueryResult), and only the most recently used
+// pages are kept, so heap use is bounded by pageSize * maxCachedPages no matter how large the
+// result is. Jumping back to an evicted page re-opens the cursor and skips forward to it.
+// The cursor lives on a pooled connection the model borrows for itself and returns on close().
+public class PagedResultTableModel extends AbstractTableModel implements AutoCloseable {
+    private static final long serialVersionUID = 1L;
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("vulcynyx.table.pageSize", 500);
+    public static final int DEFAULT_CACHED_PAGES = Integer.getInteger("vulcynyx.table.cachedPages", 20);
+
+    // Opens a fresh forward-only cursor over the result on conn, using the given JDBC fetch size
+    @FunctionalInterface
+    public interface CursorSource {
+        ResultSet open(Connection conn, int fetchSize) throws SQLException;
+    }
+
+    private final CursorSource source;
+    private final int pageSize;
+    private final int maxCachedPages;
+    private final String[] columnNames;
+    private final ExecutorService loader;
+
+    // Cursor state, touched only by the loader thread (and the constructor)
+    private Connection connection;
+    private ResultSet cursor;
+    private int cursorRow;
+
+    // Table state, touched only on the EDT once the model is published
+    private final Map<Integer, QueryResult> pages;
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private int loadedRows;
+    private volatile boolean exhausted;
+    private volatile boolean closed;
+
+    // Borrows a connection from pool, opens the cursor and reads the first page on the calling
+    // thread (call it off the EDT)
+    public PagedResultTableModel(ConnectionPool pool, CursorSource source, int pageSize,
+                                 int maxCachedPages) throws SQLException {
+        if (pageSize < 1 || maxCachedPages < 2) {
+            throw new IllegalArgumentException("pageSize must be >= 1 and maxCachedPages >= 2");
+        }
+        this.source = source;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, QueryResult> eldest) {
+                return size() > PagedResultTableModel.this.maxCachedPages;
+            }
+        };
+
+        connection = pool.getConnection();
+        try {
+            cursor = source.open(connection, pageSize);
+            ResultSetMetaData metaData = cursor.getMetaData();
+            columnNames = new String[metaData.getColumnCount()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = metaData.getColumnLabel(i + 1);
+            }
+            QueryResult first = readPage(0);
+            pages.put(0, first);
+            loadedRows = first.getRowCount();
+        } catch (SQLException | RuntimeException e) {
+            closeCursor();
+            closeConnection();
+            throw e;
+        }
+
+        loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "table-page-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public PagedResultTableModel(ConnectionPool pool, CursorSource source) throws SQLException {
+        this(pool, source, DEFAULT_PAGE_SIZE, DEFAULT_CACHED_PAGES);
+    }
+
+    // Fully loaded model over an already materialized result (e.g. one served from ResultCache)
+    private PagedResultTableModel(QueryResult result) {
+        this.source = null;
+        this.pageSize = Math.max(1, result.getRowCount());
+        this.maxCachedPages = 1;
+        this.pages = new HashMap<>();
+        this.columnNames = result.getColumnNames().toArray(new String[0]);
+        this.loader = null;
+        pages.put(0, result);
+        loadedRows = result.getRowCount();
+        exhausted = true;
+    }
+
+    public static PagedResultTableModel of(QueryResult result) {
+        return new PagedResultTableModel(result);
+    }
+
+    // The whole result when it fit in the first page, otherwise null (the rest is still on the cursor)
+    public QueryResult getCompleteResult() {
+        QueryResult first = pages.get(0);
+        return exhausted && first != null && first.getRowCount() == loadedRows ? first : null;
+    }
+
+    // True once the cursor has been read to the end, i.e. getRowCount() is the final row count
+    public boolean isFullyLoaded() {
+        return exhausted;
+    }
+
+    @Override
+    public int getRowCount() {
+        return loadedRows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    // Returns null for rows whose page is still loading; the table is repainted when it arrives
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        if (!exhausted && row >= loadedRows - pageSize / 2) {
+            requestPage(loadedRows / pageSize);
+        }
+        QueryResult data = pages.get(page);
+        if (data == null) {
+            requestPage(page);
+            return null;
+        }
+        int offset = row - page * pageSize;
+        return offset < data.getRowCount() ? data.getObject(offset, column) : null;
+    }
+
+    private void requestPage(int page) {
+        if (closed || loader == null || pages.containsKey(page) || !pendingPages.add(page)) {
+            return;
+        }
+        loader.execute(() -> {
+            try {
+                QueryResult data = readPage(page);
+                SwingUtilities.invokeLater(() -> install(page, data));
+            } catch (SQLException e) {
+                System.err.println("Failed to load result page " + page + ": " + e.getMessage());
+                SwingUtilities.invokeLater(() -> pendingPages.remove(page));
+            }
+        });
+    }
+
+    private void install(int page, QueryResult data) {
+        pendingPages.remove(page);
+        if (closed) {
+            return;
+        }
+        pages.put(page, data);
+        int first = page * pageSize;
+        int end = first + data.getRowCount();
+        if (end > loadedRows) {
+            int previous = loadedRows;
+            loadedRows = end;
+            fireTableRowsInserted(previous, end - 1);
+        } else if (data.getRowCount() > 0) {
+            fireTableRowsUpdated(first, end - 1);
+        }
+    }
+
+    // Position the cursor at the page start (re-opening it if we are already past it) and read one page
+    private QueryResult readPage(int page) throws SQLException {
+        int start = page * pageSize;
+        if (cursorRow > start) {
+            closeCursor();
+            cursor = source.open(connection, pageSize);
+            cursorRow = 0;
+        }
+        while (cursorRow < start) {
+            if (!cursor.next()) {
+                exhausted = true;
+                return QueryResult.empty();
+            }
+            cursorRow++;
+        }
+
+        QueryResult.Builder rows = new QueryResult.Builder(cursor.getMetaData(), pageSize);
+        while (rows.size() < pageSize) {
+            if (!cursor.next()) {
+                exhausted = true;
+                break;
+            }
+            rows.addRow(cursor);
+            cursorRow++;
+        }
+        return rows.build();
+    }
+
+    private void closeCursor() {
+        if (cursor == null) {
+            return;
+        }
+        try {
+            Statement statement = cursor.getStatement();
+            cursor.close();
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to close result cursor: " + e.getMessage());
+        }
+        cursor = null;
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to return result connection: " + e.getMessage());
+        }
+        connection = null;
+    }
+
+    // Release the cursor and return the connection to the pool; pending page loads are dropped
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (loader != null) {
+            loader.execute(() -> {
+                closeCursor();
+                closeConnection();
+            });
+            loader.shutdown();
+        }
+    }
+}
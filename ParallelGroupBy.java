@@ -0,0 +1,457 @@
+package mini_project_dbms;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+
+// Group-by and top-N operators over row numbers, run in parallel on a ForkJoinPool. The input is any
+// row range whose columns can be read by index: the arrays of a ColumnarSnapshot or a QueryResult
+// pulled from the database. Each task aggregates its slice of rows into a private partial table and
+// partials are merged pairwise as the tasks join, so workers never share a table or a lock:
+//   sum(...)       hash group-by on a long key (SUM and COUNT per key)
+//   sumDense(...)  the same for keys that are small ints (dictionary codes, row numbers) using arrays
+//   topN(...)      the n largest values, through a bounded min-heap
+//   topNPerGroup(...)  the n largest entries of each partition of a grouped result, optionally with
+//                  ties like RANK() <= n
+// A value function may return NULL for a SQL NULL: the row still counts in COUNT(*), adds nothing to
+// the SUM, and a group whose values are all NULL has a NULL sum (ranked below every other sum).
+// vulcynyx.parallelism sets the number of worker threads (default: one per core).
+public final class ParallelGroupBy {
+    // Rows that key functions map to SKIP are left out, like a WHERE clause
+    public static final long SKIP = Long.MIN_VALUE;
+    // A NULL value, and the sum of a group that has only NULL values
+    public static final long NULL = Long.MIN_VALUE;
+
+    private static final int PARALLELISM =
+        Integer.getInteger("vulcynyx.parallelism", Runtime.getRuntime().availableProcessors());
+    // Below this many rows a slice is aggregated by one task
+    private static final int MIN_SLICE = 16_384;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+    private ParallelGroupBy() {
+    }
+
+    // Result of a hash group-by: SUM and COUNT per distinct key, in no particular order
+    public static final class Groups {
+        private long[] keys;
+        private long[] sums;
+        private long[] counts;
+        private long[] valueCounts;
+        private boolean[] used;
+        private int size;
+
+        Groups(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            sums = new long[capacity];
+            counts = new long[capacity];
+            valueCounts = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        void add(long key, long value) {
+            if (value == NULL) {
+                add(key, 0, 1, 0);
+            } else {
+                add(key, value, 1, 1);
+            }
+        }
+
+        void add(long key, long value, long count, long valueCount) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    sums[slot] = value;
+                    counts[slot] = count;
+                    valueCounts[slot] = valueCount;
+                    grow();
+                    return;
+                }
+            }
+            sums[slot] += value;
+            counts[slot] += count;
+            valueCounts[slot] += valueCount;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldSums = sums;
+            long[] oldCounts = counts;
+            long[] oldValueCounts = valueCounts;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            sums = new long[keys.length];
+            counts = new long[keys.length];
+            valueCounts = new long[keys.length];
+            used = new boolean[keys.length];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    add(oldKeys[i], oldSums[i], oldCounts[i], oldValueCounts[i]);
+                }
+            }
+        }
+
+        // Fold other into this table; the larger table should be the receiver
+        Groups merge(Groups other) {
+            if (other.size > size) {
+                return other.merge(this);
+            }
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.used[i]) {
+                    add(other.keys[i], other.sums[i], other.counts[i], other.valueCounts[i]);
+                }
+            }
+            return this;
+        }
+
+        // Entries are read by index, 0 <= i < size(), after compact()
+        private Groups compact() {
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) {
+                    keys[n] = keys[i];
+                    // From here on a group of NULLs reads as a NULL sum
+                    sums[n] = valueCounts[i] == 0 ? NULL : sums[i];
+                    counts[n] = counts[i];
+                    valueCounts[n] = valueCounts[i];
+                    n++;
+                }
+            }
+            used = null;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getKey(int i) {
+            return keys[i];
+        }
+
+        // SUM(value), or NULL if every value was NULL
+        public long getSum(int i) {
+            return sums[i];
+        }
+
+        // COUNT(*)
+        public long getCount(int i) {
+            return counts[i];
+        }
+
+        // COUNT(value): the rows whose value was not NULL
+        public long getValueCount(int i) {
+            return valueCounts[i];
+        }
+    }
+
+    // Result of a dense group-by: SUM and COUNT per group number; a group with count 0 had no rows
+    public static final class DenseGroups {
+        final long[] sums;
+        final long[] counts;
+        final long[] valueCounts;
+
+        DenseGroups(int groups) {
+            sums = new long[groups];
+            counts = new long[groups];
+            valueCounts = new long[groups];
+        }
+
+        void add(int group, long value) {
+            counts[group]++;
+            if (value != NULL) {
+                sums[group] += value;
+                valueCounts[group]++;
+            }
+        }
+
+        DenseGroups merge(DenseGroups other) {
+            for (int g = 0; g < sums.length; g++) {
+                sums[g] += other.sums[g];
+                counts[g] += other.counts[g];
+                valueCounts[g] += other.valueCounts[g];
+            }
+            return this;
+        }
+
+        public int size() {
+            return sums.length;
+        }
+
+        // SUM(value): 0 for a group without rows, NULL for one whose values were all NULL
+        public long getSum(int group) {
+            return counts[group] > 0 && valueCounts[group] == 0 ? NULL : sums[group];
+        }
+
+        // COUNT(*)
+        public long getCount(int group) {
+            return counts[group];
+        }
+
+        // COUNT(value): the rows whose value was not NULL
+        public long getValueCount(int group) {
+            return valueCounts[group];
+        }
+
+        public boolean isPresent(int group) {
+            return counts[group] > 0;
+        }
+    }
+
+    // Two ints as one group key, e.g. (region, product)
+    public static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    public static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int low(long key) {
+        return (int) key;
+    }
+
+    // SUM(value) and COUNT(*) per key over rows [0, rows)
+    public static Groups sum(int rows, IntToLongFunction key, IntToLongFunction value) {
+        return POOL.invoke(new HashTask(0, rows, slice(rows), key, value)).compact();
+    }
+
+    // SUM(value) and COUNT(*) per group in [0, groups) over rows [0, rows); group may return -1 to skip
+    public static DenseGroups sumDense(int rows, int groups, IntUnaryOperator group, IntToLongFunction value) {
+        // Every task carries its own arrays, so keep the task count down when there are many groups
+        int slice = Math.max(slice(rows), groups);
+        return POOL.invoke(new DenseTask(0, rows, slice, groups, group, value));
+    }
+
+    // SUM over a QueryResult pulled from the database, grouped by one or two integer columns
+    // (pass -1 as keyColumn2 for one)
+    public static Groups sum(QueryResult rows, int keyColumn1, int keyColumn2, int valueColumn) {
+        return sum(rows.getRowCount(),
+            row -> rows.isNull(row, keyColumn1) || keyColumn2 >= 0 && rows.isNull(row, keyColumn2) ? SKIP
+                : keyColumn2 < 0 ? rows.getLong(row, keyColumn1) : key(rows.getInt(row, keyColumn1), rows.getInt(row, keyColumn2)),
+            row -> rows.isNull(row, valueColumn) ? NULL : rows.getLong(row, valueColumn));
+    }
+
+    private static int slice(int rows) {
+        return Math.max(MIN_SLICE, rows / (PARALLELISM * 4) + 1);
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        return key ^ (key >>> 33);
+    }
+
+    private static final class HashTask extends RecursiveTask<Groups> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int slice;
+        private final IntToLongFunction key;
+        private final IntToLongFunction value;
+
+        HashTask(int from, int to, int slice, IntToLongFunction key, IntToLongFunction value) {
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        protected Groups compute() {
+            if (to - from <= slice) {
+                Groups partial = new Groups(256);
+                for (int row = from; row < to; row++) {
+                    long k = key.applyAsLong(row);
+                    if (k != SKIP) {
+                        partial.add(k, value.applyAsLong(row));
+                    }
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            HashTask left = new HashTask(from, mid, slice, key, value);
+            left.fork();
+            Groups right = new HashTask(mid, to, slice, key, value).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class DenseTask extends RecursiveTask<DenseGroups> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int slice;
+        private final int groups;
+        private final IntUnaryOperator group;
+        private final IntToLongFunction value;
+
+        DenseTask(int from, int to, int slice, int groups, IntUnaryOperator group, IntToLongFunction value) {
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+            this.groups = groups;
+            this.group = group;
+            this.value = value;
+        }
+
+        @Override
+        protected DenseGroups compute() {
+            if (to - from <= slice) {
+                DenseGroups partial = new DenseGroups(groups);
+                for (int row = from; row < to; row++) {
+                    int g = group.applyAsInt(row);
+                    if (g >= 0) {
+                        partial.add(g, value.applyAsLong(row));
+                    }
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            DenseTask left = new DenseTask(from, mid, slice, groups, group, value);
+            left.fork();
+            DenseGroups right = new DenseTask(mid, to, slice, groups, group, value).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // ==================== TOP-N ====================
+
+    // Indexes in [0, size) of the n largest values among those with present(i), largest first
+    public static int[] topN(int size, java.util.function.IntPredicate present, IntToLongFunction value, int n) {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, Math.min(n, size)),
+            Comparator.comparingLong(value::applyAsLong));
+        for (int i = 0; i < size; i++) {
+            if (!present.test(i)) {
+                continue;
+            }
+            if (heap.size() < n) {
+                heap.add(i);
+            } else if (n > 0 && value.applyAsLong(i) > value.applyAsLong(heap.peek())) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        return sortedDescending(heap, value);
+    }
+
+    // Largest groups first; n = Integer.MAX_VALUE sorts all of them
+    public static int[] topN(DenseGroups groups, int n) {
+        return topN(groups.size(), groups::isPresent, groups::getSum, n);
+    }
+
+    // For each partition of the groups' keys, the indexes of its n largest sums, largest first. With
+    // ties, entries tied with the n-th are kept too, which is the WHERE RANK() <= n of the SQL reports.
+    public static Map<Long, int[]> topNPerGroup(Groups groups, LongUnaryOperator partitionOf, int n, boolean ties) {
+        int entries = groups.size();
+        // Partitions are found in parallel slices of the entries, each with its own bounded heaps
+        Map<Long, PriorityQueue<Integer>> heaps = POOL.invoke(new TopNTask(groups, 0, entries,
+            Math.max(MIN_SLICE, entries / (PARALLELISM * 4) + 1), partitionOf, n));
+        Map<Long, List<Integer>> tied = new HashMap<>();
+        if (ties) {
+            // Entries equal to the smallest kept value of a full heap rank the same as it
+            Map<Long, Long> threshold = new HashMap<>();
+            Set<Integer> kept = new HashSet<>();
+            for (Map.Entry<Long, PriorityQueue<Integer>> e : heaps.entrySet()) {
+                if (e.getValue().size() == n) {
+                    threshold.put(e.getKey(), groups.getSum(e.getValue().peek()));
+                    kept.addAll(e.getValue());
+                }
+            }
+            for (int i = 0; i < entries; i++) {
+                Long min = threshold.get(partitionOf.applyAsLong(groups.getKey(i)));
+                if (min != null && groups.getSum(i) == min && !kept.contains(i)) {
+                    tied.computeIfAbsent(partitionOf.applyAsLong(groups.getKey(i)), p -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        Map<Long, int[]> top = new HashMap<>();
+        for (Map.Entry<Long, PriorityQueue<Integer>> e : heaps.entrySet()) {
+            PriorityQueue<Integer> heap = e.getValue();
+            heap.addAll(tied.getOrDefault(e.getKey(), Collections.emptyList()));
+            top.put(e.getKey(), sortedDescending(heap, groups::getSum));
+        }
+        return top;
+    }
+
+    private static final class TopNTask extends RecursiveTask<Map<Long, PriorityQueue<Integer>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Groups groups;
+        private final int from;
+        private final int to;
+        private final int slice;
+        private final LongUnaryOperator partitionOf;
+        private final int n;
+
+        TopNTask(Groups groups, int from, int to, int slice, LongUnaryOperator partitionOf, int n) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+            this.partitionOf = partitionOf;
+            this.n = n;
+        }
+
+        @Override
+        protected Map<Long, PriorityQueue<Integer>> compute() {
+            if (to - from <= slice) {
+                Map<Long, PriorityQueue<Integer>> heaps = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    offer(heaps.computeIfAbsent(partitionOf.applyAsLong(groups.getKey(i)), p -> newHeap()), i);
+                }
+                return heaps;
+            }
+            int mid = (from + to) >>> 1;
+            TopNTask left = new TopNTask(groups, from, mid, slice, partitionOf, n);
+            left.fork();
+            Map<Long, PriorityQueue<Integer>> merged = new TopNTask(groups, mid, to, slice, partitionOf, n).compute();
+            for (Map.Entry<Long, PriorityQueue<Integer>> e : left.join().entrySet()) {
+                PriorityQueue<Integer> heap = merged.computeIfAbsent(e.getKey(), p -> newHeap());
+                for (Integer i : e.getValue()) {
+                    offer(heap, i);
+                }
+            }
+            return merged;
+        }
+
+        private PriorityQueue<Integer> newHeap() {
+            return new PriorityQueue<>(Math.max(1, Math.min(n, 64)), Comparator.comparingLong(groups::getSum));
+        }
+
+        private void offer(PriorityQueue<Integer> heap, int i) {
+            if (heap.size() < n) {
+                heap.add(i);
+            } else if (n > 0 && groups.getSum(i) > groups.getSum(heap.peek())) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+    }
+
+    private static int[] sortedDescending(Collection<Integer> indexes, IntToLongFunction value) {
+        return indexes.stream()
+            .sorted((a, b) -> Long.compare(value.applyAsLong(b), value.applyAsLong(a)))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    public static String getStats() {
+        return String.format("ParallelGroupBy[parallelism=%d] active=%d steals=%d",
+            POOL.getParallelism(), POOL.getActiveThreadCount(), POOL.getStealCount());
+    }
+}
@@ -0,0 +1,675 @@
+package mini_project_dbms;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// In-memory copy of the Product table, so interactive product searches never leave the JVM.
+// Rows live in parallel arrays indexed by slot (prices as long cents, category and material as
+// dictionary codes). On top of that: a price-ordered and a stock-ordered slot index (range queries by
+// binary search) and, per distinct category/material, a bitmap of the slots that have it. A NULL
+// Price or Stock is kept as NULL_PRICE / NULL_STOCK, which sort first (as NULLs do in MySQL) and are
+// skipped by the range lookups, so those products drop out of them as they do from the SQL.
+// Loaded once in the background; the product write paths then call refresh() so it stays current,
+// and the ChangeFeed brings in products written by other processes.
+// Until it is loaded every lookup should fall back to SQL (see isLoaded()).
+public class ProductCatalog {
+    private static final boolean ENABLED = !Boolean.getBoolean("vulcynyx.catalog.disabled");
+
+    private static final Map<ConnectionPool, ProductCatalog> shared = new IdentityHashMap<>();
+
+    // Stored for NULL Price and Stock
+    static final long NULL_PRICE = Long.MIN_VALUE;
+    static final int NULL_STOCK = Integer.MIN_VALUE;
+
+    // Immutable view of one product
+    public static final class Product {
+        private final int id;
+        private final String name;
+        private final String category;
+        private final String material;
+        private final long priceCents;
+        private final int stock;
+
+        Product(int id, String name, String category, String material, long priceCents, int stock) {
+            this.id = id;
+            this.name = name;
+            this.category = category;
+            this.material = material;
+            this.priceCents = priceCents;
+            this.stock = stock;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        // null if the table has no Material column or the value is NULL
+        public String getMaterial() {
+            return material;
+        }
+
+        // null if Price is NULL
+        public BigDecimal getPrice() {
+            return priceCents == NULL_PRICE ? null : BigDecimal.valueOf(priceCents, 2);
+        }
+
+        // NULL_PRICE if Price is NULL
+        public long getPriceCents() {
+            return priceCents;
+        }
+
+        // null if Stock is NULL
+        public Integer getStock() {
+            return stock == NULL_STOCK ? null : stock;
+        }
+    }
+
+    // Distinct values of one column, each with the set of slots holding it
+    private static final class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final List<String> lowerCase = new ArrayList<>();
+        private final List<BitSet> slots = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        // -1 for null
+        int add(String value, int slot) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+                lowerCase.add(value.toLowerCase());
+                slots.add(new BitSet());
+            }
+            slots.get(code).set(slot);
+            return code;
+        }
+
+        void remove(int code, int slot) {
+            if (code >= 0) {
+                slots.get(code).clear(slot);
+            }
+        }
+
+        String value(int code) {
+            return code < 0 ? null : values.get(code);
+        }
+
+        // Slots whose value matches SQL LIKE '%fragment%', ignoring case: % and _ in the fragment are
+        // wildcards and \ escapes the next character, as in MySQL
+        BitSet matching(String fragment) {
+            String needle = fragment.toLowerCase();
+            Pattern pattern = likePattern(needle);
+            BitSet matches = new BitSet();
+            for (int code = 0; code < values.size(); code++) {
+                String value = lowerCase.get(code);
+                if (pattern == null ? value.contains(needle) : pattern.matcher(value).find()) {
+                    matches.or(slots.get(code));
+                }
+            }
+            return matches;
+        }
+
+        void clear() {
+            values.clear();
+            lowerCase.clear();
+            slots.clear();
+            codes.clear();
+        }
+    }
+
+    // The fragment of a LIKE '%fragment%' as a regex to find(), or null if it has no wildcards
+    // or escapes and a plain contains() does
+    static Pattern likePattern(String fragment) {
+        if (fragment.indexOf('%') < 0 && fragment.indexOf('_') < 0 && fragment.indexOf('\\') < 0) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < fragment.length(); i++) {
+            char c = fragment.charAt(i);
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                // A trailing \ stands for itself
+                if (c == '\\' && i + 1 < fragment.length()) {
+                    c = fragment.charAt(++i);
+                }
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    @FunctionalInterface
+    private interface SlotKey {
+        long of(int slot);
+    }
+
+    // Slots ordered by (key, slot); kept sorted by binary-search insert and remove
+    private static final class SortedIndex {
+        private final SlotKey key;
+        private int[] slots = new int[16];
+        private int size;
+
+        SortedIndex(SlotKey key) {
+            this.key = key;
+        }
+
+        // Must be called while the slot still has the key it was inserted with
+        void remove(int slot) {
+            int pos = position(key.of(slot), slot);
+            System.arraycopy(slots, pos + 1, slots, pos, size - pos - 1);
+            size--;
+        }
+
+        void insert(int slot) {
+            int pos = position(key.of(slot), slot);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, pos, slots, pos + 1, size - pos);
+            slots[pos] = slot;
+            size++;
+        }
+
+        // Replace the contents with the given slots, sorting once
+        void rebuild(int[] live) {
+            Integer[] boxed = new Integer[live.length];
+            for (int i = 0; i < live.length; i++) {
+                boxed[i] = live[i];
+            }
+            Arrays.sort(boxed, (a, b) -> {
+                int c = Long.compare(key.of(a), key.of(b));
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            slots = new int[Math.max(16, live.length)];
+            for (int i = 0; i < boxed.length; i++) {
+                slots[i] = boxed[i];
+            }
+            size = live.length;
+        }
+
+        // First position whose (key, slot) is >= the given pair
+        private int position(long k, int slot) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                long midKey = key.of(slots[mid]);
+                if (midKey < k || (midKey == k && slots[mid] < slot)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        int lowerBound(long k) {
+            return position(k, Integer.MIN_VALUE);
+        }
+
+        int upperBound(long k) {
+            return position(k, Integer.MAX_VALUE);
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Columns, indexed by slot; a deleted product's slot is reused
+    private int[] ids = new int[0];
+    private String[] names = new String[0];
+    private int[] categoryCodes = new int[0];
+    private int[] materialCodes = new int[0];
+    private long[] priceCents = new long[0];
+    private int[] stocks = new int[0];
+    private int slotCount;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary materials = new Dictionary();
+    private final SortedIndex byPrice = new SortedIndex(slot -> priceCents[slot]);
+    private final SortedIndex byStock = new SortedIndex(slot -> stocks[slot]);
+
+    // Guarded by this: loading state, and ids written while a load was reading the table
+    private boolean loaded;
+    private boolean loading;
+    private final Set<Integer> changedWhileLoading = new HashSet<>();
+    private boolean hasMaterial;
+    private long loadMillis;
+    private boolean following;
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+
+    public ProductCatalog(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    // Catalog shared by every front end in this JVM that uses the same pool
+    public static synchronized ProductCatalog shared(ConnectionPool pool) {
+        return shared.computeIfAbsent(pool, ProductCatalog::new);
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // True if the Product table has a Material column (searchByMaterial needs it)
+    public synchronized boolean hasMaterial() {
+        return hasMaterial;
+    }
+
+    // Load on a daemon thread; lookups keep falling back to SQL until it finishes
+    public void loadInBackground() {
+        if (!ENABLED) {
+            return;
+        }
+        follow();
+        Thread t = new Thread(() -> {
+            try {
+                load();
+            } catch (SQLException e) {
+                System.err.println("Product catalog load failed: " + e.getMessage());
+            }
+        }, "product-catalog-loader");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // Read the whole Product table and replace the catalog contents
+    public void load() throws SQLException {
+        synchronized (this) {
+            if (loading) {
+                return;
+            }
+            loading = true;
+            changedWhileLoading.clear();
+        }
+        long start = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>();
+        boolean material;
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM Product")) {
+            material = hasColumn(rs, "Material");
+            while (rs.next()) {
+                rows.add(readRow(rs, material));
+            }
+        } catch (SQLException e) {
+            synchronized (this) {
+                loading = false;
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            clear(rows.size());
+            for (Object[] row : rows) {
+                put(row, false);
+            }
+            int[] live = slotById.values().stream().mapToInt(Integer::intValue).toArray();
+            byPrice.rebuild(live);
+            byStock.rebuild(live);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<Integer> missed;
+        synchronized (this) {
+            hasMaterial = material;
+            loaded = true;
+            loading = false;
+            loadMillis = (System.nanoTime() - start) / 1_000_000;
+            missed = new HashSet<>(changedWhileLoading);
+            changedWhileLoading.clear();
+        }
+        // Writes made while the table was being read may or may not be in it: re-read those rows
+        if (!missed.isEmpty()) {
+            try (Connection conn = pool.getConnection()) {
+                for (int productId : missed) {
+                    refresh(conn, productId);
+                }
+            }
+        }
+    }
+
+    // Re-read one product after it was inserted, updated or deleted; a no-op until loaded
+    public void refresh(Connection conn, int productId) throws SQLException {
+        synchronized (this) {
+            if (loading) {
+                changedWhileLoading.add(productId);
+                return;
+            }
+            if (!loaded) {
+                return;
+            }
+        }
+        refreshes.incrementAndGet();
+        Object[] row = null;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM Product WHERE ProductID = ?")) {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    row = readRow(rs, hasColumn(rs, "Material"));
+                }
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (row == null) {
+                remove(productId);
+            } else {
+                put(row, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Subscribe to the change feed (once) so writes from other processes reach the catalog too
+    private void follow() {
+        synchronized (this) {
+            if (following) {
+                return;
+            }
+            following = true;
+        }
+        ChangeFeed feed = ChangeFeed.shared(pool);
+        feed.subscribe(this::apply);
+        feed.start();
+    }
+
+    // Apply the feed's product changes in place; a Resync (deleted rows) reloads the table
+    private void apply(List<ChangeFeed.Change> changes) {
+        List<Object[]> rows = new ArrayList<>();
+        for (ChangeFeed.Change change : changes) {
+            if (change instanceof ChangeFeed.Resync && change.getTable().equals("Product")) {
+                loadInBackground();
+                return;
+            }
+            if (change instanceof ChangeFeed.ProductChange) {
+                ChangeFeed.ProductChange product = (ChangeFeed.ProductChange) change;
+                BigDecimal price = product.getPrice();
+                rows.add(new Object[] {
+                    product.getProductId(),
+                    product.getName(),
+                    product.getCategory(),
+                    product.getMaterial(),
+                    cents(price),
+                    product.getStock() == null ? NULL_STOCK : product.getStock()
+                });
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (loading) {
+                rows.forEach(row -> changedWhileLoading.add((Integer) row[0]));
+                return;
+            }
+            if (!loaded) {
+                return;
+            }
+        }
+        refreshes.addAndGet(rows.size());
+        lock.writeLock().lock();
+        try {
+            for (Object[] row : rows) {
+                put(row, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Products whose category contains the fragment (ignoring case), cheapest first
+    public List<Product> searchByCategory(String fragment) {
+        lock.readLock().lock();
+        try {
+            return filterByPrice(categories.matching(fragment));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Products whose material contains the fragment (ignoring case), cheapest first
+    public List<Product> searchByMaterial(String fragment) {
+        lock.readLock().lock();
+        try {
+            return filterByPrice(materials.matching(fragment));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Products priced between min and max inclusive (like SQL BETWEEN, so never a NULL price), cheapest first
+    public List<Product> priceRange(double min, double max) {
+        long lowCents = BigDecimal.valueOf(min).movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        long highCents = BigDecimal.valueOf(max).movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue();
+        lock.readLock().lock();
+        try {
+            countLookup();
+            List<Product> result = new ArrayList<>();
+            int end = byPrice.upperBound(highCents);
+            for (int pos = Math.max(byPrice.upperBound(NULL_PRICE), byPrice.lowerBound(lowCents)); pos < end; pos++) {
+                result.add(product(byPrice.slots[pos]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Products with stock at or below the threshold (never a NULL stock), lowest stock first
+    public List<Product> stockAtMost(int threshold) {
+        lock.readLock().lock();
+        try {
+            countLookup();
+            List<Product> result = new ArrayList<>();
+            int end = byStock.upperBound(threshold);
+            for (int pos = byStock.upperBound(NULL_STOCK); pos < end; pos++) {
+                result.add(product(byStock.slots[pos]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every product, cheapest first (NULL prices first, as in MySQL)
+    public List<Product> sortedByPrice() {
+        lock.readLock().lock();
+        try {
+            countLookup();
+            List<Product> result = new ArrayList<>(byPrice.size);
+            for (int pos = 0; pos < byPrice.size; pos++) {
+                result.add(product(byPrice.slots[pos]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String getStats() {
+        boolean isLoaded;
+        long millis;
+        synchronized (this) {
+            isLoaded = loaded;
+            millis = loadMillis;
+        }
+        int products;
+        int categoryCount;
+        int materialCount;
+        lock.readLock().lock();
+        try {
+            products = slotById.size();
+            categoryCount = categories.values.size();
+            materialCount = materials.values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return String.format("ProductCatalog[loaded=%b, products=%d, categories=%d, materials=%d, " +
+                             "loadMs=%d, refreshes=%d, lookups=%d]",
+            isLoaded, products, categoryCount, materialCount, millis, refreshes.get(), lookups.get());
+    }
+
+    // Walk the price index keeping the matching slots, so results come out price-ordered without a sort
+    private List<Product> filterByPrice(BitSet matches) {
+        countLookup();
+        int wanted = matches.cardinality();
+        List<Product> result = new ArrayList<>(wanted);
+        for (int pos = 0; pos < byPrice.size && result.size() < wanted; pos++) {
+            int slot = byPrice.slots[pos];
+            if (matches.get(slot)) {
+                result.add(product(slot));
+            }
+        }
+        return result;
+    }
+
+    private void countLookup() {
+        lookups.incrementAndGet();
+    }
+
+    private Product product(int slot) {
+        return new Product(ids[slot], names[slot], categories.value(categoryCodes[slot]),
+            materials.value(materialCodes[slot]), priceCents[slot], stocks[slot]);
+    }
+
+    private static boolean hasColumn(ResultSet rs, String column) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        for (int i = 1; i <= md.getColumnCount(); i++) {
+            if (md.getColumnLabel(i).equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ProductID, Name, Category, Material, price in cents, Stock
+    private static Object[] readRow(ResultSet rs, boolean material) throws SQLException {
+        int stock = rs.getInt("Stock");
+        boolean noStock = rs.wasNull();
+        return new Object[] {
+            rs.getInt("ProductID"),
+            rs.getString("Name"),
+            rs.getString("Category"),
+            material ? rs.getString("Material") : null,
+            cents(rs.getBigDecimal("Price")),
+            noStock ? NULL_STOCK : stock
+        };
+    }
+
+    private static long cents(BigDecimal price) {
+        return price == null ? NULL_PRICE : price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    // Callers hold the write lock
+    private void clear(int capacity) {
+        int size = Math.max(16, capacity + capacity / 4);
+        ids = new int[size];
+        names = new String[size];
+        categoryCodes = new int[size];
+        materialCodes = new int[size];
+        priceCents = new long[size];
+        stocks = new int[size];
+        slotCount = 0;
+        freeSlots.clear();
+        slotById.clear();
+        categories.clear();
+        materials.clear();
+        byPrice.rebuild(new int[0]);
+        byStock.rebuild(new int[0]);
+    }
+
+    // Insert or replace one row; indexed=false during a bulk load, which sorts the indexes once at the end
+    private void put(Object[] row, boolean indexed) {
+        int id = (Integer) row[0];
+        Integer existing = slotById.get(id);
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            if (indexed) {
+                unlink(slot);
+            } else {
+                categories.remove(categoryCodes[slot], slot);
+                materials.remove(materialCodes[slot], slot);
+            }
+        } else {
+            slot = freeSlots.isEmpty() ? nextSlot() : freeSlots.pop();
+            slotById.put(id, slot);
+        }
+        ids[slot] = id;
+        names[slot] = (String) row[1];
+        categoryCodes[slot] = categories.add((String) row[2], slot);
+        materialCodes[slot] = materials.add((String) row[3], slot);
+        priceCents[slot] = (Long) row[4];
+        stocks[slot] = (Integer) row[5];
+        if (indexed) {
+            byPrice.insert(slot);
+            byStock.insert(slot);
+        }
+    }
+
+    private void remove(int productId) {
+        Integer slot = slotById.remove(productId);
+        if (slot != null) {
+            unlink(slot);
+            names[slot] = null;
+            freeSlots.push(slot);
+        }
+    }
+
+    // Take a slot out of every index, using its current values
+    private void unlink(int slot) {
+        byPrice.remove(slot);
+        byStock.remove(slot);
+        categories.remove(categoryCodes[slot], slot);
+        materials.remove(materialCodes[slot], slot);
+    }
+
+    private int nextSlot() {
+        if (slotCount == ids.length) {
+            int size = Math.max(16, ids.length * 2);
+            ids = Arrays.copyOf(ids, size);
+            names = Arrays.copyOf(names, size);
+            categoryCodes = Arrays.copyOf(categoryCodes, size);
+            materialCodes = Arrays.copyOf(materialCodes, size);
+            priceCents = Arrays.copyOf(priceCents, size);
+            stocks = Arrays.copyOf(stocks, size);
+        }
+        return slotCount++;
+    }
+}
@@ -0,0 +1,452 @@
+package mini_project_dbms;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+// Per-query latency metrics. Every statement run through a ConnectionPool handle is timed by phase
+// (prepare, execute, fetch, map) into log-linear histograms, together with row and byte counts, under
+// the current label (the Database query id, see label()) or else the fingerprint of its SQL.
+// Snapshots feed the VulcynyxApp metrics panel and can be dumped as JSON or Prometheus text.
+public class QueryMetrics {
+    public static final boolean ENABLED = !Boolean.getBoolean("vulcynyx.metrics.disabled");
+    private static final String DUMP_FILE = System.getProperty("vulcynyx.metrics.file", "vulcynyx-metrics");
+    // Distinct series kept; statements beyond that are counted under OTHER
+    private static final int MAX_SERIES = Integer.getInteger("vulcynyx.metrics.maxSeries", 500);
+    private static final String OTHER = "(other)";
+    private static final int FINGERPRINT_LENGTH = 160;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final QueryMetrics SHARED = new QueryMetrics();
+    private static final ThreadLocal<String> LABEL = new ThreadLocal<>();
+
+    public enum Phase { PREPARE, EXECUTE, FETCH, MAP }
+
+    public enum Format {
+        JSON(".json"), PROMETHEUS(".prom");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    // Restores the previous label when closed, so labels nest
+    public static final class Scope implements AutoCloseable {
+        private final String previous;
+
+        private Scope(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                LABEL.remove();
+            } else {
+                LABEL.set(previous);
+            }
+        }
+    }
+
+    // Log-linear latency histogram in nanoseconds: 16 linear sub-buckets per power of two, so any
+    // recorded value is reported within 1/16 (~6%) of itself, up to ~2^40 ns (about 18 minutes)
+    static final class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;
+        private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+            counts.incrementAndGet(bucket(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+        }
+
+        // Largest value that falls into the bucket
+        static long upperBound(int bucket) {
+            if (bucket < SUB_COUNT) {
+                return bucket;
+            }
+            int shift = (bucket >> SUB_BITS) - 1;
+            long lower = (long) (SUB_COUNT + (bucket & (SUB_COUNT - 1))) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        long getCount() {
+            return count.get();
+        }
+
+        long getSum() {
+            return sum.get();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        double meanNanos() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        // Value at the percentile (0-100), as the upper bound of its bucket capped at the maximum
+        long percentile(double percentile) {
+            long n = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                n += snapshot[i];
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+
+    // Everything recorded for one query
+    static final class Series {
+        final String name;
+        final Histogram total = new Histogram();
+        final Histogram[] phases = new Histogram[Phase.values().length];
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong cacheHits = new AtomicLong();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+
+        Series(String name) {
+            this.name = name;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new Histogram();
+            }
+        }
+    }
+
+    // Point-in-time view of one series, times in milliseconds
+    public static final class Stats {
+        final String name;
+        final long executions;
+        final long errors;
+        final long cacheHits;
+        final long rows;
+        final long bytes;
+        final double p50Ms;
+        final double p99Ms;
+        final double maxMs;
+        final double meanMs;
+        final double totalMs;
+        final double[] phaseMeanMs = new double[Phase.values().length];
+        final double[] phaseTotalMs = new double[Phase.values().length];
+
+        Stats(Series series) {
+            name = series.name;
+            executions = series.total.getCount();
+            errors = series.errors.get();
+            cacheHits = series.cacheHits.get();
+            rows = series.rows.get();
+            bytes = series.bytes.get();
+            p50Ms = series.total.percentile(50) / 1e6;
+            p99Ms = series.total.percentile(99) / 1e6;
+            maxMs = series.total.getMax() / 1e6;
+            meanMs = series.total.meanNanos() / 1e6;
+            totalMs = series.total.getSum() / 1e6;
+            for (Phase phase : Phase.values()) {
+                Histogram h = series.phases[phase.ordinal()];
+                phaseMeanMs[phase.ordinal()] = executions == 0 ? 0 : h.getSum() / 1e6 / executions;
+                phaseTotalMs[phase.ordinal()] = h.getSum() / 1e6;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+
+        public double getMeanMs() {
+            return meanMs;
+        }
+
+        public double getTotalMs() {
+            return totalMs;
+        }
+
+        public double getPhaseMeanMs(Phase phase) {
+            return phaseMeanMs[phase.ordinal()];
+        }
+    }
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private volatile long resetAt = System.currentTimeMillis();
+
+    // Metrics shared by every front end in this JVM
+    public static QueryMetrics shared() {
+        return SHARED;
+    }
+
+    // Record statements run on this thread under the name until the scope is closed, e.g.
+    // try (QueryMetrics.Scope s = QueryMetrics.label("Q07")) { ... }
+    public static Scope label(String name) {
+        Scope scope = new Scope(LABEL.get());
+        LABEL.set(name);
+        return scope;
+    }
+
+    // Label set on this thread, or null
+    public static String currentLabel() {
+        return LABEL.get();
+    }
+
+    // SQL with literals replaced by ?, IN lists collapsed and whitespace normalized, so executions
+    // of the same statement with different values share a series
+    public static String fingerprint(String sql) {
+        if (sql == null) {
+            return "(unknown)";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?+)");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return normalized.length() > FINGERPRINT_LENGTH
+            ? normalized.substring(0, FINGERPRINT_LENGTH) + "..." : normalized;
+    }
+
+    // One execution: nanoseconds spent per phase (indexed by Phase.ordinal()), rows returned or
+    // affected and an estimate of the bytes read
+    public void record(String name, long[] phaseNanos, long rows, long bytes, boolean failed) {
+        if (!ENABLED) {
+            return;
+        }
+        Series s = series(name);
+        long total = 0;
+        for (Phase phase : Phase.values()) {
+            long nanos = phaseNanos[phase.ordinal()];
+            s.phases[phase.ordinal()].record(nanos);
+            total += nanos;
+        }
+        s.total.record(total);
+        s.rows.addAndGet(rows);
+        s.bytes.addAndGet(bytes);
+        if (failed) {
+            s.errors.incrementAndGet();
+        }
+    }
+
+    // A query answered without touching the database (result cache, catalog)
+    public void recordCacheHit(String name) {
+        if (ENABLED) {
+            series(name).cacheHits.incrementAndGet();
+        }
+    }
+
+    private Series series(String name) {
+        Series s = series.get(name);
+        if (s != null) {
+            return s;
+        }
+        if (series.size() >= MAX_SERIES) {
+            return series.computeIfAbsent(OTHER, Series::new);
+        }
+        return series.computeIfAbsent(name, Series::new);
+    }
+
+    // Stats of every series, most total time first
+    public List<Stats> snapshot() {
+        List<Stats> stats = new ArrayList<>();
+        for (Series s : series.values()) {
+            stats.add(new Stats(s));
+        }
+        stats.sort(Comparator.comparingDouble((Stats s) -> s.totalMs).reversed()
+            .thenComparing(s -> s.name));
+        return stats;
+    }
+
+    public void reset() {
+        series.clear();
+        resetAt = System.currentTimeMillis();
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append(String.format("  \"timestamp\": \"%s\",%n", Instant.now()));
+        sb.append(String.format("  \"since\": \"%s\",%n", Instant.ofEpochMilli(resetAt)));
+        sb.append("  \"queries\": [\n");
+        List<Stats> stats = snapshot();
+        for (int i = 0; i < stats.size(); i++) {
+            Stats s = stats.get(i);
+            sb.append(String.format(Locale.ROOT, "    {\"name\": \"%s\", \"executions\": %d, \"errors\": %d, " +
+                                    "\"cacheHits\": %d, \"rows\": %d, \"bytes\": %d, \"p50Ms\": %.4f, " +
+                                    "\"p99Ms\": %.4f, \"maxMs\": %.4f, \"meanMs\": %.4f, \"totalMs\": %.4f, " +
+                                    "\"phaseMeanMs\": {",
+                jsonEscape(s.name), s.executions, s.errors, s.cacheHits, s.rows, s.bytes,
+                s.p50Ms, s.p99Ms, s.maxMs, s.meanMs, s.totalMs));
+            for (Phase phase : Phase.values()) {
+                sb.append(String.format(Locale.ROOT, "%s\"%s\": %.4f", phase.ordinal() == 0 ? "" : ", ",
+                    phase.name().toLowerCase(Locale.ROOT), s.phaseMeanMs[phase.ordinal()]));
+            }
+            sb.append("}}").append(i < stats.size() - 1 ? ",\n" : "\n");
+        }
+        sb.append("  ]\n");
+        return sb.append("}\n").toString();
+    }
+
+    // Prometheus text exposition format: latency summaries (seconds) and counters per query
+    public String toPrometheus() {
+        List<Stats> stats = snapshot();
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP vulcynyx_query_duration_seconds Query latency, all phases\n");
+        sb.append("# TYPE vulcynyx_query_duration_seconds summary\n");
+        for (Stats s : stats) {
+            String query = "query=\"" + promEscape(s.name) + "\"";
+            sb.append(String.format(Locale.ROOT, "vulcynyx_query_duration_seconds{%s,quantile=\"0.5\"} %.9f%n",
+                query, s.p50Ms / 1e3));
+            sb.append(String.format(Locale.ROOT, "vulcynyx_query_duration_seconds{%s,quantile=\"0.99\"} %.9f%n",
+                query, s.p99Ms / 1e3));
+            sb.append(String.format(Locale.ROOT, "vulcynyx_query_duration_seconds{%s,quantile=\"1\"} %.9f%n",
+                query, s.maxMs / 1e3));
+            sb.append(String.format(Locale.ROOT, "vulcynyx_query_duration_seconds_sum{%s} %.9f%n",
+                query, s.totalMs / 1e3));
+            sb.append(String.format(Locale.ROOT, "vulcynyx_query_duration_seconds_count{%s} %d%n",
+                query, s.executions));
+        }
+        sb.append("# HELP vulcynyx_query_phase_seconds_total Time spent per query phase\n");
+        sb.append("# TYPE vulcynyx_query_phase_seconds_total counter\n");
+        for (Stats s : stats) {
+            for (Phase phase : Phase.values()) {
+                sb.append(String.format(Locale.ROOT, "vulcynyx_query_phase_seconds_total{query=\"%s\",phase=\"%s\"} %.9f%n",
+                    promEscape(s.name), phase.name().toLowerCase(Locale.ROOT), s.phaseTotalMs[phase.ordinal()] / 1e3));
+            }
+        }
+        appendCounter(sb, stats, "vulcynyx_query_errors_total", "Failed executions", s -> s.errors);
+        appendCounter(sb, stats, "vulcynyx_query_cache_hits_total", "Executions answered without the database",
+            s -> s.cacheHits);
+        appendCounter(sb, stats, "vulcynyx_query_rows_total", "Rows returned or affected", s -> s.rows);
+        appendCounter(sb, stats, "vulcynyx_query_bytes_total", "Estimated bytes read", s -> s.bytes);
+        return sb.toString();
+    }
+
+    private static void appendCounter(StringBuilder sb, List<Stats> stats, String metric, String help,
+                                      java.util.function.ToLongFunction<Stats> value) {
+        sb.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(metric).append(" counter\n");
+        for (Stats s : stats) {
+            sb.append(metric).append("{query=\"").append(promEscape(s.name)).append("\"} ")
+              .append(value.applyAsLong(s)).append('\n');
+        }
+    }
+
+    // Write the current metrics to <vulcynyx.metrics.file>.json / .prom, returning the path
+    public Path dump(Format format) throws IOException {
+        return dump(format, Paths.get(DUMP_FILE + format.extension));
+    }
+
+    public Path dump(Format format, Path path) throws IOException {
+        String text = format == Format.JSON ? toJson() : toPrometheus();
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            out.print(text);
+        }
+        return path.toAbsolutePath();
+    }
+
+    public String getStats() {
+        long executions = 0;
+        long errors = 0;
+        long hits = 0;
+        for (Series s : series.values()) {
+            executions += s.total.getCount();
+            errors += s.errors.get();
+            hits += s.cacheHits.get();
+        }
+        return String.format("QueryMetrics[series=%d, enabled=%b] executions=%d errors=%d cacheHits=%d",
+            series.size(), ENABLED, executions, errors, hits);
+    }
+
+    private static String jsonEscape(String value) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String promEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
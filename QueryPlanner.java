@@ -0,0 +1,276 @@
+package mini_project_dbms;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Chooses between the original SQL of a report and a rewritten, index-friendly variant with the same
+// result (NOT IN -> NOT EXISTS anti-join, aggregation before a join instead of after a fan-out,
+// window functions instead of correlated aggregate subqueries). The variants live next to the
+// original at the call site; this class only decides which one runs:
+//   ORIGINAL   always the original SQL
+//   OPTIMIZED  the rewrite (default)
+//   VERIFY     run both on a separate pooled connection, compare the results as multisets of rows,
+//              then use the rewrite only if they agree (with vulcynyx.planner.strict, fail instead)
+// The mode is global (vulcynyx.planner.mode) and can be overridden per report at runtime. For a
+// LIMIT query, rows tied with the last row on the ORDER BY columns may be cut differently by the
+// two variants, so a TopN passed to plan() leaves that tie group out of the comparison.
+public class QueryPlanner {
+    public enum Mode { ORIGINAL, OPTIMIZED, VERIFY }
+
+    private static final boolean STRICT = Boolean.getBoolean("vulcynyx.planner.strict");
+    private static final int LOGGED_DIFFERENCES = 5;
+
+    private static final QueryPlanner SHARED =
+        new QueryPlanner(Mode.valueOf(System.getProperty("vulcynyx.planner.mode", "OPTIMIZED").toUpperCase(Locale.ROOT)));
+
+    // Outcome of running both variants of one report
+    public static final class Verification {
+        final String id;
+        final boolean matches;
+        final long originalNanos;
+        final long optimizedNanos;
+        final String difference;
+
+        Verification(String id, boolean matches, long originalNanos, long optimizedNanos, String difference) {
+            this.id = id;
+            this.matches = matches;
+            this.originalNanos = originalNanos;
+            this.optimizedNanos = optimizedNanos;
+            this.difference = difference;
+        }
+
+        public boolean matches() {
+            return matches;
+        }
+
+        // How the results differ, or null if they match
+        public String getDifference() {
+            return difference;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s (original %.1f ms, optimized %.1f ms)%s", id,
+                matches ? "identical" : "DIFFERENT", originalNanos / 1e6, optimizedNanos / 1e6,
+                matches ? "" : " " + difference);
+        }
+    }
+
+    // Shape of a LIMIT query's result: the limit and the result columns its ORDER BY sorts on
+    public static final class TopN {
+        final int limit;
+        final int[] orderColumns;
+
+        public TopN(int limit, int... orderColumns) {
+            this.limit = limit;
+            this.orderColumns = orderColumns;
+        }
+    }
+
+    private volatile Mode mode;
+    private final Map<String, Mode> overrides = new ConcurrentHashMap<>();
+    private final Map<String, Verification> lastVerification = new ConcurrentHashMap<>();
+    private final AtomicLong optimizedRuns = new AtomicLong();
+    private final AtomicLong originalRuns = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+
+    public QueryPlanner(Mode mode) {
+        this.mode = mode;
+    }
+
+    // Planner shared by every front end in this JVM
+    public static QueryPlanner shared() {
+        return SHARED;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    // Mode for one report; null removes the override
+    public void setMode(String id, Mode mode) {
+        if (mode == null) {
+            overrides.remove(id);
+        } else {
+            overrides.put(id, mode);
+        }
+    }
+
+    public Mode getMode(String id) {
+        return overrides.getOrDefault(id, mode);
+    }
+
+    // The report's own mode, or null if it follows the global one
+    public Mode getOverride(String id) {
+        return overrides.get(id);
+    }
+
+    // The SQL to run for the report. In VERIFY mode both variants are run first on a connection
+    // from pool (bound to params) and compared; a mismatch falls back to the original.
+    public String plan(ConnectionPool pool, String id, String original, String optimized, Object... params)
+            throws SQLException {
+        return plan(pool, id, null, original, optimized, params);
+    }
+
+    // As above for a LIMIT query whose ORDER BY can tie (topN may be null)
+    public String plan(ConnectionPool pool, String id, TopN topN, String original, String optimized,
+                       Object... params) throws SQLException {
+        Mode current = getMode(id);
+        if (current == Mode.ORIGINAL
+                || (current == Mode.VERIFY && !verify(pool, id, topN, original, optimized, params).matches)) {
+            originalRuns.incrementAndGet();
+            return original;
+        }
+        optimizedRuns.incrementAndGet();
+        return optimized;
+    }
+
+    // Run both variants and compare their results. A variant that fails counts as a mismatch.
+    public Verification verify(ConnectionPool pool, String id, TopN topN, String original, String optimized,
+                               Object... params) throws SQLException {
+        QueryResult expected = null;
+        QueryResult actual = null;
+        long originalNanos = 0;
+        long optimizedNanos = 0;
+        String difference;
+        try (Connection conn = pool.getConnection()) {
+            long start = System.nanoTime();
+            try {
+                expected = run(conn, id + ".original", original, params);
+                originalNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                actual = run(conn, id + ".optimized", optimized, params);
+                optimizedNanos = System.nanoTime() - start;
+                difference = compare(expected, actual, topN);
+            } catch (SQLException e) {
+                difference = (expected == null ? "original" : "optimized") + " failed: " + e.getMessage();
+            }
+        }
+        Verification verification = new Verification(id, difference == null, originalNanos, optimizedNanos, difference);
+        verifications.incrementAndGet();
+        lastVerification.put(id, verification);
+        if (difference != null) {
+            mismatches.incrementAndGet();
+            System.err.println("Query planner: rewrite of " + verification);
+            if (STRICT) {
+                throw new SQLException("Optimized variant of " + id + " disagrees with the original: " + difference);
+            }
+        }
+        return verification;
+    }
+
+    private static QueryResult run(Connection conn, String label, String sql, Object[] params) throws SQLException {
+        QueryMetrics.Scope scope = QueryMetrics.label(label);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return QueryResult.read(rs);
+            }
+        } finally {
+            scope.close();
+        }
+    }
+
+    // Null if both results hold the same rows (in any order: rows tied on the ORDER BY keys may come
+    // back in either order), otherwise a short description of the difference. With topN, when the
+    // limit cut the result, the rows tied with the last row on the ORDER BY columns are left out:
+    // either variant may keep any of them, so only the rows ranked strictly above are compared.
+    static String compare(QueryResult expected, QueryResult actual, TopN topN) {
+        if (expected.getColumnCount() != actual.getColumnCount()) {
+            return "column count " + expected.getColumnCount() + " vs " + actual.getColumnCount();
+        }
+        List<String> boundary = null;
+        if (topN != null && expected.getRowCount() >= topN.limit && topN.limit > 0) {
+            if (actual.getRowCount() != expected.getRowCount()) {
+                return String.format("rows %d vs %d", expected.getRowCount(), actual.getRowCount());
+            }
+            boundary = orderKey(expected, expected.getRowCount() - 1, topN);
+            List<String> last = orderKey(actual, actual.getRowCount() - 1, topN);
+            if (!boundary.equals(last)) {
+                return "last row ranked on " + boundary + " vs " + last;
+            }
+        }
+        Map<List<String>, Integer> rows = new HashMap<>();
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            if (boundary == null || !boundary.equals(orderKey(expected, row, topN))) {
+                rows.merge(rowKey(expected, row), 1, Integer::sum);
+            }
+        }
+        List<String> unexpected = new ArrayList<>();
+        for (int row = 0; row < actual.getRowCount(); row++) {
+            if (boundary != null && boundary.equals(orderKey(actual, row, topN))) {
+                continue;
+            }
+            List<String> key = rowKey(actual, row);
+            Integer count = rows.get(key);
+            if (count == null) {
+                unexpected.add(key.toString());
+            } else if (count == 1) {
+                rows.remove(key);
+            } else {
+                rows.put(key, count - 1);
+            }
+        }
+        if (unexpected.isEmpty() && rows.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(String.format("rows %d vs %d", expected.getRowCount(), actual.getRowCount()));
+        List<List<String>> missing = new ArrayList<>(rows.keySet());
+        if (!missing.isEmpty()) {
+            sb.append("; missing ").append(missing.subList(0, Math.min(LOGGED_DIFFERENCES, missing.size())));
+        }
+        if (!unexpected.isEmpty()) {
+            sb.append("; extra ").append(unexpected.subList(0, Math.min(LOGGED_DIFFERENCES, unexpected.size())));
+        }
+        return sb.toString();
+    }
+
+    // Values compared by content: numbers of any type by value (to 6 decimals), the rest as text
+    private static List<String> rowKey(QueryResult result, int row) {
+        List<String> key = new ArrayList<>(result.getColumnCount());
+        for (int column = 0; column < result.getColumnCount(); column++) {
+            key.add(value(result, row, column));
+        }
+        return key;
+    }
+
+    private static List<String> orderKey(QueryResult result, int row, TopN topN) {
+        List<String> key = new ArrayList<>(topN.orderColumns.length);
+        for (int column : topN.orderColumns) {
+            key.add(value(result, row, column));
+        }
+        return key;
+    }
+
+    private static String value(QueryResult result, int row, int column) {
+        Object value = result.getObject(row, column);
+        if (value instanceof Number) {
+            BigDecimal number = new BigDecimal(value.toString());
+            return number.setScale(Math.min(number.scale(), 6), java.math.RoundingMode.HALF_UP)
+                .stripTrailingZeros().toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    // Latest verification of every report that has been verified
+    public List<Verification> getVerifications() {
+        List<Verification> all = new ArrayList<>(lastVerification.values());
+        all.sort(Comparator.comparing(v -> v.id));
+        return all;
+    }
+
+    public String getStats() {
+        return String.format("QueryPlanner[mode=%s, overrides=%s] optimized=%d original=%d verified=%d mismatches=%d",
+            mode, overrides, optimizedRuns.get(), originalRuns.get(), verifications.get(), mismatches.get());
+    }
+}
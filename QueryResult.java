@@ -0,0 +1,605 @@
+package mini_project_dbms;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+// Columnar query result. Column names are stored once and values live in typed primitive arrays
+// (int/long/double, unscaled-long decimals, epoch-day dates, dictionary-encoded strings), with a
+// null bitmap per column. It is also a List of lightweight row views (Map<String, Object>), so
+// code written against List<Map<String, Object>> keeps working without per-row HashMaps.
+public class QueryResult extends AbstractList<Map<String, Object>> {
+    public enum ColumnType { INT, LONG, DOUBLE, DECIMAL, STRING, DATE, OBJECT }
+
+    private static final QueryResult EMPTY = new QueryResult(new String[0], new Column[0], 0);
+
+    private final String[] columnNames;
+    private final Map<String, Integer> columnIndex;
+    private final Column[] columns;
+    private final int rowCount;
+
+    private QueryResult(String[] columnNames, Column[] columns, int rowCount) {
+        this.columnNames = columnNames;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.columnIndex = new HashMap<>();
+        for (int i = 0; i < columnNames.length; i++) {
+            columnIndex.putIfAbsent(columnNames[i], i);
+        }
+    }
+
+    public static QueryResult empty() {
+        return EMPTY;
+    }
+
+    // Read every remaining row of the result set
+    public static QueryResult read(ResultSet rs) throws SQLException {
+        Builder builder = new Builder(rs.getMetaData(), 64);
+        while (rs.next()) {
+            builder.addRow(rs);
+        }
+        return builder.build();
+    }
+
+    // ==================== COLUMN ACCESS ====================
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(Arrays.asList(columnNames));
+    }
+
+    // Index of the column with the given label, or -1
+    public int findColumn(String name) {
+        Integer index = columnIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public ColumnType getColumnType(int column) {
+        return columns[column].type;
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].nulls.get(row);
+    }
+
+    public Object getObject(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        return c.nulls.get(row) ? null : c.get(row);
+    }
+
+    // Primitive accessors; null cells read as 0 (check isNull when it matters)
+    public int getInt(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        if (c instanceof IntColumn) {
+            return ((IntColumn) c).values[row];
+        }
+        return (int) getLong(row, column);
+    }
+
+    public long getLong(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        if (c instanceof LongColumn) {
+            return ((LongColumn) c).values[row];
+        }
+        if (c instanceof IntColumn) {
+            return ((IntColumn) c).values[row];
+        }
+        Object value = getObject(row, column);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        if (c instanceof DoubleColumn) {
+            return ((DoubleColumn) c).values[row];
+        }
+        if (c instanceof DecimalColumn) {
+            DecimalColumn d = (DecimalColumn) c;
+            return d.unscaled[row] / Math.pow(10, d.scale);
+        }
+        if (c instanceof IntColumn) {
+            return ((IntColumn) c).values[row];
+        }
+        if (c instanceof LongColumn) {
+            return ((LongColumn) c).values[row];
+        }
+        Object value = getObject(row, column);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    public String getString(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        if (c.nulls.get(row)) {
+            return null;
+        }
+        if (c instanceof StringColumn) {
+            StringColumn s = (StringColumn) c;
+            return s.dictionary[s.codes[row]];
+        }
+        return String.valueOf(c.get(row));
+    }
+
+    // Rough heap footprint, used to bound caches of results
+    public long estimatedBytes() {
+        long bytes = 64;
+        for (int i = 0; i < columns.length; i++) {
+            bytes += 48 + 2L * columnNames[i].length() + columns[i].nulls.size() / 8 + columns[i].estimatedBytes();
+        }
+        return bytes;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+        }
+    }
+
+    // ==================== ROW VIEW ====================
+    @Override
+    public Map<String, Object> get(int row) {
+        checkRow(row);
+        return new RowView(row);
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    // Read-only Map over one row, iterating in column order
+    private final class RowView extends AbstractMap<String, Object> {
+        private final int row;
+
+        RowView(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = columnIndex.get(key);
+            return column == null ? null : getObject(row, column);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columnIndex.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return columnNames.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < columnNames.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int c = column++;
+                            return new SimpleImmutableEntry<>(columnNames[c], getObject(row, c));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columnNames.length;
+                }
+            };
+        }
+    }
+
+    // ==================== BUILDER ====================
+    // Appends rows from a ResultSet positioned on a row; column types come from the metadata
+    public static class Builder {
+        private final String[] names;
+        private final Column[] columns;
+        private int rows;
+
+        public Builder(ResultSetMetaData metaData, int expectedRows) throws SQLException {
+            int count = metaData.getColumnCount();
+            int capacity = Math.max(expectedRows, 8);
+            names = new String[count];
+            columns = new Column[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = metaData.getColumnLabel(i + 1);
+                columns[i] = newColumn(metaData, i + 1, capacity);
+            }
+        }
+
+        // Builder for rows that do not come from JDBC (e.g. answered from an in-memory index)
+        public Builder(String[] names, ColumnType[] types, int expectedRows) {
+            int capacity = Math.max(expectedRows, 8);
+            this.names = names.clone();
+            columns = new Column[names.length];
+            for (int i = 0; i < names.length; i++) {
+                columns[i] = newColumn(types[i], capacity);
+            }
+        }
+
+        public int size() {
+            return rows;
+        }
+
+        public void addRow(ResultSet rs) throws SQLException {
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                column.ensureCapacity(rows + 1);
+                if (!column.read(rs, i + 1, rows)) {
+                    // Value does not fit the primitive encoding; fall back to boxed storage
+                    columns[i] = column = ObjectColumn.copyOf(column, rows);
+                    column.read(rs, i + 1, rows);
+                }
+                if (rs.wasNull()) {
+                    column.nulls.set(rows);
+                }
+            }
+            rows++;
+        }
+
+        // Values must match the column types given to the constructor (numbers for INT/LONG/DOUBLE,
+        // BigDecimal for DECIMAL, java.sql.Date for DATE); null is allowed anywhere
+        public void addRow(Object... values) {
+            for (int i = 0; i < columns.length; i++) {
+                Column column = columns[i];
+                column.ensureCapacity(rows + 1);
+                if (values[i] == null) {
+                    column.nulls.set(rows);
+                } else if (!column.set(rows, values[i])) {
+                    columns[i] = column = ObjectColumn.copyOf(column, rows);
+                    column.set(rows, values[i]);
+                }
+            }
+            rows++;
+        }
+
+        public QueryResult build() {
+            for (Column column : columns) {
+                column.trim(rows);
+            }
+            return new QueryResult(names, columns, rows);
+        }
+
+        private static Column newColumn(ColumnType type, int capacity) {
+            switch (type) {
+                case INT: return new IntColumn(capacity);
+                case LONG: return new LongColumn(capacity);
+                case DOUBLE: return new DoubleColumn(capacity);
+                case DECIMAL: return new DecimalColumn(capacity, 2);
+                case STRING: return new StringColumn(capacity);
+                case DATE: return new DateColumn(capacity);
+                default: return new ObjectColumn(capacity);
+            }
+        }
+
+        private static Column newColumn(ResultSetMetaData md, int i, int capacity) throws SQLException {
+            switch (md.getColumnType(i)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                    return new IntColumn(capacity);
+                case Types.INTEGER:
+                    return md.isSigned(i) ? new IntColumn(capacity) : new LongColumn(capacity);
+                case Types.BIGINT:
+                    return md.isSigned(i) ? new LongColumn(capacity) : new ObjectColumn(capacity);
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.REAL:
+                    return new DoubleColumn(capacity);
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    int scale = md.getScale(i);
+                    return scale >= 0 && scale <= 18 ? new DecimalColumn(capacity, scale) : new ObjectColumn(capacity);
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.LONGNVARCHAR:
+                    return new StringColumn(capacity);
+                case Types.DATE:
+                    return new DateColumn(capacity);
+                default:
+                    return new ObjectColumn(capacity);
+            }
+        }
+    }
+
+    // ==================== COLUMN STORAGE ====================
+    private abstract static class Column {
+        final ColumnType type;
+        BitSet nulls = new BitSet();
+
+        Column(ColumnType type) {
+            this.type = type;
+        }
+
+        abstract int capacity();
+
+        abstract void resize(int capacity);
+
+        // Store the current row's value; false if it cannot be represented by this column
+        abstract boolean read(ResultSet rs, int column, int row) throws SQLException;
+
+        // Same for a non-null value supplied directly
+        abstract boolean set(int row, Object value);
+
+        abstract Object get(int row);
+
+        abstract long estimatedBytes();
+
+        void ensureCapacity(int needed) {
+            if (needed > capacity()) {
+                resize(Math.max(needed, capacity() * 2));
+            }
+        }
+
+        void trim(int rows) {
+            if (capacity() != rows) {
+                resize(rows);
+            }
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        int[] values;
+
+        IntColumn(int capacity) {
+            super(ColumnType.INT);
+            values = new int[capacity];
+        }
+
+        int capacity() { return values.length; }
+
+        void resize(int capacity) { values = Arrays.copyOf(values, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getInt(column);
+            return true;
+        }
+
+        boolean set(int row, Object value) {
+            values[row] = ((Number) value).intValue();
+            return true;
+        }
+
+        Object get(int row) { return values[row]; }
+
+        long estimatedBytes() { return 4L * values.length; }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values;
+
+        LongColumn(int capacity) {
+            super(ColumnType.LONG);
+            values = new long[capacity];
+        }
+
+        int capacity() { return values.length; }
+
+        void resize(int capacity) { values = Arrays.copyOf(values, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getLong(column);
+            return true;
+        }
+
+        boolean set(int row, Object value) {
+            values[row] = ((Number) value).longValue();
+            return true;
+        }
+
+        Object get(int row) { return values[row]; }
+
+        long estimatedBytes() { return 8L * values.length; }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values;
+
+        DoubleColumn(int capacity) {
+            super(ColumnType.DOUBLE);
+            values = new double[capacity];
+        }
+
+        int capacity() { return values.length; }
+
+        void resize(int capacity) { values = Arrays.copyOf(values, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getDouble(column);
+            return true;
+        }
+
+        boolean set(int row, Object value) {
+            values[row] = ((Number) value).doubleValue();
+            return true;
+        }
+
+        Object get(int row) { return values[row]; }
+
+        long estimatedBytes() { return 8L * values.length; }
+    }
+
+    // Exact decimals as unscaled longs with a fixed scale (e.g. 1234.50 -> 123450, scale 2)
+    private static final class DecimalColumn extends Column {
+        final int scale;
+        long[] unscaled;
+
+        DecimalColumn(int capacity, int scale) {
+            super(ColumnType.DECIMAL);
+            this.scale = scale;
+            unscaled = new long[capacity];
+        }
+
+        int capacity() { return unscaled.length; }
+
+        void resize(int capacity) { unscaled = Arrays.copyOf(unscaled, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            BigDecimal value = rs.getBigDecimal(column);
+            return value == null || set(row, value);
+        }
+
+        boolean set(int row, Object value) {
+            try {
+                unscaled[row] = ((BigDecimal) value).setScale(scale).unscaledValue().longValueExact();
+                return true;
+            } catch (ArithmeticException e) {
+                return false;
+            }
+        }
+
+        Object get(int row) { return BigDecimal.valueOf(unscaled[row], scale); }
+
+        long estimatedBytes() { return 8L * unscaled.length; }
+    }
+
+    // Dictionary-encoded strings: each distinct value is stored once, rows hold int codes
+    private static final class StringColumn extends Column {
+        int[] codes;
+        String[] dictionary = new String[16];
+        int dictionarySize;
+        Map<String, Integer> lookup = new HashMap<>();
+
+        StringColumn(int capacity) {
+            super(ColumnType.STRING);
+            codes = new int[capacity];
+        }
+
+        int capacity() { return codes.length; }
+
+        void resize(int capacity) { codes = Arrays.copyOf(codes, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            String value = rs.getString(column);
+            return value == null || set(row, value);
+        }
+
+        boolean set(int row, Object value) {
+            Integer code = lookup.get(value);
+            if (code == null) {
+                if (dictionarySize == dictionary.length) {
+                    dictionary = Arrays.copyOf(dictionary, dictionarySize * 2);
+                }
+                code = dictionarySize;
+                dictionary[dictionarySize++] = (String) value;
+                lookup.put((String) value, code);
+            }
+            codes[row] = code;
+            return true;
+        }
+
+        @Override
+        void trim(int rows) {
+            super.trim(rows);
+            dictionary = Arrays.copyOf(dictionary, dictionarySize);
+            lookup = null; // only needed while building
+        }
+
+        Object get(int row) { return dictionary[codes[row]]; }
+
+        long estimatedBytes() {
+            long bytes = 4L * codes.length + 8L * dictionary.length;
+            for (int i = 0; i < dictionarySize; i++) {
+                bytes += 40 + dictionary[i].length();
+            }
+            return bytes;
+        }
+    }
+
+    private static final class DateColumn extends Column {
+        int[] epochDays;
+
+        DateColumn(int capacity) {
+            super(ColumnType.DATE);
+            epochDays = new int[capacity];
+        }
+
+        int capacity() { return epochDays.length; }
+
+        void resize(int capacity) { epochDays = Arrays.copyOf(epochDays, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            java.sql.Date value = rs.getDate(column);
+            return value == null || set(row, value);
+        }
+
+        boolean set(int row, Object value) {
+            epochDays[row] = (int) ((java.sql.Date) value).toLocalDate().toEpochDay();
+            return true;
+        }
+
+        Object get(int row) { return java.sql.Date.valueOf(LocalDate.ofEpochDay(epochDays[row])); }
+
+        long estimatedBytes() { return 4L * epochDays.length; }
+    }
+
+    private static final class ObjectColumn extends Column {
+        Object[] values;
+
+        ObjectColumn(int capacity) {
+            super(ColumnType.OBJECT);
+            values = new Object[capacity];
+        }
+
+        // Box the first rows of another column, used when a primitive encoding overflows
+        static ObjectColumn copyOf(Column source, int rows) {
+            ObjectColumn copy = new ObjectColumn(source.capacity());
+            for (int row = 0; row < rows; row++) {
+                copy.values[row] = source.nulls.get(row) ? null : source.get(row);
+            }
+            copy.nulls = source.nulls;
+            return copy;
+        }
+
+        int capacity() { return values.length; }
+
+        void resize(int capacity) { values = Arrays.copyOf(values, capacity); }
+
+        boolean read(ResultSet rs, int column, int row) throws SQLException {
+            values[row] = rs.getObject(column);
+            return true;
+        }
+
+        boolean set(int row, Object value) {
+            values[row] = value;
+            return true;
+        }
+
+        Object get(int row) { return values[row]; }
+
+        // Reference plus a typical boxed value / short string
+        long estimatedBytes() { return 48L * values.length; }
+    }
+}
@@ -0,0 +1,116 @@
+package mini_project_dbms;
+
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs database work on a small bounded worker pool so Swing handlers never block the EDT.
+// Results come back as CompletableFutures; callers hop back to the EDT to touch components.
+public class QueryRunner {
+    private static final int WORKERS = Integer.getInteger("vulcynyx.query.workers", 2);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("vulcynyx.query.queueCapacity", 16);
+
+    @FunctionalInterface
+    public interface SqlTask<T> {
+        T call() throws SQLException;
+    }
+
+    private final ThreadPoolExecutor workers;
+    // Tasks submitted and not yet finished (or skipped), guarded by idle
+    private final Object idle = new Object();
+    private int inFlight;
+
+    public QueryRunner() {
+        this(WORKERS, QUEUE_CAPACITY);
+    }
+
+    public QueryRunner(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "query-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    // Submit a task. Cancelling the returned future invokes the canceller on the cancelling thread,
+    // so it should only capture what to cancel and hand slow work (e.g. Statement.cancel) elsewhere.
+    // A result that is AutoCloseable but arrives after the future was cancelled is closed.
+    public <T> CompletableFuture<T> submit(SqlTask<T> task, Runnable canceller) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        synchronized (idle) {
+            inFlight++;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    if (future.isDone()) {
+                        return; // cancelled while queued
+                    }
+                    T result = task.call();
+                    if (!future.complete(result) && result instanceof AutoCloseable) {
+                        ((AutoCloseable) result).close();
+                    }
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            finished();
+            future.completeExceptionally(new SQLException("Too many queries queued, please wait", e));
+            return future;
+        }
+        if (canceller != null) {
+            future.whenComplete((result, error) -> {
+                if (error instanceof CancellationException) {
+                    canceller.run();
+                }
+            });
+        }
+        return future;
+    }
+
+    public <T> CompletableFuture<T> submit(SqlTask<T> task) {
+        return submit(task, null);
+    }
+
+    // Wait until every submitted task has finished or been skipped; false if the timeout ran out first
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle) {
+            while (inFlight > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+        }
+        return true;
+    }
+
+    private void finished() {
+        synchronized (idle) {
+            inFlight--;
+            idle.notifyAll();
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Unwrap CompletionException/ExecutionException layers to the real failure
+    public static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,422 @@
+package mini_project_dbms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+// Reports shared by the front ends, defined once in reports.properties (SQL, parameters, column
+// labels and formats, cache policy) instead of as string literals in each UI. The definitions are
+// read and checked once per JVM: placeholders are counted against the declared parameters and the
+// cache policies are built up front, so a broken definition fails at startup rather than on a click.
+//
+// run() is the one way the reports execute: arguments are converted to the declared types, the
+// result comes from ResultCache when fresh, and the query is labelled with the report id for
+// QueryMetrics (and so the slow-query log). Database runs them on its own connection through the
+// same path, so a result cached by one front end serves the others.
+public class ReportRegistry {
+    private static final String FILE = System.getProperty("vulcynyx.reports.file");
+    private static final String RESOURCE = "reports.properties";
+
+    private static final Map<ConnectionPool, ReportRegistry> shared = new IdentityHashMap<>();
+    private static Map<String, Report> definitions;
+
+    // How a result column is shown
+    public enum Format {
+        INT, TEXT, DECIMAL, CURRENCY, PERCENT;
+
+        public String format(Object value) {
+            if (value == null) {
+                return "";
+            }
+            switch (this) {
+                case INT:
+                    return value instanceof Number ? String.valueOf(((Number) value).longValue()) : value.toString();
+                case DECIMAL:
+                    return value instanceof Number ? String.format("%.2f", ((Number) value).doubleValue()) : value.toString();
+                case CURRENCY:
+                    return value instanceof Number ? String.format("₹%.2f", ((Number) value).doubleValue()) : value.toString();
+                case PERCENT:
+                    return value instanceof Number ? String.format("%.2f%%", ((Number) value).doubleValue()) : value.toString();
+                default:
+                    return value.toString();
+            }
+        }
+    }
+
+    // Declared type of a parameter; arguments are converted to it before binding
+    public enum ParamType {
+        INT, DECIMAL, TEXT, DATE;
+
+        Object convert(Object value) {
+            if (value == null) {
+                return null;
+            }
+            switch (this) {
+                case INT:
+                    return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString().trim());
+                case DECIMAL:
+                    if (value instanceof BigDecimal) {
+                        return value;
+                    }
+                    return value instanceof Double || value instanceof Float
+                        ? BigDecimal.valueOf(((Number) value).doubleValue()) : new BigDecimal(value.toString().trim());
+                case DATE:
+                    if (value instanceof java.sql.Date) {
+                        return value;
+                    }
+                    return java.sql.Date.valueOf(value instanceof LocalDate ? (LocalDate) value
+                                                                            : LocalDate.parse(value.toString().trim()));
+                default:
+                    return value.toString();
+            }
+        }
+    }
+
+    public static final class Column {
+        private final String name;
+        private final String label;
+        private final Format format;
+
+        Column(String name, String label, Format format) {
+            this.name = name;
+            this.label = label;
+            this.format = format;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+    }
+
+    // One report definition, checked and ready to run
+    public static final class Report {
+        private final String id;
+        private final String title;
+        private final String sql;
+        private final String[] paramNames;
+        private final ParamType[] paramTypes;
+        private final List<Column> columns;
+        private final ResultCache.Policy policy;
+
+        Report(String id, String title, String sql, String[] paramNames, ParamType[] paramTypes,
+               List<Column> columns, ResultCache.Policy policy) {
+            this.id = id;
+            this.title = title;
+            this.sql = sql;
+            this.paramNames = paramNames;
+            this.paramTypes = paramTypes;
+            this.columns = columns;
+            this.policy = policy;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public ResultCache.Policy getPolicy() {
+            return policy;
+        }
+
+        public List<Column> getColumns() {
+            return columns;
+        }
+
+        public String[] getColumnLabels() {
+            String[] labels = new String[columns.size()];
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = columns.get(i).getLabel();
+            }
+            return labels;
+        }
+
+        // Arguments converted to the declared parameter types
+        public Object[] bind(Object... args) {
+            if (args.length != paramTypes.length) {
+                throw new IllegalArgumentException("Report " + id + " takes " + paramTypes.length +
+                    " parameter(s) " + Arrays.toString(paramNames) + ", got " + args.length);
+            }
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                try {
+                    values[i] = paramTypes[i].convert(args[i]);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("Report " + id + ": " + paramNames[i] + " must be " +
+                        paramTypes[i] + ", got '" + args[i] + "'", e);
+                }
+            }
+            return values;
+        }
+
+        // A result row formatted for display, column by column
+        public Object[] formatRow(QueryResult result, int row) {
+            Object[] cells = new Object[columns.size()];
+            for (int column = 0; column < cells.length; column++) {
+                cells[column] = columns.get(column).getFormat().format(result.getObject(row, column));
+            }
+            return cells;
+        }
+    }
+
+    // Runs a report's SQL. The registry's default borrows a pooled connection; Database passes its
+    // own so that statement caching, paging and cancellation keep working.
+    @FunctionalInterface
+    public interface Executor {
+        QueryResult execute(String sql, Object... params) throws SQLException;
+    }
+
+    private final ConnectionPool pool;
+    private final ResultCache cache = ResultCache.shared();
+    private final AnalyticsEngine analytics;
+
+    private ReportRegistry(ConnectionPool pool) {
+        this.pool = pool;
+        this.analytics = AnalyticsEngine.shared(pool);
+        analytics.start();
+        ChangeFeed.shared(pool).start();
+    }
+
+    // Registry for the reports run through this pool, shared by every front end in this JVM
+    public static synchronized ReportRegistry shared(ConnectionPool pool) {
+        return shared.computeIfAbsent(pool, ReportRegistry::new);
+    }
+
+    public Report get(String id) {
+        Report report = definitions().get(id);
+        if (report == null) {
+            throw new IllegalArgumentException("No report definition for " + id);
+        }
+        return report;
+    }
+
+    public Collection<Report> getReports() {
+        return definitions().values();
+    }
+
+    // Run the report on a pooled connection
+    public QueryResult run(String id, Object... args) throws SQLException {
+        return run(id, this::executePooled, args);
+    }
+
+    // Run the report through executor, or answer it from the in-process analytics snapshot or the
+    // result cache
+    public QueryResult run(String id, Executor executor, Object... args) throws SQLException {
+        Report report = get(id);
+        Object[] params = report.bind(args);
+        QueryResult local = analytics.evaluate(id, report.getSql(), params);
+        if (local != null) {
+            return local;
+        }
+        String key = ResultCache.key(id, params);
+        QueryResult cached = cache.get(key);
+        if (cached != null) {
+            QueryMetrics.shared().recordCacheHit(id);
+            return cached;
+        }
+
+        long generation = cache.generation();
+        QueryResult result;
+        QueryMetrics.Scope label = QueryMetrics.label(id);
+        try {
+            result = executor.execute(report.getSql(), params);
+        } finally {
+            label.close();
+        }
+        if (result.getColumnCount() < report.getColumns().size()) {
+            throw new SQLException("Report " + id + " returned " + result.getColumnCount() +
+                " columns but its definition declares " + report.getColumns().size());
+        }
+        cache.put(key, result, report.getPolicy(), generation);
+        return result;
+    }
+
+    private QueryResult executePooled(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return QueryResult.read(rs);
+            }
+        }
+    }
+
+    // ==================== DEFINITIONS ====================
+
+    private static synchronized Map<String, Report> definitions() {
+        if (definitions == null) {
+            try {
+                definitions = parse(loadProperties());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read report definitions: " + e.getMessage(), e);
+            }
+        }
+        return definitions;
+    }
+
+    // vulcynyx.reports.file if set, else reports.properties on the classpath or in the working directory
+    private static Properties loadProperties() throws IOException {
+        Properties properties = new Properties();
+        if (FILE != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(FILE), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            return properties;
+        }
+        InputStream in = ReportRegistry.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            in = ReportRegistry.class.getResourceAsStream("/" + RESOURCE);
+        }
+        if (in == null) {
+            Path local = Paths.get(RESOURCE);
+            if (!Files.exists(local)) {
+                throw new IOException(RESOURCE + " not found on the classpath or in " + local.toAbsolutePath().getParent());
+            }
+            in = Files.newInputStream(local);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    static Map<String, Report> parse(Properties properties) {
+        Map<String, Report> reports = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(".sql")) {
+                continue;
+            }
+            String id = key.substring(0, key.length() - ".sql".length());
+            reports.put(id, parse(id, properties));
+        }
+        return Collections.unmodifiableMap(reports);
+    }
+
+    private static Report parse(String id, Properties properties) {
+        // Properties already drops the indentation of continuation lines; whitespace inside the SQL,
+        // string literals included, is left as written
+        String sql = properties.getProperty(id + ".sql").trim();
+        String title = properties.getProperty(id + ".title", id).trim();
+
+        List<String> paramNames = new ArrayList<>();
+        List<ParamType> paramTypes = new ArrayList<>();
+        for (String[] spec : specs(id, properties.getProperty(id + ".params", ""), 2)) {
+            paramNames.add(spec[0]);
+            paramTypes.add(enumValue(id, ParamType.class, spec[1]));
+        }
+        int placeholders = countPlaceholders(sql);
+        if (placeholders != paramTypes.size()) {
+            throw new IllegalStateException("Report " + id + " has " + placeholders + " placeholder(s) but declares " +
+                paramTypes.size() + " parameter(s)");
+        }
+
+        List<Column> columns = new ArrayList<>();
+        for (String[] spec : specs(id, properties.getProperty(id + ".columns", ""), 3)) {
+            columns.add(new Column(spec[0], spec[1], enumValue(id, Format.class, spec[2])));
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("Report " + id + " declares no columns");
+        }
+
+        String[] cache = properties.getProperty(id + ".cache", "").trim().split("\\s+");
+        if (cache.length < 2 || cache[0].isEmpty()) {
+            throw new IllegalStateException("Report " + id + " needs a cache line: <ttl> <table>...");
+        }
+        ResultCache.Policy policy = new ResultCache.Policy(duration(id, cache[0]),
+            Arrays.copyOfRange(cache, 1, cache.length));
+
+        return new Report(id, title, sql, paramNames.toArray(new String[0]),
+            paramTypes.toArray(new ParamType[0]), Collections.unmodifiableList(columns), policy);
+    }
+
+    // Comma-separated name:...:... entries, each with exactly parts fields
+    private static List<String[]> specs(String id, String value, int parts) {
+        List<String[]> specs = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] fields = entry.trim().split("\\s*:\\s*");
+            if (fields.length != parts) {
+                throw new IllegalStateException("Report " + id + ": malformed entry '" + entry.trim() + "'");
+            }
+            specs.add(fields);
+        }
+        return specs;
+    }
+
+    private static <E extends Enum<E>> E enumValue(String id, Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Report " + id + ": unknown " + type.getSimpleName() + " " + name);
+        }
+    }
+
+    private static Duration duration(String id, String ttl) {
+        char unit = ttl.charAt(ttl.length() - 1);
+        long amount;
+        try {
+            amount = Long.parseLong(ttl.substring(0, ttl.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Report " + id + ": bad cache TTL " + ttl);
+        }
+        switch (unit) {
+            case 's': return Duration.ofSeconds(amount);
+            case 'm': return Duration.ofMinutes(amount);
+            case 'h': return Duration.ofHours(amount);
+            default: throw new IllegalStateException("Report " + id + ": bad cache TTL " + ttl);
+        }
+    }
+
+    // ? outside string literals and quoted identifiers
+    private static int countPlaceholders(String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public String getStats() {
+        synchronized (ReportRegistry.class) {
+            return "ReportRegistry[" + (definitions == null ? "not loaded" : definitions.size() + " reports") + "]";
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package mini_project_dbms;
+
+import java.time.Duration;
+import java.util.*;
+
+// In-memory cache of report results keyed by query id + parameters.
+// Entries expire after their policy's TTL, the cache is bounded by the estimated size of the
+// cached QueryResults (least recently used entries go first), and write paths call
+// invalidateTable() so reports over a changed table are recomputed on the next request.
+// A result computed while one of its tables was invalidated is not cached: callers take
+// generation() before running the query and hand it to put(), which drops the result if any
+// table in its policy was invalidated since.
+public class ResultCache {
+    private static final boolean ENABLED = !Boolean.getBoolean("vulcynyx.cache.disabled");
+    private static final long MAX_BYTES = Long.getLong("vulcynyx.cache.maxBytes", 64L * 1024 * 1024);
+
+    private static final ResultCache SHARED = new ResultCache(MAX_BYTES);
+
+    // How long a query's result stays fresh and which tables it reads
+    public static final class Policy {
+        private final long ttlMillis;
+        private final Set<String> tables = new HashSet<>();
+
+        public Policy(Duration ttl, String... tables) {
+            this.ttlMillis = ttl.toMillis();
+            for (String table : tables) {
+                this.tables.add(table.toLowerCase());
+            }
+        }
+    }
+
+    private static final class Entry {
+        final QueryResult result;
+        final Policy policy;
+        final long expiresAt;
+        final long bytes;
+
+        Entry(QueryResult result, Policy policy) {
+            this.result = result;
+            this.policy = policy;
+            this.expiresAt = System.currentTimeMillis() + policy.ttlMillis;
+            this.bytes = result.estimatedBytes();
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+
+    // Bumped by every invalidation; the value at which each table (or everything) was last invalidated
+    private long generation;
+    private final Map<String, Long> tableGenerations = new HashMap<>();
+    private long allGeneration;
+
+    private long hits;
+    private long misses;
+    private long expirations;
+    private long evictions;
+    private long invalidations;
+    private long discarded;
+
+    public ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Cache shared by every front end in this JVM
+    public static ResultCache shared() {
+        return SHARED;
+    }
+
+    public static String key(String queryId, Object... params) {
+        return params.length == 0 ? queryId : queryId + Arrays.asList(params);
+    }
+
+    public synchronized QueryResult get(String key) {
+        if (!ENABLED) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    // Current invalidation generation; take it before computing a result to cache
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Cache result unless a table it reads was invalidated after generation (it may predate the write)
+    public synchronized void put(String key, QueryResult result, Policy policy, long generation) {
+        if (!ENABLED) {
+            return;
+        }
+        if (allGeneration > generation) {
+            discarded++;
+            return;
+        }
+        for (String table : policy.tables) {
+            if (tableGenerations.getOrDefault(table, 0L) > generation) {
+                discarded++;
+                return;
+            }
+        }
+        Entry entry = new Entry(result, policy);
+        if (entry.bytes > maxBytes) {
+            return; // would evict everything else
+        }
+        remove(key);
+        entries.put(key, entry);
+        currentBytes += entry.bytes;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            currentBytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    // Drop every result that reads the given table
+    public synchronized void invalidateTable(String table) {
+        String name = table.toLowerCase();
+        tableGenerations.put(name, ++generation);
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.policy.tables.contains(name)) {
+                it.remove();
+                currentBytes -= entry.bytes;
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        allGeneration = ++generation;
+        invalidations += entries.size();
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            currentBytes -= old.bytes;
+        }
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits * 100.0 / lookups;
+    }
+
+    public synchronized String getStats() {
+        return String.format("ResultCache[entries=%d, %.1f KB/%d KB] hits=%d misses=%d hitRate=%.1f%% " +
+                             "expired=%d evicted=%d invalidated=%d discarded=%d",
+            entries.size(), currentBytes / 1024.0, maxBytes / 1024, hits, misses, getHitRate(),
+            expirations, evictions, invalidations, discarded);
+    }
+}
@@ -0,0 +1,351 @@
+package mini_project_dbms;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Slow-query log. Every metered execution (see MeteredJdbc) that takes longer than the threshold is
+// written, with its SQL, bound parameters, phase timings and the EXPLAIN FORMAT=JSON plan, as one JSON
+// line to a rolling log file (<file>, <file>.1 ... <file>.N), and counted per query so the worst
+// offenders can be shown in VulcynyxApp.
+// EXPLAIN and file writes happen on a background thread with its own pooled connection; a statement
+// is explained at most once per explain interval, and entries are dropped if that thread falls behind.
+public class SlowQueryLog {
+    private static final boolean ENABLED = !Boolean.getBoolean("vulcynyx.slowlog.disabled");
+    private static final long THRESHOLD_MS = Long.getLong("vulcynyx.slowlog.thresholdMs", 500L);
+    private static final String FILE = System.getProperty("vulcynyx.slowlog.file", "vulcynyx-slow.log");
+    private static final long MAX_FILE_BYTES = Long.getLong("vulcynyx.slowlog.maxBytes", 10L * 1024 * 1024);
+    private static final int KEPT_FILES = Integer.getInteger("vulcynyx.slowlog.files", 5);
+    private static final long EXPLAIN_INTERVAL_MS = Long.getLong("vulcynyx.slowlog.explainIntervalMs", 600_000L);
+    private static final int QUEUED_ENTRIES = 256;
+    private static final int PARAM_LENGTH = 100;
+
+    private static final SlowQueryLog SHARED = new SlowQueryLog(Paths.get(FILE));
+
+    // One slow execution
+    public static final class Entry {
+        final long timestamp = System.currentTimeMillis();
+        final String name;
+        final String sql;
+        final List<String> params;
+        final long[] phaseNanos;
+        final long elapsedNanos;
+        final long rows;
+        volatile String plan;
+
+        Entry(String name, String sql, List<String> params, long[] phaseNanos, long rows) {
+            this.name = name;
+            this.sql = sql;
+            this.params = params;
+            this.phaseNanos = phaseNanos;
+            this.rows = rows;
+            long total = 0;
+            for (long nanos : phaseNanos) {
+                total += nanos;
+            }
+            this.elapsedNanos = total;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<String> getParams() {
+            return params;
+        }
+
+        public double getElapsedMs() {
+            return elapsedNanos / 1e6;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        // EXPLAIN output, or null if not (yet) available
+        public String getPlan() {
+            return plan;
+        }
+    }
+
+    // Slow executions of one query, keeping the slowest as the example
+    public static final class Offender {
+        final String name;
+        long count;
+        long totalNanos;
+        Entry slowest;
+        Entry latest;
+
+        Offender(String name) {
+            this.name = name;
+        }
+
+        Offender(Offender other) {
+            this.name = other.name;
+            this.count = other.count;
+            this.totalNanos = other.totalNanos;
+            this.slowest = other.slowest;
+            this.latest = other.latest;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getTotalMs() {
+            return totalNanos / 1e6;
+        }
+
+        public double getMaxMs() {
+            return slowest.getElapsedMs();
+        }
+
+        public Entry getSlowest() {
+            return slowest;
+        }
+
+        public Entry getLatest() {
+            return latest;
+        }
+    }
+
+    private static final class Plan {
+        final String text;
+        final long explainedAt;
+
+        Plan(String text, long explainedAt) {
+            this.text = text;
+            this.explainedAt = explainedAt;
+        }
+    }
+
+    private final Path file;
+    private volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS);
+    private final Map<String, Offender> offenders = new HashMap<>();
+    // By SQL fingerprint; only touched by the worker thread
+    private final Map<String, Plan> plans = new HashMap<>();
+    private final ThreadPoolExecutor worker;
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong explained = new AtomicLong();
+    private final AtomicLong explainFailures = new AtomicLong();
+
+    public SlowQueryLog(Path file) {
+        this.file = file;
+        this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUED_ENTRIES), r -> {
+                Thread t = new Thread(r, "slow-query-log");
+                t.setDaemon(true);
+                return t;
+            }, (r, executor) -> dropped.incrementAndGet());
+    }
+
+    // Log shared by every front end in this JVM
+    public static SlowQueryLog shared() {
+        return SHARED;
+    }
+
+    public long getThresholdMs() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public void setThresholdMs(long thresholdMs) {
+        if (thresholdMs < 0) {
+            throw new IllegalArgumentException("thresholdMs must be >= 0");
+        }
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return ENABLED && elapsedNanos >= thresholdNanos;
+    }
+
+    public Path getFile() {
+        return file.toAbsolutePath();
+    }
+
+    // Record a slow execution; pool (may be null) supplies the connection for EXPLAIN
+    public void record(ConnectionPool pool, String name, String sql, Object[] params, long[] phaseNanos, long rows) {
+        if (sql == null || sql.trim().regionMatches(true, 0, "EXPLAIN", 0, 7)) {
+            return; // our own EXPLAINs
+        }
+        Entry entry = new Entry(name, sql, describe(params), phaseNanos.clone(), rows);
+        synchronized (this) {
+            Offender offender = offenders.computeIfAbsent(name, Offender::new);
+            offender.count++;
+            offender.totalNanos += entry.elapsedNanos;
+            if (offender.slowest == null || entry.elapsedNanos > offender.slowest.elapsedNanos) {
+                offender.slowest = entry;
+            }
+            offender.latest = entry;
+        }
+        worker.execute(() -> {
+            entry.plan = plan(pool, entry, params);
+            write(entry);
+        });
+    }
+
+    private static List<String> describe(Object[] params) {
+        if (params == null) {
+            return Collections.emptyList();
+        }
+        List<String> described = new ArrayList<>(params.length);
+        for (Object param : params) {
+            String text = param == null ? "NULL"
+                        : param instanceof String ? "'" + param + "'"
+                        : String.valueOf(param);
+            described.add(text.length() > PARAM_LENGTH ? text.substring(0, PARAM_LENGTH) + "..." : text);
+        }
+        return described;
+    }
+
+    // The statement's plan, re-explained at most once per interval per fingerprint
+    private String plan(ConnectionPool pool, Entry entry, Object[] params) {
+        String head = entry.sql.trim().toUpperCase(Locale.ROOT);
+        if (pool == null || !(head.startsWith("SELECT") || head.startsWith("WITH") || head.startsWith("UPDATE")
+                || head.startsWith("DELETE") || head.startsWith("INSERT") || head.startsWith("REPLACE"))) {
+            return null;
+        }
+        String key = QueryMetrics.fingerprint(entry.sql);
+        Plan cached = plans.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.explainedAt < EXPLAIN_INTERVAL_MS) {
+            return cached.text;
+        }
+        String text;
+        QueryMetrics.Scope label = QueryMetrics.label("EXPLAIN");
+        try (Connection conn = pool.getConnection()) {
+            try {
+                text = explain(conn, "EXPLAIN FORMAT=JSON " + entry.sql, params);
+            } catch (SQLException e) {
+                // not MySQL, or too old for FORMAT=JSON: fall back to the tabular plan
+                text = explain(conn, "EXPLAIN " + entry.sql, params);
+            }
+            explained.incrementAndGet();
+        } catch (SQLException e) {
+            explainFailures.incrementAndGet();
+            text = "EXPLAIN failed: " + e.getMessage();
+        } finally {
+            label.close();
+        }
+        plans.put(key, new Plan(text, now));
+        return text;
+    }
+
+    private static String explain(Connection conn, String sql, Object[] params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                StringBuilder sb = new StringBuilder();
+                while (rs.next()) {
+                    if (meta.getColumnCount() == 1) {
+                        sb.append(rs.getString(1)).append('\n');
+                        continue;
+                    }
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        sb.append(i == 1 ? "" : ", ").append(meta.getColumnLabel(i)).append('=').append(rs.getString(i));
+                    }
+                    sb.append('\n');
+                }
+                return sb.toString().trim();
+            }
+        }
+    }
+
+    // Append one JSON line, rolling the file over first if it would grow past the limit
+    private void write(Entry entry) {
+        StringBuilder line = new StringBuilder("{");
+        line.append("\"timestamp\": \"").append(Instant.ofEpochMilli(entry.timestamp)).append("\", ");
+        line.append("\"query\": \"").append(jsonEscape(entry.name)).append("\", ");
+        line.append(String.format(Locale.ROOT, "\"elapsedMs\": %.3f, ", entry.getElapsedMs()));
+        line.append("\"phaseMs\": {");
+        for (QueryMetrics.Phase phase : QueryMetrics.Phase.values()) {
+            line.append(String.format(Locale.ROOT, "%s\"%s\": %.3f", phase.ordinal() == 0 ? "" : ", ",
+                phase.name().toLowerCase(Locale.ROOT), entry.phaseNanos[phase.ordinal()] / 1e6));
+        }
+        line.append("}, \"rows\": ").append(entry.rows).append(", ");
+        line.append("\"sql\": \"").append(jsonEscape(entry.sql)).append("\", \"params\": [");
+        for (int i = 0; i < entry.params.size(); i++) {
+            line.append(i == 0 ? "" : ", ").append('"').append(jsonEscape(entry.params.get(i))).append('"');
+        }
+        line.append("], \"plan\": ").append(entry.plan == null ? "null" : "\"" + jsonEscape(entry.plan) + "\"");
+        line.append("}\n");
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (Files.exists(file) && Files.size(file) + bytes.length > MAX_FILE_BYTES) {
+                roll();
+            }
+            Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            logged.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Failed to write slow-query log: " + e.getMessage());
+        }
+    }
+
+    private void roll() throws IOException {
+        Files.deleteIfExists(rolled(KEPT_FILES));
+        for (int i = KEPT_FILES - 1; i >= 1; i--) {
+            if (Files.exists(rolled(i))) {
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rolled(int generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    // Copies of the queries with slow executions, most total slow time first
+    public synchronized List<Offender> getWorstOffenders(int limit) {
+        List<Offender> worst = new ArrayList<>();
+        for (Offender offender : offenders.values()) {
+            worst.add(new Offender(offender));
+        }
+        worst.sort(Comparator.comparingLong((Offender o) -> o.totalNanos).reversed());
+        return new ArrayList<>(worst.subList(0, Math.min(limit, worst.size())));
+    }
+
+    public synchronized void reset() {
+        offenders.clear();
+    }
+
+    public synchronized String getStats() {
+        return String.format("SlowQueryLog[threshold=%dms, queries=%d] logged=%d dropped=%d explained=%d " +
+                             "explainFailures=%d file=%s",
+            getThresholdMs(), offenders.size(), logged.get(), dropped.get(), explained.get(),
+            explainFailures.get(), file);
+    }
+
+    private static String jsonEscape(String value) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,368 @@
+package mini_project_dbms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+// ColumnarSnapshot on disk, so a new process can answer the analytics reports before it has read
+// anything from MySQL and then catch up with a delta refresh from the stored watermark. One file
+// per table, each a header followed by the columns as raw little-endian arrays:
+//   int magic, int format, long snapshot id (loadedAt), long watermark, int rows, [table extras]
+//   int[] / long[] columns, rows values each; strings as int length (-1 for NULL) + UTF-8 bytes
+// The dictionaries file holds the text behind every code. Files are read through a read-only
+// MappedByteBuffer and bulk-copied into the arrays, except Business: its file holds the
+// BusinessStore records as they are, and the store reads them straight from the mapping, so
+// opening it neither copies the sales nor puts them on the heap. Key indexes and foreign keys are
+// rebuilt with link(). A snapshot is only opened if every file is present and carries the same snapshot id,
+// since a crash can interrupt a save between two files.
+public class SnapshotStore {
+    private static final int MAGIC = 0x534E5956; // "VYNS"
+    // 3: NULL Price, Stock, Qty, Impressions, Conversions, Revenue and Cost kept as NULL rather than 0
+    private static final int FORMAT = 3;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private static final String DICTIONARIES = "dictionaries";
+    private static final String PRODUCT = "product";
+    private static final String CATEGORY = "category";
+    private static final String CUSTOMER = "customer";
+    private static final String REGIONAL_INFO = "regional_info";
+    private static final String BUSINESS = "business";
+    private static final String ADS = "ads";
+    private static final String PRODUCTS_ADS = "products_ads";
+    private static final String[] FILES = { DICTIONARIES, PRODUCT, CATEGORY, CUSTOMER, REGIONAL_INFO, BUSINESS, ADS, PRODUCTS_ADS };
+
+    private final Path dir;
+
+    public SnapshotStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public Path getDirectory() {
+        return dir.toAbsolutePath();
+    }
+
+    // Write s, replacing the stored snapshot
+    public void save(ColumnarSnapshot s) throws IOException {
+        Files.createDirectories(dir);
+        long id = s.loadedAt;
+        try (Output out = new Output(temp(DICTIONARIES), id, s.watermark, 6)) {
+            out.putStrings(s.productNames.toArray());
+            out.putStrings(s.categories.toArray());
+            out.putStrings(s.cities.toArray());
+            out.putStrings(s.regions.toArray());
+            out.putStrings(s.platforms.toArray());
+            out.putStrings(s.ageGroups.toArray());
+        }
+        try (Output out = new Output(temp(PRODUCT), id, s.watermark, s.productCount)) {
+            out.putInts(s.productId, s.productCount);
+            out.putInts(s.productName, s.productCount);
+            out.putInts(s.productCategory, s.productCount);
+            out.putInts(s.productCategoryId, s.productCount);
+            out.putLongs(s.productPriceCents, s.productCount);
+            out.putInts(s.productStock, s.productCount);
+        }
+        try (Output out = new Output(temp(CATEGORY), id, s.watermark, s.categoryCount)) {
+            out.putInts(s.categoryId, s.categoryCount);
+            out.putInts(s.categoryName, s.categoryCount);
+        }
+        try (Output out = new Output(temp(CUSTOMER), id, s.watermark, s.customerCount)) {
+            out.putInts(s.customerId, s.customerCount);
+            out.putStrings(s.customerName);
+            out.putInts(s.customerCity, s.customerCount);
+        }
+        try (Output out = new Output(temp(REGIONAL_INFO), id, s.watermark, s.regionalCount)) {
+            out.putInts(s.regionalCity, s.regionalCount);
+            out.putInts(s.regionalRegion, s.regionalCount);
+        }
+        try (Output out = new Output(temp(BUSINESS), id, s.watermark, s.business.size())) {
+            out.putInt(s.business.getBaseRows());
+            out.putBytes(s.business.records());
+        }
+        try (Output out = new Output(temp(ADS), id, s.watermark, s.adsCount)) {
+            out.putInts(s.adsId, s.adsCount);
+            out.putInts(s.adsPlatform, s.adsCount);
+            out.putInts(s.adsAgeGroup, s.adsCount);
+            out.putInts(s.adsProductId, s.adsCount);
+            out.putInts(s.adsImpressions, s.adsCount);
+            out.putInts(s.adsConversions, s.adsCount);
+            out.putLongs(s.adsRevenueCents, s.adsCount);
+            out.putLongs(s.adsCostCents, s.adsCount);
+        }
+        try (Output out = new Output(temp(PRODUCTS_ADS), id, s.watermark, s.productAdsCount)) {
+            out.putInts(s.productAdsProductId, s.productAdsCount);
+            out.putInts(s.productAdsAdsId, s.productAdsCount);
+            out.putInts(s.productAdsPlatform, s.productAdsCount);
+        }
+        for (String table : FILES) {
+            Files.move(temp(table), file(table), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // The stored snapshot, or null if there is none or it is incomplete or from another format
+    public ColumnarSnapshot open() throws IOException {
+        for (String table : FILES) {
+            if (!Files.exists(file(table))) {
+                return null;
+            }
+        }
+        long start = System.nanoTime();
+        ColumnarSnapshot s = new ColumnarSnapshot();
+        try {
+            Input in = new Input(file(DICTIONARIES));
+            if (in.id < 0) {
+                return null;
+            }
+            s.loadedAt = in.id;
+            s.watermark = in.watermark;
+            s.productNames = new ColumnarSnapshot.Dictionary(in.getStrings());
+            s.categories = new ColumnarSnapshot.Dictionary(in.getStrings());
+            s.cities = new ColumnarSnapshot.Dictionary(in.getStrings());
+            s.regions = new ColumnarSnapshot.Dictionary(in.getStrings());
+            s.platforms = new ColumnarSnapshot.Dictionary(in.getStrings());
+            s.ageGroups = new ColumnarSnapshot.Dictionary(in.getStrings());
+
+            in = new Input(file(PRODUCT));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            s.productCount = in.rows;
+            s.productId = in.getInts(in.rows);
+            s.productName = in.getInts(in.rows);
+            s.productCategory = in.getInts(in.rows);
+            s.productCategoryId = in.getInts(in.rows);
+            s.productPriceCents = in.getLongs(in.rows);
+            s.productStock = in.getInts(in.rows);
+
+            in = new Input(file(CATEGORY));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            s.categoryCount = in.rows;
+            s.categoryId = in.getInts(in.rows);
+            s.categoryName = in.getInts(in.rows);
+
+            in = new Input(file(CUSTOMER));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            s.customerCount = in.rows;
+            s.customerId = in.getInts(in.rows);
+            s.customerName = in.getStrings();
+            s.customerCity = in.getInts(in.rows);
+
+            in = new Input(file(REGIONAL_INFO));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            s.regionalCount = in.rows;
+            s.regionalCity = in.getInts(in.rows);
+            s.regionalRegion = in.getInts(in.rows);
+
+            in = new Input(file(BUSINESS));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            int baseRows = in.getInt();
+            if (baseRows < 0 || baseRows > in.rows) {
+                throw new IllegalStateException("base rows " + baseRows + " of " + in.rows);
+            }
+            s.business = new BusinessStore(in.getBytes(in.rows * BusinessStore.RECORD_BYTES), in.rows, baseRows);
+
+            in = new Input(file(ADS));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            s.adsCount = in.rows;
+            s.adsId = in.getInts(in.rows);
+            s.adsPlatform = in.getInts(in.rows);
+            s.adsAgeGroup = in.getInts(in.rows);
+            s.adsProductId = in.getInts(in.rows);
+            s.adsImpressions = in.getInts(in.rows);
+            s.adsConversions = in.getInts(in.rows);
+            s.adsRevenueCents = in.getLongs(in.rows);
+            s.adsCostCents = in.getLongs(in.rows);
+
+            in = new Input(file(PRODUCTS_ADS));
+            if (in.id != s.loadedAt) {
+                return null;
+            }
+            s.productAdsCount = in.rows;
+            s.productAdsProductId = in.getInts(in.rows);
+            s.productAdsAdsId = in.getInts(in.rows);
+            s.productAdsPlatform = in.getInts(in.rows);
+        } catch (RuntimeException e) {
+            // Truncated or corrupt file (BufferUnderflowException, a bad length or code)
+            throw new IOException("Unreadable analytics snapshot in " + getDirectory() + ": " + e, e);
+        }
+        s.link();
+        s.loadMillis = (System.nanoTime() - start) / 1_000_000;
+        return s;
+    }
+
+    private Path file(String table) {
+        return dir.resolve(table + ".snap");
+    }
+
+    private Path temp(String table) {
+        return dir.resolve(table + ".snap.tmp");
+    }
+
+    // Sequential writer through a direct buffer
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        Output(Path file, long id, long watermark, int rows) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            putInt(MAGIC);
+            putInt(FORMAT);
+            putLong(id);
+            putLong(watermark);
+            putInt(rows);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putInts(int[] values, int count) throws IOException {
+            for (int i = 0; i < count; ) {
+                ensure(4);
+                int chunk = Math.min(count - i, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, i, chunk);
+                buffer.position(buffer.position() + 4 * chunk);
+                i += chunk;
+            }
+        }
+
+        void putLongs(long[] values, int count) throws IOException {
+            for (int i = 0; i < count; ) {
+                ensure(8);
+                int chunk = Math.min(count - i, buffer.remaining() / 8);
+                buffer.asLongBuffer().put(values, i, chunk);
+                buffer.position(buffer.position() + 8 * chunk);
+                i += chunk;
+            }
+        }
+
+        // The remaining bytes of values, written to the channel directly
+        void putBytes(ByteBuffer values) throws IOException {
+            flush();
+            while (values.hasRemaining()) {
+                channel.write(values);
+            }
+        }
+
+        void putStrings(String[] values) throws IOException {
+            putInt(values.length);
+            for (String value : values) {
+                if (value == null) {
+                    putInt(-1);
+                    continue;
+                }
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                putInt(bytes.length);
+                for (int i = 0; i < bytes.length; ) {
+                    ensure(1);
+                    int chunk = Math.min(bytes.length - i, buffer.remaining());
+                    buffer.put(bytes, i, chunk);
+                    i += chunk;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Reader over a mapped file; id is -1 if the header is not one this version writes
+    private static final class Input {
+        private final ByteBuffer buffer;
+        final long id;
+        final long watermark;
+        final int rows;
+
+        Input(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException(file + " is larger than one mapping (2 GB)");
+                }
+                // The mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            boolean ours = buffer.remaining() >= 28 && buffer.getInt() == MAGIC && buffer.getInt() == FORMAT;
+            id = ours ? buffer.getLong() : -1;
+            watermark = ours ? buffer.getLong() : -1;
+            rows = ours ? buffer.getInt() : 0;
+        }
+
+        int getInt() {
+            return buffer.getInt();
+        }
+
+        int[] getInts(int count) {
+            int[] values = new int[count];
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + 4 * count);
+            return values;
+        }
+
+        long[] getLongs(int count) {
+            long[] values = new long[count];
+            buffer.asLongBuffer().get(values);
+            buffer.position(buffer.position() + 8 * count);
+            return values;
+        }
+
+        // The next count bytes as a view of the mapping (no copy)
+        ByteBuffer getBytes(int count) {
+            ByteBuffer values = buffer.slice(buffer.position(), count);
+            buffer.position(buffer.position() + count);
+            return values;
+        }
+
+        String[] getStrings() {
+            String[] values = new String[buffer.getInt()];
+            for (int i = 0; i < values.length; i++) {
+                int length = buffer.getInt();
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    values[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            return values;
+        }
+    }
+}
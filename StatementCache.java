@@ -0,0 +1,97 @@
+package mini_project_dbms;
+
+import java.sql.*;
+import java.util.*;
+
+// LRU cache of PreparedStatements for one connection, keyed by SQL text.
+// A statement is checked out while in use, so two threads running the same SQL never share one;
+// the second simply gets a fresh statement, and the extra copy is closed when it comes back.
+public class StatementCache {
+    public static final int DEFAULT_SIZE = Integer.getInteger("vulcynyx.stmtCache.size", 32);
+
+    private final Connection connection;
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> idle;
+    private boolean invalidated;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public StatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Check out a statement for the SQL; hand it back with release() when done
+    public PreparedStatement prepare(String sql) throws SQLException {
+        synchronized (this) {
+            if (invalidated) {
+                throw new SQLException("Statement cache has been invalidated");
+            }
+            PreparedStatement cached = idle.remove(sql);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    // Return a checked-out statement to the cache, evicting the least recently used one if full
+    public void release(String sql, PreparedStatement ps) {
+        List<PreparedStatement> toClose = new ArrayList<>();
+        synchronized (this) {
+            if (invalidated || idle.containsKey(sql)) {
+                toClose.add(ps);
+            } else {
+                idle.put(sql, ps);
+                Iterator<PreparedStatement> it = idle.values().iterator();
+                while (idle.size() > maxSize && it.hasNext()) {
+                    toClose.add(it.next());
+                    it.remove();
+                    evictions++;
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    // Close every cached statement; called before the connection goes back to the pool
+    public void invalidate() {
+        List<PreparedStatement> toClose;
+        synchronized (this) {
+            invalidated = true;
+            toClose = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+        closeAll(toClose);
+    }
+
+    private static void closeAll(List<PreparedStatement> statements) {
+        for (PreparedStatement ps : statements) {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to close cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized String getStats() {
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 0 : hits * 100.0 / lookups;
+        return String.format("StatementCache[size=%d/%d] hits=%d misses=%d evictions=%d hitRate=%.1f%%",
+            idle.size(), maxSize, hits, misses, evictions, hitRate);
+    }
+}
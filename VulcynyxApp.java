@@ -8,16 +8,31 @@ import java.awt.*;
 import java.awt.event.*;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 public class VulcynyxApp extends JFrame {
+    // How long Refresh Connection waits for a cancelled query to stop before giving up
+    private static final int REFRESH_WAIT_SECONDS = Integer.getInteger("vulcynyx.refresh.waitSeconds", 30);
+    
     private Database dbManager;
     private JTable resultTable;
     private DefaultTableModel tableModel;
     private JTextArea logArea;
     private JPanel buttonPanel;
     private JLabel statusLabel;
+    private JProgressBar progressBar;
+    private javax.swing.Timer progressTimer;
+    private final QueryRunner queryRunner = new QueryRunner();
+    private CompletableFuture<?> runningQuery;
+    private PagedResultTableModel currentResult;
+    private JDialog metricsDialog;
+    private JDialog slowQueryDialog;
     
     public VulcynyxApp() {
         super("Vulcynyx Jewellry Business Analytics Dashboard");
@@ -172,6 +187,15 @@ public class VulcynyxApp extends JFrame {
         JButton refreshBtn = createControlButton("Refresh Connection", new Color(39, 174, 96));
         refreshBtn.addActionListener(e -> refreshConnection());
         
+        JButton metricsBtn = createControlButton("Query Metrics", new Color(142, 68, 173));
+        metricsBtn.addActionListener(e -> showMetrics());
+        
+        JButton slowBtn = createControlButton("Slow Queries", new Color(211, 84, 0));
+        slowBtn.addActionListener(e -> showSlowQueries());
+        
+        JButton plannerBtn = createControlButton("Query Planner", new Color(22, 160, 133));
+        plannerBtn.addActionListener(e -> showPlanner());
+        
         JButton exitBtn = createControlButton("Exit Application", new Color(52, 73, 94));
         exitBtn.addActionListener(e -> {
             int choice = JOptionPane.showConfirmDialog(this,
@@ -188,6 +212,12 @@ public class VulcynyxApp extends JFrame {
         buttonPanel.add(Box.createRigidArea(new Dimension(0, 5)));
         buttonPanel.add(refreshBtn);
         buttonPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        buttonPanel.add(metricsBtn);
+        buttonPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        buttonPanel.add(slowBtn);
+        buttonPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+        buttonPanel.add(plannerBtn);
+        buttonPanel.add(Box.createRigidArea(new Dimension(0, 5)));
         buttonPanel.add(exitBtn);
         
         JScrollPane scrollPane = new JScrollPane(buttonPanel);
@@ -236,11 +266,10 @@ public class VulcynyxApp extends JFrame {
             }
         });
         
+        // Queries run in the background; executeQuery reports progress and completion
         button.addActionListener(e -> {
             try {
-                updateStatus("Executing query...");
                 action.run();
-                updateStatus("Query completed successfully");
             } catch (Exception ex) {
                 showError("Query Error", ex.getMessage());
                 updateStatus("Query failed");
@@ -341,15 +370,25 @@ public class VulcynyxApp extends JFrame {
         statusLabel.setOpaque(true);
         statusLabel.setBackground(new Color(236, 240, 241));
         
+        // Progress indicator for background queries
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(180, 0));
+        progressBar.setVisible(false);
+        
+        JPanel statusPanel = new JPanel(new BorderLayout(5, 0));
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(progressBar, BorderLayout.EAST);
+        
         panel.add(logPanel, BorderLayout.CENTER);
-        panel.add(statusLabel, BorderLayout.SOUTH);
+        panel.add(statusPanel, BorderLayout.SOUTH);
         
         return panel;
     }
     
     // Query Methods
     private void query01() {
-        executeQuery(() -> dbManager.getTopSearchedProductsByAgeGroup(), 
+        executeQuery(db -> db.getTopSearchedProductsByAgeGroup(), 
                     "Top Searched Products by Age Group");
     }
     
@@ -361,7 +400,7 @@ public class VulcynyxApp extends JFrame {
                 try {
                     double min = Double.parseDouble(minStr);
                     double max = Double.parseDouble(maxStr);
-                    executeQuery(() -> dbManager.getMostPurchasedInPriceRange(min, max),
+                    executeQuery(db -> db.getMostPurchasedInPriceRange(min, max),
                                "Most Purchased Products (₹" + min + " - ₹" + max + ")");
                 } catch (NumberFormatException e) {
                     showError("Input Error", "Please enter valid numbers");
@@ -371,13 +410,13 @@ public class VulcynyxApp extends JFrame {
     }
     
     private void query03() {
-        executeQuery(() -> dbManager.getRevenueByPlatform(), "Revenue by Platform");
+        executeQuery(db -> db.getRevenueByPlatform(), "Revenue by Platform");
     }
     
     private void query04() {
         String product = showInputDialog("Enter Product Name:", "Necklace");
         if (product != null && !product.trim().isEmpty()) {
-            executeQuery(() -> dbManager.getCategoriesOfProduct(product),
+            executeQuery(db -> db.getCategoriesOfProduct(product),
                        "Categories of Product: " + product);
         }
     }
@@ -385,19 +424,19 @@ public class VulcynyxApp extends JFrame {
     private void query05() {
         String material = showInputDialog("Enter Material Name:", "gold");
         if (material != null && !material.trim().isEmpty()) {
-            executeQuery(() -> dbManager.searchProductByMaterial(material),
+            executeQuery(db -> db.searchProductByMaterial(material),
                        "Products with Material: " + material);
         }
     }
     
     private void query06() {
-        executeQuery(() -> dbManager.sortProductsByPrice(), "Products Sorted by Price");
+        executeQuery(db -> db.sortProductsByPrice(), "Products Sorted by Price");
     }
     
     private void query07() {
         String city = showInputDialog("Enter City Name:", "Pune");
         if (city != null && !city.trim().isEmpty()) {
-            executeQuery(() -> dbManager.getCustomersInCity(city),
+            executeQuery(db -> db.getCustomersInCity(city),
                        "Customers in " + city);
         }
     }
@@ -405,7 +444,7 @@ public class VulcynyxApp extends JFrame {
     private void query08() {
         String product = showInputDialog("Enter Product Name:", "Gold Ring");
         if (product != null && !product.trim().isEmpty()) {
-            executeQuery(() -> dbManager.getSaleOfProduct(product),
+            executeQuery(db -> db.getSaleOfProduct(product),
                        "Sales of " + product);
         }
     }
@@ -413,29 +452,29 @@ public class VulcynyxApp extends JFrame {
     private void query09() {
         String category = showInputDialog("Enter Category Name:", "Earrings");
         if (category != null && !category.trim().isEmpty()) {
-            executeQuery(() -> dbManager.getSaleOfCategory(category),
+            executeQuery(db -> db.getSaleOfCategory(category),
                        "Sales of Category: " + category);
         }
     }
     
     private void query10() {
-        executeQuery(() -> dbManager.getTop5CustomersBySpending(), "Top 5 Customers by Spending");
+        executeQuery(db -> db.getTop5CustomersBySpending(), "Top 5 Customers by Spending");
     }
     
     private void query11() {
-        executeQuery(() -> dbManager.getTotalQuantitySoldPerProduct(), "Total Quantity Sold per Product");
+        executeQuery(db -> db.getTotalQuantitySoldPerProduct(), "Total Quantity Sold per Product");
     }
     
     private void query12() {
-        executeQuery(() -> dbManager.getAveragePricePerCategory(), "Average Price per Category");
+        executeQuery(db -> db.getAveragePricePerCategory(), "Average Price per Category");
     }
     
     private void query13() {
-        executeQuery(() -> dbManager.getTopSellingProductsPerRegion(), "Top Selling Products per Region");
+        executeQuery(db -> db.getTopSellingProductsPerRegion(), "Top Selling Products per Region");
     }
     
     private void query14() {
-        executeQuery(() -> dbManager.getTotalRevenuePerCategory(), "Total Revenue per Category");
+        executeQuery(db -> db.getTotalRevenuePerCategory(), "Total Revenue per Category");
     }
     
     private void query15() {
@@ -443,7 +482,7 @@ public class VulcynyxApp extends JFrame {
         if (limitStr != null) {
             try {
                 int limit = Integer.parseInt(limitStr);
-                executeQuery(() -> dbManager.getCampaignsWithHighestROI(limit),
+                executeQuery(db -> db.getCampaignsWithHighestROI(limit),
                            "Top " + limit + " Campaigns by ROI");
             } catch (NumberFormatException e) {
                 showError("Input Error", "Please enter a valid number");
@@ -452,77 +491,158 @@ public class VulcynyxApp extends JFrame {
     }
     
     private void query16() {
-        executeQuery(() -> dbManager.getTop10CustomersByYear(), "Top 10 Customers by Year");
+        executeQuery(db -> db.getTop10CustomersByYear(), "Top 10 Customers by Year");
     }
     
     private void query17() {
-        executeQuery(() -> dbManager.getProductsNotSoldLastMonth(), "Products Not Sold in Last Month");
+        executeQuery(db -> db.getProductsNotSoldLastMonth(), "Products Not Sold in Last Month");
     }
     
     private void query18() {
-        executeQuery(() -> dbManager.getTrendingProducts(), "Trending Products");
+        executeQuery(db -> db.getTrendingProducts(), "Trending Products");
     }
     
     private void query19() {
-        executeQuery(() -> dbManager.getHighBounceRateProducts(), "High Bounce Rate Products");
+        executeQuery(db -> db.getHighBounceRateProducts(), "High Bounce Rate Products");
     }
     
     private void query20() {
-        executeQuery(() -> dbManager.getCampaignReportsPerRegion(), "Campaign Reports by Region");
+        executeQuery(db -> db.getCampaignReportsPerRegion(), "Campaign Reports by Region");
     }
     
     private void query21() {
-        executeQuery(() -> dbManager.getAdsRunningAtLoss(), "Ads Running at Loss");
+        executeQuery(db -> db.getAdsRunningAtLoss(), "Ads Running at Loss");
     }
     
     private void query22() {
-        executeQuery(() -> dbManager.getAdsWithHighConversion(), "Ads with High Conversion Rate");
+        executeQuery(db -> db.getAdsWithHighConversion(), "Ads with High Conversion Rate");
     }
     
     private void query23() {
-        try {
-            updateStatus("Calling stored procedure...");
-            dbManager.callDiscountedOrderProcedure();
+        runInBackground(0, db -> {
+            db.callDiscountedOrderProcedure();
+            return null;
+        }, "Discounted Order procedure", (result, db) -> {
             logMessage("Discounted Order procedure executed successfully");
             JOptionPane.showMessageDialog(this,
                 "Discounted order calculation completed!\nCheck your database for results.",
                 "Procedure Success",
                 JOptionPane.INFORMATION_MESSAGE);
             updateStatus("Procedure completed");
-        } catch (SQLException e) {
-            showError("Procedure Error", e.getMessage());
-            updateStatus("Procedure failed");
-        }
+        });
     }
     
     private void query24() {
-        executeQuery(() -> dbManager.getRestockPriorityList(), "Restock Priority List");
+        executeQuery(db -> db.getRestockPriorityList(), "Restock Priority List");
     }
     
     private void query25() {
-        executeQuery(() -> dbManager.getLowStockAlerts(), "Low Stock Alerts");
+        executeQuery(db -> db.getLowStockAlerts(), "Low Stock Alerts");
     }
     
     // Helper Methods
-    private void executeQuery(QueryExecutor executor, String queryName) {
-        try {
-            List<Map<String, Object>> results = executor.execute();
+    private void executeQuery(Database.QueryCall call, String queryName) {
+        runInBackground(PagedResultTableModel.DEFAULT_PAGE_SIZE, db -> db.openPaged(call), queryName, (results, db) -> {
             displayResults(results, queryName);
-        } catch (SQLException e) {
-            showError("Query Error", e.getMessage());
+            Duration staleness = db.getLastStaleness();
+            if (staleness == null) {
+                updateStatus("Query completed successfully");
+            } else {
+                logMessage(queryName + " read from " + db.getLastSource() + ", refreshed " + staleness.getSeconds() + "s ago");
+                updateStatus("Query completed (data as of " + staleness.getSeconds() + "s ago)");
+            }
+        });
+    }
+    
+    // Run database work off the EDT on a session of its own (see Database.openSession), so
+    // cancelling it can only stop this request's statement; a newer request cancels the one still
+    // in flight. onSuccess is invoked on the EDT with the result and the session it ran on, and
+    // only if this request has not been superseded.
+    private <T> void runInBackground(int pageSize, SessionTask<T> task, String queryName,
+                                     java.util.function.BiConsumer<T, Database> onSuccess) {
+        cancelRunningQuery();
+        
+        long startedAt = System.currentTimeMillis();
+        startProgress(queryName, startedAt);
+        Database session = dbManager.openSession(pageSize);
+        CompletableFuture<T> future = queryRunner.submit(() -> {
+            try {
+                return task.run(session);
+            } finally {
+                closeQuietly(session);
+            }
+        }, () -> {
+            // Statement.cancel opens a side connection, so do it off the EDT
+            CompletableFuture.runAsync(() -> {
+                try {
+                    session.cancel();
+                } catch (SQLException e) {
+                    System.err.println("Failed to cancel query: " + e.getMessage());
+                }
+            });
+        });
+        runningQuery = future;
+        
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (runningQuery != future) {
+                if (result instanceof AutoCloseable) {
+                    closeQuietly((AutoCloseable) result); // superseded result still holds a cursor
+                }
+                return; // superseded by a newer query
+            }
+            runningQuery = null;
+            stopProgress();
+            long elapsed = System.currentTimeMillis() - startedAt;
+            if (error == null) {
+                onSuccess.accept(result, session);
+                logMessage(String.format("%s took %d ms (result cache hit rate %.1f%%)",
+                    queryName, elapsed, dbManager.getResultCache().getHitRate()));
+            } else if (!(QueryRunner.rootCause(error) instanceof CancellationException)) {
+                showError("Query Error", QueryRunner.rootCause(error).getMessage());
+                updateStatus("Query failed");
+            }
+        }));
+    }
+    
+    private void cancelRunningQuery() {
+        CompletableFuture<?> previous = runningQuery;
+        if (previous != null && !previous.isDone()) {
+            previous.cancel(true);
+            logMessage("Previous query cancelled");
+        }
+        runningQuery = null;
+        stopProgress();
+    }
+    
+    private void startProgress(String queryName, long startedAt) {
+        progressBar.setVisible(true);
+        updateStatus("Executing: " + queryName + "...");
+        progressTimer = new javax.swing.Timer(100, e -> {
+            double seconds = (System.currentTimeMillis() - startedAt) / 1000.0;
+            updateStatus(String.format("Executing: %s... %.1fs", queryName, seconds));
+        });
+        progressTimer.start();
+    }
+    
+    private void stopProgress() {
+        if (progressTimer != null) {
+            progressTimer.stop();
+            progressTimer = null;
         }
+        progressBar.setVisible(false);
     }
     
     @FunctionalInterface
-    interface QueryExecutor {
-        List<Map<String, Object>> execute() throws SQLException;
+    interface SessionTask<T> {
+        T run(Database session) throws SQLException;
     }
     
-    private void displayResults(List<Map<String, Object>> results, String queryName) {
-        tableModel.setRowCount(0);
-        tableModel.setColumnCount(0);
+    // Show a paged result; rows stream in from the cursor as the user scrolls
+    private void displayResults(PagedResultTableModel results, String queryName) {
+        clearResults();
         
-        if (results.isEmpty()) {
+        if (results.getRowCount() == 0) {
+            results.close();
             logMessage("No results found for: " + queryName);
             JOptionPane.showMessageDialog(this, 
                 "No results found for this query!", 
@@ -531,52 +651,347 @@ public class VulcynyxApp extends JFrame {
             return;
         }
         
-        // Set column names in a stable order (preserved by LinkedHashMap in Database)
-        Map<String, Object> firstRow = results.get(0);
-        List<String> columns = new ArrayList<>(firstRow.keySet());
-        for (String columnName : columns) {
-            tableModel.addColumn(columnName);
-        }
-
-        // Add rows using the same column order
-        for (Map<String, Object> row : results) {
-            Object[] rowData = new Object[columns.size()];
-            for (int i = 0; i < columns.size(); i++) {
-                rowData[i] = row.get(columns.get(i));
-            }
-            tableModel.addRow(rowData);
-        }
+        // Sorting needs every row, so only allow it when the whole result fits in the first page
+        currentResult = results;
+        resultTable.setAutoCreateRowSorter(false);
+        resultTable.setRowSorter(null);
+        resultTable.setModel(results);
+        resultTable.setAutoCreateRowSorter(results.isFullyLoaded());
         
         // Auto-resize columns
         for (int i = 0; i < resultTable.getColumnCount(); i++) {
             resultTable.getColumnModel().getColumn(i).setPreferredWidth(150);
         }
         
-        logMessage("✓ " + queryName + " - " + results.size() + " records retrieved");
+        if (results.isFullyLoaded()) {
+            logMessage("✓ " + queryName + " - " + results.getRowCount() + " records retrieved");
+        } else {
+            logMessage("✓ " + queryName + " - first " + results.getRowCount() +
+                       " records retrieved, more load as you scroll");
+        }
     }
     
-    private void clearTable() {
+    // Release the current paged result (and its cursor) and show the empty table model
+    private void clearResults() {
+        if (currentResult != null) {
+            currentResult.close();
+            currentResult = null;
+        }
+        if (resultTable.getModel() != tableModel) {
+            resultTable.setModel(tableModel);
+        }
         tableModel.setRowCount(0);
         tableModel.setColumnCount(0);
+    }
+    
+    private static void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            System.err.println("Error releasing result: " + e.getMessage());
+        }
+    }
+    
+    private void clearTable() {
+        clearResults();
         logMessage("Table cleared");
         updateStatus("Table cleared");
     }
     
+    // Closes the displayed result and waits (off the EDT) for the cancelled request to wind down
+    // before the old connection goes back to the pool and a new one is borrowed
     private void refreshConnection() {
-        try {
-            updateStatus("Refreshing connection...");
-            dbManager.closeConnection();
-            dbManager = new Database();
+        updateStatus("Refreshing connection...");
+        cancelRunningQuery();
+        clearResults();
+        Database previous = dbManager;
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!queryRunner.awaitIdle(REFRESH_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new SQLException("Timed out waiting for running queries to stop");
+                }
+                previous.closeConnection();
+                return new Database();
+            } catch (SQLException | ClassNotFoundException | InterruptedException e) {
+                throw new CompletionException(e);
+            }
+        }).whenComplete((db, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                showError("Connection Error", QueryRunner.rootCause(error).getMessage());
+                updateStatus("Connection refresh failed");
+                return;
+            }
+            dbManager = db;
             logMessage("Database connection refreshed");
+            logMessage(dbManager.getPool().getStats());
+            logMessage(dbManager.getResultCache().getStats());
+            logMessage(dbManager.getCatalog().getStats());
+            logMessage(dbManager.getMaterializedViews().getStats());
+            logMessage(dbManager.getAnalytics().getStats());
+            logMessage(ParallelGroupBy.getStats());
+            logMessage(ChangeFeed.shared(dbManager.getPool()).getStats());
+            logMessage(QueryMetrics.shared().getStats());
+            logMessage(SlowQueryLog.shared().getStats());
+            logMessage(QueryPlanner.shared().getStats());
             updateStatus("Connection refreshed");
             JOptionPane.showMessageDialog(this,
                 "Database connection refreshed successfully!",
                 "Success",
                 JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            showError("Connection Error", e.getMessage());
-            updateStatus("Connection refresh failed");
+        }));
+    }
+    
+    // Per-query latency metrics, refreshed every few seconds while the window is open
+    private void showMetrics() {
+        if (metricsDialog != null) {
+            metricsDialog.toFront();
+            return;
         }
+        String[] columns = { "Query", "Runs", "Errors", "Cache Hits", "p50 ms", "p99 ms", "Max ms",
+                             "Prepare ms", "Execute ms", "Fetch ms", "Map ms", "Rows", "Bytes" };
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+            
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 0 ? String.class : column <= 3 || column >= 11 ? Long.class : Double.class;
+            }
+        };
+        JTable table = new JTable(model);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        table.setRowHeight(24);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setPreferredWidth(360);
+        
+        Runnable reload = () -> {
+            model.setRowCount(0);
+            for (QueryMetrics.Stats s : QueryMetrics.shared().snapshot()) {
+                model.addRow(new Object[] {
+                    s.getName(), s.getExecutions(), s.getErrors(), s.getCacheHits(),
+                    round(s.getP50Ms()), round(s.getP99Ms()), round(s.getMaxMs()),
+                    round(s.getPhaseMeanMs(QueryMetrics.Phase.PREPARE)),
+                    round(s.getPhaseMeanMs(QueryMetrics.Phase.EXECUTE)),
+                    round(s.getPhaseMeanMs(QueryMetrics.Phase.FETCH)),
+                    round(s.getPhaseMeanMs(QueryMetrics.Phase.MAP)),
+                    s.getRows(), s.getBytes()
+                });
+            }
+        };
+        reload.run();
+        javax.swing.Timer autoRefresh = new javax.swing.Timer(5000, e -> reload.run());
+        autoRefresh.start();
+        
+        JButton refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> reload.run());
+        JButton jsonBtn = new JButton("Export JSON");
+        jsonBtn.addActionListener(e -> exportMetrics(QueryMetrics.Format.JSON));
+        JButton promBtn = new JButton("Export Prometheus");
+        promBtn.addActionListener(e -> exportMetrics(QueryMetrics.Format.PROMETHEUS));
+        JButton resetBtn = new JButton("Reset");
+        resetBtn.addActionListener(e -> {
+            QueryMetrics.shared().reset();
+            reload.run();
+            logMessage("Query metrics reset");
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(refreshBtn);
+        buttons.add(jsonBtn);
+        buttons.add(promBtn);
+        buttons.add(resetBtn);
+        
+        JLabel note = new JLabel("  Latencies per execution; phase columns are means. Cache hits never reach the database.");
+        note.setFont(new Font("Segoe UI", Font.ITALIC, 11));
+        
+        metricsDialog = new JDialog(this, "Query Metrics", false);
+        metricsDialog.setLayout(new BorderLayout(5, 5));
+        metricsDialog.add(note, BorderLayout.NORTH);
+        metricsDialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        metricsDialog.add(buttons, BorderLayout.SOUTH);
+        metricsDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        metricsDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                autoRefresh.stop();
+                metricsDialog = null;
+            }
+        });
+        metricsDialog.setSize(1200, 500);
+        metricsDialog.setLocationRelativeTo(this);
+        metricsDialog.setVisible(true);
+    }
+    
+    // Queries that exceeded the slow-query threshold, worst first, with the captured SQL and plan
+    private void showSlowQueries() {
+        if (slowQueryDialog != null) {
+            slowQueryDialog.toFront();
+            return;
+        }
+        SlowQueryLog slowLog = SlowQueryLog.shared();
+        String[] columns = { "Query", "Slow Runs", "Total ms", "Max ms", "Rows (slowest)" };
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+            
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 0 ? String.class : column == 1 || column == 4 ? Long.class : Double.class;
+            }
+        };
+        JTable table = new JTable(model);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        table.setRowHeight(24);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setPreferredWidth(360);
+        
+        JTextArea details = new JTextArea();
+        details.setEditable(false);
+        details.setFont(new Font("Consolas", Font.PLAIN, 12));
+        
+        List<SlowQueryLog.Offender> shown = new ArrayList<>();
+        Runnable reload = () -> {
+            int selected = table.getSelectedRow();
+            shown.clear();
+            shown.addAll(slowLog.getWorstOffenders(50));
+            model.setRowCount(0);
+            for (SlowQueryLog.Offender o : shown) {
+                model.addRow(new Object[] {
+                    o.getName(), o.getCount(), round(o.getTotalMs()), round(o.getMaxMs()), o.getSlowest().getRows()
+                });
+            }
+            if (selected >= 0 && selected < model.getRowCount()) {
+                table.setRowSelectionInterval(selected, selected);
+            }
+        };
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int row = table.getSelectedRow();
+            if (e.getValueIsAdjusting() || row < 0 || row >= shown.size()) {
+                return;
+            }
+            SlowQueryLog.Entry slowest = shown.get(row).getSlowest();
+            String plan = slowest.getPlan();
+            details.setText(String.format("Slowest run: %.1f ms, %d rows%n%nSQL:%n%s%n%nParameters: %s%n%nPlan:%n%s",
+                slowest.getElapsedMs(), slowest.getRows(), slowest.getSql(), slowest.getParams(),
+                plan == null ? "(not captured yet)" : plan));
+            details.setCaretPosition(0);
+        });
+        reload.run();
+        javax.swing.Timer autoRefresh = new javax.swing.Timer(5000, e -> reload.run());
+        autoRefresh.start();
+        
+        JSpinner threshold = new JSpinner(new SpinnerNumberModel((int) slowLog.getThresholdMs(), 0, 600_000, 50));
+        threshold.addChangeListener(e -> {
+            slowLog.setThresholdMs(((Number) threshold.getValue()).longValue());
+            logMessage("Slow-query threshold set to " + slowLog.getThresholdMs() + " ms");
+        });
+        JButton refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> reload.run());
+        JButton resetBtn = new JButton("Reset");
+        resetBtn.addActionListener(e -> {
+            slowLog.reset();
+            details.setText("");
+            reload.run();
+        });
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Threshold (ms):"));
+        top.add(threshold);
+        top.add(refreshBtn);
+        top.add(resetBtn);
+        top.add(new JLabel("  Log file: " + slowLog.getFile()));
+        
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(table), new JScrollPane(details));
+        split.setResizeWeight(0.5);
+        
+        slowQueryDialog = new JDialog(this, "Slow Queries", false);
+        slowQueryDialog.setLayout(new BorderLayout(5, 5));
+        slowQueryDialog.add(top, BorderLayout.NORTH);
+        slowQueryDialog.add(split, BorderLayout.CENTER);
+        slowQueryDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        slowQueryDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                autoRefresh.stop();
+                slowQueryDialog = null;
+            }
+        });
+        slowQueryDialog.setSize(1100, 650);
+        slowQueryDialog.setLocationRelativeTo(this);
+        slowQueryDialog.setVisible(true);
+    }
+    
+    // Pick which variant of the rewritten reports runs, globally or per report, and show how the
+    // last verifications went
+    private void showPlanner() {
+        QueryPlanner planner = QueryPlanner.shared();
+        JComboBox<QueryPlanner.Mode> modes = new JComboBox<>(QueryPlanner.Mode.values());
+        modes.setSelectedItem(planner.getMode());
+        
+        String[][] reports = {
+            { "Q16", "Top Customers by Year" },
+            { "Q17", "Products Not Sold (1 Month)" },
+            { "Q19", "High Bounce Rate Products" }
+        };
+        JPanel overrides = new JPanel(new GridLayout(0, 2, 5, 5));
+        List<JComboBox<String>> reportModes = new ArrayList<>();
+        for (String[] report : reports) {
+            JComboBox<String> reportMode = new JComboBox<>(new String[] { "Global", "ORIGINAL", "OPTIMIZED", "VERIFY" });
+            QueryPlanner.Mode override = planner.getOverride(report[0]);
+            reportMode.setSelectedItem(override == null ? "Global" : override.name());
+            reportModes.add(reportMode);
+            overrides.add(new JLabel(report[0] + " " + report[1] + ":"));
+            overrides.add(reportMode);
+        }
+        
+        StringBuilder verifications = new StringBuilder();
+        for (QueryPlanner.Verification verification : planner.getVerifications()) {
+            verifications.append(verification).append('\n');
+        }
+        if (verifications.length() == 0) {
+            verifications.append("No report verified yet: choose VERIFY and run Top Customers by Year, ")
+                         .append("Products Not Sold (1 Month) or High Bounce Rate Products.");
+        }
+        JTextArea details = new JTextArea(verifications.toString(), 8, 70);
+        details.setEditable(false);
+        details.setLineWrap(true);
+        details.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        
+        JPanel top = new JPanel(new BorderLayout(5, 5));
+        JPanel global = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        global.add(new JLabel("Mode:"));
+        global.add(modes);
+        top.add(global, BorderLayout.NORTH);
+        top.add(overrides, BorderLayout.CENTER);
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(top, BorderLayout.NORTH);
+        panel.add(new JScrollPane(details), BorderLayout.CENTER);
+        
+        int choice = JOptionPane.showConfirmDialog(this, panel, "Query Planner",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice == JOptionPane.OK_OPTION) {
+            planner.setMode((QueryPlanner.Mode) modes.getSelectedItem());
+            for (int i = 0; i < reports.length; i++) {
+                String selected = (String) reportModes.get(i).getSelectedItem();
+                planner.setMode(reports[i][0], "Global".equals(selected) ? null : QueryPlanner.Mode.valueOf(selected));
+            }
+            logMessage(planner.getStats());
+            updateStatus("Query planner mode: " + planner.getMode());
+        }
+    }
+    
+    private void exportMetrics(QueryMetrics.Format format) {
+        try {
+            logMessage("Query metrics written to " + QueryMetrics.shared().dump(format));
+        } catch (java.io.IOException e) {
+            showError("Export Error", e.getMessage());
+        }
+    }
+    
+    private static double round(double ms) {
+        return Math.round(ms * 1000) / 1000.0;
     }
     
     private String showInputDialog(String message, String defaultValue) {
@@ -611,8 +1026,12 @@ public class VulcynyxApp extends JFrame {
     }
     
     private void closeApplication() {
+        cancelRunningQuery();
+        clearResults();
+        queryRunner.shutdown();
         try {
             dbManager.closeConnection();
+            ConnectionPool.shutdownAll();
             logMessage("Application closed");
         } catch (SQLException e) {
             e.printStackTrace();
@@ -0,0 +1,17 @@
+-- Change timestamps for Product, Business and Ads, read by ChangeFeed, ColumnarSnapshot's delta
+-- refresh and MaterializedViews (-Dvulcynyx.mv.enabled=true). Without them those fall back to full
+-- reads, or stay off. Apply once, at a quiet time: each ALTER rebuilds its table.
+--
+--   mysql -u root -p Vulcynyx < change_tracking.sql
+
+ALTER TABLE Product ADD COLUMN UpdatedAt TIMESTAMP(3) NOT NULL
+    DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_product_updated ON Product (UpdatedAt);
+
+ALTER TABLE Business ADD COLUMN UpdatedAt TIMESTAMP(3) NOT NULL
+    DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_business_updated ON Business (UpdatedAt);
+
+ALTER TABLE Ads ADD COLUMN UpdatedAt TIMESTAMP(3) NOT NULL
+    DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+CREATE INDEX idx_ads_updated ON Ads (UpdatedAt);
@@ -0,0 +1,279 @@
+package mini_project_dbms;
+
+import org.h2.api.Interval;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.JTable;
+import java.sql.*;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for the query layer: row mapping into QueryResult, table population as done by
+// VulcynyxApp.displayResults, and every analytics query in Database. By default they run against an
+// in-memory H2 database in MySQL mode seeded by DataGenerator; point vulcynyx.bench.url at a real
+// server to measure that instead. H2 lacks DATE_SUB, so setUp() registers dateSub() under that name,
+// and the default URL lets YEAR be used as a column alias. ResultCache, ProductCatalog and the
+// slow-query log are disabled in the forked JVMs, and the materialized views are off by default, so
+// the queries themselves are measured.
+//
+//   mvn -B -Pbench verify
+//   mvn -B -Pbench verify -Djmh.args="-jvmArgs -Dvulcynyx.bench.transactions=200000 query_Q1"
+//
+// (-jvmArgs adds to the flags above; -jvmArgsAppend on the command line would replace them)
+//
+// Results are written to target/jmh-results.json, which can be diffed between releases.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dvulcynyx.cache.disabled=true", "-Dvulcynyx.catalog.disabled=true",
+                                   "-Dvulcynyx.slowlog.disabled=true" })
+@State(Scope.Benchmark)
+public class QueryBenchmarks {
+    private static final String URL = System.getProperty("vulcynyx.bench.url",
+        "jdbc:h2:mem:vulcynyx_bench;MODE=MySQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=YEAR");
+    private static final String USER = System.getProperty("vulcynyx.bench.user", "sa");
+    private static final String PASS = System.getProperty("vulcynyx.bench.password", "");
+    private static final String DRIVER = System.getProperty("vulcynyx.bench.driver",
+        URL.startsWith("jdbc:h2:") ? "org.h2.Driver" : "com.mysql.cj.jdbc.Driver");
+    private static final boolean SEED = Boolean.parseBoolean(
+        System.getProperty("vulcynyx.bench.seed", String.valueOf(URL.startsWith("jdbc:h2:"))));
+    private static final int PRODUCTS = Integer.getInteger("vulcynyx.bench.products", 2_000);
+    private static final int CUSTOMERS = Integer.getInteger("vulcynyx.bench.customers", 10_000);
+    private static final int TRANSACTIONS = Integer.getInteger("vulcynyx.bench.transactions", 50_000);
+    private static final int ADS = Integer.getInteger("vulcynyx.bench.ads", 1_000);
+    private static final int CAMPAIGNS = Integer.getInteger("vulcynyx.bench.campaigns", 50);
+    private static final double SKEW = Double.parseDouble(System.getProperty("vulcynyx.bench.skew", "1.0"));
+
+    private Database db;
+    private Connection conn;
+    private QueryResult products;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class.forName(DRIVER);
+        if (URL.startsWith("jdbc:h2:")) {
+            try (Connection h2 = DriverManager.getConnection(URL, USER, PASS);
+                 Statement stmt = h2.createStatement()) {
+                stmt.execute("CREATE ALIAS IF NOT EXISTS DATE_SUB FOR '" + QueryBenchmarks.class.getName() + ".dateSub'");
+            }
+        }
+        if (SEED) {
+            try (Connection seed = DriverManager.getConnection(URL, USER, PASS)) {
+                DataGenerator.createSchema(seed);
+            }
+            new DataGenerator(PRODUCTS, CUSTOMERS, TRANSACTIONS, ADS, CAMPAIGNS, SKEW, 500,
+                Runtime.getRuntime().availableProcessors(), 42).generate(URL, USER, PASS);
+        }
+        db = new Database(URL, USER, PASS, DRIVER);
+        conn = db.getConnection();
+        products = readAll("SELECT * FROM Product");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.closeConnection();
+        ConnectionPool.shutdownAll();
+    }
+
+    // DATE_SUB(date, INTERVAL n unit) for H2, which has no such function; registered in setUp()
+    public static Date dateSub(Date date, Interval interval) {
+        LocalDate day = date.toLocalDate();
+        long amount = interval.isNegative() ? -interval.getLeading() : interval.getLeading();
+        switch (interval.getQualifier()) {
+            case YEAR:
+                return Date.valueOf(day.minusYears(amount));
+            case MONTH:
+                return Date.valueOf(day.minusMonths(amount));
+            case DAY:
+                return Date.valueOf(day.minusDays(amount));
+            default:
+                throw new IllegalArgumentException("DATE_SUB by " + interval.getQualifier() + " is not supported");
+        }
+    }
+
+    // ==================== MAPPING ====================
+    @Benchmark
+    public QueryResult mapping_queryResult_business() throws SQLException {
+        return readAll("SELECT * FROM Business");
+    }
+
+    @Benchmark
+    public QueryResult mapping_queryResult_product() throws SQLException {
+        return readAll("SELECT * FROM Product");
+    }
+
+    // Cost of consumers that still walk the result as List<Map>
+    @Benchmark
+    public int mapping_rowMaps_business() throws SQLException {
+        int hash = 0;
+        for (Map<String, Object> row : readAll("SELECT * FROM Business")) {
+            hash += row.hashCode();
+        }
+        return hash;
+    }
+
+    // ==================== DISPLAY ====================
+    @Benchmark
+    public int display_tableModel_products() {
+        return populateTable(PagedResultTableModel.of(products));
+    }
+
+    @Benchmark
+    public int display_pagedCursor_sortProductsByPrice() throws SQLException {
+        try (Database session = db.openSession(PagedResultTableModel.DEFAULT_PAGE_SIZE);
+             PagedResultTableModel model = session.openPaged(Database::sortProductsByPrice)) {
+            return populateTable(model);
+        }
+    }
+
+    // ==================== QUERIES ====================
+    @Benchmark
+    public QueryResult query_Q01_topSearchedProductsByAgeGroup() throws SQLException {
+        return db.getTopSearchedProductsByAgeGroup();
+    }
+
+    @Benchmark
+    public QueryResult query_Q02_mostPurchasedInPriceRange() throws SQLException {
+        return db.getMostPurchasedInPriceRange(1000, 50000);
+    }
+
+    @Benchmark
+    public QueryResult query_Q03_revenueByPlatform() throws SQLException {
+        return db.getRevenueByPlatform();
+    }
+
+    @Benchmark
+    public QueryResult query_Q04_categoriesOfProduct() throws SQLException {
+        return db.getCategoriesOfProduct("Gold Ring 1");
+    }
+
+    @Benchmark
+    public QueryResult query_Q05_searchProductByMaterial() throws SQLException {
+        return db.searchProductByMaterial("Gold");
+    }
+
+    @Benchmark
+    public QueryResult query_Q06_sortProductsByPrice() throws SQLException {
+        return db.sortProductsByPrice();
+    }
+
+    @Benchmark
+    public QueryResult query_Q07_customersInCity() throws SQLException {
+        return db.getCustomersInCity("Pune");
+    }
+
+    @Benchmark
+    public QueryResult query_Q08_saleOfProduct() throws SQLException {
+        return db.getSaleOfProduct("Gold Ring 1");
+    }
+
+    @Benchmark
+    public QueryResult query_Q09_saleOfCategory() throws SQLException {
+        return db.getSaleOfCategory("Ring");
+    }
+
+    @Benchmark
+    public QueryResult query_Q10_top5CustomersBySpending() throws SQLException {
+        return db.getTop5CustomersBySpending();
+    }
+
+    @Benchmark
+    public QueryResult query_Q11_totalQuantitySoldPerProduct() throws SQLException {
+        return db.getTotalQuantitySoldPerProduct();
+    }
+
+    @Benchmark
+    public QueryResult query_Q12_averagePricePerCategory() throws SQLException {
+        return db.getAveragePricePerCategory();
+    }
+
+    @Benchmark
+    public QueryResult query_Q13_topSellingProductsPerRegion() throws SQLException {
+        return db.getTopSellingProductsPerRegion();
+    }
+
+    @Benchmark
+    public QueryResult query_Q14_totalRevenuePerCategory() throws SQLException {
+        return db.getTotalRevenuePerCategory();
+    }
+
+    @Benchmark
+    public QueryResult query_Q15_campaignsWithHighestROI() throws SQLException {
+        return db.getCampaignsWithHighestROI(10);
+    }
+
+    @Benchmark
+    public QueryResult query_Q16_top10CustomersByYear() throws SQLException {
+        return db.getTop10CustomersByYear();
+    }
+
+    @Benchmark
+    public QueryResult query_Q17_productsNotSoldLastMonth() throws SQLException {
+        return db.getProductsNotSoldLastMonth();
+    }
+
+    @Benchmark
+    public QueryResult query_Q18_trendingProducts() throws SQLException {
+        return db.getTrendingProducts();
+    }
+
+    @Benchmark
+    public QueryResult query_Q19_highBounceRateProducts() throws SQLException {
+        return db.getHighBounceRateProducts();
+    }
+
+    @Benchmark
+    public QueryResult query_Q20_campaignReportsPerRegion() throws SQLException {
+        return db.getCampaignReportsPerRegion();
+    }
+
+    @Benchmark
+    public QueryResult query_Q21_adsRunningAtLoss() throws SQLException {
+        return db.getAdsRunningAtLoss();
+    }
+
+    @Benchmark
+    public QueryResult query_Q22_adsWithHighConversion() throws SQLException {
+        return db.getAdsWithHighConversion();
+    }
+
+    // Q23 calls a procedure that writes data, so it is not repeatable and is left out
+
+    @Benchmark
+    public QueryResult query_Q24_restockPriorityList() throws SQLException {
+        return db.getRestockPriorityList();
+    }
+
+    @Benchmark
+    public QueryResult query_Q25_lowStockAlerts() throws SQLException {
+        return db.getLowStockAlerts();
+    }
+
+    private QueryResult readAll(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return QueryResult.read(rs);
+        }
+    }
+
+    // Same steps as VulcynyxApp.displayResults, then read the cells of the first screenful
+    private static int populateTable(PagedResultTableModel model) {
+        JTable table = new JTable();
+        table.setModel(model);
+        table.setAutoCreateRowSorter(model.isFullyLoaded());
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setPreferredWidth(150);
+        }
+        int hash = 0;
+        for (int row = 0; row < Math.min(40, model.getRowCount()); row++) {
+            for (int column = 0; column < model.getColumnCount(); column++) {
+                hash += Objects.hashCode(model.getValueAt(row, column));
+            }
+        }
+        return hash;
+    }
+}
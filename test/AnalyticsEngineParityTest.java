@@ -0,0 +1,178 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every report AnalyticsEngine evaluates, answered from the snapshot and by the database over the
+// same small generated dataset, with NULLs seeded into the columns the reports add up or divide
+class AnalyticsEngineParityTest {
+    private static final String URL =
+        "jdbc:h2:mem:parity;MODE=MySQL;DATABASE_TO_UPPER=FALSE;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1";
+
+    // The reports Database runs with inline SQL rather than through reports.properties
+    private static final Map<String, String> INLINE = new HashMap<>();
+
+    static {
+        INLINE.put("Q17", "SELECT p.ProductID, p.Name, p.Category, p.Stock, p.Price " +
+            "FROM Product p " +
+            "WHERE p.Stock > 0 " +
+            "AND p.ProductID NOT IN (" +
+            "SELECT DISTINCT b.ProductID FROM Business b " +
+            "WHERE b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL '1' MONTH)) " +
+            "ORDER BY p.Stock DESC");
+        INLINE.put("Q19", "SELECT p.ProductID, p.Name, a.Impressions, " +
+            "IFNULL(SUM(b.Qty), 0) AS TotalSales, " +
+            "ROUND((IFNULL(SUM(b.Qty), 0) / a.Impressions) * 100, 2) AS ConversionRate " +
+            "FROM Product p " +
+            "JOIN Ads a ON p.ProductID = a.ProductID " +
+            "LEFT JOIN Business b ON p.ProductID = b.ProductID " +
+            "AND b.PDate >= DATE_SUB(CURRENT_DATE, INTERVAL '1' MONTH) " +
+            "GROUP BY p.ProductID, p.Name, a.Impressions " +
+            "HAVING ConversionRate < 5 " +
+            "ORDER BY ConversionRate");
+        INLINE.put("Q21", "SELECT AdID, Platform, Revenue, AdCost, ROI " +
+            "FROM Ad_Performance_View " +
+            "WHERE ROI < 0 " +
+            "ORDER BY ROI ASC");
+        INLINE.put("Q22", "SELECT AdID, Platform, ConversionRate, Impressions, Conversions " +
+            "FROM Ad_Performance_View " +
+            "WHERE ConversionRate > 10 " +
+            "ORDER BY ConversionRate DESC");
+        INLINE.put("Q24", "SELECT p.ProductID, p.Name AS ProductName, " +
+            "SUM(s.Qty) AS Total_Sold_LastMonth, " +
+            "p.Stock AS Current_Stock, " +
+            "ROUND(SUM(s.Qty) / NULLIF(p.Stock + SUM(s.Qty), 0) * 100, 2) AS Demand_Percentage, " +
+            "c.Name AS CategoryName " +
+            "FROM Product p " +
+            "JOIN Business s ON p.ProductID = s.ProductID " +
+            "JOIN Category c ON p.CategoryID = c.CategoryID " +
+            "WHERE s.PDate >= DATE_SUB(CURDATE(), INTERVAL '1' MONTH) " +
+            "GROUP BY p.ProductID, p.Name, p.Stock, c.Name " +
+            "HAVING p.Stock < 20 AND Total_Sold_LastMonth > 50 " +
+            "ORDER BY Demand_Percentage DESC");
+    }
+
+    private static Map<String, ReportRegistry.Report> reports;
+    private static ConnectionPool pool;
+    private static AnalyticsEngine engine;
+
+    @BeforeAll
+    static void seed() throws SQLException, IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Paths.get("reports.properties"), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        reports = ReportRegistry.parse(properties);
+
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+            DataGenerator.createSchema(conn);
+        }
+        new DataGenerator(300, 400, 30_000, 400, 10, 1.0, 500, 2, 7).generate(URL, "sa", "");
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE ALIAS IF NOT EXISTS DATE_SUB FOR 'mini_project_dbms.QueryBenchmarks.dateSub'");
+            // H2 divides integers as integers where MySQL gives a decimal; as DECIMAL(10, 0) the
+            // counts divide the way they do in MySQL
+            stmt.execute("DROP VIEW Ad_Performance_View");
+            stmt.execute("ALTER TABLE Business ALTER COLUMN Qty SET DATA TYPE DECIMAL(10, 0)");
+            stmt.execute("ALTER TABLE Ads ALTER COLUMN Impressions SET DATA TYPE DECIMAL(10, 0)");
+            stmt.execute("ALTER TABLE Ads ALTER COLUMN Conversions SET DATA TYPE DECIMAL(10, 0)");
+            stmt.execute("CREATE VIEW Ad_Performance_View AS SELECT a.AdsID AS AdID, a.Platform, a.Revenue, " +
+                "a.Cost AS AdCost, ROUND((a.Revenue - a.Cost) / NULLIF(a.Cost, 0) * 100, 2) AS ROI, " +
+                "ROUND(a.Conversions / NULLIF(a.Impressions, 0) * 100, 2) AS ConversionRate, " +
+                "a.Impressions, a.Conversions FROM Ads a");
+            // H2 runs Q17's NOT IN subquery once per product
+            stmt.execute("CREATE INDEX idx_business_date ON Business (PDate)");
+            // Some low stock, so the restock list is not empty
+            stmt.executeUpdate("UPDATE Product SET Stock = MOD(ProductID, 20) WHERE MOD(ProductID, 3) = 0");
+            stmt.executeUpdate("UPDATE Product SET Price = NULL WHERE MOD(ProductID, 13) = 0");
+            stmt.executeUpdate("UPDATE Product SET Price = NULL WHERE Category = (SELECT MIN(Category) FROM Product)");
+            stmt.executeUpdate("UPDATE Product SET Stock = NULL WHERE MOD(ProductID, 11) = 0");
+            stmt.executeUpdate("UPDATE Business SET Qty = NULL WHERE MOD(CustomerID, 17) = 0");
+            stmt.executeUpdate("UPDATE Ads SET Revenue = NULL WHERE MOD(AdsID, 7) = 0");
+            stmt.executeUpdate("UPDATE Ads SET Cost = NULL WHERE MOD(AdsID, 9) = 0");
+            stmt.executeUpdate("UPDATE Ads SET Impressions = NULL WHERE MOD(AdsID, 23) = 0");
+            stmt.executeUpdate("UPDATE Ads SET Conversions = NULL WHERE MOD(AdsID, 29) = 0");
+        }
+        pool = new ConnectionPool(URL, "sa", "");
+        engine = new AnalyticsEngine(pool);
+        engine.reload(false);
+    }
+
+    @AfterAll
+    static void shutdown() throws SQLException {
+        engine.shutdown();
+        pool.shutdown();
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static String sql(String id) {
+        return INLINE.containsKey(id) ? INLINE.get(id) : reports.get(id).getSql();
+    }
+
+    private static QueryResult query(String sql, Object... params) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return QueryResult.read(rs);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "Q01", "Q03", "Q11", "Q12", "Q13", "Q14", "Q17", "Q19", "Q21", "Q22", "Q24" })
+    void localResultMatchesTheDatabase(String id) throws SQLException {
+        QueryResult local = engine.evaluate(id, sql(id));
+        assertNotNull(local, id + " was not evaluated locally");
+        QueryResult expected = query(sql(id));
+        assertTrue(expected.getRowCount() > 0, id + " returned no rows to compare");
+        assertNull(QueryPlanner.compare(expected, local, null), id);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "0, 100000", "1000, 20000", "30000, 10" })
+    void priceRangeMatchesTheDatabase(String range) throws SQLException {
+        String[] bounds = range.split(",\\s*");
+        Object[] params = { new BigDecimal(bounds[0]), new BigDecimal(bounds[1]) };
+        QueryResult local = engine.evaluate("Q02", sql("Q02"), params);
+        assertNotNull(local);
+        assertNull(QueryPlanner.compare(query(sql("Q02"), params), local, new QueryPlanner.TopN(3, 1)));
+    }
+
+    @Test
+    void topSpendersMatchTheDatabase() throws SQLException {
+        QueryResult local = engine.evaluate("Q10", sql("Q10"));
+        assertNotNull(local);
+        assertNull(QueryPlanner.compare(query(sql("Q10")), local, new QueryPlanner.TopN(5, 2)));
+    }
+
+    // Reformatting is not an edit, but changing the query is
+    @ParameterizedTest
+    @ValueSource(strings = { "Q03", "Q21" })
+    void editedSqlRunsInTheDatabase(String id) {
+        assertNotNull(engine.evaluate(id, "  " + sql(id).replace(" ", "\n    ") + "\n"));
+        assertNull(engine.evaluate(id, sql(id) + " LIMIT 10"));
+    }
+}
@@ -0,0 +1,38 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The rounding helpers must give the same digits MySQL does, or the local reports would differ from the SQL ones
+class AnalyticsEngineTest {
+    @Test
+    void percentRoundsToTwoPlaces() {
+        assertEquals(new BigDecimal("33.33"), AnalyticsEngine.percent(1, 3, 4));
+        assertEquals(new BigDecimal("66.67"), AnalyticsEngine.percent(2, 3, 4));
+        assertEquals(new BigDecimal("12.50"), AnalyticsEngine.percent(1, 8, 4));
+        assertEquals(new BigDecimal("100.00"), AnalyticsEngine.percent(5, 5, 4));
+    }
+
+    // MySQL rounds the quotient to the operands' scale + div_precision_increment before the * 100
+    @Test
+    void percentRoundsTheQuotientFirst() {
+        assertEquals(new BigDecimal("33.00"), AnalyticsEngine.percent(1, 3, 2));
+        assertEquals(new BigDecimal("0.01"), AnalyticsEngine.percent(1, 16_000, 4));
+        assertEquals(new BigDecimal("0.00"), AnalyticsEngine.percent(1, 40_000, 4));
+    }
+
+    @Test
+    void percentOfNegativeValues() {
+        assertEquals(new BigDecimal("-33.33"), AnalyticsEngine.percent(-1, 3, 4));
+    }
+
+    @Test
+    void moneyIsCentsWithTwoDecimals() {
+        assertEquals(new BigDecimal("123.45"), AnalyticsEngine.money(12_345));
+        assertEquals(new BigDecimal("-0.05"), AnalyticsEngine.money(-5));
+        assertEquals(2, AnalyticsEngine.money(100).scale());
+    }
+}
@@ -0,0 +1,127 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BusinessStoreTest {
+    private static final int ROWS = 5_000;
+    private static final int BASE_ROWS = 4_000;
+
+    private final int[] products = new int[ROWS];
+    private final int[] customers = new int[ROWS];
+    private final int[] days = new int[ROWS];
+    private final int[] quantities = new int[ROWS];
+
+    BusinessStoreTest() {
+        Random random = new Random(11);
+        for (int row = 0; row < ROWS; row++) {
+            products[row] = row;
+            customers[row] = random.nextInt(100);
+            // A few NULL dates, which no date range matches
+            days[row] = row % 97 == 0 ? ColumnarSnapshot.NULL : 19_000 + random.nextInt(400);
+            quantities[row] = row % 89 == 0 ? ColumnarSnapshot.NULL : random.nextInt(10);
+        }
+    }
+
+    // Product ids (the row each record came from) the cursor visits, in order
+    private static List<Integer> visit(BusinessStore.Cursor cursor) {
+        List<Integer> rows = new ArrayList<>();
+        while (cursor.next()) {
+            rows.add(cursor.productId());
+        }
+        return rows;
+    }
+
+    private List<Integer> expected(int from, int to, int fromDay, int toDay) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = from; row < to; row++) {
+            if (days[row] != ColumnarSnapshot.NULL && days[row] >= fromDay && days[row] <= toDay) {
+                rows.add(row);
+            }
+        }
+        // Within each segment records are ordered by day, ties in their original order
+        rows.sort((a, b) -> Integer.compare(days[a], days[b]));
+        return rows;
+    }
+
+    private static void assertRecords(BusinessStore store, int[] products, int[] customers, int[] days,
+                                      int[] quantities) {
+        BusinessStore.Cursor cursor = store.scan();
+        while (cursor.next()) {
+            int row = cursor.productId();
+            assertEquals(customers[row], cursor.customerId());
+            assertEquals(days[row], cursor.day());
+            assertEquals(quantities[row], cursor.qty());
+        }
+    }
+
+    @Test
+    void scanReturnsTheDateRangeOfBothSegments() {
+        BusinessStore store = BusinessStore.of(products, customers, days, quantities, ROWS, BASE_ROWS);
+        assertEquals(ROWS, store.size());
+        assertEquals(BASE_ROWS, store.getBaseRows());
+        assertRecords(store, products, customers, days, quantities);
+
+        int[][] ranges = { { 19_100, 19_130 }, { 19_000, 19_000 }, { 0, Integer.MAX_VALUE }, { 19_500, 19_600 },
+            { 19_200, 19_100 } };
+        for (int[] range : ranges) {
+            List<Integer> expected = expected(0, BASE_ROWS, range[0], range[1]);
+            expected.addAll(expected(BASE_ROWS, ROWS, range[0], range[1]));
+            assertEquals(expected, visit(store.scan(range[0], range[1])), range[0] + ".." + range[1]);
+        }
+    }
+
+    @Test
+    void fullScanVisitsEveryRecord() {
+        BusinessStore store = BusinessStore.of(products, customers, days, quantities, ROWS, BASE_ROWS);
+        List<Integer> rows = visit(store.scan());
+        assertEquals(ROWS, rows.size());
+        assertEquals(ROWS, rows.stream().distinct().count());
+    }
+
+    // extend() must store exactly what of() would for the base rows plus the added ones
+    @Test
+    void extendMatchesAStoreBuiltFromScratch() {
+        int seeded = 3_000;
+        int addedBase = BASE_ROWS - seeded;
+        BusinessStore base = BusinessStore.of(products, customers, days, quantities, seeded, seeded);
+
+        int added = ROWS - seeded;
+        int[] addedProducts = new int[added];
+        int[] addedCustomers = new int[added];
+        int[] addedDays = new int[added];
+        int[] addedQuantities = new int[added];
+        for (int i = 0; i < added; i++) {
+            addedProducts[i] = products[seeded + i];
+            addedCustomers[i] = customers[seeded + i];
+            addedDays[i] = days[seeded + i];
+            addedQuantities[i] = quantities[seeded + i];
+        }
+        BusinessStore extended = BusinessStore.extend(base, addedProducts, addedCustomers, addedDays, addedQuantities,
+            added, addedBase);
+        BusinessStore expected = BusinessStore.of(products, customers, days, quantities, ROWS, BASE_ROWS);
+
+        assertEquals(expected.size(), extended.size());
+        assertEquals(expected.getBaseRows(), extended.getBaseRows());
+        assertEquals(visit(expected.scan()), visit(extended.scan()));
+        assertEquals(visit(expected.scan(19_050, 19_250)), visit(extended.scan(19_050, 19_250)));
+        assertRecords(extended, products, customers, days, quantities);
+        // The base store is left as it was
+        assertEquals(seeded, base.size());
+        assertEquals(expected(0, seeded, 0, Integer.MAX_VALUE), visit(base.scan(0, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void extendWithNothingAddedCopiesTheBase() {
+        BusinessStore base = BusinessStore.of(products, customers, days, quantities, ROWS, BASE_ROWS);
+        BusinessStore extended = BusinessStore.extend(base, new int[0], new int[0], new int[0], new int[0], 0, 0);
+        assertEquals(BASE_ROWS, extended.size());
+        assertEquals(BASE_ROWS, extended.getBaseRows());
+        assertEquals(expected(0, BASE_ROWS, 0, Integer.MAX_VALUE), visit(extended.scan(0, Integer.MAX_VALUE)));
+    }
+}
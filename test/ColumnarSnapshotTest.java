@@ -0,0 +1,129 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A delta refresh must end up with the same data as reading every table again
+class ColumnarSnapshotTest {
+    private static final String URL = "jdbc:h2:mem:snapshot;MODE=MySQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1";
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+            DataGenerator.createSchema(conn);
+        }
+        new DataGenerator(100, 200, 5_000, 100, 5, 1.0, 500, 1, 5).generate(URL, "sa", "");
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            // What change_tracking.sql adds in MySQL, with every existing row stamped two hours ago
+            for (String table : new String[] { "Product", "Business", "Ads" }) {
+                stmt.execute("ALTER TABLE " + table + " ADD COLUMN UpdatedAt TIMESTAMP(3) NOT NULL " +
+                    "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+                stmt.executeUpdate("UPDATE " + table + " SET UpdatedAt = DATEADD(HOUR, -2, CURRENT_TIMESTAMP(3))");
+            }
+        }
+    }
+
+    @AfterAll
+    static void drop() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static List<String> products(ColumnarSnapshot s) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < s.productCount; i++) {
+            rows.add(s.productId[i] + "|" + s.productNames.decode(s.productName[i]) + "|" +
+                s.categories.decode(s.productCategory[i]) + "|" + s.productPriceCents[i] + "|" + s.productStock[i]);
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<String> ads(ColumnarSnapshot s) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < s.adsCount; i++) {
+            rows.add(s.adsId[i] + "|" + s.platforms.decode(s.adsPlatform[i]) + "|" + s.adsProductId[i] + "|" +
+                s.adsImpressions[i] + "|" + s.adsConversions[i] + "|" + s.adsRevenueCents[i] + "|" + s.adsCostCents[i]);
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<String> sales(BusinessStore store, int fromDay, int toDay) {
+        List<String> rows = new ArrayList<>();
+        BusinessStore.Cursor cursor = store.scan(fromDay, toDay);
+        while (cursor.next()) {
+            rows.add(cursor.day() + "|" + cursor.productId() + "|" + cursor.customerId() + "|" + cursor.qty());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    @Test
+    void deltaRefreshMatchesAFullLoad() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            ColumnarSnapshot base = ColumnarSnapshot.load(conn);
+            assertTrue(base.watermark > 0);
+            int seeded = base.business.size();
+            // As if base had been loaded an hour ago
+            base.watermark = System.currentTimeMillis() - 3_600_000;
+
+            // Stamped between the old and the new watermark: merged into the base segment
+            stmt.executeUpdate("INSERT INTO Business (ProductID, CustomerID, PDate, Qty, UpdatedAt) " +
+                "SELECT ProductID, 1, CURRENT_DATE, 2, DATEADD(MINUTE, -30, CURRENT_TIMESTAMP(3)) " +
+                "FROM Product WHERE ProductID <= 10");
+            // Stamped now, after the new watermark: the tail
+            stmt.executeUpdate("INSERT INTO Business (ProductID, CustomerID, PDate, Qty) " +
+                "SELECT ProductID, 2, DATEADD(DAY, -400, CURRENT_DATE), 3 FROM Product WHERE ProductID <= 5");
+            stmt.executeUpdate("UPDATE Product SET Stock = 7, Price = NULL WHERE ProductID = 3");
+            stmt.executeUpdate("INSERT INTO Ads (AdsID, Platform, AgeGroup, ProductID, Impressions, Conversions, " +
+                "Revenue, Cost) VALUES (100000, 'Google', '18-24', 1, 1000, 10, 55.50, NULL)");
+
+            ColumnarSnapshot refreshed = ColumnarSnapshot.refresh(conn, base);
+            assertTrue(refreshed.deltaTables.containsAll(List.of("Product", "Business", "Ads")),
+                refreshed.deltaTables.toString());
+            assertEquals(seeded + 10, refreshed.business.getBaseRows());
+            assertEquals(seeded + 15, refreshed.business.size());
+
+            ColumnarSnapshot full = ColumnarSnapshot.load(conn);
+            assertEquals(products(full), products(refreshed));
+            assertEquals(ads(full), ads(refreshed));
+            assertEquals(sales(full.business, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                sales(refreshed.business, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            int today = (int) LocalDate.now().toEpochDay();
+            assertEquals(sales(full.business, today - 30, today), sales(refreshed.business, today - 30, today));
+            int product = refreshed.productIndex.get(3);
+            assertEquals(7, refreshed.productStock[product]);
+            assertEquals(ColumnarSnapshot.NULL_CENTS, refreshed.productPriceCents[product]);
+            // base is left as it was
+            assertEquals(seeded, base.business.size());
+        }
+    }
+
+    // A deleted sale leaves no timestamp behind, so Business is read again in full
+    @Test
+    void deletedRowsForceAFullRead() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            ColumnarSnapshot base = ColumnarSnapshot.load(conn);
+            stmt.executeUpdate("DELETE FROM Business WHERE CustomerID = 7");
+            ColumnarSnapshot refreshed = ColumnarSnapshot.refresh(conn, base);
+            assertTrue(refreshed.fullTables.contains("Business"), refreshed.fullTables.toString());
+            assertEquals(sales(ColumnarSnapshot.load(conn).business, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                sales(refreshed.business, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        }
+    }
+}
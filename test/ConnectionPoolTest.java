@@ -0,0 +1,135 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pool;MODE=MySQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    private ConnectionPool pool(int maxSize, long acquireTimeoutMs) {
+        pool = new ConnectionPool(URL, "sa", "", 0, maxSize, 60_000, acquireTimeoutMs);
+        return pool;
+    }
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void closeReturnsTheConnectionForReuse() throws SQLException {
+        ConnectionPool pool = pool(2, 1_000);
+        pool.getConnection().close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(1, pool.getActiveCount());
+            assertEquals(1, pool.getTotalCount());
+        }
+        assertEquals(2, pool.getBorrowCount());
+        assertTrue(pool.getStats().contains("created=1"), pool.getStats());
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws SQLException {
+        ConnectionPool pool = pool(1, 50);
+        try (Connection held = pool.getConnection()) {
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        }
+        assertEquals(1, pool.getTimeoutCount());
+    }
+
+    @Test
+    void waiterGetsTheReturnedConnection() throws Exception {
+        ConnectionPool pool = pool(1, 5_000);
+        Connection held = pool.getConnection();
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = pool.getConnection()) {
+                return conn.isValid(1);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (pool.getWaiterCount() == 0) {
+            Thread.sleep(5);
+        }
+        held.close();
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closingTheConnectionClosesWhatTheBorrowerLeftOpen() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        Connection conn = pool.getConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT 1");
+        conn.close();
+        assertTrue(stmt.isClosed());
+        assertTrue(rs.isClosed());
+        assertTrue(pool.getStats().contains("leakedStatements=1"), pool.getStats());
+    }
+
+    @Test
+    void aReturnedHandleCannotBeUsed() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        Connection conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        // The next borrower gets the same physical connection through a new handle
+        try (Connection next = pool.getConnection()) {
+            assertNotSame(conn, next);
+            assertFalse(next.isClosed());
+        }
+    }
+
+    @Test
+    void uncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS pool_rollback (id INT)");
+            conn.setAutoCommit(false);
+            stmt.executeUpdate("INSERT INTO pool_rollback VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM pool_rollback")) {
+            assertTrue(conn.getAutoCommit());
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void statementsLeadBackToTheHandle() throws SQLException {
+        ConnectionPool pool = pool(1, 1_000);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT 1");
+             ResultSet rs = ps.executeQuery()) {
+            assertSame(conn, ps.getConnection());
+            assertSame(ps, rs.getStatement());
+        }
+    }
+
+    @Test
+    void shutdownRejectsNewBorrows() {
+        ConnectionPool pool = pool(1, 1_000);
+        pool.shutdown();
+        assertThrows(SQLException.class, pool::getConnection);
+    }
+
+    @Test
+    void rejectsInvalidSizes() {
+        pool = pool(1, 1_000);
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(URL, "sa", "", 3, 2, 60_000, 1_000));
+    }
+}
@@ -0,0 +1,98 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Only the SQL is checked here; pageSql and tieSql never touch the pool or the runner
+class KeysetPagerTest {
+    private static final String SELECT = "SELECT * FROM Business";
+
+    private static KeysetPager pager(boolean uniqueKey, KeysetPager.Key... keys) {
+        return new KeysetPager(null, null, SELECT, "Business", uniqueKey, rs -> new Object[0], keys);
+    }
+
+    @Test
+    void firstPageHasNoPredicate() {
+        KeysetPager pager = pager(true, KeysetPager.Key.asc("ProductID", "ProductID"));
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " ORDER BY ProductID LIMIT 500", pager.pageSql(null, 500, params));
+        assertTrue(params.isEmpty());
+    }
+
+    @Test
+    void singleKeyContinuesAfterTheLastRow() {
+        KeysetPager pager = pager(true, KeysetPager.Key.asc("ProductID", "ProductID"));
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " WHERE (ProductID > ?) ORDER BY ProductID LIMIT 100",
+            pager.pageSql(new Object[] { 42 }, 100, params));
+        assertEquals(Arrays.asList(42), params);
+    }
+
+    @Test
+    void compositeKeyIsExpandedIntoOrTerms() {
+        KeysetPager pager = pager(true, KeysetPager.Key.asc("AdsID", "AdsID"),
+            KeysetPager.Key.desc("Platform", "Platform"));
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " WHERE (AdsID > ?) OR (AdsID = ? AND Platform < ?) ORDER BY AdsID, Platform DESC LIMIT 10",
+            pager.pageSql(new Object[] { 7, "Insta" }, 10, params));
+        assertEquals(Arrays.asList(7, 7, "Insta"), params);
+    }
+
+    // NULL sorts lowest: last when descending, so a descending nullable key must also take the NULLs
+    @Test
+    void descendingNullableKeyIncludesNulls() {
+        KeysetPager pager = pager(false, KeysetPager.Key.desc("b.PDate", "PDate").nullable(),
+            KeysetPager.Key.desc("b.ProductID", "ProductID"));
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " WHERE ((b.PDate < ? OR b.PDate IS NULL)) OR (b.PDate = ? AND b.ProductID < ?)" +
+                " ORDER BY b.PDate DESC, b.ProductID DESC LIMIT 10",
+            pager.pageSql(new Object[] { "2024-01-31", 5 }, 10, params));
+        assertEquals(Arrays.asList("2024-01-31", "2024-01-31", 5), params);
+    }
+
+    @Test
+    void nullBoundOnADescendingKeyOnlyContinuesWithinTheNulls() {
+        KeysetPager pager = pager(false, KeysetPager.Key.desc("b.PDate", "PDate").nullable(),
+            KeysetPager.Key.desc("b.ProductID", "ProductID"));
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " WHERE (b.PDate IS NULL AND b.ProductID < ?) ORDER BY b.PDate DESC, b.ProductID DESC LIMIT 10",
+            pager.pageSql(new Object[] { null, 5 }, 10, params));
+        assertEquals(Arrays.asList(5), params);
+    }
+
+    @Test
+    void nullBoundOnAnAscendingKeyContinuesWithTheValues() {
+        KeysetPager pager = pager(true, KeysetPager.Key.asc("Platform", "Platform").nullable());
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " WHERE (Platform IS NOT NULL) ORDER BY Platform LIMIT 10",
+            pager.pageSql(new Object[] { null }, 10, params));
+        assertTrue(params.isEmpty());
+    }
+
+    @Test
+    void nothingFollowsANullBoundOnTheOnlyDescendingKey() {
+        KeysetPager pager = pager(true, KeysetPager.Key.desc("PDate", "PDate").nullable());
+        assertEquals(SELECT + " WHERE 1 = 0 ORDER BY PDate DESC LIMIT 10",
+            pager.pageSql(new Object[] { null }, 10, new ArrayList<>()));
+    }
+
+    @Test
+    void tieQueryMatchesNullKeysWithIsNull() {
+        KeysetPager pager = pager(false, KeysetPager.Key.desc("b.PDate", "PDate").nullable(),
+            KeysetPager.Key.desc("b.ProductID", "ProductID"));
+        List<Object> params = new ArrayList<>();
+        assertEquals(SELECT + " WHERE b.PDate IS NULL AND b.ProductID = ? ORDER BY b.PDate DESC, b.ProductID DESC",
+            pager.tieSql(new Object[] { null, 5 }, params));
+        assertEquals(Arrays.asList(5), params);
+    }
+
+    @Test
+    void requiresAKey() {
+        assertThrows(IllegalArgumentException.class, () -> pager(true));
+    }
+}
@@ -0,0 +1,131 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGroupByTest {
+    // Enough rows to be split across several fork/join tasks
+    private static final int ROWS = 200_000;
+
+    @Test
+    void sumMatchesASequentialGroupBy() {
+        Random random = new Random(42);
+        int[] keys = new int[ROWS];
+        long[] values = new long[ROWS];
+        Map<Long, long[]> expected = new HashMap<>();
+        for (int i = 0; i < ROWS; i++) {
+            keys[i] = random.nextInt(5_000);
+            values[i] = random.nextInt(100);
+            long[] sumCount = expected.computeIfAbsent((long) keys[i], k -> new long[2]);
+            sumCount[0] += values[i];
+            sumCount[1]++;
+        }
+
+        ParallelGroupBy.Groups groups = ParallelGroupBy.sum(ROWS, row -> keys[row], row -> values[row]);
+        assertEquals(expected.size(), groups.size());
+        for (int i = 0; i < groups.size(); i++) {
+            long[] sumCount = expected.get(groups.getKey(i));
+            assertNotNull(sumCount, "unexpected key " + groups.getKey(i));
+            assertEquals(sumCount[0], groups.getSum(i));
+            assertEquals(sumCount[1], groups.getCount(i));
+        }
+    }
+
+    @Test
+    void sumSkipsRowsWithoutAKey() {
+        ParallelGroupBy.Groups groups = ParallelGroupBy.sum(10,
+            row -> row % 2 == 0 ? ParallelGroupBy.SKIP : 1, row -> row);
+        assertEquals(1, groups.size());
+        assertEquals(1 + 3 + 5 + 7 + 9, groups.getSum(0));
+        assertEquals(5, groups.getCount(0));
+    }
+
+    // Like SQL: NULLs count in COUNT(*) but not in the SUM, and a group of only NULLs sums to NULL
+    @Test
+    void nullValuesAreLeftOutOfTheSum() {
+        long[] values = { 4, ParallelGroupBy.NULL, ParallelGroupBy.NULL, ParallelGroupBy.NULL };
+        ParallelGroupBy.Groups groups = ParallelGroupBy.sum(values.length, row -> row < 2 ? 1 : 2, row -> values[row]);
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.getKey(i) == 1) {
+                assertEquals(4, groups.getSum(i));
+                assertEquals(2, groups.getCount(i));
+                assertEquals(1, groups.getValueCount(i));
+            } else {
+                assertEquals(ParallelGroupBy.NULL, groups.getSum(i));
+                assertEquals(0, groups.getValueCount(i));
+            }
+        }
+
+        ParallelGroupBy.DenseGroups dense = ParallelGroupBy.sumDense(values.length, 3, row -> row < 2 ? 1 : 2,
+            row -> values[row]);
+        assertEquals(4, dense.getSum(1));
+        assertEquals(ParallelGroupBy.NULL, dense.getSum(2));
+        assertTrue(dense.isPresent(2));
+        assertEquals(0, dense.getSum(0));
+        assertArrayEquals(new int[] { 1, 2 }, ParallelGroupBy.topN(dense, 3));
+    }
+
+    @Test
+    void compositeKeysRoundTrip() {
+        long key = ParallelGroupBy.key(-3, 7);
+        assertEquals(-3, ParallelGroupBy.high(key));
+        assertEquals(7, ParallelGroupBy.low(key));
+    }
+
+    @Test
+    void sumDenseMatchesASequentialGroupBy() {
+        int groups = 50;
+        long[] expected = new long[groups];
+        for (int row = 0; row < ROWS; row++) {
+            if (row % 7 != 0) {
+                expected[row % groups] += row;
+            }
+        }
+        ParallelGroupBy.DenseGroups dense = ParallelGroupBy.sumDense(ROWS, groups,
+            row -> row % 7 == 0 ? -1 : row % groups, row -> row);
+        for (int g = 0; g < groups; g++) {
+            assertEquals(expected[g], dense.getSum(g));
+        }
+    }
+
+    @Test
+    void topNReturnsTheLargestFirst() {
+        long[] values = { 5, 1, 9, 7, 3, 8 };
+        assertArrayEquals(new int[] { 2, 5, 3 },
+            ParallelGroupBy.topN(values.length, i -> true, i -> values[i], 3));
+    }
+
+    @Test
+    void topNSkipsAbsentEntries() {
+        long[] values = { 5, 1, 9, 7, 3, 8 };
+        assertArrayEquals(new int[] { 3, 0 },
+            ParallelGroupBy.topN(values.length, i -> values[i] < 8, i -> values[i], 2));
+    }
+
+    @Test
+    void topNOfZeroIsEmpty() {
+        assertEquals(0, ParallelGroupBy.topN(3, i -> true, i -> i, 0).length);
+    }
+
+    // RANK() <= 2 per partition: with ties, every entry equal to the second largest is kept
+    @Test
+    void topNPerGroupKeepsTiesWhenAsked() {
+        long[][] rows = { { 1, 10, 50 }, { 1, 11, 40 }, { 1, 12, 40 }, { 1, 13, 10 }, { 2, 20, 5 } };
+        ParallelGroupBy.Groups groups = ParallelGroupBy.sum(rows.length,
+            row -> ParallelGroupBy.key((int) rows[row][0], (int) rows[row][1]), row -> rows[row][2]);
+
+        Map<Long, int[]> withTies = ParallelGroupBy.topNPerGroup(groups, key -> ParallelGroupBy.high(key), 2, true);
+        assertEquals(3, withTies.get(1L).length);
+        assertEquals(50, groups.getSum(withTies.get(1L)[0]));
+        assertEquals(1, withTies.get(2L).length);
+
+        Map<Long, int[]> withoutTies = ParallelGroupBy.topNPerGroup(groups, key -> ParallelGroupBy.high(key), 2, false);
+        assertEquals(2, withoutTies.get(1L).length);
+        assertEquals(40, groups.getSum(withoutTies.get(1L)[1]));
+    }
+}
@@ -0,0 +1,101 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The catalog lookups must return the products their SQL fallbacks return
+class ProductCatalogTest {
+    private static final String URL = "jdbc:h2:mem:catalog;MODE=MySQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1";
+
+    private static ConnectionPool pool;
+    private static ProductCatalog catalog;
+
+    @BeforeAll
+    static void load() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE Product (ProductID INT PRIMARY KEY, Name VARCHAR(100), " +
+                "Category VARCHAR(50), Material VARCHAR(50), Price DECIMAL(10,2), Stock INT)");
+            stmt.execute("INSERT INTO Product VALUES " +
+                "(1, 'Ring A', 'Rings', 'Gold', 100.00, 5), " +
+                "(2, 'Ring B', 'Rings', 'Silver', NULL, 2), " +
+                "(3, 'Chain', 'Neck_Chains', 'Gold', 250.00, NULL), " +
+                "(4, 'Pendant', 'Neck Pendants', '100% Silver', 75.50, 0), " +
+                "(5, 'Bangle', 'Bangles', NULL, 180.00, 12)");
+        }
+        pool = new ConnectionPool(URL, "sa", "");
+        catalog = new ProductCatalog(pool);
+        catalog.load();
+    }
+
+    @AfterAll
+    static void shutdown() throws SQLException {
+        pool.shutdown();
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static List<Integer> ids(List<ProductCatalog.Product> products) {
+        List<Integer> ids = new ArrayList<>();
+        for (ProductCatalog.Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> query(String sql, Object... params) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "ring", "Neck_", "neck%s", "_", "%", "Neck\\_", "x" })
+    void categorySearchMatchesLike(String fragment) throws SQLException {
+        assertEquals(query("SELECT ProductID FROM Product WHERE LOWER(Category) LIKE LOWER(?) ORDER BY Price, ProductID",
+            "%" + fragment + "%"), ids(catalog.searchByCategory(fragment)), fragment);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "100%", "100\\%", "gold" })
+    void materialSearchMatchesLike(String fragment) throws SQLException {
+        assertEquals(query("SELECT ProductID FROM Product WHERE LOWER(Material) LIKE LOWER(?) ORDER BY Price, ProductID",
+            "%" + fragment + "%"), ids(catalog.searchByMaterial(fragment)), fragment);
+    }
+
+    @Test
+    void nullPriceIsLeftOutOfPriceRanges() throws SQLException {
+        assertEquals(query("SELECT ProductID FROM Product WHERE Price BETWEEN ? AND ? ORDER BY Price", -1_000, 1_000),
+            ids(catalog.priceRange(-1_000, 1_000)));
+        assertEquals(List.of(4, 1), ids(catalog.priceRange(0, 150)));
+        assertNull(catalog.sortedByPrice().get(0).getPrice());
+    }
+
+    @Test
+    void nullStockIsLeftOutOfLowStock() throws SQLException {
+        assertEquals(query("SELECT ProductID FROM Product WHERE Stock <= ? ORDER BY Stock", 100),
+            ids(catalog.stockAtMost(100)));
+        assertFalse(ids(catalog.stockAtMost(Integer.MAX_VALUE)).contains(3));
+    }
+}
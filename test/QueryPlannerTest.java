@@ -0,0 +1,87 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlannerTest {
+    private static final QueryResult.ColumnType[] TYPES =
+        { QueryResult.ColumnType.STRING, QueryResult.ColumnType.INT };
+
+    private static QueryResult rows(Object... values) {
+        QueryResult.Builder builder = new QueryResult.Builder(new String[] { "Name", "Total" }, TYPES, 8);
+        for (int i = 0; i < values.length; i += 2) {
+            builder.addRow(values[i], values[i + 1]);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void sameRowsInAnyOrderMatch() {
+        assertNull(QueryPlanner.compare(rows("a", 1, "b", 2), rows("b", 2, "a", 1), null));
+    }
+
+    @Test
+    void duplicatesAreCountedAsAMultiset() {
+        assertNotNull(QueryPlanner.compare(rows("a", 1, "a", 1), rows("a", 1, "b", 2), null));
+    }
+
+    @Test
+    void numbersCompareByValueAcrossTypes() {
+        QueryResult.Builder decimal = new QueryResult.Builder(new String[] { "Name", "Total" },
+            new QueryResult.ColumnType[] { QueryResult.ColumnType.STRING, QueryResult.ColumnType.DECIMAL }, 1);
+        decimal.addRow("a", new BigDecimal("1.00"));
+        assertNull(QueryPlanner.compare(rows("a", 1), decimal.build(), null));
+    }
+
+    @Test
+    void reportsMissingAndExtraRows() {
+        String difference = QueryPlanner.compare(rows("a", 1, "b", 2), rows("a", 1, "c", 3), null);
+        assertNotNull(difference);
+        assertTrue(difference.contains("missing [[b, 2]]"), difference);
+        assertTrue(difference.contains("extra [[c, 3]]"), difference);
+    }
+
+    @Test
+    void columnCountMismatch() {
+        QueryResult.Builder one = new QueryResult.Builder(new String[] { "Name" },
+            new QueryResult.ColumnType[] { QueryResult.ColumnType.STRING }, 1);
+        one.addRow("a");
+        assertEquals("column count 2 vs 1", QueryPlanner.compare(rows("a", 1), one.build(), null));
+    }
+
+    // LIMIT 3 ORDER BY Total DESC: c and d tie on the last rank, so either may be kept
+    @Test
+    void topNIgnoresWhichTiedRowTheLimitKept() {
+        QueryPlanner.TopN top3 = new QueryPlanner.TopN(3, 1);
+        assertNull(QueryPlanner.compare(rows("a", 9, "b", 8, "c", 5), rows("a", 9, "b", 8, "d", 5), top3));
+    }
+
+    @Test
+    void topNStillComparesRowsRankedAboveTheTie() {
+        QueryPlanner.TopN top3 = new QueryPlanner.TopN(3, 1);
+        assertNotNull(QueryPlanner.compare(rows("a", 9, "b", 8, "c", 5), rows("a", 9, "x", 8, "c", 5), top3));
+    }
+
+    @Test
+    void topNRequiresTheSameBoundaryRank() {
+        QueryPlanner.TopN top3 = new QueryPlanner.TopN(3, 1);
+        String difference = QueryPlanner.compare(rows("a", 9, "b", 8, "c", 5), rows("a", 9, "b", 8, "c", 4), top3);
+        assertEquals("last row ranked on [5] vs [4]", difference);
+    }
+
+    @Test
+    void topNRequiresTheSameRowCountWhenTheLimitCut() {
+        QueryPlanner.TopN top2 = new QueryPlanner.TopN(2, 1);
+        assertEquals("rows 2 vs 1", QueryPlanner.compare(rows("a", 9, "b", 8), rows("a", 9), top2));
+    }
+
+    // Fewer rows than the limit: nothing was cut, so every row must match, ties included
+    @Test
+    void topNBelowTheLimitComparesEveryRow() {
+        QueryPlanner.TopN top5 = new QueryPlanner.TopN(5, 1);
+        assertNotNull(QueryPlanner.compare(rows("a", 9, "c", 5), rows("a", 9, "d", 5), top5));
+    }
+}
@@ -0,0 +1,120 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+    private static final ResultCache.Policy PRODUCTS = new ResultCache.Policy(Duration.ofMinutes(5), "Product");
+    private static final ResultCache.Policy SALES =
+        new ResultCache.Policy(Duration.ofMinutes(5), "Business", "Product");
+    private static final ResultCache.Policy CUSTOMERS = new ResultCache.Policy(Duration.ofMinutes(5), "Customer");
+
+    private static QueryResult result(int rows) {
+        QueryResult.Builder builder = new QueryResult.Builder(new String[] { "ID" },
+            new QueryResult.ColumnType[] { QueryResult.ColumnType.INT }, rows);
+        for (int i = 0; i < rows; i++) {
+            builder.addRow(i);
+        }
+        return builder.build();
+    }
+
+    private static void put(ResultCache cache, String key, QueryResult result, ResultCache.Policy policy) {
+        cache.put(key, result, policy, cache.generation());
+    }
+
+    @Test
+    void keyIncludesParameters() {
+        assertEquals("Q04", ResultCache.key("Q04"));
+        assertEquals("Q04[Gold Ring, 3]", ResultCache.key("Q04", "Gold Ring", 3));
+    }
+
+    @Test
+    void returnsWhatWasPut() {
+        ResultCache cache = new ResultCache(1 << 20);
+        QueryResult result = result(10);
+        put(cache, "a", result, PRODUCTS);
+        assertSame(result, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void expiresAfterTheTtl() {
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, "a", result(1), new ResultCache.Policy(Duration.ZERO, "Product"));
+        assertNull(cache.get("a"));
+        assertTrue(cache.getStats().contains("expired=1"), cache.getStats());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedByBytes() {
+        QueryResult a = result(100);
+        QueryResult b = result(100);
+        QueryResult c = result(100);
+        ResultCache cache = new ResultCache(a.estimatedBytes() * 2 + a.estimatedBytes() / 2);
+        put(cache, "a", a, PRODUCTS);
+        put(cache, "b", b, PRODUCTS);
+        assertSame(a, cache.get("a")); // b is now the least recently used
+        put(cache, "c", c, PRODUCTS);
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertSame(c, cache.get("c"));
+    }
+
+    @Test
+    void skipsResultsLargerThanTheWholeCache() {
+        QueryResult big = result(1000);
+        ResultCache cache = new ResultCache(big.estimatedBytes() - 1);
+        put(cache, "big", big, PRODUCTS);
+        assertNull(cache.get("big"));
+    }
+
+    @Test
+    void invalidateTableDropsOnlyResultsReadingIt() {
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, "products", result(1), PRODUCTS);
+        put(cache, "sales", result(1), SALES);
+        put(cache, "customers", result(1), CUSTOMERS);
+        cache.invalidateTable("PRODUCT");
+        assertNull(cache.get("products"));
+        assertNull(cache.get("sales"));
+        assertNotNull(cache.get("customers"));
+    }
+
+    @Test
+    void invalidateAllDropsEverything() {
+        ResultCache cache = new ResultCache(1 << 20);
+        put(cache, "products", result(1), PRODUCTS);
+        put(cache, "customers", result(1), CUSTOMERS);
+        cache.invalidateAll();
+        assertNull(cache.get("products"));
+        assertNull(cache.get("customers"));
+    }
+
+    // A result computed while one of its tables was written may predate the write
+    @Test
+    void discardsResultsComputedAcrossAnInvalidation() {
+        ResultCache cache = new ResultCache(1 << 20);
+        long before = cache.generation();
+        cache.invalidateTable("Business");
+        cache.put("sales", result(1), SALES, before);
+        cache.put("customers", result(1), CUSTOMERS, before);
+        assertNull(cache.get("sales"));
+        assertNotNull(cache.get("customers"));
+        assertTrue(cache.getStats().contains("discarded=1"), cache.getStats());
+
+        cache.put("sales", result(1), SALES, cache.generation());
+        assertNotNull(cache.get("sales"));
+    }
+
+    @Test
+    void discardsEveryResultComputedAcrossInvalidateAll() {
+        ResultCache cache = new ResultCache(1 << 20);
+        long before = cache.generation();
+        cache.invalidateAll();
+        cache.put("customers", result(1), CUSTOMERS, before);
+        assertNull(cache.get("customers"));
+    }
+}
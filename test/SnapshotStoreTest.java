@@ -0,0 +1,97 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+    private static final String URL = "jdbc:h2:mem:snapshotstore;MODE=MySQL;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1";
+
+    private static ColumnarSnapshot loaded;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+            DataGenerator.createSchema(conn);
+        }
+        new DataGenerator(100, 200, 5_000, 100, 5, 1.0, 500, 1, 3).generate(URL, "sa", "");
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            // NULLs must come back as NULLs, not as 0
+            stmt.executeUpdate("UPDATE Product SET Price = NULL, Stock = NULL WHERE MOD(ProductID, 7) = 0");
+            stmt.executeUpdate("UPDATE Business SET Qty = NULL, PDate = NULL WHERE MOD(CustomerID, 13) = 0");
+            stmt.executeUpdate("UPDATE Ads SET Revenue = NULL, Impressions = NULL WHERE MOD(AdsID, 5) = 0");
+            loaded = ColumnarSnapshot.load(conn);
+        }
+    }
+
+    @AfterAll
+    static void drop() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void openReturnsWhatWasSaved() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.save(loaded);
+        ColumnarSnapshot opened = store.open();
+        assertNotNull(opened);
+
+        assertEquals(loaded.loadedAt, opened.loadedAt);
+        assertEquals(loaded.watermark, opened.watermark);
+        assertArrayEquals(loaded.productNames.toArray(), opened.productNames.toArray());
+        assertArrayEquals(loaded.categories.toArray(), opened.categories.toArray());
+        assertArrayEquals(loaded.cities.toArray(), opened.cities.toArray());
+        assertArrayEquals(loaded.platforms.toArray(), opened.platforms.toArray());
+
+        assertEquals(loaded.productCount, opened.productCount);
+        assertArrayEquals(loaded.productId, opened.productId);
+        assertArrayEquals(loaded.productName, opened.productName);
+        assertArrayEquals(loaded.productPriceCents, opened.productPriceCents);
+        assertArrayEquals(loaded.productStock, opened.productStock);
+        assertArrayEquals(loaded.customerName, opened.customerName);
+        assertArrayEquals(loaded.customerCity, opened.customerCity);
+        assertArrayEquals(loaded.regionalRegion, opened.regionalRegion);
+        assertArrayEquals(loaded.categoryName, opened.categoryName);
+        assertArrayEquals(loaded.adsImpressions, opened.adsImpressions);
+        assertArrayEquals(loaded.adsRevenueCents, opened.adsRevenueCents);
+        assertArrayEquals(loaded.adsCostCents, opened.adsCostCents);
+        assertArrayEquals(loaded.productAdsAdsId, opened.productAdsAdsId);
+
+        assertEquals(loaded.business.size(), opened.business.size());
+        assertEquals(loaded.business.getBaseRows(), opened.business.getBaseRows());
+        assertEquals(loaded.business.records(), opened.business.records());
+
+        // The indexes are rebuilt on open
+        assertEquals(loaded.productIndex.get(loaded.productId[5]), opened.productIndex.get(loaded.productId[5]));
+        assertArrayEquals(loaded.productAdsAd, opened.productAdsAd);
+    }
+
+    @Test
+    void nothingStoredOpensAsNull() throws IOException {
+        assertNull(new SnapshotStore(dir.resolve("missing")).open());
+    }
+
+    // A save interrupted between two files leaves no snapshot to open
+    @Test
+    void incompleteSnapshotOpensAsNull() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.save(loaded);
+        Files.delete(dir.resolve("ads.snap"));
+        assertNull(store.open());
+    }
+}
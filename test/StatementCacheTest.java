@@ -0,0 +1,77 @@
+package mini_project_dbms;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+    private static final String URL = "jdbc:h2:mem:stmtcache;MODE=MySQL;DATABASE_TO_UPPER=FALSE";
+
+    private Connection conn;
+
+    @BeforeEach
+    void connect() throws SQLException {
+        conn = DriverManager.getConnection(URL, "sa", "");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void releasedStatementIsReused() throws SQLException {
+        StatementCache cache = new StatementCache(conn, 4);
+        PreparedStatement first = cache.prepare("SELECT 1");
+        cache.release("SELECT 1", first);
+        assertSame(first, cache.prepare("SELECT 1"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    // A checked-out statement is never handed to a second caller
+    @Test
+    void concurrentUsersGetTheirOwnStatement() throws SQLException {
+        StatementCache cache = new StatementCache(conn, 4);
+        PreparedStatement a = cache.prepare("SELECT 1");
+        PreparedStatement b = cache.prepare("SELECT 1");
+        assertNotSame(a, b);
+        cache.release("SELECT 1", a);
+        cache.release("SELECT 1", b);
+        assertFalse(a.isClosed());
+        assertTrue(b.isClosed(), "the extra copy is closed when it comes back");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() throws SQLException {
+        StatementCache cache = new StatementCache(conn, 2);
+        PreparedStatement one = cache.prepare("SELECT 1");
+        PreparedStatement two = cache.prepare("SELECT 2");
+        PreparedStatement three = cache.prepare("SELECT 3");
+        cache.release("SELECT 1", one);
+        cache.release("SELECT 2", two);
+        cache.release("SELECT 3", three);
+        assertTrue(one.isClosed());
+        assertFalse(two.isClosed());
+        assertFalse(three.isClosed());
+        assertTrue(cache.getStats().contains("evictions=1"), cache.getStats());
+    }
+
+    @Test
+    void invalidateClosesEverythingAndRejectsNewUse() throws SQLException {
+        StatementCache cache = new StatementCache(conn, 4);
+        PreparedStatement cached = cache.prepare("SELECT 1");
+        PreparedStatement out = cache.prepare("SELECT 2");
+        cache.release("SELECT 1", cached);
+        cache.invalidate();
+        assertTrue(cached.isClosed());
+        assertThrows(SQLException.class, () -> cache.prepare("SELECT 1"));
+        // A statement still checked out when the cache was invalidated is closed on return
+        cache.release("SELECT 2", out);
+        assertTrue(out.isClosed());
+    }
+}